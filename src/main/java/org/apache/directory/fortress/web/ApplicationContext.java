@@ -20,17 +20,36 @@
 package org.apache.directory.fortress.web;
 
 
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AuditExecutor;
+import org.apache.directory.fortress.web.control.AccountIndex;
+import org.apache.directory.fortress.web.control.ComplianceScan;
+import org.apache.directory.fortress.web.control.GlobalSearchIndex;
+import org.apache.directory.fortress.web.control.ImportJob;
+import org.apache.directory.fortress.web.control.MappedDataStore;
+import org.apache.directory.fortress.web.control.MeteredSerializer;
+import org.apache.directory.fortress.web.control.OrphanScan;
+import org.apache.directory.fortress.web.control.Prefetch;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
 import org.apache.directory.fortress.web.control.WicketSession;
+import org.apache.directory.fortress.web.panel.PhotoResource;
+import org.apache.log4j.Logger;
+import org.apache.wicket.DefaultPageManagerProvider;
 import org.apache.wicket.Page;
 import org.apache.wicket.Session;
 import org.apache.wicket.core.request.handler.PageProvider;
 import org.apache.wicket.core.request.handler.RenderPageRequestHandler;
+import org.apache.wicket.pageStore.IDataStore;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
 import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.resource.caching.FilenameWithVersionResourceCachingStrategy;
+import org.apache.wicket.request.resource.caching.version.CachingResourceVersion;
+import org.apache.wicket.request.resource.caching.version.MessageDigestResourceVersion;
 import org.apache.wicket.spring.injection.annot.SpringComponentInjector;
 
 /**
@@ -39,6 +58,8 @@ import org.apache.wicket.spring.injection.annot.SpringComponentInjector;
  */
 public class ApplicationContext extends WebApplication
 {
+    private static final Logger LOG = Logger.getLogger( ApplicationContext.class.getName() );
+
     @Override
     public Session newSession( Request request, Response response )
     {
@@ -61,6 +82,63 @@ public class ApplicationContext extends WebApplication
             }
         } );
         getMarkupSettings().setStripWicketTags( true );
+        // Fingerprint package resources by content so browsers may cache them indefinitely:
+        getResourceSettings().setCachingStrategy( new FilenameWithVersionResourceCachingStrategy(
+            new CachingResourceVersion( new MessageDigestResourceVersion() ) ) );
+        // User photos are served by content hash rather than from the page models:
+        mountResource( PhotoResource.MOUNT_PATH, PhotoResource.REFERENCE );
+        initPageStore();
+        GlobalSearchIndex.start();
+        SuggestionIndex.start();
+        ComplianceScan.start();
+        AccountIndex.start();
+    }
+
+
+    @Override
+    protected void onDestroy()
+    {
+        GlobalSearchIndex.stop();
+        SuggestionIndex.stop();
+        ComplianceScan.stop();
+        OrphanScan.stop();
+        AccountIndex.stop();
+        Prefetch.stop();
+        AuditExecutor.stop();
+        ImportJob.stop();
+        super.onDestroy();
+    }
+
+
+    /**
+     * Replace wicket's default java serialization, and if asked for its disk store, with the ones configured in
+     * fortress.properties.
+     */
+    private void initPageStore()
+    {
+        getFrameworkSettings().setSerializer( MeteredSerializer.newInstance( getApplicationKey() ) );
+        if ( Config.getInstance().getBoolean( GlobalIds.PAGE_STORE_MAPPED, false ) )
+        {
+            long size = Config.getInstance().getInt( GlobalIds.PAGE_STORE_SIZE_MB, 64 ) * 1024L * 1024L;
+            long sessionSize = Config.getInstance().getInt( GlobalIds.PAGE_STORE_SESSION_MAX_KB, 2048 ) * 1024L;
+            // a single mapped buffer is limited to an int's range:
+            if ( size <= 0 || size >= Integer.MAX_VALUE || sessionSize <= 0 )
+            {
+                LOG.error( "initPageStore " + GlobalIds.PAGE_STORE_SIZE_MB + " must be between 1 and 2047, and "
+                    + GlobalIds.PAGE_STORE_SESSION_MAX_KB + " positive, keeping wicket's disk store" );
+                return;
+            }
+            final int capacity = ( int ) size;
+            final int sessionCapacity = ( int ) Math.min( sessionSize, size );
+            setPageManagerProvider( new DefaultPageManagerProvider( this )
+            {
+                @Override
+                protected IDataStore newDataStore()
+                {
+                    return new MappedDataStore( getStoreSettings().getFileStoreFolder(), capacity, sessionCapacity );
+                }
+            } );
+        }
     }
 
     public Class<? extends Page> getHomePage()
@@ -20,11 +20,13 @@
 package org.apache.directory.fortress.web;
 
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.AuditAuthzListModel;
 import org.apache.wicket.Component;
-import org.apache.wicket.extensions.ajax.markup.html.AjaxLazyLoadPanel;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.basic.Label;
 import org.apache.directory.fortress.web.panel.AuditAuthzDetailPanel;
+import org.apache.directory.fortress.web.panel.AuditLoadPanel;
 import org.apache.directory.fortress.web.panel.AuditAuthzListPanel;
 import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.InfoPanel;
@@ -88,17 +90,27 @@ public class AuditAuthzPage extends FortressWebBasePage
         container.add(navPanel);
 
         // 4. List Panel:
-        container.add(new AjaxLazyLoadPanel("authzlistpanel")
+        // the search runs on the audit pool, the panel checks back for the results rather than waiting on them:
+        final AuditAuthzListModel listModel = new AuditAuthzListModel( userAudit, SecUtils.getSession( this ) ).search();
+        container.add( new AuditLoadPanel( "authzlistpanel" )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
-    
+
+
+            @Override
+            protected boolean isLoaded()
+            {
+                return listModel.isLoaded();
+            }
+
+
             @Override
-               public Component getLazyLoadComponent(String id)
-               {
-                   return new AuditAuthzListPanel( id, userAudit );
-               }
-        });
+            public Component getLazyLoadComponent( String id )
+            {
+                return new AuditAuthzListPanel( id, userAudit, listModel );
+            }
+        } );
 
         this.add(container);
     }
@@ -20,11 +20,13 @@
 package org.apache.directory.fortress.web;
 
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.AuditModListModel;
 import org.apache.wicket.Component;
-import org.apache.wicket.extensions.ajax.markup.html.AjaxLazyLoadPanel;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.basic.Label;
 import org.apache.directory.fortress.web.panel.AuditModDetailPanel;
+import org.apache.directory.fortress.web.panel.AuditLoadPanel;
 import org.apache.directory.fortress.web.panel.AuditModListPanel;
 import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.InfoPanel;
@@ -88,18 +90,27 @@ public class AuditModPage extends FortressWebBasePage
         container.add(navPanel);
 
         // 4. List Panel:
-        container.add(new AjaxLazyLoadPanel("modlistpanel")
+        // the search runs on the audit pool, the panel checks back for the results rather than waiting on them:
+        final AuditModListModel listModel = new AuditModListModel( userAudit, SecUtils.getSession( this ) ).search();
+        container.add( new AuditLoadPanel( "modlistpanel" )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean isLoaded()
+            {
+                return listModel.isLoaded();
+            }
+
+
             @Override
-            
-            public Component getLazyLoadComponent(String id)
+            public Component getLazyLoadComponent( String id )
             {
-                 //return new AuditAuthzListPanel(id);
-                return new AuditModListPanel( id, userAudit );
+                return new AuditModListPanel( id, userAudit, listModel );
             }
-        });
+        } );
 
         this.add(container);
     }
@@ -24,21 +24,36 @@ import io.prometheus.client.Counter;
 import io.prometheus.client.Summary;
 import net.sf.ehcache.search.aggregator.Sum;
 import org.apache.commons.lang.StringUtils;
-import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.realm.J2eePolicyMgr;
 import org.apache.directory.fortress.web.common.*;
+import org.apache.directory.fortress.web.control.ActivationGuard;
+import org.apache.directory.fortress.web.control.AccountIndex;
+import org.apache.directory.fortress.web.control.AdminScope;
+import org.apache.directory.fortress.web.control.ComplianceScan;
+import org.apache.directory.fortress.web.control.GlobalSearchIndex;
+import org.apache.directory.fortress.web.control.ReviewCache;
+import org.apache.directory.fortress.web.control.RoleAssignmentIndex;
+import org.apache.directory.fortress.web.control.RoleUsage;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.control.SecureBookmarkablePageLink;
+import org.apache.directory.fortress.web.control.SessionBootstrap;
+import org.apache.directory.fortress.web.control.StaticResourceFilter;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
 import org.apache.directory.fortress.web.control.WicketSession;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.log4j.Logger;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.head.CssHeaderItem;
+import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.html.WebPage;
 import org.apache.wicket.markup.html.basic.Label;
 import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.core.*;
-import org.apache.directory.fortress.core.model.Session;
 
+import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import java.security.Principal;
 
@@ -71,6 +86,16 @@ public abstract class FortressWebBasePage extends WebPage
     static final String PARAM_DOM_LOADING_NAME = "window.performance.timing.domLoading";
 
 
+    // served by StaticResourceFilter, in the order they are rendered:
+    private static final String[] STYLE_SHEETS =
+        {
+            "css/camo-style.css",
+            "css/ui-lightness/jquery-ui-1.10.2.custom.min.css",
+            "css/kendo.common.min.css",
+            "css/kendo.uniform.min.css",
+            "css/splitter-style.css"
+        };
+
     // metric for getting the total number of requests
     static final Counter requestTotalCount = Counter.build()
             .name("request_messages_total")
@@ -532,6 +557,7 @@ public abstract class FortressWebBasePage extends WebPage
         SecureBookmarkablePageLink permouLink = new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.PERMOUS_PAGE,
             OuPermPage.class, parameters, org.apache.directory.fortress.web.common.GlobalIds.ROLE_PERMOUS );
         add( permouLink );
+        add( new GlobalSearchPanel( "globalSearch" ) );
 
         /* TODO: Add groups back:
         add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.GROUP_PAGE, GroupPage.class,
@@ -547,6 +573,21 @@ public abstract class FortressWebBasePage extends WebPage
         add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.AUDIT_MODS_PAGE, AuditModPage.class,
             org.apache.directory.fortress.web.common.GlobalIds.ROLE_AUDIT_MODS ) );
 
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.IMPORT_PAGE, ImportPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_IMPORT ) );
+
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.DIFF_PAGE, PolicyDiffPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_IMPORT ) );
+
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.COMPLIANCE_PAGE, CompliancePage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_SSDS ) );
+
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.ORPHANS_PAGE, OrphanPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_ROLES ) );
+
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.ACCOUNTS_PAGE, AccountPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_USERS ) );
+
         add( new Label( "footer", "Copyright (c) 2003-2016, The Apache Software Foundation. All Rights Reserved." ) );
 
         final Link actionLink = new Link( "logout" )
@@ -571,7 +612,6 @@ public abstract class FortressWebBasePage extends WebPage
         {
             // Here the principal was created by fortress realm and is a serialized instance of {@link Session}.
             String szPrincipal = principal.toString();
-            Session session = null;
 
             String szIsJetty = System.getProperty( org.apache.directory.fortress.web.common.GlobalIds.IS_JETTY_SERVER );
             boolean isJetty = false;
@@ -582,31 +622,54 @@ public abstract class FortressWebBasePage extends WebPage
                     isJetty = true;
                 }
             }
-            if( !isJetty )
+
+            // Deserialize the principal string into a fortress session and retrieve its arbac perms.  This is done once per login and shared by concurrent first requests.
+            SessionBootstrap.Result bootstrap = SessionBootstrap.bootstrap( szPrincipal, principal.getName(), !isJetty,
+                j2eePolicyMgr, accessMgr, delAccessMgr );
+
+            // Now load the fortress session into the Wicket session and let wicket hold onto that for us along with the arbac perms.
+            synchronized ( ( WicketSession ) WicketSession.get() )
             {
-                try
+                if ( !isLoggedIn() )
                 {
-                    // Deserialize the principal string into a fortress session:
-                    session = j2eePolicyMgr.deserialize( szPrincipal );
-                }
-                catch(SecurityException se)
-                {
-                    // Can't recover....
-                    throw new RuntimeException( se );
+                    ( ( WicketSession ) WicketSession.get() ).setSession( bootstrap.getSession() );
+                    ( ( WicketSession ) WicketSession.get() ).setPermissions( bootstrap.getPermissions() );
+                    LOG.debug( "Session successfully created for userId: " + bootstrap.getSession().getUserId() );
                 }
             }
+        }
+    }
 
-            // If this is null, it means this app cannot share an rbac session with container and must now (re)create session here:
-            if ( session == null )
-            {
-                session = SecUtils.createSession( accessMgr, principal.getName() );
-            }
 
-            // Now load the fortress session into the Wicket session and let wicket hold onto that for us.  Also retreive the arbac perms from server and cache those too.
-            synchronized ( ( WicketSession ) WicketSession.get() )
-            {
-                SecUtils.loadPermissionsIntoSession( delAccessMgr, session );
-            }
+    @Override
+    public void renderHead( IHeaderResponse response )
+    {
+        super.renderHead( response );
+        ServletContext servletContext = WebApplication.get().getServletContext();
+        for ( String styleSheet : STYLE_SHEETS )
+        {
+            response.render( CssHeaderItem.forUrl( StaticResourceFilter.url( servletContext, styleSheet ), "all" ) );
+        }
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        super.onEvent( event );
+        // saves are broadcast from the page so it sees every one first:
+        if ( event.getPayload() instanceof SaveModelEvent )
+        {
+            SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
+            SuggestionIndex.onSave( SecUtils.getSession( this ), modelEvent.getEntity(), modelEvent.getOperation() );
+            GlobalSearchIndex.onSave( modelEvent.getEntity(), modelEvent.getOperation() );
+            ReviewCache.onSave( modelEvent.getEntity(), modelEvent.getOperation() );
+            RoleAssignmentIndex.onSave( modelEvent.getEntity(), modelEvent.getOperation() );
+            ComplianceScan.onSave( modelEvent.getEntity(), modelEvent.getOperation() );
+            ActivationGuard.onSave( modelEvent.getEntity(), modelEvent.getOperation() );
+            RoleUsage.onSave( modelEvent.getEntity(), modelEvent.getOperation() );
+            AccountIndex.onSave( modelEvent.getEntity(), modelEvent.getOperation() );
+            AdminScope.onSave( modelEvent.getEntity(), modelEvent.getOperation() );
         }
     }
 
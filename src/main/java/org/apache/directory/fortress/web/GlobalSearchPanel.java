@@ -0,0 +1,219 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web;
+
+
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AdminScope;
+import org.apache.directory.fortress.web.control.GlobalSearchIndex;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureBookmarkablePageLink;
+import org.apache.wicket.Page;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.form.AjaxButton;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Search box shown in the header of every page.  Finds entities of every type by a fragment of their name or
+ * description using the {@link GlobalSearchIndex}, and links each hit to the page that manages its type.  Types the
+ * administrator may not navigate to, and entities outside their ARBAC scope, are left out of the results.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class GlobalSearchPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int HITS_PER_KIND = 10;
+    private static final Map<GlobalSearchIndex.Kind, Target> TARGETS = new EnumMap<>( GlobalSearchIndex.Kind.class );
+    private String query;
+    private final List<Group> groups = new ArrayList<>();
+
+    static
+    {
+        TARGETS.put( GlobalSearchIndex.Kind.USER, new Target( "Users", UserPage.class, GlobalIds.ROLE_USERS ) );
+        TARGETS.put( GlobalSearchIndex.Kind.ROLE, new Target( "Roles", RolePage.class, GlobalIds.ROLE_ROLES ) );
+        TARGETS.put( GlobalSearchIndex.Kind.PERM_OBJ, new Target( "Permission Objects", ObjectPage.class,
+            GlobalIds.ROLE_PERMOBJS ) );
+        TARGETS.put( GlobalSearchIndex.Kind.PERM, new Target( "Permissions", PermPage.class, GlobalIds.ROLE_PERMS ) );
+        TARGETS.put( GlobalSearchIndex.Kind.SSD, new Target( "Static Separation of Duty Sets", SdStaticPage.class,
+            GlobalIds.ROLE_SSDS ) );
+        TARGETS.put( GlobalSearchIndex.Kind.DSD, new Target( "Dynamic Separation of Duty Sets", SdDynamicPage.class,
+            GlobalIds.ROLE_DSDS ) );
+        TARGETS.put( GlobalSearchIndex.Kind.USER_OU, new Target( "User Organizations", OuUserPage.class,
+            GlobalIds.ROLE_USEROUS ) );
+        TARGETS.put( GlobalSearchIndex.Kind.PERM_OU, new Target( "Permission Organizations", OuPermPage.class,
+            GlobalIds.ROLE_PERMOUS ) );
+        TARGETS.put( GlobalSearchIndex.Kind.ADMIN_ROLE, new Target( "Admin Roles", RoleAdminPage.class,
+            GlobalIds.ROLE_ADMINROLES ) );
+        TARGETS.put( GlobalSearchIndex.Kind.ADMIN_PERM_OBJ, new Target( "Admin Permission Objects",
+            ObjectAdminPage.class, GlobalIds.ROLE_ADMINOBJS ) );
+        TARGETS.put( GlobalSearchIndex.Kind.ADMIN_PERM, new Target( "Admin Permissions", PermAdminPage.class,
+            GlobalIds.ROLE_ADMINPERMS ) );
+        TARGETS.put( GlobalSearchIndex.Kind.POLICY, new Target( "Password Policies", PwPolicyPage.class,
+            GlobalIds.ROLE_POLICIES ) );
+    }
+
+
+    /**
+     * The page an entity type is managed on and the role needed to navigate there.
+     */
+    private static class Target
+    {
+        private final String label;
+        private final Class<? extends Page> pageClass;
+        private final String roleName;
+
+
+        private Target( String label, Class<? extends Page> pageClass, String roleName )
+        {
+            this.label = label;
+            this.pageClass = pageClass;
+            this.roleName = roleName;
+        }
+    }
+
+
+    /**
+     * The hits of one entity type.
+     */
+    private static class Group implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final GlobalSearchIndex.Kind kind;
+        private final List<GlobalSearchIndex.Hit> hits;
+
+
+        private Group( GlobalSearchIndex.Kind kind, List<GlobalSearchIndex.Hit> hits )
+        {
+            this.kind = kind;
+            this.hits = hits;
+        }
+    }
+
+
+    public GlobalSearchPanel( String id )
+    {
+        super( id );
+        Form form = new Form( "globalSearchForm" );
+        add( form );
+        form.add( new TextField<>( "query", new PropertyModel<String>( this, "query" ) ) );
+
+        final WebMarkupContainer results = new WebMarkupContainer( "globalSearchResults" );
+        results.setOutputMarkupPlaceholderTag( true );
+        results.setVisible( false );
+        add( results );
+        results.add( new Label( "globalSearchEmpty", "No matches" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( groups.isEmpty() );
+            }
+        } );
+        results.add( new ListView<Group>( "groups", new PropertyModel<List<Group>>( this, "groups" ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<Group> groupItem )
+            {
+                // look the target up again below, it isn't serializable so can't be captured by the list view:
+                final GlobalSearchIndex.Kind kind = groupItem.getModelObject().kind;
+                groupItem.add( new Label( "kind", TARGETS.get( kind ).label ) );
+                groupItem.add( new ListView<GlobalSearchIndex.Hit>( "hits", groupItem.getModelObject().hits )
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    protected void populateItem( ListItem<GlobalSearchIndex.Hit> hitItem )
+                    {
+                        GlobalSearchIndex.Hit hit = hitItem.getModelObject();
+                        Target target = TARGETS.get( kind );
+                        PageParameters parameters = new PageParameters();
+                        parameters.set( GlobalIds.SEARCH_VAL, hit.getName() );
+                        SecureBookmarkablePageLink link = new SecureBookmarkablePageLink( "link", target.pageClass,
+                            parameters, target.roleName );
+                        link.add( new Label( "name", hit.getName() ) );
+                        hitItem.add( link );
+                        hitItem.add( new Label( GlobalIds.DESCRIPTION, hit.getDescription() ) );
+                    }
+                } );
+            }
+        } );
+
+        form.add( new AjaxButton( "globalSearchButton" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target, Form<?> form )
+            {
+                search();
+                results.setVisible( true );
+                target.add( results );
+            }
+        } );
+    }
+
+
+    private void search()
+    {
+        groups.clear();
+        HttpServletRequest servletReq = ( HttpServletRequest ) getRequest().getContainerRequest();
+        for ( Map.Entry<GlobalSearchIndex.Kind, List<GlobalSearchIndex.Hit>> hits : GlobalSearchIndex.search(
+            query, HITS_PER_KIND, AdminScope.get( SecUtils.getSession( this ) ) ).entrySet() )
+        {
+            if ( SecUtils.isAuthorized( TARGETS.get( hits.getKey() ).roleName, servletReq ) )
+            {
+                groups.add( new Group( hits.getKey(), hits.getValue() ) );
+            }
+        }
+    }
+}
@@ -29,6 +29,8 @@ import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.GroupDetailPanel;
 import org.apache.directory.fortress.web.panel.GroupListPanel;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.GroupListModel;
 import org.apache.directory.fortress.web.panel.InfoPanel;
 
 
@@ -57,6 +59,8 @@ public class GroupPage extends FortressWebBasePage
         NavPanel navPanel = new NavPanel( GlobalIds.NAVPANEL );
 
         // 2. List Panel:
+        // start loading the list now, so it's ready by the time the lazy panel asks for it:
+        final GroupListModel listModel = GroupListPanel.newListModel( SecUtils.getSession( this ) ).prefetch();
         container.add( new AjaxLazyLoadPanel( GlobalIds.GROUPLISTPANEL )
         {
             /** Default serialVersionUID */
@@ -66,7 +70,7 @@ public class GroupPage extends FortressWebBasePage
             @Override
             public Component getLazyLoadComponent( String id )
             {
-                return new GroupListPanel( id );
+                return new GroupListPanel( id, listModel );
             }
         } );
 
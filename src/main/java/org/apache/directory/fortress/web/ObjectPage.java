@@ -35,6 +35,8 @@ import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.InfoPanel;
 import org.apache.directory.fortress.web.panel.ObjectDetailPanel;
 import org.apache.directory.fortress.web.panel.ObjectListPanel;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.ObjectListModel;
 import org.apache.wicket.util.string.StringValue;
 
 
@@ -65,6 +67,9 @@ public class ObjectPage extends FortressWebBasePage
         NavPanel navPanel = new NavPanel( GlobalIds.NAVPANEL );
 
         // 2. List Panel:
+        // start loading the list now, so it's ready by the time the lazy panel asks for it:
+        final ObjectListModel listModel = ObjectListPanel.newListModel( isAdmin, SecUtils.getSession( this ) )
+            .prefetch();
         container.add( new AjaxLazyLoadPanel( GlobalIds.OBJECTLISTPANEL )
         {
             /** Default serialVersionUID */
@@ -74,7 +79,7 @@ public class ObjectPage extends FortressWebBasePage
             @Override
             public Component getLazyLoadComponent( String id )
             {
-                return new ObjectListPanel( id, isAdmin );
+                return new ObjectListPanel( id, isAdmin, listModel );
             }
         } );
         requestDelayTimer.observeDuration();
@@ -35,6 +35,8 @@ import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.InfoPanel;
 import org.apache.directory.fortress.web.panel.OUDetailPanel;
 import org.apache.directory.fortress.web.panel.OUListPanel;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.OUListModel;
 import org.apache.wicket.util.string.StringValue;
 
 
@@ -66,6 +68,8 @@ public class OuPermPage extends FortressWebBasePage
         NavPanel navPanel = new NavPanel( GlobalIds.NAVPANEL );
 
         // 2. List Panel:
+        // start loading the list now, so it's ready by the time the lazy panel asks for it:
+        final OUListModel listModel = OUListPanel.newListModel( isUser, SecUtils.getSession( this ) ).prefetch();
         container.add( new AjaxLazyLoadPanel( GlobalIds.OULISTPANEL )
         {
             /** Default serialVersionUID */
@@ -75,7 +79,7 @@ public class OuPermPage extends FortressWebBasePage
             @Override
             public Component getLazyLoadComponent( String id )
             {
-                return new OUListPanel( id, isUser );
+                return new OUListPanel( id, isUser, listModel );
             }
         } );
         requestDelayTimer.observeDuration();
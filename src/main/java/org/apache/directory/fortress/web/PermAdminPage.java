@@ -35,6 +35,8 @@ import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.InfoPanel;
 import org.apache.directory.fortress.web.panel.PermDetailPanel;
 import org.apache.directory.fortress.web.panel.PermListPanel;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.PermListModel;
 import org.apache.wicket.util.string.StringValue;
 
 
@@ -65,6 +67,8 @@ public class PermAdminPage extends FortressWebBasePage
         NavPanel navPanel = new NavPanel( GlobalIds.NAVPANEL );
 
         // 2. List Panel:
+        // start loading the list now, so it's ready by the time the lazy panel asks for it:
+        final PermListModel listModel = PermListPanel.newListModel( isAdmin, SecUtils.getSession( this ) ).prefetch();
         container.add( new AjaxLazyLoadPanel( GlobalIds.PERMLISTPANEL )
         {
             /** Default serialVersionUID */
@@ -74,7 +78,7 @@ public class PermAdminPage extends FortressWebBasePage
             @Override
             public Component getLazyLoadComponent( String id )
             {
-                return new PermListPanel( id, isAdmin );
+                return new PermListPanel( id, isAdmin, listModel );
             }
         } );
         requestDelayTimer.observeDuration();
@@ -29,6 +29,8 @@ import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.InfoPanel;
 import org.apache.directory.fortress.web.panel.PwPolicyDetailPanel;
 import org.apache.directory.fortress.web.panel.PwPolicyListPanel;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.PwPolicyListModel;
 
 
 /**
@@ -56,6 +58,8 @@ public class PwPolicyPage extends FortressWebBasePage
         NavPanel navPanel = new NavPanel( GlobalIds.NAVPANEL );
 
         // 2. List Panel:
+        // start loading the list now, so it's ready by the time the lazy panel asks for it:
+        final PwPolicyListModel listModel = PwPolicyListPanel.newListModel( SecUtils.getSession( this ) ).prefetch();
         container.add( new AjaxLazyLoadPanel( "policylistpanel" )
         {
             /** Default serialVersionUID */
@@ -65,7 +69,7 @@ public class PwPolicyPage extends FortressWebBasePage
             @Override
             public Component getLazyLoadComponent( String id )
             {
-                return new PwPolicyListPanel( id );
+                return new PwPolicyListPanel( id, listModel );
             }
         } );
 
@@ -36,6 +36,9 @@ import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.InfoPanel;
 import org.apache.directory.fortress.web.panel.RoleDetailPanel;
 import org.apache.directory.fortress.web.panel.RoleListPanel;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.RoleListModel;
+import org.apache.directory.fortress.web.model.RoleUsageModel;
 import org.apache.wicket.util.string.StringValue;
 
 
@@ -68,6 +71,9 @@ public class RolePage extends FortressWebBasePage
         NavPanel navPanel = new NavPanel( GlobalIds.NAVPANEL );
 
         // 2. List Panel:
+        // start loading the list now, so it's ready by the time the lazy panel asks for it:
+        final RoleListModel listModel = RoleListPanel.newListModel( isAdmin, SecUtils.getSession( this ) ).prefetch();
+        final RoleUsageModel usageModel = RoleListPanel.newUsageModel( isAdmin, SecUtils.getSession( this ) ).prefetch();
         container.add( new AjaxLazyLoadPanel( GlobalIds.ROLELISTPANEL )
         {
             /** Default serialVersionUID */
@@ -77,7 +83,7 @@ public class RolePage extends FortressWebBasePage
             @Override
             public Component getLazyLoadComponent( String id )
             {
-                return new RoleListPanel( id, isAdmin );
+                return new RoleListPanel( id, isAdmin, listModel, usageModel );
             }
         } );
         requestDelayTimer.observeDuration();
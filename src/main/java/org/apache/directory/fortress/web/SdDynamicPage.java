@@ -35,6 +35,8 @@ import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.InfoPanel;
 import org.apache.directory.fortress.web.panel.SDDetailPanel;
 import org.apache.directory.fortress.web.panel.SDListPanel;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.SDListModel;
 import org.apache.wicket.util.string.StringValue;
 
 
@@ -65,6 +67,8 @@ public class SdDynamicPage extends FortressWebBasePage
         NavPanel navPanel = new NavPanel( GlobalIds.NAVPANEL );
 
         // 2. List Panel:
+        // start loading the list now, so it's ready by the time the lazy panel asks for it:
+        final SDListModel listModel = SDListPanel.newListModel( isStatic, SecUtils.getSession( this ) ).prefetch();
         container.add( new AjaxLazyLoadPanel( GlobalIds.SDLISTPANEL )
         {
             /** Default serialVersionUID */
@@ -74,7 +78,7 @@ public class SdDynamicPage extends FortressWebBasePage
             @Override
             public Component getLazyLoadComponent( String id )
             {
-                return new SDListPanel( id, isStatic );
+                return new SDListPanel( id, isStatic, listModel );
             }
         } );
         requestDelayTimer.observeDuration();
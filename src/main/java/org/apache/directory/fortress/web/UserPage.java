@@ -33,6 +33,8 @@ import org.apache.directory.fortress.web.panel.Displayable;
 import org.apache.directory.fortress.web.panel.InfoPanel;
 import org.apache.directory.fortress.web.panel.UserDetailPanel;
 import org.apache.directory.fortress.web.panel.UserListPanel;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.model.UserListModel;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.util.string.StringValue;
 import org.springframework.security.web.context.SaveContextOnUpdateOrErrorResponseWrapper;
@@ -64,6 +66,8 @@ public class UserPage extends FortressWebBasePage
         NavPanel navPanel = new NavPanel( GlobalIds.NAVPANEL );
         container.add( navPanel );
         // 2. List Panel:
+        // start loading the list now, so it's ready by the time the lazy panel asks for it:
+        final UserListModel listModel = UserListPanel.newListModel( SecUtils.getSession( this ) ).prefetch();
         container.add( new AjaxLazyLoadPanel( "userlistpanel" )
         {
             /** Default serialVersionUID */
@@ -73,7 +77,7 @@ public class UserPage extends FortressWebBasePage
             @Override
             public Component getLazyLoadComponent( String id )
             {
-                return new UserListPanel( id );
+                return new UserListPanel( id, listModel );
             }
         } );
         requestDelayTimer.observeDuration();
@@ -42,6 +42,7 @@ public class GlobalIds
     public static final String ROLE_AUDIT_BINDS = "ROLE_AUDIT_BINDS";
     public static final String ROLE_AUDIT_MODS = "ROLE_AUDIT_MODS";
     public static final String ROLE_GROUPS = "ROLE_GROUPS";
+    public static final String ROLE_IMPORT = "ROLE_IMPORT";
     public static final String SSD = "SSD";
     public static final String DSD = "DSD";
     public static final String PAGE_TYPE = "type";
@@ -83,6 +84,7 @@ public class GlobalIds
     public static final String SELECT = "select";
     public static final String SEARCH = "search";
     public static final String CLEAR = "clear";
+    public static final String EXPORT = "export";
     public static final String SEARCH_VAL = "searchVal";
     public static final String MONDAY_ARC = "mondayARC";
     public static final String TUESDAY_ARC = "tuesdayARC";
@@ -180,6 +182,11 @@ public class GlobalIds
     public static final String USEROUS_PAGE = "userous";
     public static final String PERMOUS_PAGE = "permous";
     public static final String ADMPOBJS_PAGE = "admpobjs";
+    public static final String IMPORT_PAGE = "import";
+    public static final String DIFF_PAGE = "diff";
+    public static final String COMPLIANCE_PAGE = "compliance";
+    public static final String ORPHANS_PAGE = "orphans";
+    public static final String ACCOUNTS_PAGE = "accounts";
     public static final String WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML = "window.location.replace(\"/fortress-web/home.html\");";
 
     public static final String WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE = "Wicket.Window.unloadConfirmation = false;";
@@ -233,4 +240,88 @@ public class GlobalIds
     public static final String FIELD_2 = "field2";
     public static final String FIELD_1 = "field1";
     public static final String IS_JETTY_SERVER = "is-jetty-server";
+
+    // Page store settings, read from fortress.properties:
+    public static final String PAGE_SERIALIZER = "page.serializer";
+    public static final String KRYO_SERIALIZER = "kryo";
+    public static final String DEFLATED_SERIALIZER = "deflated";
+    public static final String JAVA_SERIALIZER = "java";
+    public static final String PAGE_STORE_MAPPED = "page.store.mapped";
+    public static final String PAGE_STORE_SIZE_MB = "page.store.size.mb";
+    public static final String PAGE_STORE_SESSION_MAX_KB = "page.store.session.max.kb";
+
+    // Type-ahead suggestion settings, read from fortress.properties:
+    public static final String SUGGEST_INDEX_REFRESH_MINUTES = "suggest.index.refresh.minutes";
+    public static final String SUGGEST_INDEX_MAX = "suggest.index.max";
+
+    // Global search settings, read from fortress.properties:
+    public static final String SEARCH_INDEX_REFRESH_MINUTES = "search.index.refresh.minutes";
+
+    // Review query cache settings, read from fortress.properties:
+    public static final String REVIEW_CACHE_ENABLED = "review.cache.enabled";
+    public static final String REVIEW_CACHE_MAX_ENTRIES = "review.cache.max.entries";
+    public static final String REVIEW_CACHE_TTL_SECONDS = "review.cache.ttl.seconds";
+
+    // Batched form field sync settings, read from fortress.properties:
+    public static final String FORM_SYNC_DELAY_MILLIS = "form.sync.delay.millis";
+
+    // Page data prefetch settings, read from fortress.properties:
+    public static final String PREFETCH_THREADS = "prefetch.threads";
+    public static final String PREFETCH_QUEUE = "prefetch.queue";
+    public static final String PREFETCH_TIMEOUT_SECONDS = "prefetch.timeout.seconds";
+
+    // Executor settings for the background and parallel fortress calls, read from fortress.properties:
+    public static final String EXECUTOR_MODE = "executor.mode";
+    public static final String AUTO_EXECUTOR = "auto";
+    public static final String VIRTUAL_EXECUTOR = "virtual";
+    public static final String PLATFORM_EXECUTOR = "platform";
+    public static final String MAX_ADMIN_CONN = "max.admin.conn";
+
+    // Audit search and export settings, read from fortress.properties:
+    public static final String AUDIT_POOL_THREADS = "audit.pool.threads";
+    public static final String AUDIT_POOL_QUEUE = "audit.pool.queue";
+    public static final String AUDIT_TIMEOUT_SECONDS = "audit.timeout.seconds";
+    public static final String AUDIT_POLL_MILLIS = "audit.poll.millis";
+
+    // Bulk import settings, read from fortress.properties:
+    public static final String IMPORT_DIR = "import.dir";
+    public static final String IMPORT_THREADS = "import.threads";
+    public static final String IMPORT_BATCH_SIZE = "import.batch.size";
+    public static final String IMPORT_MAX_JOBS = "import.max.jobs";
+    public static final String IMPORT_MAX_UPLOAD_MB = "import.max.upload.mb";
+    public static final String IMPORT_POLL_MILLIS = "import.poll.millis";
+    public static final String IMPORT_RETENTION_HOURS = "import.retention.hours";
+
+    // Policy diff settings, read from fortress.properties:
+    public static final String DIFF_MAX_SHOWN = "diff.max.shown";
+
+    // SD set impact analysis settings, read from fortress.properties:
+    public static final String SD_IMPACT_INDEX_TTL_SECONDS = "sd.impact.index.ttl.seconds";
+    public static final String SD_IMPACT_MAX_SHOWN = "sd.impact.max.shown";
+
+    // SSD compliance scan settings, read from fortress.properties:
+    public static final String COMPLIANCE_SCAN_MINUTES = "compliance.scan.minutes";
+    public static final String COMPLIANCE_FULL_SCAN_HOURS = "compliance.full.scan.hours";
+    public static final String COMPLIANCE_SCAN_THREADS = "compliance.scan.threads";
+    public static final String COMPLIANCE_MAX_SHOWN = "compliance.max.shown";
+
+    // ARBAC scope of the application wide pages, read from fortress.properties, with the fortress settings it follows:
+    public static final String ADMIN_SCOPE_TTL_SECONDS = "admin.scope.ttl.seconds";
+    public static final String IS_ARBAC02 = "is.arbac02";
+    public static final String SUPER_ADMIN_ROLE = "superadmin.role";
+
+    // Role activation DSD guard settings, read from fortress.properties:
+    public static final String DSD_GUARD_TTL_SECONDS = "dsd.guard.ttl.seconds";
+
+    // Role usage statistics settings, read from fortress.properties:
+    public static final String ROLE_USAGE_TTL_SECONDS = "role.usage.ttl.seconds";
+
+    // Orphan entity analysis settings, read from fortress.properties:
+    public static final String ORPHAN_DELETE_THREADS = "orphan.delete.threads";
+
+    // Account index settings, read from fortress.properties:
+    public static final String ACCOUNT_INDEX_MINUTES = "account.index.minutes";
+    public static final String ACCOUNT_FULL_INDEX_HOURS = "account.full.index.hours";
+    public static final String ACCOUNT_LOGIN_DAYS = "account.login.days";
+    public static final String ACCOUNT_UPDATE_THREADS = "account.update.threads";
 }
@@ -0,0 +1,1233 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.AuditMgr;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Application wide index of the accounts that need attention: those locked, by the password policy or between their
+ * lock dates, those whose end date is near, and those not logged into for a while.  Finding them otherwise means
+ * opening every user.
+ * <p>
+ * A background thread reads every user when the application starts, along with the successful binds of the last
+ * 'account.login.days' (default 90) from the audit log, and keeps each user's end and lock dates, and the day of their
+ * last login, as days (yyyyMMdd) in arrays sorted by date, so each question is answered by a binary search.  Every
+ * 'account.index.minutes' (default 5) after that only the users saved through this application since, see
+ * {@link #onSave}, are read again, with the binds since the last refresh, and every 'account.full.index.hours'
+ * (default 6) everything is, which picks up changes made outside this application.  Logins before the window, or
+ * beyond the size limit of the audit search, aren't seen.
+ * <p>
+ * The accounts found may be unlocked, or their end date extended, together.  Each is read again first, so only those
+ * still locked or expiring are changed, 'account.update.threads' (default 4) at a time.
+ * <p>
+ * The index itself is global, each administrator is shown, and may update, the accounts within the user ous of their
+ * ARBAC scope, see {@link Index#find(Kind, int, AdminScope)}.  The outcome of an update is shown only to the
+ * administrator that started it, as it names the accounts and the errors.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class AccountIndex
+{
+    private static final Logger LOG = Logger.getLogger( AccountIndex.class.getName() );
+    private static final long INTERVAL_MINUTES = Config.getInstance().getInt( GlobalIds.ACCOUNT_INDEX_MINUTES, 5 );
+    private static final long FULL_INDEX_MILLIS = TimeUnit.HOURS.toMillis( Config.getInstance().getInt(
+        GlobalIds.ACCOUNT_FULL_INDEX_HOURS, 6 ) );
+    private static final int LOGIN_DAYS = Config.getInstance().getInt( GlobalIds.ACCOUNT_LOGIN_DAYS, 90 );
+    private static final int THREADS = Config.getInstance().getInt( GlobalIds.ACCOUNT_UPDATE_THREADS, 4 );
+    // the update errors kept for the page, the rest are only counted:
+    private static final int MAX_ERRORS = 5;
+    private static final int MAX_MESSAGES = 64;
+    // what fortress stores for a constraint date that isn't set:
+    private static final String NONE = "none";
+    private static final Object LOCK = new Object();
+
+    static final Summary refreshLatency = Summary.build()
+            .name("accountIndex_latency_seconds")
+            .help("Account Index Refresh Time seconds")
+            .labelNames( "kind" )
+            .register();
+    static final Counter updates = Counter.build()
+            .name("accountIndex_updates_total")
+            .help("Account Bulk Updates Total")
+            .labelNames( "action", "result" )
+            .register();
+
+    // guarded by LOCK, the saved users not yet read again, by key:
+    private static Map<String, String> dirtyUsers = new HashMap<>();
+    private static boolean fullPending = true;
+    private static Index index;
+    private static ScheduledExecutorService scheduler;
+    private static FanOutExecutor pool;
+    private static Runnable task;
+    private static String activity;
+    // the last outcome of each administrator's updates, by their lower case user id:
+    private static final Map<String, String> MESSAGES = new LinkedHashMap<String, String>( 16, 0.75f, true )
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, String> eldest )
+        {
+            return size() > MAX_MESSAGES;
+        }
+    };
+
+
+    /**
+     * The questions the index answers, each for a number of days.
+     */
+    public enum Kind
+    {
+        LOCKED( "Locked" ),
+        EXPIRING( "Ending within" ),
+        IDLE( "No login within" );
+
+        private final String label;
+
+
+        Kind( String label )
+        {
+            this.label = label;
+        }
+
+
+        public String getLabel()
+        {
+            return label;
+        }
+    }
+
+
+    /**
+     * An account found, with its dates as of the refresh.
+     */
+    public static final class Account implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String userId;
+        private final boolean locked;
+        private final int endDate;
+        private final int beginLockDate;
+        private final int endLockDate;
+        private final int lastLogin;
+
+
+        private Account( Index index, int row )
+        {
+            this.userId = index.userIds[row];
+            this.locked = index.locked.get( row );
+            this.endDate = index.endDates[row];
+            this.beginLockDate = index.beginLockDates[row];
+            this.endLockDate = index.endLockDates[row];
+            this.lastLogin = index.lastLogins[row];
+        }
+
+
+        public String getUserId()
+        {
+            return userId;
+        }
+
+
+        /**
+         * @return true if locked by the password policy, e.g. after too many failed logins.
+         */
+        public boolean isLocked()
+        {
+            return locked;
+        }
+
+
+        /**
+         * @return the end date as yyyy-MM-dd, empty if none.
+         */
+        public String getEndDate()
+        {
+            return format( endDate );
+        }
+
+
+        public String getBeginLockDate()
+        {
+            return format( beginLockDate );
+        }
+
+
+        public String getEndLockDate()
+        {
+            return format( endLockDate );
+        }
+
+
+        /**
+         * @return the day of the last login seen, empty if none.
+         */
+        public String getLastLogin()
+        {
+            return format( lastLogin );
+        }
+
+
+        private static String format( int day )
+        {
+            if ( day == 0 )
+            {
+                return "";
+            }
+            String digits = String.valueOf( day );
+            return digits.substring( 0, 4 ) + "-" + digits.substring( 4, 6 ) + "-" + digits.substring( 6 );
+        }
+    }
+
+
+    /**
+     * A user's dates, as read.
+     */
+    private static final class Entry
+    {
+        private final String userId;
+        private final boolean locked;
+        private final int endDate;
+        private final int beginLockDate;
+        private final int endLockDate;
+        private final String ou;
+        private int lastLogin;
+
+
+        private Entry( String userId, boolean locked, int endDate, int beginLockDate, int endLockDate, String ou,
+            int lastLogin )
+        {
+            this.userId = userId;
+            this.locked = locked;
+            this.endDate = endDate;
+            this.beginLockDate = beginLockDate;
+            this.endLockDate = endLockDate;
+            this.ou = ou;
+            this.lastLogin = lastLogin;
+        }
+
+
+        private Entry( User user )
+        {
+            this( user.getUserId(), user.isLocked(), day( user.getEndDate() ), day( user.getBeginLockDate() ), day(
+                user.getEndLockDate() ), user.getOu(), 0 );
+        }
+    }
+
+
+    /**
+     * The accounts as of a refresh, replaced as a whole by the next one.  Each user has a row, in order of their ids,
+     * and the dates are held by row, and as (day << 32 | row) in arrays sorted by day.
+     */
+    public static final class Index
+    {
+        private final String[] userIds;
+        private final BitSet locked;
+        private final int[] endDates;
+        private final int[] beginLockDates;
+        private final int[] endLockDates;
+        private final String[] ous;
+        private final int[] lastLogins;
+        private final long[] byEndDate;
+        private final long[] byBeginLockDate;
+        private final long[] byLastLogin;
+        private final Map<String, Integer> rows = new HashMap<>();
+        private final long fullIndexed;
+        private final long bindsRead;
+        private final long indexed = System.currentTimeMillis();
+        private boolean full;
+        private long elapsed;
+
+
+        private Index( List<Entry> entries, long fullIndexed, long bindsRead )
+        {
+            Collections.sort( entries, new Comparator<Entry>()
+            {
+                @Override
+                public int compare( Entry e1, Entry e2 )
+                {
+                    return e1.userId.compareToIgnoreCase( e2.userId );
+                }
+            } );
+            int count = entries.size();
+            this.userIds = new String[count];
+            this.locked = new BitSet( count );
+            this.endDates = new int[count];
+            this.beginLockDates = new int[count];
+            this.endLockDates = new int[count];
+            this.ous = new String[count];
+            this.lastLogins = new int[count];
+            for ( int row = 0; row < count; row++ )
+            {
+                Entry entry = entries.get( row );
+                userIds[row] = entry.userId;
+                locked.set( row, entry.locked );
+                endDates[row] = entry.endDate;
+                beginLockDates[row] = entry.beginLockDate;
+                endLockDates[row] = entry.endLockDate;
+                ous[row] = entry.ou;
+                lastLogins[row] = entry.lastLogin;
+                rows.put( key( entry.userId ), row );
+            }
+            this.byEndDate = sorted( endDates, false );
+            this.byBeginLockDate = sorted( beginLockDates, false );
+            // users never seen logging in are idle, so kept too, first:
+            this.byLastLogin = sorted( lastLogins, true );
+            this.fullIndexed = fullIndexed;
+            this.bindsRead = bindsRead;
+        }
+
+
+        /**
+         * @return the time the refresh finished.
+         */
+        public long getIndexed()
+        {
+            return indexed;
+        }
+
+
+        /**
+         * @return true if every user was read, false if only those saved.
+         */
+        public boolean isFull()
+        {
+            return full;
+        }
+
+
+        public long getElapsedMillis()
+        {
+            return elapsed;
+        }
+
+
+        public int getUserCount()
+        {
+            return userIds.length;
+        }
+
+
+        /**
+         * @param scope of an administrator.
+         * @return the number of users within the scope.
+         */
+        public int getUserCount( AdminScope scope )
+        {
+            if ( scope.isAll() )
+            {
+                return userIds.length;
+            }
+            int count = 0;
+            for ( String ou : ous )
+            {
+                count += scope.hasUserOu( ou ) ? 1 : 0;
+            }
+            return count;
+        }
+
+
+        /**
+         * Return the accounts of a kind, as of today.
+         *
+         * @param kind of account.
+         * @param days after today the end date is within, or before today the last login was, ignored for locked.
+         * @return the accounts, locked in order of their ids, the others in order of the date.
+         */
+        public List<Account> find( Kind kind, int days )
+        {
+            return find( kind, days, today() );
+        }
+
+
+        /**
+         * Return the accounts of a kind an administrator may manage, as of today.
+         *
+         * @param kind of account.
+         * @param days after today the end date is within, or before today the last login was, ignored for locked.
+         * @param scope of the administrator, only the users in its user ous are returned.
+         * @return the accounts, locked in order of their ids, the others in order of the date.
+         */
+        public List<Account> find( Kind kind, int days, AdminScope scope )
+        {
+            int[] rows = rows( kind, days, today() );
+            if ( scope.isAll() )
+            {
+                return accounts( rows );
+            }
+            int kept = 0;
+            for ( int row : rows )
+            {
+                if ( scope.hasUserOu( ous[row] ) )
+                {
+                    rows[kept++] = row;
+                }
+            }
+            return accounts( Arrays.copyOf( rows, kept ) );
+        }
+
+
+        List<Account> find( Kind kind, int days, int today )
+        {
+            return accounts( rows( kind, days, today ) );
+        }
+
+
+        private int[] rows( Kind kind, int days, int today )
+        {
+            switch ( kind )
+            {
+                case LOCKED:
+                    BitSet found = ( BitSet ) locked.clone();
+                    for ( int i = 0, end = lowerBound( byBeginLockDate, today + 1 ); i < end; i++ )
+                    {
+                        int row = ( int ) byBeginLockDate[i];
+                        if ( lockedOn( beginLockDates[row], endLockDates[row], today ) )
+                        {
+                            found.set( row );
+                        }
+                    }
+                    int[] rows = new int[found.cardinality()];
+                    for ( int row = found.nextSetBit( 0 ), i = 0; row >= 0; row = found.nextSetBit( row + 1 ) )
+                    {
+                        rows[i++] = row;
+                    }
+                    return rows;
+                case EXPIRING:
+                    return rows( byEndDate, lowerBound( byEndDate, today ), lowerBound( byEndDate, addDays( today,
+                        days ) + 1 ) );
+                default:
+                    return rows( byLastLogin, 0, lowerBound( byLastLogin, addDays( today, -days ) ) );
+            }
+        }
+
+
+        /**
+         * @return the rows packed from byDate[from, to).
+         */
+        private static int[] rows( long[] byDate, int from, int to )
+        {
+            int[] rows = new int[Math.max( 0, to - from )];
+            for ( int i = 0; i < rows.length; i++ )
+            {
+                rows[i] = ( int ) byDate[from + i];
+            }
+            return rows;
+        }
+
+
+        /**
+         * @return the accounts of rows, each created only when asked for.
+         */
+        private List<Account> accounts( final int[] rows )
+        {
+            return new AbstractList<Account>()
+            {
+                @Override
+                public Account get( int i )
+                {
+                    return new Account( Index.this, rows[i] );
+                }
+
+
+                @Override
+                public int size()
+                {
+                    return rows.length;
+                }
+            };
+        }
+
+
+        private List<Entry> entries()
+        {
+            List<Entry> entries = new ArrayList<>( userIds.length );
+            for ( int row = 0; row < userIds.length; row++ )
+            {
+                entries.add( new Entry( userIds[row], locked.get( row ), endDates[row], beginLockDates[row],
+                    endLockDates[row], ous[row], lastLogins[row] ) );
+            }
+            return entries;
+        }
+
+
+        private static long[] sorted( int[] days, boolean withNone )
+        {
+            int count = 0;
+            for ( int day : days )
+            {
+                count += withNone || day != 0 ? 1 : 0;
+            }
+            long[] sorted = new long[count];
+            for ( int row = 0, i = 0; row < days.length; row++ )
+            {
+                if ( withNone || days[row] != 0 )
+                {
+                    sorted[i++] = ( long ) days[row] << 32 | row;
+                }
+            }
+            Arrays.sort( sorted );
+            return sorted;
+        }
+
+
+        /**
+         * @return the index of the first entry on or after the day.
+         */
+        private static int lowerBound( long[] byDate, int day )
+        {
+            int found = Arrays.binarySearch( byDate, ( long ) day << 32 );
+            // rows aren't negative, so an entry is only found exactly for row 0:
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+
+
+    /**
+     * Reads the directory using the trusted (non-ARBAC) managers.  Created on a request thread, so the spring beans
+     * can be injected, and then used only by the index thread.
+     */
+    private static class Loader
+    {
+        @SpringBean
+        private ReviewMgr reviewMgr;
+        @SpringBean
+        private AuditMgr auditMgr;
+
+
+        private Loader()
+        {
+            Injector.get().inject( this );
+        }
+
+
+        private List<User> users() throws SecurityException
+        {
+            List<User> users = reviewMgr.findUsers( new User( "" ) );
+            return users != null ? users : new ArrayList<User>();
+        }
+
+
+        /**
+         * @return the user, or null if not found.
+         */
+        private User readUser( String userId ) throws SecurityException
+        {
+            try
+            {
+                return reviewMgr.readUser( new User( userId ) );
+            }
+            catch ( SecurityException se )
+            {
+                if ( se.getErrorId() == GlobalErrIds.USER_NOT_FOUND )
+                {
+                    return null;
+                }
+                throw se;
+            }
+        }
+
+
+        /**
+         * @return the binds since the time, empty if the audit log can't be searched.
+         */
+        private List<Bind> binds( long since )
+        {
+            UserAudit userAudit = new UserAudit();
+            userAudit.setBeginDate( new Date( since ) );
+            try
+            {
+                List<Bind> binds = auditMgr.searchBinds( userAudit );
+                return binds != null ? binds : new ArrayList<Bind>();
+            }
+            catch ( SecurityException se )
+            {
+                // the accounts are still indexed, only without their logins:
+                LOG.warn( ".binds caught SecurityException=" + se );
+                return new ArrayList<>();
+            }
+        }
+    }
+
+
+    private AccountIndex()
+    {
+    }
+
+
+    /**
+     * Start the background refreshes.  Must be called from a thread attached to the wicket application, e.g. its init.
+     */
+    public static void start()
+    {
+        final Loader loader = new Loader();
+        synchronized ( LOCK )
+        {
+            if ( scheduler != null )
+            {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-account-index" );
+                    thread.setDaemon( true );
+                    thread.setPriority( Thread.MIN_PRIORITY );
+                    return thread;
+                }
+            } );
+            pool = FanOutExecutor.newInstance( "fortress-account", THREADS, THREADS * 2 );
+            task = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    refresh( loader );
+                }
+            };
+            scheduler.scheduleWithFixedDelay( task, 0, INTERVAL_MINUTES, TimeUnit.MINUTES );
+        }
+    }
+
+
+    /**
+     * Stop the background refreshes, called when the application is destroyed.
+     */
+    public static void stop()
+    {
+        synchronized ( LOCK )
+        {
+            if ( scheduler != null )
+            {
+                scheduler.shutdownNow();
+                pool.shutdownNow();
+                scheduler = null;
+                pool = null;
+            }
+        }
+    }
+
+
+    /**
+     * Refresh now rather than waiting for the next scheduled refresh.
+     *
+     * @param full true to read every user again.
+     * @return false if the refreshes aren't running.
+     */
+    public static boolean refreshNow( boolean full )
+    {
+        synchronized ( LOCK )
+        {
+            if ( scheduler == null )
+            {
+                return false;
+            }
+            fullPending |= full;
+            try
+            {
+                scheduler.execute( task );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                return false;
+            }
+            return true;
+        }
+    }
+
+
+    /**
+     * Have the next refresh read every user, e.g. after an import.
+     */
+    public static void rescan()
+    {
+        synchronized ( LOCK )
+        {
+            fullPending = true;
+        }
+    }
+
+
+    /**
+     * @return the accounts as of the last refresh, or null if none has finished.
+     */
+    public static Index getIndex()
+    {
+        synchronized ( LOCK )
+        {
+            return index;
+        }
+    }
+
+
+    /**
+     * @return the update running, or null if none.
+     */
+    public static String getActivity()
+    {
+        synchronized ( LOCK )
+        {
+            return activity;
+        }
+    }
+
+
+    /**
+     * @param session of the administrator.
+     * @return the outcome of their last update, or null if none has finished.
+     */
+    public static String getMessage( Session session )
+    {
+        synchronized ( LOCK )
+        {
+            return MESSAGES.get( owner( session ) );
+        }
+    }
+
+
+    /**
+     * @return the days before a refresh logins are taken from, no login within more days can be asked for.
+     */
+    public static int getLoginDays()
+    {
+        return LOGIN_DAYS;
+    }
+
+
+    /**
+     * Note a saved user, so the next refresh reads it again.
+     *
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity instanceof User && operation != null && operation != SaveModelEvent.Operations.SEARCH )
+        {
+            String userId = ( ( User ) entity ).getUserId();
+            synchronized ( LOCK )
+            {
+                dirtyUsers.put( key( userId ), userId );
+            }
+        }
+    }
+
+
+    /**
+     * Unlock accounts, clearing the lock dates of those between them, and the password policy lock.  Called on a
+     * request thread.
+     *
+     * @param userIds of the accounts, those no longer locked are left alone.
+     * @param adminMgr of the administrator.
+     * @param session of the administrator, who's told the outcome.
+     * @return false if the refreshes aren't running or an update is already.
+     */
+    public static boolean unlock( Collection<String> userIds, AdminMgr adminMgr, Session session )
+    {
+        return update( "Unlocking", Kind.LOCKED, userIds, 0, 0, adminMgr, owner( session ) );
+    }
+
+
+    /**
+     * Extend the end date of accounts.  Called on a request thread.
+     *
+     * @param userIds of the accounts, those whose end date is no longer within the days are left alone.
+     * @param within the days after today the end date was found within.
+     * @param days to move the end date on by, from today if it has passed.
+     * @param adminMgr of the administrator.
+     * @param session of the administrator, who's told the outcome.
+     * @return false if the refreshes aren't running or an update is already.
+     */
+    public static boolean extend( Collection<String> userIds, int within, int days, AdminMgr adminMgr, Session
+        session )
+    {
+        return update( "Extending", Kind.EXPIRING, userIds, within, days, adminMgr, owner( session ) );
+    }
+
+
+    private static void refresh( Loader loader )
+    {
+        Map<String, String> users;
+        Index last;
+        boolean full;
+        synchronized ( LOCK )
+        {
+            users = dirtyUsers;
+            dirtyUsers = new HashMap<>();
+            last = index;
+            full = fullPending || last == null || System.currentTimeMillis() - last.fullIndexed >= FULL_INDEX_MILLIS;
+            fullPending = false;
+        }
+        long start = System.currentTimeMillis();
+        try
+        {
+            Index refreshed = full ? full( loader, start ) : incremental( loader, last, users );
+            refreshed.full = full;
+            refreshed.elapsed = System.currentTimeMillis() - start;
+            refreshLatency.labels( full ? "full" : "incremental" ).observe( refreshed.elapsed / 1000.0 );
+            synchronized ( LOCK )
+            {
+                index = refreshed;
+            }
+            LOG.debug( "refresh " + ( full ? "full" : "incremental" ) + " users: " + refreshed.getUserCount()
+                + ", read again: " + users.size() + ", elapsed: " + refreshed.elapsed + "ms" );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.warn( "refresh caught SecurityException=" + se );
+            retry( users, full );
+        }
+        catch ( RuntimeException re )
+        {
+            // don't let a failure cancel the scheduled refreshes:
+            LOG.error( "refresh caught RuntimeException=" + re, re );
+            retry( users, full );
+        }
+    }
+
+
+    /**
+     * Have the next refresh read again what this one failed to.
+     */
+    private static void retry( Map<String, String> users, boolean full )
+    {
+        synchronized ( LOCK )
+        {
+            fullPending |= full;
+            for ( Map.Entry<String, String> user : users.entrySet() )
+            {
+                if ( !dirtyUsers.containsKey( user.getKey() ) )
+                {
+                    dirtyUsers.put( user.getKey(), user.getValue() );
+                }
+            }
+        }
+    }
+
+
+    private static Index full( final Loader loader, long start ) throws SecurityException
+    {
+        final long since = start - TimeUnit.DAYS.toMillis( LOGIN_DAYS );
+        Fetch<Bind> bindFetch = new Fetch<>( new Callable<List<Bind>>()
+        {
+            @Override
+            public List<Bind> call()
+            {
+                return loader.binds( since );
+            }
+        } );
+        List<User> users = loader.users();
+        List<Bind> binds = bindFetch.get();
+        return index( users, binds != null ? binds : new ArrayList<Bind>(), start );
+    }
+
+
+    /**
+     * Index the results of a search of every user, and of the binds since the start of the login window.
+     */
+    static Index index( List<User> users, List<Bind> binds, long start )
+    {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for ( User user : users )
+        {
+            entries.put( key( user.getUserId() ), new Entry( user ) );
+        }
+        logins( entries, binds );
+        return new Index( new ArrayList<>( entries.values() ), start, start );
+    }
+
+
+    /**
+     * Read the users saved again, and the binds since the last refresh, keeping the rest as they were.
+     */
+    private static Index incremental( Loader loader, Index last, Map<String, String> users ) throws
+        SecurityException
+    {
+        long start = System.currentTimeMillis();
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for ( Entry entry : last.entries() )
+        {
+            entries.put( key( entry.userId ), entry );
+        }
+        for ( Map.Entry<String, String> user : users.entrySet() )
+        {
+            User read = loader.readUser( user.getValue() );
+            Entry previous = entries.remove( user.getKey() );
+            if ( read != null )
+            {
+                Entry entry = new Entry( read );
+                entry.lastLogin = previous != null ? previous.lastLogin : 0;
+                entries.put( user.getKey(), entry );
+            }
+        }
+        logins( entries, loader.binds( last.bindsRead ) );
+        return new Index( new ArrayList<>( entries.values() ), last.fullIndexed, start );
+    }
+
+
+    /**
+     * Set the last login of the users from their successful binds.
+     */
+    private static void logins( Map<String, Entry> entries, List<Bind> binds )
+    {
+        for ( Bind bind : binds )
+        {
+            if ( !GlobalIds.BIND_SUCCESS_CODE.equals( bind.getReqResult() ) )
+            {
+                continue;
+            }
+            Entry entry = entries.get( key( userId( bind.getReqDN() ) ) );
+            int day = day( bind.getReqStart() );
+            if ( entry != null && day > entry.lastLogin )
+            {
+                entry.lastLogin = day;
+            }
+        }
+    }
+
+
+    private static String owner( Session session )
+    {
+        return session != null && session.getUserId() != null ? session.getUserId().toLowerCase( Locale.ENGLISH ) :
+            "";
+    }
+
+
+    private static boolean update( String name, final Kind kind, Collection<String> userIds, final int within,
+        final int days, final AdminMgr adminMgr, final String owner )
+    {
+        final List<String> targets = new ArrayList<>( userIds );
+        final Loader loader = new Loader();
+        // the manager is a spring bean, which needs the application and session of the request to be resolved:
+        final Callable<Void> job = Prefetch.attach( new Callable<Void>()
+        {
+            @Override
+            public Void call() throws InterruptedException
+            {
+                String outcome = update( loader, kind, targets, within, days, adminMgr );
+                synchronized ( LOCK )
+                {
+                    MESSAGES.put( owner, outcome );
+                }
+                return null;
+            }
+        } );
+        synchronized ( LOCK )
+        {
+            if ( scheduler == null || activity != null )
+            {
+                return false;
+            }
+            activity = name;
+            try
+            {
+                // on the index thread, so the refresh that follows sees every update:
+                scheduler.execute( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            job.call();
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            LOG.info( ".update interrupted" );
+                        }
+                        catch ( Exception e )
+                        {
+                            LOG.error( ".update failed", e );
+                            synchronized ( LOCK )
+                            {
+                                MESSAGES.put( owner, "Failed: " + e );
+                            }
+                        }
+                        finally
+                        {
+                            synchronized ( LOCK )
+                            {
+                                activity = null;
+                            }
+                        }
+                    }
+                } );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                activity = null;
+                return false;
+            }
+            return true;
+        }
+    }
+
+
+    private static String update( final Loader loader, final Kind kind, List<String> userIds, final int within,
+        final int days, final AdminMgr adminMgr ) throws InterruptedException
+    {
+        int changed = 0;
+        int failed = 0;
+        List<String> errors = new ArrayList<>();
+        // at most a batch in the pool at once, so the rest aren't rejected:
+        for ( int start = 0; start < userIds.size(); start += THREADS * 2 )
+        {
+            List<String> batch = userIds.subList( start, Math.min( userIds.size(), start + THREADS * 2 ) );
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for ( final String userId : batch )
+            {
+                futures.add( submit( new Callable<Boolean>()
+                {
+                    @Override
+                    public Boolean call() throws SecurityException
+                    {
+                        User read = loader.readUser( userId );
+                        return read != null && ( kind == Kind.LOCKED ? unlock( read, adminMgr ) : extend( read,
+                            within, days, adminMgr ) );
+                    }
+                } ) );
+            }
+            for ( int i = 0; i < futures.size(); i++ )
+            {
+                String userId = batch.get( i );
+                try
+                {
+                    if ( futures.get( i ).get() )
+                    {
+                        changed++;
+                        updates.labels( kind.name(), "succeeded" ).inc();
+                    }
+                }
+                catch ( ExecutionException e )
+                {
+                    failed++;
+                    updates.labels( kind.name(), "failed" ).inc();
+                    LOG.warn( ".update " + userId + " failed: " + e.getCause() );
+                    if ( errors.size() < MAX_ERRORS )
+                    {
+                        errors.add( userId + ": " + e.getCause().getMessage() );
+                    }
+                }
+                synchronized ( LOCK )
+                {
+                    dirtyUsers.put( key( userId ), userId );
+                }
+            }
+        }
+        // the index thread, so show the accounts as they now are:
+        refresh( loader );
+        String outcome = ( kind == Kind.LOCKED ? "Unlocked " : "Extended " ) + changed + " of " + userIds.size()
+            + " accounts";
+        if ( failed > 0 )
+        {
+            outcome += ", " + failed + " failed: " + StringUtils.join( errors, "; " );
+        }
+        return outcome;
+    }
+
+
+    /**
+     * @return true if the user was locked, and now isn't.
+     */
+    private static boolean unlock( User user, AdminMgr adminMgr ) throws SecurityException
+    {
+        boolean changed = false;
+        if ( lockedOn( day( user.getBeginLockDate() ), day( user.getEndLockDate() ), today() ) )
+        {
+            // the whole user, as the constraint is written as one attribute:
+            user.setBeginLockDate( NONE );
+            user.setEndLockDate( NONE );
+            adminMgr.updateUser( user );
+            changed = true;
+        }
+        if ( user.isLocked() )
+        {
+            adminMgr.unlockUserAccount( new User( user.getUserId() ) );
+            changed = true;
+        }
+        return changed;
+    }
+
+
+    /**
+     * @return true if the user's end date was within the days, and was extended.
+     */
+    private static boolean extend( User user, int within, int days, AdminMgr adminMgr ) throws SecurityException
+    {
+        int today = today();
+        int endDate = day( user.getEndDate() );
+        if ( endDate == 0 || endDate > addDays( today, within ) )
+        {
+            return false;
+        }
+        user.setEndDate( String.valueOf( addDays( Math.max( endDate, today ), days ) ) );
+        adminMgr.updateUser( user );
+        return true;
+    }
+
+
+    private static Future<Boolean> submit( Callable<Boolean> task )
+    {
+        Callable<Boolean> attached = Prefetch.attach( task );
+        FanOutExecutor executor;
+        synchronized ( LOCK )
+        {
+            executor = pool;
+        }
+        try
+        {
+            if ( executor != null )
+            {
+                return executor.submit( attached );
+            }
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // updated by the index thread instead
+        }
+        FutureTask<Boolean> inline = new FutureTask<>( attached );
+        inline.run();
+        return inline;
+    }
+
+
+    static boolean lockedOn( int beginLockDate, int endLockDate, int day )
+    {
+        return beginLockDate != 0 && beginLockDate <= day && ( endLockDate == 0 || day <= endLockDate );
+    }
+
+
+    /**
+     * @return the day as yyyyMMdd, from the start of a fortress date or generalized time, 0 if none.
+     */
+    static int day( String date )
+    {
+        if ( date == null || date.length() < 8 )
+        {
+            return 0;
+        }
+        int day = 0;
+        for ( int i = 0; i < 8; i++ )
+        {
+            char c = date.charAt( i );
+            if ( c < '0' || c > '9' )
+            {
+                return 0;
+            }
+            day = day * 10 + c - '0';
+        }
+        return day;
+    }
+
+
+    static int today()
+    {
+        return day( Calendar.getInstance() );
+    }
+
+
+    static int addDays( int day, int days )
+    {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set( day / 10000, day / 100 % 100 - 1, day % 100 );
+        calendar.add( Calendar.DAY_OF_MONTH, days );
+        return day( calendar );
+    }
+
+
+    private static int day( Calendar calendar )
+    {
+        return calendar.get( Calendar.YEAR ) * 10000 + ( calendar.get( Calendar.MONTH ) + 1 ) * 100 + calendar.get(
+            Calendar.DAY_OF_MONTH );
+    }
+
+
+    /**
+     * @return the user id of a bind dn, e.g. uid=jdoe,ou=People,dc=example,dc=com.
+     */
+    private static String userId( String dn )
+    {
+        if ( dn == null )
+        {
+            return null;
+        }
+        int begin = dn.indexOf( '=' ) + 1;
+        int end = dn.indexOf( ',' );
+        return dn.substring( begin, end > begin ? end : dn.length() );
+    }
+
+
+    private static String key( String userId )
+    {
+        return userId == null ? "" : userId.toLowerCase( Locale.ENGLISH );
+    }
+}
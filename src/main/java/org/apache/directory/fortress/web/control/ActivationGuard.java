@@ -0,0 +1,539 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Session local copy of the DSD sets that apply to a user's assigned roles, so a role activation that would violate one
+ * is refused without a round trip to the directory, and a role picker can show which roles may be activated before
+ * one is clicked.  The check is the one fortress makes: for every DSD set, each active role, and the role to be
+ * activated, counts once if it or one of the roles it inherits from is a member, and the set is violated when the
+ * count reaches its cardinality.  Fortress still makes its own check when a role passes.
+ * <p>
+ * The permissions granted to each role, and to the user directly, are kept too, as they're first needed, so the
+ * session's permissions are recomputed from them when a role is activated or dropped, rather than searched for again.
+ * <p>
+ * Built on first use and kept in the {@link WicketSession} for 'dsd.guard.ttl.seconds' (default 300), or until an
+ * RBAC role, DSD set, user, permission or permission object is saved through this application.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class ActivationGuard implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( ActivationGuard.class.getName() );
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis( Config.getInstance().getInt(
+        GlobalIds.DSD_GUARD_TTL_SECONDS, 300 ) );
+    private static final int DEFAULT_CARDINALITY = 2;
+    // bumped by every save that may change the sets, hierarchy or assignments, so older guards are rebuilt:
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    static final Counter checks = Counter.build()
+            .name("dsdGuard_checks_total")
+            .help("Local DSD Checks Of Role Activations Total")
+            .labelNames( "result" )
+            .register();
+
+    private final String userId;
+    private final long generation;
+    private final long created = System.currentTimeMillis();
+    // assigned role names, as assigned:
+    private final List<String> assigned = new ArrayList<>();
+    // every role seen, by key, to itself and the keys of the roles it inherits from:
+    private final Map<String, Set<String>> inherited = new HashMap<>();
+    private final List<Dsd> dsdSets = new ArrayList<>();
+    // permissions granted to the roles, by key, read when first needed:
+    private final Map<String, List<Permission>> rolePermissions = new HashMap<>();
+    // permissions granted to the user, rather than a role, read when first needed:
+    private List<Permission> userPermissions;
+
+
+    /**
+     * A role that may, or may not, be activated.
+     */
+    public static final class Candidate implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String name;
+        private final boolean active;
+        private final String conflict;
+
+
+        private Candidate( String name, boolean active, String conflict )
+        {
+            this.name = name;
+            this.active = active;
+            this.conflict = conflict;
+        }
+
+
+        public String getName()
+        {
+            return name;
+        }
+
+
+        /**
+         * @return true if the role is already active.
+         */
+        public boolean isActive()
+        {
+            return active;
+        }
+
+
+        /**
+         * @return true if the role isn't active and activating it violates no DSD set.
+         */
+        public boolean isActivatable()
+        {
+            return !active && conflict == null;
+        }
+
+
+        /**
+         * @return the name of the DSD set activating the role would violate, or null.
+         */
+        public String getConflict()
+        {
+            return conflict;
+        }
+    }
+
+
+    /**
+     * A DSD set, reduced to what the check needs.
+     */
+    private static final class Dsd implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String name;
+        private final Set<String> members = new HashSet<>();
+        private final int cardinality;
+
+
+        private Dsd( SDSet sdSet )
+        {
+            this.name = sdSet.getName();
+            if ( sdSet.getMembers() != null )
+            {
+                for ( String member : sdSet.getMembers() )
+                {
+                    members.add( key( member ) );
+                }
+            }
+            this.cardinality = sdSet.getCardinality() != null && sdSet.getCardinality() > 0 ? sdSet
+                .getCardinality() : DEFAULT_CARDINALITY;
+        }
+    }
+
+
+    private ActivationGuard( String userId )
+    {
+        this.userId = userId;
+        this.generation = GENERATION.get();
+    }
+
+
+    /**
+     * Read the user's assigned roles, the roles they inherit from and the DSD sets of all of them.
+     *
+     * @param reviewMgr searches the directory.
+     * @param userId of the session.
+     * @return the guard.
+     * @throws SecurityException if the directory couldn't be searched.
+     */
+    static ActivationGuard load( final ReviewMgr reviewMgr, String userId ) throws SecurityException
+    {
+        ActivationGuard guard = new ActivationGuard( userId );
+        List<UserRole> userRoles = reviewMgr.assignedRoles( new User( userId ) );
+        if ( userRoles != null )
+        {
+            for ( UserRole userRole : userRoles )
+            {
+                guard.assigned.add( userRole.getName() );
+            }
+        }
+        // the hierarchy is read a level at a time, the roles of each level in parallel:
+        Map<String, Collection<String>> parents = new HashMap<>();
+        List<String> level = new ArrayList<>( guard.assigned );
+        while ( !level.isEmpty() )
+        {
+            List<Fetch<Role>> reads = new ArrayList<>();
+            for ( final String name : level )
+            {
+                parents.put( key( name ), null );
+                reads.add( new Fetch<>( new Callable<List<Role>>()
+                {
+                    @Override
+                    public List<Role> call() throws SecurityException
+                    {
+                        List<Role> roles = new ArrayList<>();
+                        roles.add( reviewMgr.readRole( new Role( name ) ) );
+                        return roles;
+                    }
+                } ) );
+            }
+            Map<String, String> next = new HashMap<>();
+            for ( Fetch<Role> read : reads )
+            {
+                Role role = read.get().get( 0 );
+                parents.put( key( role.getName() ), role.getParents() );
+                if ( role.getParents() != null )
+                {
+                    for ( String parent : role.getParents() )
+                    {
+                        if ( !parents.containsKey( key( parent ) ) )
+                        {
+                            next.put( key( parent ), parent );
+                        }
+                    }
+                }
+            }
+            level = new ArrayList<>( next.values() );
+        }
+        for ( String role : parents.keySet() )
+        {
+            guard.inherited.put( role, ancestors( role, parents ) );
+        }
+        // fortress checks the DSD sets of the inherited roles too:
+        List<Fetch<SDSet>> searches = new ArrayList<>();
+        for ( final String role : parents.keySet() )
+        {
+            searches.add( new Fetch<>( new Callable<List<SDSet>>()
+            {
+                @Override
+                public List<SDSet> call() throws SecurityException
+                {
+                    return reviewMgr.dsdRoleSets( new Role( role ) );
+                }
+            } ) );
+        }
+        Set<String> names = new HashSet<>();
+        for ( Fetch<SDSet> search : searches )
+        {
+            List<SDSet> sdSets = search.get();
+            if ( sdSets != null )
+            {
+                for ( SDSet sdSet : sdSets )
+                {
+                    if ( names.add( key( sdSet.getName() ) ) )
+                    {
+                        guard.dsdSets.add( new Dsd( sdSet ) );
+                    }
+                }
+            }
+        }
+        LOG.debug( ".load user " + userId + " roles: " + guard.inherited.size() + ", dsd sets: " + guard.dsdSets
+            .size() );
+        return guard;
+    }
+
+
+    /**
+     * Note a save that may change the DSD sets, role hierarchy, role assignments or permission grants, so every guard
+     * is rebuilt.
+     *
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity == null || operation == null || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        if ( entity instanceof SDSet || entity instanceof User || entity instanceof UserRole || entity instanceof
+            Permission || entity instanceof PermObj || ( entity instanceof Role && !( entity instanceof AdminRole ) ) )
+        {
+            GENERATION.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * @return true if the guard may still be used for the session.
+     */
+    boolean isCurrent( Session session )
+    {
+        return session != null && userId.equalsIgnoreCase( session.getUserId() ) && generation == GENERATION.get()
+            && System.currentTimeMillis() - created <= TTL_MILLIS;
+    }
+
+
+    /**
+     * Find the DSD set activating a role would violate.
+     *
+     * @param session with the roles already active.
+     * @param roleName to be activated.
+     * @return the name of the set, or null if there's none.
+     */
+    String conflict( Session session, String roleName )
+    {
+        String conflict = null;
+        Set<String> candidate = inherited( roleName );
+        for ( Dsd dsd : dsdSets )
+        {
+            if ( !intersects( candidate, dsd.members ) )
+            {
+                continue;
+            }
+            int count = 1;
+            if ( session.getRoles() != null )
+            {
+                for ( UserRole active : session.getRoles() )
+                {
+                    if ( !active.getName().equalsIgnoreCase( roleName ) && intersects( inherited( active.getName() ),
+                        dsd.members ) )
+                    {
+                        count++;
+                    }
+                }
+            }
+            if ( count >= dsd.cardinality )
+            {
+                conflict = dsd.name;
+                break;
+            }
+        }
+        checks.labels( conflict == null ? "passed" : "rejected" ).inc();
+        return conflict;
+    }
+
+
+    /**
+     * Return the user's assigned roles, each with whether it's active and may be activated.
+     *
+     * @param session with the roles already active.
+     * @return the roles, in the order assigned.
+     */
+    List<Candidate> candidates( Session session )
+    {
+        List<Candidate> candidates = new ArrayList<>();
+        for ( String name : assigned )
+        {
+            boolean active = isActive( session, name );
+            candidates.add( new Candidate( name, active, active ? null : conflict( session, name ) ) );
+        }
+        return candidates;
+    }
+
+
+    /**
+     * Return the permissions granted to the user, and to the session's active roles and the roles they inherit from,
+     * from those already read for the user and each role.
+     *
+     * @param reviewMgr reads, in parallel, the user's permissions and those of the roles seen for the first time.
+     * @param session with the roles now active.
+     * @return the permissions, without duplicates.
+     * @throws SecurityException if a role's permissions couldn't be read.
+     */
+    List<Permission> permissions( final ReviewMgr reviewMgr, Session session ) throws SecurityException
+    {
+        Set<String> roles = new LinkedHashSet<>();
+        if ( session.getRoles() != null )
+        {
+            for ( UserRole active : session.getRoles() )
+            {
+                roles.addAll( inherited( active.getName() ) );
+            }
+        }
+        Map<String, Fetch<Permission>> reads = new HashMap<>();
+        for ( final String role : roles )
+        {
+            if ( !rolePermissions.containsKey( role ) )
+            {
+                reads.put( role, new Fetch<>( new Callable<List<Permission>>()
+                {
+                    @Override
+                    public List<Permission> call() throws SecurityException
+                    {
+                        return reviewMgr.rolePermissions( new Role( role ) );
+                    }
+                } ) );
+            }
+        }
+        Fetch<Permission> userRead = null;
+        if ( userPermissions == null )
+        {
+            userRead = new Fetch<>( new Callable<List<Permission>>()
+            {
+                @Override
+                public List<Permission> call() throws SecurityException
+                {
+                    return reviewMgr.userPermissions( new User( userId ) );
+                }
+            } );
+        }
+        for ( Map.Entry<String, Fetch<Permission>> read : reads.entrySet() )
+        {
+            List<Permission> granted = read.getValue().get();
+            rolePermissions.put( read.getKey(), granted != null ? granted : new ArrayList<Permission>() );
+        }
+        if ( userRead != null )
+        {
+            userPermissions = direct( userRead.get() );
+        }
+        Set<Permission> permissions = new LinkedHashSet<>( userPermissions );
+        for ( String role : roles )
+        {
+            permissions.addAll( rolePermissions.get( role ) );
+        }
+        return new ArrayList<>( permissions );
+    }
+
+
+    /**
+     * Keep the permissions granted to the user by name, fortress also returns those of the user's assigned roles.
+     */
+    private List<Permission> direct( List<Permission> granted )
+    {
+        List<Permission> direct = new ArrayList<>();
+        if ( granted != null )
+        {
+            for ( Permission permission : granted )
+            {
+                if ( permission.getUsers() != null )
+                {
+                    for ( String user : permission.getUsers() )
+                    {
+                        if ( userId.equalsIgnoreCase( user ) )
+                        {
+                            direct.add( permission );
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return direct;
+    }
+
+
+    private Set<String> inherited( String roleName )
+    {
+        Set<String> roles = inherited.get( key( roleName ) );
+        if ( roles == null )
+        {
+            // not assigned, so not read, fortress will refuse it:
+            roles = new HashSet<>();
+            roles.add( key( roleName ) );
+        }
+        return roles;
+    }
+
+
+    static boolean isActive( Session session, String roleName )
+    {
+        if ( session.getRoles() != null )
+        {
+            for ( UserRole active : session.getRoles() )
+            {
+                if ( active.getName().equalsIgnoreCase( roleName ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    private static boolean intersects( Set<String> roles, Set<String> members )
+    {
+        for ( String role : roles )
+        {
+            if ( members.contains( role ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Return a role and, transitively, the roles it inherits from.
+     */
+    private static Set<String> ancestors( String role, Map<String, Collection<String>> parents )
+    {
+        Set<String> results = new HashSet<>();
+        List<String> pending = new ArrayList<>();
+        pending.add( role );
+        while ( !pending.isEmpty() )
+        {
+            String next = pending.remove( pending.size() - 1 );
+            if ( results.add( next ) )
+            {
+                Collection<String> nextParents = parents.get( next );
+                if ( nextParents != null )
+                {
+                    for ( String parent : nextParents )
+                    {
+                        pending.add( key( parent ) );
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+}
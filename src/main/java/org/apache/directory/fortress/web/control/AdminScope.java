@@ -0,0 +1,426 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The users, roles and permission objects an administrator may manage, by the ARBAC02 scope of the admin roles
+ * activated in their session: a user is in scope if its ou is one of an admin role's user ous (OsU), or a descendant of
+ * one, a permission object likewise by the permission ous (OsP), and a role if it's within an admin role's range, i.e.
+ * it inherits from the beginning of the range and not beyond its end.  Used to show each administrator their share of
+ * the application wide scans, which read the whole directory with the trusted managers.
+ * <p>
+ * An administrator with the admin role named by 'superadmin.role' (default fortress-core-super-admin) activated sees
+ * everything, as does everyone when fortress doesn't enforce ARBAC02, i.e. 'is.arbac02' is false.  Without admin roles
+ * nothing is in scope.
+ * <p>
+ * Scopes are shared by administrators with the same admin roles, see {@link ReviewCache#scope}, and reused for
+ * 'admin.scope.ttl.seconds' (default 300), or until an admin role, role or ou is saved through this application.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class AdminScope
+{
+    private static final Logger LOG = Logger.getLogger( AdminScope.class.getName() );
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(
+        Config.getInstance().getInt( GlobalIds.ADMIN_SCOPE_TTL_SECONDS, 300 ) );
+    private static final boolean IS_ARBAC02 = Config.getInstance().getBoolean( GlobalIds.IS_ARBAC02, true );
+    private static final String SUPER_ADMIN = Config.getInstance().getProperty( GlobalIds.SUPER_ADMIN_ROLE,
+        "fortress-core-super-admin" );
+    private static final int MAX_SCOPES = 64;
+    private static final Object LOCK = new Object();
+
+    /** Everything is in scope. */
+    static final AdminScope ALL = new AdminScope( true );
+    /** Nothing is in scope. */
+    static final AdminScope NONE = new AdminScope( false );
+
+    static final Counter scopeRequests = Counter.build()
+            .name("adminScope_requests_total")
+            .help("ARBAC Scope Requests Total")
+            .labelNames( "result" )
+            .register();
+
+    // guarded by LOCK, bumped on invalidation so a load that raced with a save isn't kept:
+    private static long generation;
+    private static final Map<String, AdminScope> SCOPES = new LinkedHashMap<String, AdminScope>( 16, 0.75f, true )
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, AdminScope> eldest )
+        {
+            return size() > MAX_SCOPES;
+        }
+    };
+
+    private final boolean all;
+    // lower case names of the ous, with their descendants, and roles in scope:
+    private final Set<String> userOus = new HashSet<>();
+    private final Set<String> permOus = new HashSet<>();
+    private final Set<String> roles = new HashSet<>();
+    private final long created = System.currentTimeMillis();
+
+
+    /**
+     * Reads the admin roles and the ou and role hierarchies using the trusted (non-ARBAC) managers, as the scope of an
+     * administrator doesn't depend on what they may read.  Created on a request thread, so the spring beans can be
+     * injected.
+     */
+    private static class Loader
+    {
+        @SpringBean
+        private ReviewMgr reviewMgr;
+        @SpringBean
+        private DelReviewMgr delReviewMgr;
+
+
+        private Loader()
+        {
+            Injector.get().inject( this );
+        }
+
+
+        private AdminScope load( Set<String> names ) throws SecurityException
+        {
+            List<AdminRole> activated = new ArrayList<>();
+            List<AdminRole> adminRoles = delReviewMgr.findRoles( "" );
+            if ( adminRoles != null )
+            {
+                for ( AdminRole adminRole : adminRoles )
+                {
+                    if ( names.contains( key( adminRole.getName() ) ) )
+                    {
+                        activated.add( adminRole );
+                    }
+                }
+            }
+            return new AdminScope( activated, delReviewMgr.search( OrgUnit.Type.USER, "" ), delReviewMgr.search(
+                OrgUnit.Type.PERM, "" ), reviewMgr.findRoles( "" ) );
+        }
+    }
+
+
+    private AdminScope( boolean all )
+    {
+        this.all = all;
+    }
+
+
+    /**
+     * Compute the scope of admin roles.
+     *
+     * @param activated the admin roles, with their ous and role ranges.
+     * @param userOus every user ou, with its parents.
+     * @param permOus every permission ou, with its parents.
+     * @param rbacRoles every RBAC role, with its parents.
+     */
+    AdminScope( List<AdminRole> activated, List<OrgUnit> userOus, List<OrgUnit> permOus, List<Role> rbacRoles )
+    {
+        this.all = false;
+        Map<String, Set<String>> userOuChildren = children( userOus );
+        Map<String, Set<String>> permOuChildren = children( permOus );
+        Map<String, Set<String>> roleChildren = children( rbacRoles );
+        for ( AdminRole adminRole : activated )
+        {
+            if ( adminRole.getOsUSet() != null )
+            {
+                for ( String ou : adminRole.getOsUSet() )
+                {
+                    descendants( key( ou ), null, true, userOuChildren, this.userOus );
+                }
+            }
+            if ( adminRole.getOsPSet() != null )
+            {
+                for ( String ou : adminRole.getOsPSet() )
+                {
+                    descendants( key( ou ), null, true, permOuChildren, this.permOus );
+                }
+            }
+            if ( adminRole.getBeginRange() != null && !adminRole.getBeginRange().isEmpty() )
+            {
+                // the roles inheriting from the beginning of the range, up to its end:
+                String end = adminRole.getEndRange() != null && !adminRole.getEndRange().isEmpty() ? key( adminRole
+                    .getEndRange() ) : null;
+                Set<String> range = new HashSet<>();
+                descendants( key( adminRole.getBeginRange() ), end, adminRole.isEndInclusive(), roleChildren, range );
+                if ( !adminRole.isBeginInclusive() )
+                {
+                    range.remove( key( adminRole.getBeginRange() ) );
+                }
+                this.roles.addAll( range );
+            }
+        }
+    }
+
+
+    /**
+     * Return the scope of the admin roles activated in an administrator's session.
+     *
+     * @param session of the administrator.
+     * @return the scope, {@link #NONE} if the session is null, or it couldn't be read.
+     */
+    public static AdminScope get( Session session )
+    {
+        if ( session == null )
+        {
+            return NONE;
+        }
+        if ( !IS_ARBAC02 )
+        {
+            return ALL;
+        }
+        Set<String> names = new HashSet<>();
+        if ( session.getAdminRoles() != null )
+        {
+            for ( UserAdminRole adminRole : session.getAdminRoles() )
+            {
+                names.add( key( adminRole.getName() ) );
+            }
+        }
+        if ( names.contains( key( SUPER_ADMIN ) ) )
+        {
+            return ALL;
+        }
+        if ( names.isEmpty() )
+        {
+            return NONE;
+        }
+        String scope = ReviewCache.scope( session );
+        long loading;
+        synchronized ( LOCK )
+        {
+            AdminScope adminScope = SCOPES.get( scope );
+            if ( adminScope != null && System.currentTimeMillis() - adminScope.created <= TTL_MILLIS )
+            {
+                scopeRequests.labels( "hit" ).inc();
+                return adminScope;
+            }
+            loading = generation;
+        }
+        scopeRequests.labels( "miss" ).inc();
+        AdminScope adminScope;
+        try
+        {
+            adminScope = new Loader().load( names );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.warn( ".get scope " + scope + " caught SecurityException=" + se );
+            return NONE;
+        }
+        LOG.debug( ".get scope " + scope + " user ous: " + adminScope.userOus.size() + ", perm ous: " + adminScope
+            .permOus.size() + ", roles: " + adminScope.roles.size() );
+        synchronized ( LOCK )
+        {
+            if ( generation == loading )
+            {
+                SCOPES.put( scope, adminScope );
+            }
+        }
+        return adminScope;
+    }
+
+
+    /**
+     * Drop every scope, so each is read again when next needed.
+     */
+    public static void invalidate()
+    {
+        synchronized ( LOCK )
+        {
+            generation++;
+            SCOPES.clear();
+        }
+    }
+
+
+    /**
+     * Drop the scopes when an admin role, role or ou is saved.
+     *
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity == null || operation == null || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        if ( entity instanceof Role || entity instanceof OrgUnit )
+        {
+            invalidate();
+        }
+    }
+
+
+    /**
+     * @return true if everything is in scope.
+     */
+    public boolean isAll()
+    {
+        return all;
+    }
+
+
+    /**
+     * @param ou of the user.
+     * @return true if the user may be managed.
+     */
+    public boolean hasUserOu( String ou )
+    {
+        return all || ou != null && userOus.contains( key( ou ) );
+    }
+
+
+    /**
+     * @param ou of the permission object.
+     * @return true if the permission object, and its permissions, may be managed.
+     */
+    public boolean hasPermOu( String ou )
+    {
+        return all || ou != null && permOus.contains( key( ou ) );
+    }
+
+
+    /**
+     * @param roleName of an RBAC role.
+     * @return true if the role is within the range of an admin role.
+     */
+    public boolean hasRole( String roleName )
+    {
+        return all || roleName != null && roles.contains( key( roleName ) );
+    }
+
+
+    /**
+     * Return the entities below each, by lower case name, from the parents of each.
+     */
+    private static Map<String, Set<String>> children( List<? extends FortEntity> entities )
+    {
+        Map<String, Set<String>> children = new HashMap<>();
+        if ( entities != null )
+        {
+            for ( FortEntity entity : entities )
+            {
+                String name;
+                Collection<String> parents;
+                if ( entity instanceof OrgUnit )
+                {
+                    name = ( ( OrgUnit ) entity ).getName();
+                    parents = ( ( OrgUnit ) entity ).getParents();
+                }
+                else
+                {
+                    name = ( ( Role ) entity ).getName();
+                    parents = ( ( Role ) entity ).getParents();
+                }
+                for ( String parent : parents != null ? parents : Collections.<String>emptySet() )
+                {
+                    Set<String> below = children.get( key( parent ) );
+                    if ( below == null )
+                    {
+                        below = new HashSet<>();
+                        children.put( key( parent ), below );
+                    }
+                    below.add( key( name ) );
+                }
+            }
+        }
+        return children;
+    }
+
+
+    /**
+     * Add an entity, and transitively the entities below it, stopping at the end.
+     *
+     * @param end the entity not gone beyond, or null for none.
+     * @param isEndInclusive true if the end itself is added.
+     */
+    private static void descendants( String start, String end, boolean isEndInclusive, Map<String, Set<String>>
+        children, Set<String> found )
+    {
+        List<String> pending = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        pending.add( start );
+        while ( !pending.isEmpty() )
+        {
+            String next = pending.remove( pending.size() - 1 );
+            // an entity already seen is done, which also stops a cycle:
+            if ( !seen.add( next ) )
+            {
+                continue;
+            }
+            if ( next.equals( end ) )
+            {
+                if ( isEndInclusive )
+                {
+                    found.add( next );
+                }
+                continue;
+            }
+            found.add( next );
+            Set<String> below = children.get( next );
+            if ( below != null )
+            {
+                pending.addAll( below );
+            }
+        }
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+}
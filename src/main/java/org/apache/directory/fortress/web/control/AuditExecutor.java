@@ -0,0 +1,206 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * Bounded pool the slapd access log searches run on, for the audit pages and exports.  These queries can take a long
+ * time, and are kept off the web container's threads so a few of them can't make the app unresponsive for everyone.
+ * <p>
+ * Saturation is exported as metrics: the number of queries running and queued, the time spent queued, and the number
+ * turned away because the queue was full.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class AuditExecutor
+{
+    private static final Logger LOG = Logger.getLogger( AuditExecutor.class.getName() );
+    private static final int THREADS = Config.getInstance().getInt( GlobalIds.AUDIT_POOL_THREADS, 4 );
+    private static final int QUEUE = Config.getInstance().getInt( GlobalIds.AUDIT_POOL_QUEUE, 20 );
+    static final long TIMEOUT_SECONDS = Config.getInstance().getInt( GlobalIds.AUDIT_TIMEOUT_SECONDS, 300 );
+    private static final Object LOCK = new Object();
+    private static FanOutExecutor executor;
+
+    static final Gauge auditActive = Gauge.build()
+            .name("audit_pool_active")
+            .help("Audit Queries Running").register();
+    static final Gauge auditQueued = Gauge.build()
+            .name("audit_pool_queued")
+            .help("Audit Queries Waiting For A Thread").register();
+    static final Counter auditRejected = Counter.build()
+            .name("audit_pool_rejected_total")
+            .help("Audit Queries Rejected Because The Pool Was Saturated Total").register();
+    static final Summary auditQueueWait = Summary.build()
+            .name("audit_pool_queue_latency_seconds")
+            .help("Time Audit Queries Spent Queued In Seconds").register();
+    static final Summary auditLatency = Summary.build()
+            .name("audit_query_latency_seconds")
+            .help("Audit Query Latency In Seconds").register();
+
+
+    private AuditExecutor()
+    {
+    }
+
+
+    /**
+     * Queue an audit query.  It runs with the wicket application and session of the calling thread, if any, attached.
+     *
+     * @param task runs the query.
+     * @return the pending result.
+     * @throws RejectedExecutionException if the pool is saturated, the caller should try again later.
+     */
+    public static <T> Future<T> submit( Callable<T> task )
+    {
+        final Callable<T> attached = Prefetch.attach( task );
+        final Summary.Timer queued = auditQueueWait.startTimer();
+        final FanOutExecutor pool = executor();
+        try
+        {
+            return pool.submit( new Callable<T>()
+            {
+                @Override
+                public T call() throws Exception
+                {
+                    queued.observeDuration();
+                    sample( pool );
+                    Summary.Timer timer = auditLatency.startTimer();
+                    try
+                    {
+                        return attached.call();
+                    }
+                    finally
+                    {
+                        timer.observeDuration();
+                        sample( pool );
+                    }
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            auditRejected.inc();
+            LOG.warn( ".submit audit pool saturated, " + pool.getActiveCount() + " running and " + pool.getQueueSize()
+                + " queued" );
+            throw e;
+        }
+        finally
+        {
+            sample( pool );
+        }
+    }
+
+
+    /**
+     * Return the result of a query started by {@link #submit}, waiting for it if necessary.
+     *
+     * @param future as returned by submit, may be null.
+     * @return the result, or null if it isn't available and must be loaded by the caller.
+     * @throws RuntimeException as thrown by the query.
+     */
+    public static <T> T get( Future<T> future )
+    {
+        if ( future == null )
+        {
+            return null;
+        }
+        try
+        {
+            return future.get( TIMEOUT_SECONDS, TimeUnit.SECONDS );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) e.getCause();
+            }
+            if ( e.getCause() instanceof Error )
+            {
+                throw ( Error ) e.getCause();
+            }
+            LOG.warn( ".get audit query failed: " + e.getCause() );
+            return null;
+        }
+        catch ( TimeoutException e )
+        {
+            future.cancel( true );
+            LOG.warn( ".get audit query timed out after " + TIMEOUT_SECONDS + " seconds" );
+            return null;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            future.cancel( true );
+            return null;
+        }
+    }
+
+
+    /**
+     * Stop the pool, called when the application is destroyed.
+     */
+    public static void stop()
+    {
+        synchronized ( LOCK )
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+
+    private static FanOutExecutor executor()
+    {
+        synchronized ( LOCK )
+        {
+            if ( executor == null )
+            {
+                executor = FanOutExecutor.newInstance( "fortress-audit", THREADS, QUEUE );
+            }
+            return executor;
+        }
+    }
+
+
+    private static void sample( FanOutExecutor pool )
+    {
+        auditActive.set( pool.getActiveCount() );
+        auditQueued.set( pool.getQueueSize() );
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.model.IModel;
+
+import java.io.Serializable;
+import java.util.List;
+
+
+/**
+ * An audit search to be downloaded as csv by the {@link AuditExportServlet}.  Created by an audit list panel, which has
+ * already checked the administrator may run the search, and handed to the servlet through the http session.
+ * <p>
+ * Subclasses must be static, so the panel isn't kept in the session with them.
+ *
+ * @param <T> the type of audit record.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class AuditExport<T> implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private final String fileName;
+    private final String[] headers;
+    private final IModel<? extends List<T>> model;
+    private final String applicationKey;
+
+
+    /**
+     * @param fileName offered to the browser.
+     * @param model runs the search, with the administrator's session.
+     * @param headers the csv column headers, one per value returned by {@link #toRow}.
+     */
+    protected AuditExport( String fileName, IModel<? extends List<T>> model, String... headers )
+    {
+        this.fileName = fileName;
+        this.model = model;
+        this.headers = headers;
+        this.applicationKey = Application.get().getApplicationKey();
+    }
+
+
+    /**
+     * Return the values of a record, in the order of the headers.
+     *
+     * @param entity as returned by the search.
+     * @return the column values.
+     */
+    protected abstract String[] toRow( T entity );
+
+
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+
+    public String[] getHeaders()
+    {
+        return headers;
+    }
+
+
+    /**
+     * Run the search.  Called by the servlet on the audit pool, where the wicket application isn't otherwise
+     * available to the model's injected beans.
+     *
+     * @return the matching records.
+     */
+    List<T> load()
+    {
+        ThreadContext previous = ThreadContext.get( false );
+        ThreadContext.setApplication( Application.get( applicationKey ) );
+        try
+        {
+            return model.getObject();
+        }
+        finally
+        {
+            model.detach();
+            ThreadContext.restore( previous );
+        }
+    }
+}
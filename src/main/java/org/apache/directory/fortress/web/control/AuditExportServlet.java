@@ -0,0 +1,252 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import org.apache.log4j.Logger;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Downloads audit searches as csv.  The request is put in async mode and the search run on the {@link AuditExecutor}
+ * pool, so the container thread is returned as soon as the search is queued; the response is written and completed by
+ * the pool thread once the search is done.
+ * <p>
+ * The searches are registered by the audit list panels with {@link #register}, under a random token kept in the
+ * administrator's http session.  Each may be downloaded once.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AuditExportServlet extends HttpServlet
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( AuditExportServlet.class.getName() );
+    /** Where the servlet is mapped in web.xml */
+    public static final String MOUNT_PATH = "/audit/export";
+    private static final String TOKEN_PARAM = "token";
+    private static final String ATTRIBUTE_PREFIX = AuditExportServlet.class.getName() + ".";
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    static final Counter exportRequests = Counter.build()
+            .name("audit_export_requests_total")
+            .help("Audit Export Requests Total")
+            .labelNames( "result" )
+            .register();
+
+
+    /**
+     * Keep an export in the http session of the current wicket request, to be downloaded by the browser.
+     *
+     * @param export the search to download.
+     * @return the url to download it from.
+     */
+    public static String register( AuditExport<?> export )
+    {
+        HttpServletRequest request = ( HttpServletRequest ) RequestCycle.get().getRequest().getContainerRequest();
+        String token = UUID.randomUUID().toString();
+        request.getSession().setAttribute( ATTRIBUTE_PREFIX + token, export );
+        return request.getContextPath() + MOUNT_PATH + "?" + TOKEN_PARAM + "=" + token;
+    }
+
+
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        HttpSession session = request.getSession( false );
+        String token = request.getParameter( TOKEN_PARAM );
+        final AuditExport<?> export = ( session == null || token == null ) ? null :
+            ( AuditExport<?> ) session.getAttribute( ATTRIBUTE_PREFIX + token );
+        if ( export == null )
+        {
+            exportRequests.labels( "expired" ).inc();
+            response.sendError( HttpServletResponse.SC_NOT_FOUND );
+            return;
+        }
+        session.removeAttribute( ATTRIBUTE_PREFIX + token );
+
+        final AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout( AuditExecutor.TIMEOUT_SECONDS * 1000 );
+        // set by whichever of the search and the timeout gets to the response first:
+        final AtomicBoolean responded = new AtomicBoolean();
+        final AtomicReference<Future<Void>> pending = new AtomicReference<>();
+        asyncContext.addListener( new AsyncListener()
+        {
+            @Override
+            public void onTimeout( AsyncEvent event ) throws IOException
+            {
+                if ( responded.compareAndSet( false, true ) )
+                {
+                    exportRequests.labels( "timeout" ).inc();
+                    LOG.warn( ".doGet export " + export.getFileName() + " timed out" );
+                    Future<Void> future = pending.get();
+                    if ( future != null )
+                    {
+                        future.cancel( true );
+                    }
+                    ( ( HttpServletResponse ) event.getSuppliedResponse() ).sendError(
+                        HttpServletResponse.SC_GATEWAY_TIMEOUT );
+                    event.getAsyncContext().complete();
+                }
+            }
+
+
+            @Override
+            public void onComplete( AsyncEvent event )
+            {
+            }
+
+
+            @Override
+            public void onError( AsyncEvent event )
+            {
+                LOG.warn( ".doGet export " + export.getFileName() + " failed: " + event.getThrowable() );
+            }
+
+
+            @Override
+            public void onStartAsync( AsyncEvent event )
+            {
+            }
+        } );
+
+        try
+        {
+            pending.set( AuditExecutor.submit( new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    export( export, asyncContext, responded );
+                    return null;
+                }
+            } ) );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            if ( responded.compareAndSet( false, true ) )
+            {
+                exportRequests.labels( "rejected" ).inc();
+                response.setHeader( "Retry-After", RETRY_AFTER_SECONDS );
+                response.sendError( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+                asyncContext.complete();
+            }
+        }
+    }
+
+
+    /**
+     * Run the search and write the response, on the audit pool.
+     */
+    private static <T> void export( AuditExport<T> export, AsyncContext asyncContext, AtomicBoolean responded )
+    {
+        HttpServletResponse response = ( HttpServletResponse ) asyncContext.getResponse();
+        boolean responding = false;
+        try
+        {
+            List<T> entities = export.load();
+            responding = responded.compareAndSet( false, true );
+            if ( responding )
+            {
+                response.setContentType( "text/csv;charset=UTF-8" );
+                response.setHeader( "Content-Disposition", "attachment; filename=\"" + export.getFileName() + "\"" );
+                PrintWriter writer = response.getWriter();
+                writeRow( writer, export.getHeaders() );
+                for ( T entity : entities )
+                {
+                    writeRow( writer, export.toRow( entity ) );
+                }
+                writer.flush();
+                exportRequests.labels( "completed" ).inc();
+            }
+        }
+        catch ( RuntimeException | IOException e )
+        {
+            LOG.warn( ".export " + export.getFileName() + " caught " + e );
+            exportRequests.labels( "failed" ).inc();
+            if ( !responding )
+            {
+                responding = responded.compareAndSet( false, true );
+            }
+            if ( responding && !response.isCommitted() )
+            {
+                try
+                {
+                    response.sendError( HttpServletResponse.SC_INTERNAL_SERVER_ERROR );
+                }
+                catch ( IOException ioe )
+                {
+                    LOG.debug( ".export could not send error: " + ioe );
+                }
+            }
+        }
+        finally
+        {
+            if ( responding )
+            {
+                asyncContext.complete();
+            }
+        }
+    }
+
+
+    private static void writeRow( PrintWriter writer, String[] values )
+    {
+        for ( int i = 0; i < values.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                writer.print( ',' );
+            }
+            String value = values[i] == null ? "" : values[i];
+            // the values come from the directory, don't let spreadsheets evaluate them as formulas:
+            if ( !value.isEmpty() && "=+-@".indexOf( value.charAt( 0 ) ) != -1 )
+            {
+                value = "'" + value;
+            }
+            if ( value.indexOf( ',' ) != -1 || value.indexOf( '"' ) != -1 || value.indexOf( '\n' ) != -1
+                || value.indexOf( '\r' ) != -1 )
+            {
+                value = '"' + value.replace( "\"", "\"\"" ) + '"';
+            }
+            writer.print( value );
+        }
+        writer.print( "\r\n" );
+    }
+}
@@ -0,0 +1,598 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Session;
+import org.apache.wicket.core.util.lang.WicketObjects;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+
+/**
+ * Edits to one or more users, staged by the user detail panel rather than written at once, and committed together.
+ * <p>
+ * Each change is keyed by what it modifies, e.g. a user's assignment of a role, so a later change of the same thing
+ * replaces the earlier, or cancels it if it's the opposite, e.g. deassigning a role that was only staged for assignment.
+ * At most one change per key is left, so the changes don't depend on each other, except that an attribute update
+ * rewrites the user's entry.  The updates are therefore committed first, all at once on the {@link Prefetch} pool, then
+ * the other changes, likewise.  Changes that fail stay staged, to be corrected or discarded.
+ * <p>
+ * A change holds a copy of the user as staged.  Its password, if any, is held by the {@link WicketSession} rather than
+ * the change set, which is serialized with the page, and is overwritten once written or discarded.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class ChangeSet implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( ChangeSet.class.getName() );
+
+    static final Summary commitLatency = Summary.build()
+            .name("changeset_commit_latency_seconds")
+            .help("Staged User Change Set Commit Time In Seconds")
+            .register();
+    static final Counter committedChanges = Counter.build()
+            .name("changeset_changes_total")
+            .help("Staged User Changes Committed")
+            .labelNames( "kind", "result" )
+            .register();
+
+    /**
+     * What a staged change does.
+     */
+    public enum Kind
+    {
+        UPDATE( "update" ),
+        ASSIGN( "assign role" ),
+        DEASSIGN( "deassign role" ),
+        ASSIGN_ADMIN( "assign admin role" ),
+        DEASSIGN_ADMIN( "deassign admin role" ),
+        LOCK( "lock" ),
+        UNLOCK( "unlock" ),
+        RESET( "reset password" );
+
+        private final String label;
+
+
+        Kind( String label )
+        {
+            this.label = label;
+        }
+
+
+        /**
+         * @return the change this one undoes, if staged for the same thing, or null.
+         */
+        Kind opposite()
+        {
+            switch ( this )
+            {
+                case ASSIGN:
+                    return DEASSIGN;
+                case DEASSIGN:
+                    return ASSIGN;
+                case ASSIGN_ADMIN:
+                    return DEASSIGN_ADMIN;
+                case DEASSIGN_ADMIN:
+                    return ASSIGN_ADMIN;
+                case LOCK:
+                    return UNLOCK;
+                case UNLOCK:
+                    return LOCK;
+                default:
+                    return null;
+            }
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return label;
+        }
+    }
+
+    /**
+     * A staged change of a user.
+     */
+    public static final class Change implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final Kind kind;
+        private final User user;
+        private final UserRole role;
+        // the session holds the change's password, if it has one, under this id:
+        private final String passwordId;
+        // only set while the change is committed:
+        private transient char[] password;
+        private String error;
+
+
+        private Change( Kind kind, User user, UserRole role, char[] password )
+        {
+            this.kind = kind;
+            this.user = WicketObjects.cloneObject( user );
+            this.user.setPassword( new char[0] );
+            if ( kind != Kind.UPDATE )
+            {
+                // only an update writes the photo, so only its photo is registered once committed:
+                this.user.setJpegPhoto( null );
+            }
+            this.role = role;
+            if ( password != null )
+            {
+                passwordId = UUID.randomUUID().toString();
+                session().stagePassword( passwordId, Arrays.copyOf( password, password.length ) );
+            }
+            else
+            {
+                passwordId = null;
+            }
+        }
+
+
+        public Kind getKind()
+        {
+            return kind;
+        }
+
+
+        public User getUser()
+        {
+            return user;
+        }
+
+
+        /**
+         * @return the role assigned or deassigned, else null.
+         */
+        public UserRole getRole()
+        {
+            return role;
+        }
+
+
+        /**
+         * @return why the change failed when last committed, else null.
+         */
+        public String getError()
+        {
+            return error;
+        }
+
+
+        /**
+         * The role assignments are keyed by role, the others by kind, with a lock and an unlock sharing theirs.
+         */
+        private String key()
+        {
+            String thing;
+            switch ( kind )
+            {
+                case ASSIGN:
+                case DEASSIGN:
+                    thing = "role:" + role.getName();
+                    break;
+                case ASSIGN_ADMIN:
+                case DEASSIGN_ADMIN:
+                    thing = "adminrole:" + role.getName();
+                    break;
+                case UNLOCK:
+                    thing = Kind.LOCK.name();
+                    break;
+                default:
+                    thing = kind.name();
+            }
+            return user.getUserId().toLowerCase() + "\u0000" + thing.toLowerCase();
+        }
+
+
+        private void write( AdminMgr adminMgr, DelAdminMgr delAdminMgr ) throws SecurityException
+        {
+            switch ( kind )
+            {
+                case UPDATE:
+                    if ( password != null )
+                    {
+                        user.setPassword( password );
+                    }
+                    try
+                    {
+                        adminMgr.updateUser( user );
+                    }
+                    finally
+                    {
+                        user.setPassword( new char[0] );
+                    }
+                    break;
+                case ASSIGN:
+                    adminMgr.assignUser( role );
+                    break;
+                case DEASSIGN:
+                    adminMgr.deassignUser( role );
+                    break;
+                case ASSIGN_ADMIN:
+                    delAdminMgr.assignUser( ( UserAdminRole ) role );
+                    break;
+                case DEASSIGN_ADMIN:
+                    delAdminMgr.deassignUser( ( UserAdminRole ) role );
+                    break;
+                case LOCK:
+                    adminMgr.lockUserAccount( user );
+                    break;
+                case UNLOCK:
+                    adminMgr.unlockUserAccount( user );
+                    break;
+                case RESET:
+                    adminMgr.resetPassword( user, password );
+                    break;
+                default:
+                    throw new IllegalStateException( "unknown change " + kind );
+            }
+        }
+
+
+        /**
+         * Overwrite the change's password, once it's written or no longer staged.
+         */
+        private void clearPassword()
+        {
+            password = null;
+            if ( passwordId != null )
+            {
+                session().clearStagedPassword( passwordId );
+            }
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return user.getUserId() + ": " + kind + ( role != null ? " " + role.getName() : "" );
+        }
+    }
+
+    /**
+     * The outcome of a commit.
+     */
+    public static final class Result implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final List<User> users = new ArrayList<>();
+        private final List<UserRole> roles = new ArrayList<>();
+        private final List<Change> failed = new ArrayList<>();
+        private int committed;
+
+
+        /**
+         * @return the users with at least one change written, in the order first staged.
+         */
+        public List<User> getUsers()
+        {
+            return users;
+        }
+
+
+        /**
+         * @return the RBAC roles assigned or deassigned by the changes written.
+         */
+        public List<UserRole> getRoles()
+        {
+            return roles;
+        }
+
+
+        /**
+         * @return the changes not written, each with its error, and still staged.
+         */
+        public List<Change> getFailed()
+        {
+            return failed;
+        }
+
+
+        public int getCommitted()
+        {
+            return committed;
+        }
+    }
+
+    private final Map<String, Change> changes = new LinkedHashMap<>();
+
+
+    /**
+     * Stage an update of the user's attributes, as they are now, and of the password if one is set.
+     */
+    public void update( User user )
+    {
+        char[] password = user.getPassword();
+        stage( new Change( Kind.UPDATE, user, null, password != null && password.length > 0 ? password : null ) );
+    }
+
+
+    /**
+     * Stage the assignment of a role, or of an admin role if it's a {@link UserAdminRole}.
+     */
+    public void assign( User user, UserRole role )
+    {
+        stage( new Change( role instanceof UserAdminRole ? Kind.ASSIGN_ADMIN : Kind.ASSIGN, user, role, null ) );
+    }
+
+
+    /**
+     * Stage the deassignment of a role, or of an admin role if it's a {@link UserAdminRole}.
+     */
+    public void deassign( User user, UserRole role )
+    {
+        stage( new Change( role instanceof UserAdminRole ? Kind.DEASSIGN_ADMIN : Kind.DEASSIGN, user, role, null ) );
+    }
+
+
+    /**
+     * Stage the locking, or unlocking, of the user's account.
+     */
+    public void lock( User user, boolean lock )
+    {
+        stage( new Change( lock ? Kind.LOCK : Kind.UNLOCK, user, null, null ) );
+    }
+
+
+    /**
+     * Stage a reset of the user's password.
+     */
+    public void resetPassword( User user, char[] password )
+    {
+        stage( new Change( Kind.RESET, user, null, password != null ? password : new char[0] ) );
+    }
+
+
+    private synchronized void stage( Change change )
+    {
+        String key = change.key();
+        Change staged = changes.remove( key );
+        if ( staged != null )
+        {
+            staged.clearPassword();
+        }
+        if ( staged != null && staged.kind.opposite() == change.kind )
+        {
+            LOG.debug( ".stage " + change + " cancels " + staged );
+        }
+        else
+        {
+            changes.put( key, change );
+        }
+    }
+
+
+    public synchronized boolean isEmpty()
+    {
+        return changes.isEmpty();
+    }
+
+
+    public synchronized int size()
+    {
+        return changes.size();
+    }
+
+
+    /**
+     * @return the staged changes, in the order staged.
+     */
+    public synchronized List<Change> getChanges()
+    {
+        return new ArrayList<>( changes.values() );
+    }
+
+
+    /**
+     * @return the number of users with changes staged.
+     */
+    public synchronized int getUserCount()
+    {
+        return users( changes.values() ).size();
+    }
+
+
+    /**
+     * Drop the staged changes, e.g. when the admin abandons them.
+     */
+    public synchronized void discard()
+    {
+        for ( Change change : changes.values() )
+        {
+            change.clearPassword();
+        }
+        changes.clear();
+    }
+
+
+    /**
+     * Write the staged changes, the updates first, each group in parallel.  The changes written are removed, those
+     * that fail are left staged.
+     *
+     * @param adminMgr writes the changes, already set with the admin session.
+     * @param delAdminMgr writes the admin role changes.
+     * @return what was written.
+     */
+    public synchronized Result commit( AdminMgr adminMgr, DelAdminMgr delAdminMgr )
+    {
+        Summary.Timer timer = commitLatency.startTimer();
+        Result result = new Result();
+        List<Change> updates = new ArrayList<>();
+        List<Change> others = new ArrayList<>();
+        WicketSession session = session();
+        for ( Change change : changes.values() )
+        {
+            change.error = null;
+            if ( change.passwordId != null )
+            {
+                change.password = session.getStagedPassword( change.passwordId );
+                if ( change.password == null )
+                {
+                    change.error = "the password is no longer held by the session, stage the change again";
+                }
+            }
+            ( change.kind == Kind.UPDATE ? updates : others ).add( change );
+        }
+        List<Change> written = new ArrayList<>();
+        write( updates, adminMgr, delAdminMgr, written, result );
+        write( others, adminMgr, delAdminMgr, written, result );
+        for ( Change change : written )
+        {
+            changes.remove( change.key() );
+            change.clearPassword();
+            if ( change.kind == Kind.ASSIGN || change.kind == Kind.DEASSIGN )
+            {
+                result.roles.add( change.role );
+            }
+        }
+        for ( Change change : result.failed )
+        {
+            // still staged, the session keeps the password:
+            change.password = null;
+        }
+        result.users.addAll( users( written ) );
+        result.committed = written.size();
+        timer.observeDuration();
+        LOG.info( ".commit " + result.committed + " changes of " + result.users.size() + " users, " + result.failed
+            .size() + " failed" );
+        return result;
+    }
+
+
+    /**
+     * Start a group of changes on the pool, or on the calling thread if the pool is saturated, and wait for them.
+     */
+    private static void write( List<Change> group, final AdminMgr adminMgr, final DelAdminMgr delAdminMgr,
+        List<Change> written, Result result )
+    {
+        List<Future<Void>> futures = new ArrayList<>( group.size() );
+        for ( final Change change : group )
+        {
+            if ( change.error != null )
+            {
+                // couldn't be prepared, it fails without being written:
+                futures.add( null );
+                continue;
+            }
+            Callable<Void> task = new Callable<Void>()
+            {
+                @Override
+                public Void call() throws SecurityException
+                {
+                    change.write( adminMgr, delAdminMgr );
+                    return null;
+                }
+            };
+            Future<Void> future = Prefetch.submit( task );
+            if ( future == null )
+            {
+                try
+                {
+                    task.call();
+                }
+                catch ( Exception e )
+                {
+                    change.error = String.valueOf( e );
+                }
+            }
+            futures.add( future );
+        }
+        for ( int i = 0; i < group.size(); i++ )
+        {
+            Change change = group.get( i );
+            Future<Void> future = futures.get( i );
+            if ( future != null )
+            {
+                try
+                {
+                    future.get();
+                }
+                catch ( ExecutionException e )
+                {
+                    change.error = String.valueOf( e.getCause() );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    change.error = "interrupted before the change was known to be written";
+                }
+            }
+            if ( change.error == null )
+            {
+                written.add( change );
+                committedChanges.labels( change.kind.name(), "written" ).inc();
+            }
+            else
+            {
+                LOG.warn( ".commit " + change + " failed: " + change.error );
+                result.failed.add( change );
+                committedChanges.labels( change.kind.name(), "failed" ).inc();
+            }
+        }
+    }
+
+
+    private static WicketSession session()
+    {
+        return ( WicketSession ) Session.get();
+    }
+
+
+    private static Collection<User> users( Collection<Change> changes )
+    {
+        Map<String, User> users = new LinkedHashMap<>();
+        for ( Change change : changes )
+        {
+            String userId = change.user.getUserId().toLowerCase();
+            if ( !users.containsKey( userId ) )
+            {
+                users.put( userId, change.user );
+            }
+        }
+        return users.values();
+    }
+}
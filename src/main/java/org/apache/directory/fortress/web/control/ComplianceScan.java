@@ -0,0 +1,1001 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Application wide scan of the directory for users that violate a static separation of duty set, i.e. are authorized,
+ * by assignment or through the role hierarchy, for at least the set's cardinality of its members.  Such users come
+ * from data loaded before the set was created, or written around fortress, and aren't otherwise reported.
+ * <p>
+ * The first scan, run by a background thread when the application starts, reads every user, role and SSD set, holds
+ * the users' authorized roles in a {@link RoleAssignmentIndex} and checks the sets against it in parallel, keeping
+ * only the ids of the violating users per set.  Every 'compliance.scan.minutes' (default 15) after that only the users
+ * saved through this application since the last scan, see {@link #onSave}, are read again and checked against every
+ * set, and only the sets whose members or cardinality changed are checked against every user.  A role saved, an
+ * import completed, or too many users saved, starts a full scan instead, as does 'compliance.full.scan.hours'
+ * (default 24) passing, which picks up changes made outside this application.  Temporal constraints of the
+ * assignments aren't considered.
+ * <p>
+ * The scan itself is global, each administrator is shown the violating users within their ARBAC scope, see
+ * {@link #getResult(AdminScope)}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class ComplianceScan
+{
+    private static final Logger LOG = Logger.getLogger( ComplianceScan.class.getName() );
+    private static final long INTERVAL_MINUTES = Config.getInstance().getInt( GlobalIds.COMPLIANCE_SCAN_MINUTES, 15 );
+    private static final long FULL_SCAN_MILLIS = TimeUnit.HOURS.toMillis( Config.getInstance().getInt(
+        GlobalIds.COMPLIANCE_FULL_SCAN_HOURS, 24 ) );
+    private static final int THREADS = Config.getInstance().getInt( GlobalIds.COMPLIANCE_SCAN_THREADS,
+        Runtime.getRuntime().availableProcessors() );
+    // more users saved than this share of all users are checked by a full scan:
+    private static final int MAX_INCREMENTAL_SHARE = 10;
+    private static final Object LOCK = new Object();
+
+    static final Summary scanLatency = Summary.build()
+            .name("complianceScan_latency_seconds")
+            .help("SSD Compliance Scan Time seconds")
+            .labelNames( "kind" )
+            .register();
+    static final Gauge violations = Gauge.build()
+            .name("complianceScan_violations")
+            .help("SSD Compliance Scan Violating Users Found").register();
+
+    // guarded by LOCK, the saved users not yet checked again, by key:
+    private static Map<String, String> dirtyUsers = new HashMap<>();
+    private static boolean fullPending = true;
+    private static Result result;
+    private static ScheduledExecutorService scheduler;
+    private static FanOutExecutor pool;
+    private static Runnable task;
+    // used only by the scan thread:
+    private static Scan scan;
+
+
+    /**
+     * The outcome of a scan, replaced as a whole by the next one.
+     */
+    public static final class Result
+    {
+        private final RoleAssignmentIndex index;
+        private final Map<String, Integer> rows;
+        private final Map<String, long[]> reread;
+        // ou of every user checked, by key:
+        private final Map<String, String> ous;
+        private final List<Checked> sets;
+        private final long scanned;
+        private final long fullScanned;
+        private final boolean full;
+        private final long elapsed;
+        private final int users;
+        private final int violating;
+
+
+        private Result( Scan scan, boolean full, long elapsed )
+        {
+            this.index = scan.index;
+            this.rows = scan.rows;
+            this.reread = new HashMap<>( scan.reread );
+            this.ous = new HashMap<>( scan.ous );
+            this.sets = sorted( scan.sets.values() );
+            this.scanned = System.currentTimeMillis();
+            this.fullScanned = scan.fullScanned;
+            this.full = full;
+            this.elapsed = elapsed;
+            this.users = ous.size();
+            this.violating = violating( sets );
+        }
+
+
+        /**
+         * Keep the users within an administrator's scope.
+         */
+        private Result( Result result, AdminScope scope )
+        {
+            this.index = result.index;
+            this.rows = result.rows;
+            this.reread = result.reread;
+            this.ous = result.ous;
+            List<Checked> scoped = new ArrayList<>();
+            for ( Checked set : result.sets )
+            {
+                List<String> found = new ArrayList<>();
+                for ( String userId : set.violators )
+                {
+                    if ( scope.hasUserOu( ous.get( key( userId ) ) ) )
+                    {
+                        found.add( userId );
+                    }
+                }
+                scoped.add( new Checked( set, found.toArray( new String[found.size()] ) ) );
+            }
+            this.sets = sorted( scoped );
+            this.scanned = result.scanned;
+            this.fullScanned = result.fullScanned;
+            this.full = result.full;
+            this.elapsed = result.elapsed;
+            int count = 0;
+            for ( String ou : ous.values() )
+            {
+                if ( scope.hasUserOu( ou ) )
+                {
+                    count++;
+                }
+            }
+            this.users = count;
+            this.violating = violating( sets );
+        }
+
+
+        private static List<Checked> sorted( Collection<Checked> checked )
+        {
+            List<Checked> sets = new ArrayList<>( checked );
+            Collections.sort( sets, new Comparator<Checked>()
+            {
+                @Override
+                public int compare( Checked c1, Checked c2 )
+                {
+                    int diff = c2.violators.length - c1.violators.length;
+                    return diff != 0 ? diff : c1.name.compareToIgnoreCase( c2.name );
+                }
+            } );
+            return sets;
+        }
+
+
+        private static int violating( List<Checked> sets )
+        {
+            Set<String> users = new HashSet<>();
+            for ( Checked set : sets )
+            {
+                users.addAll( Arrays.asList( set.violators ) );
+            }
+            return users.size();
+        }
+
+
+        /**
+         * @return the time the scan finished.
+         */
+        public long getScanned()
+        {
+            return scanned;
+        }
+
+
+        /**
+         * @return the time the last full scan started.
+         */
+        public long getFullScanned()
+        {
+            return fullScanned;
+        }
+
+
+        /**
+         * @return true if every user and set was checked, false if only those changed.
+         */
+        public boolean isFull()
+        {
+            return full;
+        }
+
+
+        public long getElapsedMillis()
+        {
+            return elapsed;
+        }
+
+
+        /**
+         * @param scope of an administrator.
+         * @return the outcome with only the users within the scope counted and listed.
+         */
+        Result scoped( AdminScope scope )
+        {
+            return scope.isAll() ? this : new Result( this, scope );
+        }
+
+
+        /**
+         * @return the number of users checked.
+         */
+        public int getUserCount()
+        {
+            return users;
+        }
+
+
+        /**
+         * @return the number of users violating at least one set.
+         */
+        public int getViolatingUserCount()
+        {
+            return violating;
+        }
+
+
+        /**
+         * @return the sets checked, those with the most violating users first.
+         */
+        public List<Checked> getSets()
+        {
+            return sets;
+        }
+
+
+        /**
+         * Return the users violating a set, with the set's members each is authorized for.
+         *
+         * @param name of the set.
+         * @param max the most users returned.
+         * @return the users in order of their ids, empty if the set isn't known.
+         */
+        public List<RoleAssignmentIndex.Conflict> getViolations( String name, int max )
+        {
+            List<RoleAssignmentIndex.Conflict> conflicts = new ArrayList<>();
+            for ( Checked set : sets )
+            {
+                if ( set.name.equalsIgnoreCase( name ) )
+                {
+                    for ( String userId : set.violators )
+                    {
+                        if ( conflicts.size() == max )
+                        {
+                            break;
+                        }
+                        String key = key( userId );
+                        long[] row = reread.containsKey( key ) ? reread.get( key ) : index.authorized( rows.get(
+                            key ) );
+                        conflicts.add( new RoleAssignmentIndex.Conflict( userId, index.roles( row, set.mask ) ) );
+                    }
+                    break;
+                }
+            }
+            return conflicts;
+        }
+    }
+
+
+    /**
+     * An SSD set, and the users violating it.
+     */
+    public static final class Checked
+    {
+        private final String name;
+        private final String description;
+        private final int cardinality;
+        private final Set<String> members;
+        private final long[] mask;
+        private final List<String> unknown = new ArrayList<>();
+        private final String[] violators;
+
+
+        private Checked( SDSet sdSet, Set<String> members, RoleAssignmentIndex index, String[] violators )
+        {
+            this.name = sdSet.getName();
+            this.description = sdSet.getDescription();
+            this.cardinality = RoleAssignmentIndex.cardinality( sdSet );
+            this.members = members;
+            this.mask = index.mask( members, unknown );
+            this.violators = violators;
+        }
+
+
+        private Checked( Checked checked, String[] violators )
+        {
+            this.name = checked.name;
+            this.description = checked.description;
+            this.cardinality = checked.cardinality;
+            this.members = checked.members;
+            this.mask = checked.mask;
+            this.unknown.addAll( checked.unknown );
+            this.violators = violators;
+        }
+
+
+        public String getName()
+        {
+            return name;
+        }
+
+
+        public String getDescription()
+        {
+            return description;
+        }
+
+
+        public int getCardinality()
+        {
+            return cardinality;
+        }
+
+
+        /**
+         * @return the members, in order of their names.
+         */
+        public Set<String> getMembers()
+        {
+            return members;
+        }
+
+
+        /**
+         * @return the members that aren't roles in the directory.
+         */
+        public List<String> getUnknown()
+        {
+            return unknown;
+        }
+
+
+        public int getViolationCount()
+        {
+            return violators.length;
+        }
+
+
+        private boolean sameAs( SDSet sdSet, Set<String> members )
+        {
+            return cardinality == RoleAssignmentIndex.cardinality( sdSet ) && this.members.equals( members );
+        }
+    }
+
+
+    /**
+     * What the scans know of the directory: the index of the last full scan, the users read again since and the sets.
+     */
+    private static final class Scan
+    {
+        private final RoleAssignmentIndex index;
+        // row of each indexed user, by key:
+        private final Map<String, Integer> rows = new HashMap<>();
+        // authorized roles of the users read again since the full scan by key, null if the user was deleted:
+        private final Map<String, long[]> reread = new HashMap<>();
+        private final Map<String, String> rereadIds = new HashMap<>();
+        private final Map<String, Checked> sets = new HashMap<>();
+        // ou of every user, indexed or read again, by key:
+        private final Map<String, String> ous = new HashMap<>();
+        private final long fullScanned;
+
+
+        private Scan( RoleAssignmentIndex index, List<User> users, long fullScanned )
+        {
+            this.index = index;
+            this.fullScanned = fullScanned;
+            for ( int row = 0; row < index.getUserCount(); row++ )
+            {
+                rows.put( key( index.getUserId( row ) ), row );
+            }
+            for ( User user : users )
+            {
+                ous.put( key( user.getUserId() ), user.getOu() );
+            }
+        }
+
+
+        /**
+         * Check a set against every user.
+         */
+        private Checked check( SDSet sdSet, Set<String> members )
+        {
+            Checked checked = new Checked( sdSet, members, index, null );
+            List<String> found = new ArrayList<>();
+            for ( int row : index.constrained( checked.mask, checked.cardinality ) )
+            {
+                String userId = index.getUserId( row );
+                if ( !reread.containsKey( key( userId ) ) )
+                {
+                    found.add( userId );
+                }
+            }
+            for ( Map.Entry<String, long[]> user : reread.entrySet() )
+            {
+                if ( user.getValue() != null && RoleAssignmentIndex.constrained( user.getValue(), checked.mask,
+                    checked.cardinality ) )
+                {
+                    found.add( rereadIds.get( user.getKey() ) );
+                }
+            }
+            return new Checked( checked, sorted( found ) );
+        }
+
+
+        /**
+         * Check the users just read again against a set that was already checked.
+         */
+        private Checked recheck( Checked checked, Set<String> keys )
+        {
+            List<String> found = new ArrayList<>();
+            for ( String userId : checked.violators )
+            {
+                if ( !keys.contains( key( userId ) ) )
+                {
+                    found.add( userId );
+                }
+            }
+            for ( String key : keys )
+            {
+                long[] row = reread.get( key );
+                if ( row != null && RoleAssignmentIndex.constrained( row, checked.mask, checked.cardinality ) )
+                {
+                    found.add( rereadIds.get( key ) );
+                }
+            }
+            return new Checked( checked, sorted( found ) );
+        }
+    }
+
+
+    /**
+     * Reads the directory using the trusted (non-ARBAC) review manager.  Created on a request thread, so the spring
+     * bean can be injected, and then used only by the scan thread.
+     */
+    private static class Loader
+    {
+        @SpringBean
+        private ReviewMgr reviewMgr;
+
+
+        private Loader()
+        {
+            Injector.get().inject( this );
+        }
+
+
+        private Loader( ReviewMgr reviewMgr )
+        {
+            this.reviewMgr = reviewMgr;
+        }
+
+
+        private List<SDSet> ssdSets() throws SecurityException
+        {
+            SDSet sdSet = new SDSet();
+            sdSet.setName( "" );
+            sdSet.setType( SDSet.SDType.STATIC );
+            List<SDSet> sdSets = reviewMgr.ssdSets( sdSet );
+            return sdSets != null ? sdSets : new ArrayList<SDSet>();
+        }
+
+
+        private Scan index( long start ) throws SecurityException
+        {
+            Fetch<Role> roleFetch = new Fetch<>( new Callable<List<Role>>()
+            {
+                @Override
+                public List<Role> call() throws SecurityException
+                {
+                    return reviewMgr.findRoles( "" );
+                }
+            } );
+            List<User> users = reviewMgr.findUsers( new User( "" ) );
+            List<Role> roles = roleFetch.get();
+            if ( users == null )
+            {
+                users = new ArrayList<>();
+            }
+            return new Scan( new RoleAssignmentIndex( users, roles != null ? roles : new ArrayList<Role>() ), users,
+                start );
+        }
+
+
+        /**
+         * @return the user, or null if not found.
+         */
+        private User readUser( String userId ) throws SecurityException
+        {
+            try
+            {
+                return reviewMgr.readUser( new User( userId ) );
+            }
+            catch ( SecurityException se )
+            {
+                if ( se.getErrorId() == GlobalErrIds.USER_NOT_FOUND )
+                {
+                    return null;
+                }
+                throw se;
+            }
+        }
+    }
+
+
+    private ComplianceScan()
+    {
+    }
+
+
+    /**
+     * Start the background scans.  Must be called from a thread attached to the wicket application, e.g. its init.
+     */
+    public static void start()
+    {
+        final Loader loader = new Loader();
+        synchronized ( LOCK )
+        {
+            if ( scheduler != null )
+            {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-compliance-scan" );
+                    thread.setDaemon( true );
+                    thread.setPriority( Thread.MIN_PRIORITY );
+                    return thread;
+                }
+            } );
+            pool = FanOutExecutor.newPlatformExecutor( "fortress-compliance", THREADS, THREADS );
+            task = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    scan( loader );
+                }
+            };
+            scheduler.scheduleWithFixedDelay( task, 0, INTERVAL_MINUTES, TimeUnit.MINUTES );
+        }
+    }
+
+
+    /**
+     * Stop the background scans, called when the application is destroyed.
+     */
+    public static void stop()
+    {
+        synchronized ( LOCK )
+        {
+            if ( scheduler != null )
+            {
+                scheduler.shutdownNow();
+                pool.shutdownNow();
+                scheduler = null;
+                pool = null;
+            }
+        }
+    }
+
+
+    /**
+     * Scan now rather than waiting for the next scheduled scan.
+     *
+     * @param full true to check every user and set again.
+     * @return false if the scans aren't running.
+     */
+    public static boolean scanNow( boolean full )
+    {
+        synchronized ( LOCK )
+        {
+            if ( scheduler == null )
+            {
+                return false;
+            }
+            fullPending |= full;
+            try
+            {
+                scheduler.execute( task );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                return false;
+            }
+            return true;
+        }
+    }
+
+
+    /**
+     * @return the outcome of the last scan, of every user, or null if none has finished.
+     */
+    public static Result getResult()
+    {
+        synchronized ( LOCK )
+        {
+            return result;
+        }
+    }
+
+
+    /**
+     * Return the outcome of the last scan as an administrator may see it, i.e. only the users within their scope are
+     * counted and listed.
+     *
+     * @param scope of the administrator, see {@link AdminScope#get}.
+     * @return the outcome, or null if no scan has finished.
+     */
+    public static Result getResult( AdminScope scope )
+    {
+        Result scanned = getResult();
+        return scanned != null ? scanned.scoped( scope ) : null;
+    }
+
+
+    /**
+     * Run a full scan on the calling thread, apart from the background scans, e.g. to test it over a fake directory.
+     *
+     * @param reviewMgr reads every user, role and SSD set.
+     * @return the outcome.
+     * @throws SecurityException if the directory couldn't be read.
+     */
+    static Result scan( ReviewMgr reviewMgr ) throws SecurityException
+    {
+        long start = System.currentTimeMillis();
+        Scan scanned = full( new Loader( reviewMgr ), start );
+        return new Result( scanned, true, System.currentTimeMillis() - start );
+    }
+
+
+    /**
+     * Have the next scan check everyone, e.g. after an import.
+     */
+    public static void rescan()
+    {
+        synchronized ( LOCK )
+        {
+            fullPending = true;
+        }
+    }
+
+
+    /**
+     * Note a saved user, so the next scan checks it again, or that a full scan is needed after an RBAC role is saved.
+     *
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity == null || operation == null || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        String userId = null;
+        if ( entity instanceof User )
+        {
+            userId = ( ( User ) entity ).getUserId();
+        }
+        else if ( entity instanceof UserRole )
+        {
+            userId = ( ( UserRole ) entity ).getUserId();
+        }
+        else if ( entity instanceof Role && !( entity instanceof AdminRole ) )
+        {
+            rescan();
+        }
+        if ( userId != null )
+        {
+            synchronized ( LOCK )
+            {
+                dirtyUsers.put( key( userId ), userId );
+            }
+        }
+    }
+
+
+    private static void scan( Loader loader )
+    {
+        Map<String, String> users;
+        boolean full;
+        synchronized ( LOCK )
+        {
+            users = dirtyUsers;
+            dirtyUsers = new HashMap<>();
+            full = fullPending || scan == null || System.currentTimeMillis() - scan.fullScanned >= FULL_SCAN_MILLIS
+                || users.size() > scan.index.getUserCount() / MAX_INCREMENTAL_SHARE;
+            fullPending = false;
+        }
+        long start = System.currentTimeMillis();
+        try
+        {
+            if ( !full )
+            {
+                full = !incremental( loader, users );
+            }
+            if ( full )
+            {
+                scan = full( loader, start );
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            scanLatency.labels( full ? "full" : "incremental" ).observe( elapsed / 1000.0 );
+            Result scanned = new Result( scan, full, elapsed );
+            violations.set( scanned.violating );
+            synchronized ( LOCK )
+            {
+                result = scanned;
+            }
+            LOG.info( "scan " + ( full ? "full" : "incremental" ) + " users: " + scanned.getUserCount() + ", sets: "
+                + scanned.sets.size() + ", violating users: " + scanned.violating + ", elapsed: " + elapsed + "ms" );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.warn( "scan caught SecurityException=" + se );
+            retry( users, full );
+        }
+        catch ( RuntimeException re )
+        {
+            // don't let a failure cancel the scheduled scans, the sets may have been left part checked:
+            LOG.error( "scan caught RuntimeException=" + re, re );
+            retry( users, true );
+        }
+    }
+
+
+    /**
+     * Have the next scan check again what this one failed to.
+     */
+    private static void retry( Map<String, String> users, boolean full )
+    {
+        synchronized ( LOCK )
+        {
+            fullPending |= full;
+            for ( Map.Entry<String, String> user : users.entrySet() )
+            {
+                if ( !dirtyUsers.containsKey( user.getKey() ) )
+                {
+                    dirtyUsers.put( user.getKey(), user.getValue() );
+                }
+            }
+        }
+    }
+
+
+    private static Scan full( Loader loader, long start ) throws SecurityException
+    {
+        // the sets are read first, so a set saved during the scan is seen to have changed by the next:
+        List<SDSet> sdSets = loader.ssdSets();
+        Scan scanned = loader.index( start );
+        List<SDSet> changed = new ArrayList<>();
+        List<Set<String>> members = new ArrayList<>();
+        for ( SDSet sdSet : sdSets )
+        {
+            changed.add( sdSet );
+            members.add( members( sdSet ) );
+        }
+        check( scanned, changed, members );
+        return scanned;
+    }
+
+
+    /**
+     * Check the users saved against every set, and the sets that changed against every user.
+     *
+     * @return false if a full scan is needed instead.
+     */
+    private static boolean incremental( Loader loader, Map<String, String> users ) throws SecurityException
+    {
+        // the scan is only replaced by a full one, so the users read are kept even if this fails part way:
+        Map<String, long[]> rows = new HashMap<>();
+        Map<String, String> ous = new HashMap<>();
+        for ( Map.Entry<String, String> user : users.entrySet() )
+        {
+            User read = loader.readUser( user.getValue() );
+            long[] row = null;
+            if ( read != null )
+            {
+                ous.put( user.getKey(), read.getOu() );
+                row = scan.index.authorized( read );
+                if ( row == null )
+                {
+                    LOG.debug( "scan user " + user.getValue() + " is assigned a role added since the full scan" );
+                    return false;
+                }
+            }
+            rows.put( user.getKey(), row );
+        }
+        List<SDSet> sdSets = loader.ssdSets();
+        for ( Map.Entry<String, String> user : users.entrySet() )
+        {
+            scan.reread.put( user.getKey(), rows.get( user.getKey() ) );
+            scan.rereadIds.put( user.getKey(), user.getValue() );
+            if ( ous.containsKey( user.getKey() ) )
+            {
+                scan.ous.put( user.getKey(), ous.get( user.getKey() ) );
+            }
+            else
+            {
+                scan.ous.remove( user.getKey() );
+            }
+        }
+        List<SDSet> changed = new ArrayList<>();
+        List<Set<String>> changedMembers = new ArrayList<>();
+        Map<String, Checked> kept = new HashMap<>();
+        for ( SDSet sdSet : sdSets )
+        {
+            String key = key( sdSet.getName() );
+            Set<String> members = members( sdSet );
+            Checked checked = scan.sets.get( key );
+            if ( checked != null && checked.sameAs( sdSet, members ) )
+            {
+                kept.put( key, users.isEmpty() ? checked : scan.recheck( checked, users.keySet() ) );
+            }
+            else
+            {
+                changed.add( sdSet );
+                changedMembers.add( members );
+            }
+        }
+        // sets no longer found are dropped:
+        scan.sets.clear();
+        scan.sets.putAll( kept );
+        check( scan, changed, changedMembers );
+        return true;
+    }
+
+
+    /**
+     * Check sets against every user, split over the pool with the scan thread taking a share.
+     */
+    private static void check( final Scan target, List<SDSet> sdSets, List<Set<String>> members )
+    {
+        int parts = Math.max( 1, Math.min( THREADS, sdSets.size() ) );
+        List<Future<List<Checked>>> futures = new ArrayList<>();
+        List<Callable<List<Checked>>> tasks = new ArrayList<>();
+        for ( int part = 0; part < parts; part++ )
+        {
+            final List<SDSet> partSets = new ArrayList<>();
+            final List<Set<String>> partMembers = new ArrayList<>();
+            for ( int i = part; i < sdSets.size(); i += parts )
+            {
+                partSets.add( sdSets.get( i ) );
+                partMembers.add( members.get( i ) );
+            }
+            Callable<List<Checked>> partTask = new Callable<List<Checked>>()
+            {
+                @Override
+                public List<Checked> call()
+                {
+                    List<Checked> checked = new ArrayList<>();
+                    for ( int i = 0; i < partSets.size(); i++ )
+                    {
+                        checked.add( target.check( partSets.get( i ), partMembers.get( i ) ) );
+                    }
+                    return checked;
+                }
+            };
+            tasks.add( partTask );
+            futures.add( part == parts - 1 ? null : submit( partTask ) );
+        }
+        for ( int part = 0; part < parts; part++ )
+        {
+            List<Checked> checked = collect( futures.get( part ), tasks.get( part ) );
+            for ( Checked set : checked )
+            {
+                target.sets.put( key( set.name ), set );
+            }
+        }
+    }
+
+
+    private static Future<List<Checked>> submit( Callable<List<Checked>> partTask )
+    {
+        FanOutExecutor executor;
+        synchronized ( LOCK )
+        {
+            executor = pool;
+        }
+        try
+        {
+            return executor != null ? executor.submit( partTask ) : null;
+        }
+        catch ( RejectedExecutionException e )
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Wait for a part, or run it on the scan thread if it wasn't submitted.
+     */
+    private static List<Checked> collect( Future<List<Checked>> future, Callable<List<Checked>> partTask )
+    {
+        try
+        {
+            return future != null ? future.get() : partTask.call();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "scan interrupted", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IllegalStateException( "scan failed", e.getCause() );
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( "scan failed", e );
+        }
+    }
+
+
+    private static Set<String> members( SDSet sdSet )
+    {
+        Set<String> members = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        if ( sdSet.getMembers() != null )
+        {
+            members.addAll( sdSet.getMembers() );
+        }
+        return members;
+    }
+
+
+    private static String[] sorted( List<String> userIds )
+    {
+        String[] sorted = userIds.toArray( new String[userIds.size()] );
+        Arrays.sort( sorted, String.CASE_INSENSITIVE_ORDER );
+        return sorted;
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Reads an import file of comma separated values.  The first row names the columns: 'type', which is one of the
+ * {@link ImportRecord.Type}s, and the loader attributes, e.g.
+ * <pre>
+ * type,userId,ou,cn,sn,name
+ * user,jdoe,demousrs1,John,Doe,
+ * userrole,jdoe,,,,ROLE_USERS
+ * </pre>
+ * Empty cells are ignored.  Values may be quoted, with embedded commas, quotes (doubled) and line breaks.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class CsvImportReader extends ImportReader
+{
+    private static final String TYPE_COLUMN = "type";
+    private final BufferedReader reader;
+    private List<String> header;
+    private long line;
+
+
+    CsvImportReader( BufferedReader reader )
+    {
+        this.reader = reader;
+    }
+
+
+    @Override
+    public ImportRecord next() throws IOException
+    {
+        if ( header == null )
+        {
+            header = row();
+            if ( header == null )
+            {
+                return null;
+            }
+            for ( int i = 0; i < header.size(); i++ )
+            {
+                // spreadsheets may start the file with a byte order mark:
+                header.set( i, header.get( i ).replace( "\uFEFF", "" ).trim() );
+            }
+            if ( !header.contains( TYPE_COLUMN ) )
+            {
+                throw new IOException( "the first row must name the columns, one of which is '" + TYPE_COLUMN + "'" );
+            }
+        }
+        List<String> row;
+        long start;
+        do
+        {
+            start = line + 1;
+            row = row();
+            if ( row == null )
+            {
+                return null;
+            }
+        }
+        while ( row.size() == 1 && row.get( 0 ).trim().isEmpty() );
+
+        Map<String, String> attributes = new HashMap<>();
+        for ( int i = 0; i < row.size() && i < header.size(); i++ )
+        {
+            if ( !row.get( i ).isEmpty() )
+            {
+                attributes.put( header.get( i ), row.get( i ) );
+            }
+        }
+        String type = attributes.remove( TYPE_COLUMN );
+        ImportRecord.Type recordType = ImportRecord.Type.of( type );
+        String error = null;
+        if ( row.size() > header.size() )
+        {
+            error = "has " + row.size() + " values, the header names " + header.size() + " columns";
+        }
+        else if ( recordType == null )
+        {
+            error = "unknown type: " + type;
+        }
+        return new ImportRecord( start, recordType, attributes, error );
+    }
+
+
+    /**
+     * Read a row, which may span lines if a quoted value contains a line break.
+     *
+     * @return the values, or null at the end of the file.
+     */
+    private List<String> row() throws IOException
+    {
+        String text = reader.readLine();
+        if ( text == null )
+        {
+            return null;
+        }
+        line++;
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while ( true )
+        {
+            if ( i == text.length() )
+            {
+                if ( !quoted )
+                {
+                    break;
+                }
+                // a line break inside quotes is part of the value:
+                String next = reader.readLine();
+                if ( next == null )
+                {
+                    throw new IOException( "unterminated quoted value at line " + line );
+                }
+                line++;
+                value.append( '\n' );
+                text = next;
+                i = 0;
+                continue;
+            }
+            char c = text.charAt( i++ );
+            if ( quoted )
+            {
+                if ( c == '"' && i < text.length() && text.charAt( i ) == '"' )
+                {
+                    value.append( '"' );
+                    i++;
+                }
+                else if ( c == '"' )
+                {
+                    quoted = false;
+                }
+                else
+                {
+                    value.append( c );
+                }
+            }
+            else if ( c == '"' )
+            {
+                quoted = true;
+            }
+            else if ( c == ',' )
+            {
+                values.add( value.toString() );
+                value.setLength( 0 );
+            }
+            else
+            {
+                value.append( c );
+            }
+        }
+        values.add( value.toString() );
+        return values;
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
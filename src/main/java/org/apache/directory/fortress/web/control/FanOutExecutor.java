@@ -0,0 +1,151 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * Runs blocking fortress manager calls in the background or in parallel, e.g. the page prefetches and audit searches.
+ * <p>
+ * Which implementation is used is set by the executor.mode property.  Where the jvm supports virtual threads, each
+ * task gets its own and the number of calls in progress at once, across all executors, is limited to the size of the
+ * admin connection pool, max.admin.conn, so the connections are neither left idle nor oversubscribed.  Otherwise each
+ * executor is a bounded pool of platform threads.
+ * <p>
+ * A task holds its permit while it runs, so shouldn't wait on other tasks of a virtual thread executor.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class FanOutExecutor
+{
+    private static final Logger LOG = Logger.getLogger( FanOutExecutor.class.getName() );
+
+
+    /**
+     * Create an executor as configured in fortress.properties.
+     *
+     * @param name prefix of the thread names.
+     * @param threads size of the pool, when platform threads are used.
+     * @param queue number of tasks that may wait for a thread, or connection, before more are rejected.
+     * @return the executor.
+     */
+    public static FanOutExecutor newInstance( String name, int threads, int queue )
+    {
+        String mode = Config.getInstance().getProperty( GlobalIds.EXECUTOR_MODE, GlobalIds.AUTO_EXECUTOR );
+        FanOutExecutor executor = null;
+        if ( !GlobalIds.PLATFORM_EXECUTOR.equalsIgnoreCase( mode ) )
+        {
+            executor = newVirtualExecutor( name, AdminConnections.PERMITS, AdminConnections.MAX, queue );
+            if ( executor == null && GlobalIds.VIRTUAL_EXECUTOR.equalsIgnoreCase( mode ) )
+            {
+                LOG.warn( ".newInstance virtual threads aren't supported by this jvm, using platform threads" );
+            }
+        }
+        if ( executor == null )
+        {
+            executor = newPlatformExecutor( name, threads, queue );
+        }
+        LOG.info( ".newInstance " + name + " uses " + executor.getMode() + " threads" );
+        return executor;
+    }
+
+
+    /**
+     * Create a bounded pool of platform threads.
+     *
+     * @param name prefix of the thread names.
+     * @param threads size of the pool.
+     * @param queue number of tasks that may wait for a thread before more are rejected.
+     * @return the executor.
+     */
+    public static FanOutExecutor newPlatformExecutor( String name, int threads, int queue )
+    {
+        return new PlatformThreadExecutor( name, threads, queue );
+    }
+
+
+    /**
+     * Create an executor that starts a virtual thread per task.
+     *
+     * @param name prefix of the thread names.
+     * @param permits limits the tasks in progress at once, may be shared with other executors.
+     * @param maxPermits the number of permits the semaphore was created with.
+     * @param queue number of tasks that may wait for a permit before more are rejected.
+     * @return the executor, or null if the jvm doesn't support virtual threads.
+     */
+    public static FanOutExecutor newVirtualExecutor( String name, Semaphore permits, int maxPermits, int queue )
+    {
+        return VirtualThreadExecutor.newInstance( name, permits, maxPermits + queue );
+    }
+
+
+    /**
+     * Start a task.
+     *
+     * @param task to run.
+     * @return the pending result.
+     * @throws RejectedExecutionException if the executor is saturated or has been shut down.
+     */
+    public abstract <T> Future<T> submit( Callable<T> task );
+
+
+    /**
+     * Return the number of tasks running.
+     */
+    public abstract int getActiveCount();
+
+
+    /**
+     * Return the number of tasks waiting for a thread, or connection, to become available.
+     */
+    public abstract int getQueueSize();
+
+
+    /**
+     * Return the kind of threads used, virtual or platform.
+     */
+    public abstract String getMode();
+
+
+    /**
+     * Stop the executor, interrupting the tasks running.
+     */
+    public abstract void shutdownNow();
+
+
+    /**
+     * Permits for the admin connections shared by all virtual thread executors, created on first use.
+     */
+    private static final class AdminConnections
+    {
+        private static final int MAX = Config.getInstance().getInt( GlobalIds.MAX_ADMIN_CONN, 10 );
+        private static final Semaphore PERMITS = new Semaphore( MAX, true );
+    }
+}
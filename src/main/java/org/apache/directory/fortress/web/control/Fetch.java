@@ -0,0 +1,70 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.core.SecurityException;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+
+/**
+ * A search started on the {@link Prefetch} pool, and run by the caller instead if the pool couldn't start it in time.
+ * Used to run the independent searches of a policy dump together.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class Fetch<T>
+{
+    private final Callable<List<T>> search;
+    private final Future<List<T>> future;
+
+
+    Fetch( Callable<List<T>> search )
+    {
+        this.search = search;
+        this.future = Prefetch.submit( search );
+    }
+
+
+    /**
+     * @return the entities found, waiting for the search if it's still running.
+     * @throws SecurityException if the search fails.
+     */
+    List<T> get() throws SecurityException
+    {
+        try
+        {
+            List<T> result = Prefetch.await( future );
+            return result != null ? result : search.call();
+        }
+        catch ( SecurityException | RuntimeException e )
+        {
+            throw e;
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.FormComponent;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.visit.IVisit;
+import org.apache.wicket.util.visit.IVisitor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * Keeps a form's models in step with what the administrator types, without a server round trip per field.
+ * <p>
+ * Changed fields are collected in the browser and posted together once typing pauses for the configured delay, or
+ * straight away before any link or button is clicked, so that modal windows and other requests that don't submit the
+ * form still see the latest values.  Each field posted is converted, validated and pushed into its model, just as an
+ * {@link org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior} would for a single field.  Nothing is
+ * re-rendered.
+ * <p>
+ * Add to a {@link Form}, in place of per field 'blur' updating behaviors.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class FormSyncBehavior extends AbstractDefaultAjaxBehavior
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( FormSyncBehavior.class.getName() );
+    private static final int DELAY_MILLIS = Config.getInstance().getInt( GlobalIds.FORM_SYNC_DELAY_MILLIS, 1500 );
+    private static final String FIELDS_PARAM = "syncFields";
+    private static final ResourceReference SCRIPT = new JavaScriptResourceReference( FormSyncBehavior.class,
+        "FormSyncBehavior.js" );
+
+    static final Counter syncRequests = Counter.build()
+            .name("formSync_requests_total")
+            .help("Form Sync Requests Total").register();
+    static final Counter syncFields = Counter.build()
+            .name("formSync_fields_total")
+            .help("Form Sync Fields Total").register();
+
+
+    @Override
+    protected void onBind()
+    {
+        super.onBind();
+        if ( !( getComponent() instanceof Form ) )
+        {
+            throw new IllegalArgumentException( "FormSyncBehavior can only be added to a Form" );
+        }
+        getComponent().setOutputMarkupId( true );
+    }
+
+
+    @Override
+    public void renderHead( Component component, IHeaderResponse response )
+    {
+        super.renderHead( component, response );
+        response.render( JavaScriptHeaderItem.forReference( SCRIPT ) );
+        response.render( OnDomReadyHeaderItem.forScript( "Fortress.FormSync.bind('" + component.getMarkupId() + "', '"
+            + getCallbackUrl() + "', '" + FIELDS_PARAM + "', " + DELAY_MILLIS + ");" ) );
+    }
+
+
+    @Override
+    protected void respond( AjaxRequestTarget target )
+    {
+        String names = getComponent().getRequest().getRequestParameters().getParameterValue( FIELDS_PARAM )
+            .toString( "" );
+        final Set<String> inputNames = new HashSet<>( Arrays.asList( names.split( "," ) ) );
+        syncRequests.inc();
+        ( ( Form<?> ) getComponent() ).visitFormComponents( new IVisitor<FormComponent<?>, Void>()
+        {
+            @Override
+            public void component( FormComponent<?> formComponent, IVisit<Void> visit )
+            {
+                if ( !inputNames.contains( formComponent.getInputName() ) || !formComponent.isEnabledInHierarchy()
+                    || !formComponent.isVisibleInHierarchy() )
+                {
+                    return;
+                }
+                syncFields.inc();
+                formComponent.inputChanged();
+                formComponent.validate();
+                if ( formComponent.isValid() )
+                {
+                    formComponent.valid();
+                    formComponent.updateModel();
+                }
+                else
+                {
+                    // the raw input is kept and reported when the form is submitted:
+                    formComponent.invalid();
+                    LOG.debug( ".respond invalid input for field: " + formComponent.getInputName() );
+                }
+            }
+        } );
+    }
+}
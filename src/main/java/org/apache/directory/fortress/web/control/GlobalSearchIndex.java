@@ -0,0 +1,754 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Application wide inverted index over the names and descriptions of the RBAC and ARBAC entities, used by the global
+ * search box on every page.
+ * <p>
+ * Names and descriptions are split into lower case tokens, including camel case parts so 'payroll' finds
+ * 'corpPayrollAdmin'.  Every query term must match the start of some token of an entity.  Hits in the name rank above
+ * hits in the description, and whole token matches rank above prefix matches.
+ * <p>
+ * The index is rebuilt from the directory by a background thread every 'search.index.refresh.minutes' (default 60)
+ * and is kept current in between by {@link #onSave}.  Saves that arrive during a rebuild are replayed onto the new
+ * index before it is published.
+ * <p>
+ * The index holds every entity, each administrator is shown the hits within their ARBAC scope, see
+ * {@link #search(String, int, AdminScope)}: users by their ou, permission objects and their permissions by the
+ * object's ou, ous by name and roles by the admin roles' ranges.  Other kinds aren't scoped by ARBAC02.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class GlobalSearchIndex
+{
+    private static final Logger LOG = Logger.getLogger( GlobalSearchIndex.class.getName() );
+    private static final int NAME_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_TOKEN = 3;
+    private static final int PREFIX_TOKEN = 1;
+    private static final Object LOCK = new Object();
+
+    static final Summary searchLatency = Summary.build()
+            .name("globalSearch_latency_seconds")
+            .help("Global Search Time seconds")
+            .register();
+    static final Summary rebuildLatency = Summary.build()
+            .name("globalSearch_rebuild_latency_seconds")
+            .help("Global Search Index Rebuild Time seconds")
+            .register();
+    static final Gauge documents = Gauge.build()
+            .name("globalSearch_documents")
+            .help("Global Search Index Entities Held").register();
+
+    // guarded by LOCK:
+    private static Index index = new Index();
+    private static List<PendingSave> pending;
+    private static ScheduledExecutorService scheduler;
+
+    /**
+     * The kinds of entities indexed, in the order their results are displayed.
+     */
+    public enum Kind
+    {
+        USER,
+        ROLE,
+        PERM_OBJ,
+        PERM,
+        SSD,
+        DSD,
+        USER_OU,
+        PERM_OU,
+        ADMIN_ROLE,
+        ADMIN_PERM_OBJ,
+        ADMIN_PERM,
+        POLICY
+    }
+
+
+    /**
+     * One search result.
+     */
+    public static class Hit implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final Kind kind;
+        private final String name;
+        private final String description;
+        private final int score;
+
+
+        private Hit( Doc doc, int score )
+        {
+            this.kind = doc.kind;
+            this.name = doc.name;
+            this.description = doc.description;
+            this.score = score;
+        }
+
+
+        public Kind getKind()
+        {
+            return kind;
+        }
+
+
+        public String getName()
+        {
+            return name;
+        }
+
+
+        public String getDescription()
+        {
+            return description;
+        }
+
+
+        public int getScore()
+        {
+            return score;
+        }
+    }
+
+
+    /**
+     * An indexed entity.
+     */
+    private static class Doc
+    {
+        private final Kind kind;
+        private final String name;
+        private final String description;
+        // of a user or permission object:
+        private String ou;
+        // of a permission, whose object's ou it is scoped by:
+        private String objName;
+
+
+        private Doc( Kind kind, String name, String description )
+        {
+            this.kind = kind;
+            this.name = name;
+            this.description = description;
+        }
+
+
+        private String key()
+        {
+            return key( kind, name );
+        }
+
+
+        private static String key( Kind kind, String name )
+        {
+            return kind + ":" + name.toLowerCase( Locale.ENGLISH );
+        }
+    }
+
+
+    /**
+     * A save received while the index was being rebuilt.
+     */
+    private static class PendingSave
+    {
+        private final FortEntity entity;
+        private final SaveModelEvent.Operations operation;
+
+
+        private PendingSave( FortEntity entity, SaveModelEvent.Operations operation )
+        {
+            this.entity = entity;
+            this.operation = operation;
+        }
+    }
+
+
+    /**
+     * Documents plus the postings of each token, the token map is sorted so prefixes are found with a range lookup.
+     * Postings map a document to the weight of the field the token was found in.
+     */
+    private static class Index
+    {
+        private final Map<String, Doc> docs = new HashMap<>();
+        private final TreeMap<String, Map<Doc, Integer>> postings = new TreeMap<>();
+
+
+        private void put( Doc doc )
+        {
+            remove( doc.key() );
+            docs.put( doc.key(), doc );
+            for ( Map.Entry<String, Integer> token : tokens( doc ).entrySet() )
+            {
+                Map<Doc, Integer> posting = postings.get( token.getKey() );
+                if ( posting == null )
+                {
+                    posting = new HashMap<>( 4 );
+                    postings.put( token.getKey(), posting );
+                }
+                posting.put( doc, token.getValue() );
+            }
+        }
+
+
+        private void remove( String key )
+        {
+            Doc doc = docs.remove( key );
+            if ( doc != null )
+            {
+                for ( String token : tokens( doc ).keySet() )
+                {
+                    Map<Doc, Integer> posting = postings.get( token );
+                    if ( posting != null )
+                    {
+                        posting.remove( doc );
+                        if ( posting.isEmpty() )
+                        {
+                            postings.remove( token );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Loads every entity from the directory using the trusted (non-ARBAC) managers.  Created on a request thread, so
+     * the spring beans can be injected, and then used only by the rebuild thread.
+     */
+    private static class Loader
+    {
+        @SpringBean
+        private ReviewMgr reviewMgr;
+        @SpringBean
+        private DelReviewMgr delReviewMgr;
+        @SpringBean
+        private PwPolicyMgr pwPolicyMgr;
+
+
+        private Loader()
+        {
+            Injector.get().inject( this );
+        }
+
+
+        private Index load() throws SecurityException
+        {
+            Index loaded = new Index();
+            for ( User user : reviewMgr.findUsers( new User( "" ) ) )
+            {
+                loaded.put( toDoc( user ) );
+            }
+            for ( Role role : reviewMgr.findRoles( "" ) )
+            {
+                loaded.put( toDoc( role ) );
+            }
+            for ( AdminRole adminRole : delReviewMgr.findRoles( "" ) )
+            {
+                loaded.put( toDoc( adminRole ) );
+            }
+            for ( boolean isAdmin : new boolean[]{ false, true } )
+            {
+                PermObj permObj = new PermObj( "" );
+                permObj.setAdmin( isAdmin );
+                for ( PermObj result : reviewMgr.findPermObjs( permObj ) )
+                {
+                    result.setAdmin( isAdmin );
+                    loaded.put( toDoc( result ) );
+                }
+                Permission perm = new Permission( "", "" );
+                perm.setAdmin( isAdmin );
+                for ( Permission result : reviewMgr.findPermissions( perm ) )
+                {
+                    result.setAdmin( isAdmin );
+                    loaded.put( toDoc( result ) );
+                }
+            }
+            for ( OrgUnit.Type type : OrgUnit.Type.values() )
+            {
+                for ( OrgUnit ou : delReviewMgr.search( type, "" ) )
+                {
+                    ou.setType( type );
+                    loaded.put( toDoc( ou ) );
+                }
+            }
+            for ( SDSet.SDType type : SDSet.SDType.values() )
+            {
+                SDSet sdSet = new SDSet();
+                sdSet.setName( "" );
+                sdSet.setType( type );
+                List<SDSet> sdSets = type == SDSet.SDType.STATIC ? reviewMgr.ssdSets( sdSet ) : reviewMgr.dsdSets(
+                    sdSet );
+                for ( SDSet result : sdSets )
+                {
+                    result.setType( type );
+                    loaded.put( toDoc( result ) );
+                }
+            }
+            for ( PwPolicy policy : pwPolicyMgr.search( "" ) )
+            {
+                loaded.put( toDoc( policy ) );
+            }
+            return loaded;
+        }
+    }
+
+
+    private GlobalSearchIndex()
+    {
+    }
+
+
+    /**
+     * Start the background rebuild.  Must be called from a thread attached to the wicket application, e.g. its init.
+     */
+    public static void start()
+    {
+        final Loader loader = new Loader();
+        long refresh = Config.getInstance().getInt( GlobalIds.SEARCH_INDEX_REFRESH_MINUTES, 60 );
+        synchronized ( LOCK )
+        {
+            if ( scheduler != null )
+            {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-search-index" );
+                    thread.setDaemon( true );
+                    thread.setPriority( Thread.MIN_PRIORITY );
+                    return thread;
+                }
+            } );
+        }
+        scheduler.scheduleWithFixedDelay( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                rebuild( loader );
+            }
+        }, 0, refresh, TimeUnit.MINUTES );
+    }
+
+
+    /**
+     * Stop the background rebuild, called when the application is destroyed.
+     */
+    public static void stop()
+    {
+        synchronized ( LOCK )
+        {
+            if ( scheduler != null )
+            {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+    }
+
+
+    /**
+     * Search the index.
+     *
+     * @param query one or more terms, each must match the start of a token in the entity's name or description.
+     * @param limit maximum hits returned per kind.
+     * @param scope of the administrator, hits outside it are left out.
+     * @return hits ranked best first and grouped by kind, in {@link Kind} order.  Empty if nothing matches.
+     */
+    public static Map<Kind, List<Hit>> search( String query, int limit, AdminScope scope )
+    {
+        Map<Kind, List<Hit>> results = new EnumMap<>( Kind.class );
+        Set<String> terms = tokenize( query ).keySet();
+        if ( terms.isEmpty() )
+        {
+            return results;
+        }
+        Summary.Timer timer = searchLatency.startTimer();
+        try
+        {
+            Map<Doc, Integer> scores = null;
+            synchronized ( LOCK )
+            {
+                for ( String term : terms )
+                {
+                    Map<Doc, Integer> termScores = new HashMap<>();
+                    String end = term + Character.MAX_VALUE;
+                    for ( Map.Entry<String, Map<Doc, Integer>> posting : index.postings.subMap( term, end ).entrySet() )
+                    {
+                        int match = posting.getKey().equals( term ) ? EXACT_TOKEN : PREFIX_TOKEN;
+                        for ( Map.Entry<Doc, Integer> doc : posting.getValue().entrySet() )
+                        {
+                            int score = match * doc.getValue();
+                            Integer best = termScores.get( doc.getKey() );
+                            if ( best == null || best < score )
+                            {
+                                termScores.put( doc.getKey(), score );
+                            }
+                        }
+                    }
+                    scores = scores == null ? termScores : intersect( scores, termScores );
+                    if ( scores.isEmpty() )
+                    {
+                        return results;
+                    }
+                }
+                if ( !scope.isAll() )
+                {
+                    for ( Iterator<Doc> docs = scores.keySet().iterator(); docs.hasNext(); )
+                    {
+                        if ( !isIn( docs.next(), scope ) )
+                        {
+                            docs.remove();
+                        }
+                    }
+                }
+            }
+            List<Hit> hits = new ArrayList<>( scores.size() );
+            for ( Map.Entry<Doc, Integer> score : scores.entrySet() )
+            {
+                hits.add( new Hit( score.getKey(), score.getValue() ) );
+            }
+            Collections.sort( hits, new Comparator<Hit>()
+            {
+                @Override
+                public int compare( Hit h1, Hit h2 )
+                {
+                    return h1.score != h2.score ? h2.score - h1.score : h1.name.compareToIgnoreCase( h2.name );
+                }
+            } );
+            for ( Hit hit : hits )
+            {
+                List<Hit> kindHits = results.get( hit.kind );
+                if ( kindHits == null )
+                {
+                    kindHits = new ArrayList<>();
+                    results.put( hit.kind, kindHits );
+                }
+                if ( kindHits.size() < limit )
+                {
+                    kindHits.add( hit );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            timer.observeDuration();
+        }
+    }
+
+
+    /**
+     * Apply a saved entity to the index.
+     *
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity == null || operation == null || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        synchronized ( LOCK )
+        {
+            apply( index, entity, operation );
+            if ( pending != null )
+            {
+                pending.add( new PendingSave( entity, operation ) );
+            }
+            documents.set( index.docs.size() );
+        }
+    }
+
+
+    private static void rebuild( Loader loader )
+    {
+        synchronized ( LOCK )
+        {
+            pending = new ArrayList<>();
+        }
+        Summary.Timer timer = rebuildLatency.startTimer();
+        try
+        {
+            Index loaded = loader.load();
+            synchronized ( LOCK )
+            {
+                for ( PendingSave save : pending )
+                {
+                    apply( loaded, save.entity, save.operation );
+                }
+                index = loaded;
+                documents.set( index.docs.size() );
+            }
+            LOG.info( "rebuild documents: " + loaded.docs.size() );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.warn( "rebuild caught SecurityException=" + se );
+        }
+        catch ( RuntimeException re )
+        {
+            // don't let a failure cancel the scheduled rebuilds:
+            LOG.error( "rebuild caught RuntimeException=" + re, re );
+        }
+        finally
+        {
+            timer.observeDuration();
+            synchronized ( LOCK )
+            {
+                pending = null;
+            }
+        }
+    }
+
+
+    private static void apply( Index target, FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        Doc doc = toDoc( entity );
+        if ( doc == null )
+        {
+            return;
+        }
+        if ( operation == SaveModelEvent.Operations.DELETE )
+        {
+            target.remove( doc.key() );
+        }
+        else
+        {
+            target.put( doc );
+        }
+    }
+
+
+    /**
+     * Must be called holding LOCK, as a permission's object is looked up in the index.
+     */
+    private static boolean isIn( Doc doc, AdminScope scope )
+    {
+        switch ( doc.kind )
+        {
+            case USER:
+                return scope.hasUserOu( doc.ou );
+            case ROLE:
+                return scope.hasRole( doc.name );
+            case PERM_OBJ:
+            case ADMIN_PERM_OBJ:
+                return scope.hasPermOu( doc.ou );
+            case PERM:
+            case ADMIN_PERM:
+                Doc permObj = index.docs.get( Doc.key( doc.kind == Kind.PERM ? Kind.PERM_OBJ : Kind.ADMIN_PERM_OBJ,
+                    doc.objName ) );
+                return permObj != null && scope.hasPermOu( permObj.ou );
+            case USER_OU:
+                return scope.hasUserOu( doc.name );
+            case PERM_OU:
+                return scope.hasPermOu( doc.name );
+            default:
+                return true;
+        }
+    }
+
+
+    private static Doc toDoc( FortEntity entity )
+    {
+        Doc doc = null;
+        // AdminRole extends Role so must be tested first:
+        if ( entity instanceof AdminRole )
+        {
+            AdminRole adminRole = ( AdminRole ) entity;
+            doc = new Doc( Kind.ADMIN_ROLE, adminRole.getName(), adminRole.getDescription() );
+        }
+        else if ( entity instanceof Role )
+        {
+            Role role = ( Role ) entity;
+            doc = new Doc( Kind.ROLE, role.getName(), role.getDescription() );
+        }
+        else if ( entity instanceof User )
+        {
+            User user = ( User ) entity;
+            String description = user.getName() == null ? user.getDescription() : user.getName() + " " +
+                user.getDescription();
+            doc = new Doc( Kind.USER, user.getUserId(), description );
+            doc.ou = user.getOu();
+        }
+        else if ( entity instanceof PermObj )
+        {
+            PermObj permObj = ( PermObj ) entity;
+            doc = new Doc( permObj.isAdmin() ? Kind.ADMIN_PERM_OBJ : Kind.PERM_OBJ, permObj.getObjName(),
+                permObj.getDescription() );
+            doc.ou = permObj.getOu();
+        }
+        else if ( entity instanceof Permission )
+        {
+            Permission perm = ( Permission ) entity;
+            doc = new Doc( perm.isAdmin() ? Kind.ADMIN_PERM : Kind.PERM, perm.getObjName() + "." + perm.getOpName(),
+                perm.getDescription() );
+            doc.objName = perm.getObjName();
+        }
+        else if ( entity instanceof OrgUnit )
+        {
+            OrgUnit ou = ( OrgUnit ) entity;
+            doc = new Doc( ou.getType() == OrgUnit.Type.PERM ? Kind.PERM_OU : Kind.USER_OU, ou.getName(),
+                ou.getDescription() );
+        }
+        else if ( entity instanceof SDSet )
+        {
+            SDSet sdSet = ( SDSet ) entity;
+            doc = new Doc( sdSet.getType() == SDSet.SDType.DYNAMIC ? Kind.DSD : Kind.SSD, sdSet.getName(),
+                sdSet.getDescription() );
+        }
+        else if ( entity instanceof PwPolicy )
+        {
+            doc = new Doc( Kind.POLICY, ( ( PwPolicy ) entity ).getName(), null );
+        }
+        return doc == null || doc.name == null ? null : doc;
+    }
+
+
+    private static Map<Doc, Integer> intersect( Map<Doc, Integer> scores, Map<Doc, Integer> termScores )
+    {
+        Map<Doc, Integer> both = new HashMap<>();
+        for ( Map.Entry<Doc, Integer> score : scores.entrySet() )
+        {
+            Integer termScore = termScores.get( score.getKey() );
+            if ( termScore != null )
+            {
+                both.put( score.getKey(), score.getValue() + termScore );
+            }
+        }
+        return both;
+    }
+
+
+    /**
+     * Return the tokens of a document and the weight of the best field each was found in.
+     */
+    private static Map<String, Integer> tokens( Doc doc )
+    {
+        Map<String, Integer> tokens = tokenize( doc.description );
+        for ( String token : tokens.keySet() )
+        {
+            tokens.put( token, DESCRIPTION_WEIGHT );
+        }
+        for ( String token : tokenize( doc.name ).keySet() )
+        {
+            tokens.put( token, NAME_WEIGHT );
+        }
+        return tokens;
+    }
+
+
+    /**
+     * Split text into lower case tokens on non alphanumerics and camel case boundaries.  Compound words are also kept
+     * whole, e.g. 'corpPayrollAdmin' yields 'corppayrolladmin', 'corp', 'payroll' and 'admin'.
+     */
+    private static Map<String, Integer> tokenize( String text )
+    {
+        Map<String, Integer> tokens = new LinkedHashMap<>();
+        if ( text == null )
+        {
+            return tokens;
+        }
+        Set<String> parts = new HashSet<>();
+        StringBuilder word = new StringBuilder();
+        StringBuilder part = new StringBuilder();
+        for ( int i = 0; i <= text.length(); i++ )
+        {
+            char c = i < text.length() ? text.charAt( i ) : ' ';
+            if ( Character.isLetterOrDigit( c ) )
+            {
+                if ( part.length() > 0 && Character.isUpperCase( c ) && Character.isLowerCase( part.charAt( part
+                    .length() - 1 ) ) )
+                {
+                    parts.add( part.toString() );
+                    part.setLength( 0 );
+                }
+                word.append( c );
+                part.append( c );
+            }
+            else
+            {
+                if ( word.length() > 0 )
+                {
+                    parts.add( word.toString() );
+                    parts.add( part.toString() );
+                    word.setLength( 0 );
+                    part.setLength( 0 );
+                }
+            }
+        }
+        for ( String token : parts )
+        {
+            tokens.put( token.toLowerCase( Locale.ENGLISH ), PREFIX_TOKEN );
+        }
+        return tokens;
+    }
+}
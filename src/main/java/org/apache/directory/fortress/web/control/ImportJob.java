@@ -0,0 +1,845 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A bulk import of users, roles, permissions and their relationships from an uploaded file.
+ * <p>
+ * The upload is kept in the job's directory, under import.dir, and streamed from there a record at a time.  Records
+ * are validated, then written in batches: the records of a batch are grouped by {@link ImportRecord.Type} and
+ * {@link ImportRecord.Operation}, and each group is written in parallel, on a bounded pool, before the next is
+ * started.  Records that fail are written to the job's error report along with the reason, and the rest of the file is
+ * imported.
+ * <p>
+ * The job's progress is saved after every batch.  If the import fails, is cancelled, or the application is stopped,
+ * it may be resumed from the last saved batch.  Records of the batch that was in progress are written again, so
+ * those that had been may be reported as already existing.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class ImportJob
+{
+    private static final Logger LOG = Logger.getLogger( ImportJob.class.getName() );
+    private static final File DIR = new File( Config.getInstance().getProperty( GlobalIds.IMPORT_DIR, new File(
+        System.getProperty( "java.io.tmpdir" ), "fortress-import" ).getPath() ) );
+    private static final int THREADS = Config.getInstance().getInt( GlobalIds.IMPORT_THREADS, 4 );
+    private static final int BATCH_SIZE = Config.getInstance().getInt( GlobalIds.IMPORT_BATCH_SIZE, 100 );
+    private static final int MAX_JOBS = Config.getInstance().getInt( GlobalIds.IMPORT_MAX_JOBS, 2 );
+    private static final long RETENTION_MILLIS = TimeUnit.HOURS.toMillis( Config.getInstance().getInt(
+        GlobalIds.IMPORT_RETENTION_HOURS, 72 ) );
+    private static final String CHECKPOINT = "job.properties";
+    private static final String ERRORS = "errors.csv";
+    private static final String UPLOAD = "upload";
+    private static final Map<String, ImportJob> JOBS = new ConcurrentHashMap<>();
+    private static final Object LOCK = new Object();
+    private static FanOutExecutor executor;
+
+    static final Counter importRecords = Counter.build()
+            .name("import_records_total")
+            .help("Imported Records Total")
+            .labelNames("result").register();
+    static final Summary batchLatency = Summary.build()
+            .name("import_batch_latency_seconds")
+            .help("Import Batch Latency In Seconds").register();
+    static final Gauge jobsActive = Gauge.build()
+            .name("import_jobs_active")
+            .help("Imports Running").register();
+
+    /**
+     * The states of an import.  One that's failed, cancelled or interrupted may be resumed.
+     */
+    public enum Status
+    {
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED,
+        INTERRUPTED
+    }
+
+    private final String id;
+    private final String owner;
+    private final String fileName;
+    private final ImportReader.Format format;
+    private final File dir;
+    private volatile Status status;
+    private volatile long processed;
+    private volatile long succeeded;
+    private volatile long failed;
+    private volatile long started;
+    private volatile long finished;
+    private volatile String message;
+    private volatile boolean cancelled;
+    /** Where this run of the job started from, for its rate. */
+    private volatile long runProcessed;
+    private volatile long runStarted;
+    private Thread thread;
+
+
+    private ImportJob( String id, String owner, String fileName, ImportReader.Format format )
+    {
+        this.id = id;
+        this.owner = owner;
+        this.fileName = fileName;
+        this.format = format;
+        this.dir = new File( DIR, id );
+    }
+
+
+    /**
+     * Save an uploaded file and start importing it.
+     *
+     * @param owner userId of the admin importing the file, only their jobs are listed for them.
+     * @param fileName name of the uploaded file.
+     * @param format of the file.
+     * @param in contents of the file, closed when it's been saved.
+     * @param adminMgr of the admin, used to write the records.
+     * @param delAdminMgr of the admin, used to write the admin roles and permissions.
+     * @return the job.
+     * @throws IOException if the file can't be saved.
+     * @throws RejectedExecutionException if the maximum number of imports are already running.
+     */
+    public static ImportJob start( String owner, String fileName, ImportReader.Format format, InputStream in,
+        AdminMgr adminMgr, DelAdminMgr delAdminMgr ) throws IOException
+    {
+        try
+        {
+            // fail fast, before the file is saved:
+            checkCapacity();
+            ImportJob job = new ImportJob( UUID.randomUUID().toString(), owner, fileName, format );
+            Files.createDirectories( job.dir.toPath() );
+            Files.copy( in, new File( job.dir, UPLOAD ).toPath() );
+            job.started = System.currentTimeMillis();
+            synchronized ( LOCK )
+            {
+                try
+                {
+                    checkCapacity();
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    delete( job.dir.toPath() );
+                    throw e;
+                }
+                JOBS.put( job.id, job );
+                job.launch( adminMgr, delAdminMgr );
+            }
+            return job;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Resume a job that failed or was cancelled or interrupted, from its last saved batch.
+     *
+     * @param adminMgr of the admin, used to write the records.
+     * @param delAdminMgr of the admin, used to write the admin roles and permissions.
+     * @throws RejectedExecutionException if the maximum number of imports are already running.
+     */
+    public void resume( AdminMgr adminMgr, DelAdminMgr delAdminMgr )
+    {
+        if ( !isResumable() )
+        {
+            throw new IllegalStateException( "import " + id + " is " + status );
+        }
+        synchronized ( LOCK )
+        {
+            checkCapacity();
+            launch( adminMgr, delAdminMgr );
+        }
+    }
+
+
+    /**
+     * Stop the job once the batch in progress has been written.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+
+    /**
+     * Return the jobs of an admin, including those of earlier runs of the application.  Jobs that were running when
+     * the application stopped are reported as interrupted.  Jobs older than the retention period are removed.
+     *
+     * @param owner userId of the admin.
+     * @return the jobs, most recently started first.
+     */
+    public static List<ImportJob> list( String owner )
+    {
+        load();
+        List<ImportJob> jobs = new ArrayList<>();
+        for ( ImportJob job : JOBS.values() )
+        {
+            if ( job.owner.equals( owner ) )
+            {
+                jobs.add( job );
+            }
+        }
+        Collections.sort( jobs, new Comparator<ImportJob>()
+        {
+            @Override
+            public int compare( ImportJob job1, ImportJob job2 )
+            {
+                return Long.compare( job2.started, job1.started );
+            }
+        } );
+        return jobs;
+    }
+
+
+    /**
+     * Return a job by its id.
+     *
+     * @return the job, or null if there isn't one.
+     */
+    public static ImportJob get( String id )
+    {
+        return id != null ? JOBS.get( id ) : null;
+    }
+
+
+    /**
+     * Interrupt the running jobs and stop the pool, called when the application is destroyed.  The jobs may be
+     * resumed once it's restarted.
+     */
+    public static void stop()
+    {
+        for ( ImportJob job : JOBS.values() )
+        {
+            synchronized ( job )
+            {
+                if ( job.thread != null )
+                {
+                    job.thread.interrupt();
+                }
+            }
+        }
+        synchronized ( LOCK )
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+
+    public String getId()
+    {
+        return id;
+    }
+
+
+    public String getOwner()
+    {
+        return owner;
+    }
+
+
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+
+    public ImportReader.Format getFormat()
+    {
+        return format;
+    }
+
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+
+    /**
+     * @return the number of records read from the file and written, or reported as errors.
+     */
+    public long getProcessed()
+    {
+        return processed;
+    }
+
+
+    public long getSucceeded()
+    {
+        return succeeded;
+    }
+
+
+    public long getFailed()
+    {
+        return failed;
+    }
+
+
+    public long getStarted()
+    {
+        return started;
+    }
+
+
+    /**
+     * @return when the job last stopped running, or 0 if it's running.
+     */
+    public long getFinished()
+    {
+        return finished;
+    }
+
+
+    /**
+     * @return why the job failed, or null.
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+
+    /**
+     * @return the records processed per second by the current, or last, run of the job.
+     */
+    public long getRate()
+    {
+        long end = status == Status.RUNNING ? System.currentTimeMillis() : finished;
+        long millis = end - runStarted;
+        return millis > 0 && runStarted > 0 ? ( processed - runProcessed ) * 1000 / millis : 0;
+    }
+
+
+    public boolean isRunning()
+    {
+        return status == Status.RUNNING;
+    }
+
+
+    public boolean isResumable()
+    {
+        return status == Status.FAILED || status == Status.CANCELLED || status == Status.INTERRUPTED;
+    }
+
+
+    /**
+     * @return the error report, a csv file of the line, type, key and error of each record that failed.  It may not
+     * exist if none have.
+     */
+    public File getErrorReport()
+    {
+        return new File( dir, ERRORS );
+    }
+
+
+    private static void checkCapacity()
+    {
+        int running = 0;
+        for ( ImportJob job : JOBS.values() )
+        {
+            if ( job.isRunning() )
+            {
+                running++;
+            }
+        }
+        if ( running >= MAX_JOBS )
+        {
+            throw new RejectedExecutionException( running + " imports are running, try again once one has finished" );
+        }
+    }
+
+
+    private synchronized void launch( AdminMgr adminMgr, DelAdminMgr delAdminMgr )
+    {
+        status = Status.RUNNING;
+        cancelled = false;
+        message = null;
+        finished = 0;
+        runProcessed = processed;
+        runStarted = System.currentTimeMillis();
+        checkpoint();
+        final ImportWriter writer = new ImportWriter( adminMgr, delAdminMgr );
+        // the managers are spring beans, which need the application and session of the request to be resolved:
+        final Callable<Void> task = Prefetch.attach( new Callable<Void>()
+        {
+            @Override
+            public Void call()
+            {
+                run( writer );
+                return null;
+            }
+        } );
+        thread = new Thread( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    task.call();
+                }
+                catch ( Exception e )
+                {
+                    LOG.error( ".run import " + id + " failed", e );
+                }
+            }
+        }, "fortress-import-" + id );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+
+    private void run( ImportWriter writer )
+    {
+        LOG.info( ".run import " + id + " of " + fileName + " from record " + processed );
+        jobsActive.inc();
+        long skip = processed;
+        File errors = getErrorReport();
+        // java.io streams, unlike those of nio channels, aren't closed when the thread is interrupted by stop:
+        try ( ImportReader reader = ImportReader.open( format, new BufferedInputStream( new FileInputStream(
+            new File( dir, UPLOAD ) ) ) );
+              Writer report = new OutputStreamWriter( new FileOutputStream( errors, true ), StandardCharsets.UTF_8 ) )
+        {
+            if ( errors.length() == 0 )
+            {
+                report.write( "line,type,key,error\n" );
+            }
+            List<ImportRecord> batch = new ArrayList<>( BATCH_SIZE );
+            long read = 0;
+            ImportRecord record;
+            while ( !cancelled && ( record = reader.next() ) != null )
+            {
+                // on resume, skip the records already processed:
+                if ( read++ < skip )
+                {
+                    continue;
+                }
+                batch.add( record );
+                if ( batch.size() == BATCH_SIZE )
+                {
+                    write( writer, batch, report );
+                    batch.clear();
+                }
+            }
+            if ( !cancelled )
+            {
+                write( writer, batch, report );
+            }
+            status = cancelled ? Status.CANCELLED : Status.COMPLETED;
+        }
+        catch ( InterruptedException e )
+        {
+            status = cancelled ? Status.CANCELLED : Status.INTERRUPTED;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            if ( Thread.currentThread().isInterrupted() )
+            {
+                status = Status.INTERRUPTED;
+            }
+            else
+            {
+                LOG.warn( ".run import " + id + " failed at record " + processed + ": " + e );
+                message = e.getMessage();
+                status = Status.FAILED;
+            }
+        }
+        finally
+        {
+            Thread.interrupted();
+            finished = System.currentTimeMillis();
+            checkpoint();
+            jobsActive.dec();
+            synchronized ( this )
+            {
+                thread = null;
+            }
+            LOG.info( ".run import " + id + " " + status + ", " + succeeded + " records written, " + failed
+                + " failed" );
+        }
+    }
+
+
+    /**
+     * Write a batch, a group of records of the same type at a time, then save the job's progress.
+     */
+    private void write( final ImportWriter writer, List<ImportRecord> batch, Writer report ) throws IOException,
+        InterruptedException
+    {
+        Summary.Timer timer = batchLatency.startTimer();
+        Map<Integer, List<ImportRecord>> groups = new TreeMap<>();
+        for ( ImportRecord record : batch )
+        {
+            String error = ImportWriter.validate( record );
+            if ( error != null )
+            {
+                error( report, record, error );
+                continue;
+            }
+            List<ImportRecord> group = groups.get( rank( record ) );
+            if ( group == null )
+            {
+                group = new ArrayList<>();
+                groups.put( rank( record ), group );
+            }
+            group.add( record );
+        }
+
+        Set<ReviewCache.Region> regions = EnumSet.noneOf( ReviewCache.Region.class );
+        boolean assignments = false;
+        boolean users = false;
+        for ( List<ImportRecord> group : groups.values() )
+        {
+            List<Future<FortEntity>> futures = new ArrayList<>( group.size() );
+            for ( final ImportRecord record : group )
+            {
+                futures.add( submit( new Callable<FortEntity>()
+                {
+                    @Override
+                    public FortEntity call() throws Exception
+                    {
+                        return writer.write( record );
+                    }
+                } ) );
+            }
+            for ( int i = 0; i < futures.size(); i++ )
+            {
+                ImportRecord record = group.get( i );
+                try
+                {
+                    FortEntity entity = futures.get( i ).get();
+                    succeeded++;
+                    importRecords.labels( "succeeded" ).inc();
+                    if ( entity != null )
+                    {
+                        SaveModelEvent.Operations operation = SaveModelEvent.Operations.valueOf( record.getOperation()
+                            .name() );
+                        SuggestionIndex.onSave( entity, operation );
+                        GlobalSearchIndex.onSave( entity, operation );
+                    }
+                    regions.addAll( regions( record.getType() ) );
+                    assignments |= record.getType() == ImportRecord.Type.USER || regions.contains( ReviewCache
+                        .Region.ROLE );
+                    users |= record.getType() == ImportRecord.Type.USER;
+                }
+                catch ( ExecutionException e )
+                {
+                    error( report, record, e.getCause().getMessage() );
+                }
+                catch ( InterruptedException e )
+                {
+                    for ( Future<FortEntity> future : futures )
+                    {
+                        future.cancel( true );
+                    }
+                    throw e;
+                }
+            }
+        }
+        for ( ReviewCache.Region region : regions )
+        {
+            ReviewCache.invalidate( region );
+        }
+        if ( assignments )
+        {
+            RoleAssignmentIndex.invalidate();
+            ComplianceScan.rescan();
+        }
+        if ( assignments || !regions.isEmpty() )
+        {
+            RoleUsage.invalidate();
+        }
+        if ( users )
+        {
+            AccountIndex.rescan();
+        }
+        report.flush();
+        processed += batch.size();
+        checkpoint();
+        timer.observeDuration();
+    }
+
+
+    /**
+     * The order the records of a batch are written in: deletes first, of the entities that refer to others before
+     * those they refer to, then adds and updates in the order of their types.
+     */
+    private static int rank( ImportRecord record )
+    {
+        int types = ImportRecord.Type.values().length;
+        int type = record.getType().ordinal();
+        switch ( record.getOperation() )
+        {
+            case DELETE:
+                return types - 1 - type;
+            case UPDATE:
+                return types + 2 * type + 1;
+            default:
+                return types + 2 * type;
+        }
+    }
+
+
+    private static Future<FortEntity> submit( Callable<FortEntity> task )
+    {
+        Callable<FortEntity> attached = Prefetch.attach( task );
+        try
+        {
+            return executor().submit( attached );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // the pool is shared by the running imports, when it's saturated the driver writes the record itself:
+            FutureTask<FortEntity> inline = new FutureTask<>( attached );
+            inline.run();
+            return inline;
+        }
+    }
+
+
+    private void error( Writer report, ImportRecord record, String error ) throws IOException
+    {
+        failed++;
+        importRecords.labels( "failed" ).inc();
+        report.write( record.getLine() + "," + csv( record.getType() != null ? record.getType().name() : "" ) + ","
+            + csv( record.getKey() ) + "," + csv( error ) + "\n" );
+    }
+
+
+    private static Set<ReviewCache.Region> regions( ImportRecord.Type type )
+    {
+        switch ( type )
+        {
+            case ROLE:
+            case ROLEINHERITANCE:
+            case USERROLE:
+                return EnumSet.of( ReviewCache.Region.ROLE );
+            case ADMINROLE:
+            case USERADMINROLE:
+                return EnumSet.of( ReviewCache.Region.ADMIN_ROLE );
+            case PERMOBJ:
+            case PERMOP:
+            case PERMGRANT:
+                return EnumSet.of( ReviewCache.Region.PERM_OBJ );
+            default:
+                return EnumSet.noneOf( ReviewCache.Region.class );
+        }
+    }
+
+
+    private static String csv( String value )
+    {
+        if ( value == null )
+        {
+            return "";
+        }
+        if ( value.contains( "," ) || value.contains( "\"" ) || value.contains( "\n" ) )
+        {
+            return "\"" + value.replace( "\"", "\"\"" ) + "\"";
+        }
+        return value;
+    }
+
+
+    /**
+     * Save the job's progress, replacing the previous checkpoint in one step so a crash can't leave it half written.
+     */
+    private void checkpoint()
+    {
+        Properties properties = new Properties();
+        properties.setProperty( "id", id );
+        properties.setProperty( "owner", owner );
+        properties.setProperty( "fileName", fileName );
+        properties.setProperty( "format", format.name() );
+        properties.setProperty( "status", status.name() );
+        properties.setProperty( "processed", String.valueOf( processed ) );
+        properties.setProperty( "succeeded", String.valueOf( succeeded ) );
+        properties.setProperty( "failed", String.valueOf( failed ) );
+        properties.setProperty( "started", String.valueOf( started ) );
+        properties.setProperty( "finished", String.valueOf( finished ) );
+        if ( message != null )
+        {
+            properties.setProperty( "message", message );
+        }
+        Path temp = new File( dir, CHECKPOINT + ".tmp" ).toPath();
+        try
+        {
+            try ( OutputStream out = new FileOutputStream( temp.toFile() ) )
+            {
+                properties.store( out, "fortress import" );
+            }
+            Files.move( temp, new File( dir, CHECKPOINT ).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( IOException e )
+        {
+            LOG.warn( ".checkpoint import " + id + " progress couldn't be saved: " + e );
+        }
+    }
+
+
+    /**
+     * Pick up the jobs saved by earlier runs of the application, and remove those past the retention period.
+     */
+    private static void load()
+    {
+        if ( !DIR.isDirectory() )
+        {
+            return;
+        }
+        long expired = System.currentTimeMillis() - RETENTION_MILLIS;
+        try ( DirectoryStream<Path> dirs = Files.newDirectoryStream( DIR.toPath() ) )
+        {
+            for ( Path path : dirs )
+            {
+                String id = path.getFileName().toString();
+                ImportJob job = JOBS.get( id );
+                if ( job == null )
+                {
+                    job = read( path.toFile() );
+                    if ( job == null )
+                    {
+                        continue;
+                    }
+                    JOBS.putIfAbsent( id, job );
+                }
+                if ( !job.isRunning() && job.finished > 0 && job.finished < expired )
+                {
+                    JOBS.remove( id );
+                    delete( path );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            LOG.warn( ".load imports couldn't be read from " + DIR + ": " + e );
+        }
+    }
+
+
+    private static ImportJob read( File dir )
+    {
+        Properties properties = new Properties();
+        try ( InputStream in = Files.newInputStream( new File( dir, CHECKPOINT ).toPath() ) )
+        {
+            properties.load( in );
+            ImportJob job = new ImportJob( properties.getProperty( "id" ), properties.getProperty( "owner" ),
+                properties.getProperty( "fileName" ), ImportReader.Format.valueOf( properties.getProperty( "format" ) ) );
+            job.status = Status.valueOf( properties.getProperty( "status" ) );
+            job.processed = Long.parseLong( properties.getProperty( "processed" ) );
+            job.succeeded = Long.parseLong( properties.getProperty( "succeeded" ) );
+            job.failed = Long.parseLong( properties.getProperty( "failed" ) );
+            job.started = Long.parseLong( properties.getProperty( "started" ) );
+            job.finished = Long.parseLong( properties.getProperty( "finished" ) );
+            job.message = properties.getProperty( "message" );
+            if ( job.status == Status.RUNNING )
+            {
+                // it was running when the application stopped:
+                job.status = Status.INTERRUPTED;
+                job.finished = new File( dir, CHECKPOINT ).lastModified();
+            }
+            return job;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            LOG.warn( ".read import in " + dir + " couldn't be read: " + e );
+            return null;
+        }
+    }
+
+
+    private static void delete( Path dir ) throws IOException
+    {
+        try ( DirectoryStream<Path> files = Files.newDirectoryStream( dir ) )
+        {
+            for ( Path file : files )
+            {
+                Files.delete( file );
+            }
+        }
+        Files.delete( dir );
+    }
+
+
+    private static FanOutExecutor executor()
+    {
+        synchronized ( LOCK )
+        {
+            if ( executor == null )
+            {
+                executor = FanOutExecutor.newInstance( "fortress-import", THREADS, THREADS * 2 );
+            }
+            return executor;
+        }
+    }
+}
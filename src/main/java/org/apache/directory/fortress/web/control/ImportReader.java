@@ -0,0 +1,130 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * Reads the records of a bulk import file one at a time, so a file of any size is imported without holding more than
+ * a record of it in memory.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class ImportReader implements Closeable
+{
+    /**
+     * The supported file formats.
+     */
+    public enum Format
+    {
+        /** Header row of attribute names, one of which is 'type', then a row per record. */
+        CSV,
+        /** Entries as exported from the directory, mapped by their fortress object classes. */
+        LDIF,
+        /** The fortress ant loader format, as used by FortressWebDemoUsers.xml. */
+        XML;
+
+
+        /**
+         * Guess the format from the file's extension, ignoring a trailing .gz.
+         *
+         * @return the format, or null if the extension isn't known.
+         */
+        public static Format of( String fileName )
+        {
+            String name = fileName == null ? "" : fileName.toLowerCase( Locale.ENGLISH );
+            if ( name.endsWith( ".gz" ) )
+            {
+                name = name.substring( 0, name.length() - 3 );
+            }
+            if ( name.endsWith( ".csv" ) || name.endsWith( ".txt" ) )
+            {
+                return CSV;
+            }
+            if ( name.endsWith( ".ldif" ) || name.endsWith( ".ldf" ) )
+            {
+                return LDIF;
+            }
+            if ( name.endsWith( ".xml" ) )
+            {
+                return XML;
+            }
+            return null;
+        }
+    }
+
+
+    /**
+     * Open a reader for a file.  A gzipped file, e.g. a policy export, is read uncompressed.
+     *
+     * @param format of the file, once uncompressed.
+     * @param in the file's contents, closed with the reader.
+     * @return the reader.
+     * @throws IOException if the file can't be read, e.g. malformed xml.
+     */
+    public static ImportReader open( Format format, InputStream in ) throws IOException
+    {
+        in = in.markSupported() ? in : new BufferedInputStream( in );
+        in.mark( 2 );
+        boolean gzipped = in.read() == ( GZIPInputStream.GZIP_MAGIC & 0xff ) && in.read() == ( GZIPInputStream
+            .GZIP_MAGIC >> 8 );
+        in.reset();
+        if ( gzipped )
+        {
+            in = new GZIPInputStream( in );
+        }
+        switch ( format )
+        {
+            case CSV:
+                return new CsvImportReader( reader( in ) );
+            case LDIF:
+                return new LdifImportReader( reader( in ) );
+            default:
+                return new XmlImportReader( in );
+        }
+    }
+
+
+    /**
+     * Return the next record of the file.  Records that are malformed are returned with an error, rather than
+     * failing the import, so they may be reported and the rest of the file imported.
+     *
+     * @return the record, or null at the end of the file.
+     * @throws IOException if the file can't be read any further.
+     */
+    public abstract ImportRecord next() throws IOException;
+
+
+    private static BufferedReader reader( InputStream in )
+    {
+        return new BufferedReader( new InputStreamReader( in, StandardCharsets.UTF_8 ) );
+    }
+}
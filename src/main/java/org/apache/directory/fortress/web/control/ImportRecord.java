@@ -0,0 +1,281 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * One entity read from a bulk import file: a type, named as in the fortress ant loader files, e.g. FortressWebDemoUsers.xml,
+ * and the attributes of the loader's element, e.g. userId, ou and cn for a user.  The CSV and LDIF readers produce the
+ * same types and attribute names, so the records of all three formats are validated and written alike.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class ImportRecord
+{
+    /**
+     * The entity types that may be imported.  Within a batch, records are written in this order, so those that refer
+     * to another entity, e.g. a user role assignment, follow the entity when both are in the same batch.
+     */
+    public enum Type
+    {
+        ORGUNIT( "name", "typeName" ),
+        ROLE( "name" ),
+        ADMINROLE( "name" ),
+        ROLEINHERITANCE( "child", "parent" ),
+        USER( "userId", "ou" ),
+        PERMOBJ( "objName", "ou" ),
+        PERMOP( "objName", "opName" ),
+        USERROLE( "userId", "name" ),
+        USERADMINROLE( "userId", "name" ),
+        PERMGRANT( "objName", "opName", "roleNm" );
+
+        private final String[] required;
+
+
+        Type( String... required )
+        {
+            this.required = required;
+        }
+
+
+        /**
+         * @return the attributes a record of this type must have.
+         */
+        public String[] getRequired()
+        {
+            return required;
+        }
+
+
+        /**
+         * Look up a type by its loader name, with or without one of the loader's operation prefixes, e.g. adduser,
+         * deluser or user.
+         *
+         * @return the type, or null if there isn't one by that name.
+         */
+        public static Type of( String name )
+        {
+            if ( StringUtils.isBlank( name ) )
+            {
+                return null;
+            }
+            String lower = name.trim().toLowerCase( Locale.ENGLISH );
+            Type type = named( lower );
+            for ( int i = 0; type == null && i < Operation.values().length; i++ )
+            {
+                String prefix = Operation.values()[i].getPrefix();
+                type = lower.startsWith( prefix ) ? named( lower.substring( prefix.length() ) ) : null;
+            }
+            return type;
+        }
+
+
+        private static Type named( String lower )
+        {
+            for ( Type type : values() )
+            {
+                if ( lower.equals( type.name().toLowerCase( Locale.ENGLISH ) ) )
+                {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+
+        /**
+         * @return the name of the loader element for a record of this type, e.g. orgunit or relationship.
+         */
+        public String getElement()
+        {
+            switch ( this )
+            {
+                case ADMINROLE:
+                    return "role";
+                case ROLEINHERITANCE:
+                    return "relationship";
+                default:
+                    return name().toLowerCase( Locale.ENGLISH );
+            }
+        }
+    }
+
+
+    /**
+     * What's done with a record, named by the prefix of the loader's element, e.g. addrole or delrole.  Records of the
+     * CSV and LDIF files are always added.
+     */
+    public enum Operation
+    {
+        ADD( "add" ),
+        UPDATE( "update" ),
+        DELETE( "del" );
+
+        private final String prefix;
+
+
+        Operation( String prefix )
+        {
+            this.prefix = prefix;
+        }
+
+
+        public String getPrefix()
+        {
+            return prefix;
+        }
+
+
+        /**
+         * @return the operation named by the prefix of a loader element, ADD if it has none.
+         */
+        public static Operation of( String name )
+        {
+            String lower = name == null ? "" : name.trim().toLowerCase( Locale.ENGLISH );
+            for ( Operation operation : values() )
+            {
+                if ( lower.startsWith( operation.prefix ) && Type.named( lower.substring( operation.prefix.length() ) )
+                    != null )
+                {
+                    return operation;
+                }
+            }
+            return ADD;
+        }
+    }
+
+    private final long line;
+    private final Operation operation;
+    private final Type type;
+    private final Map<String, String> attributes;
+    private final String error;
+
+
+    /**
+     * @param line where the record starts in the file, for the error report.
+     * @param type of entity, may be null if the reader couldn't tell.
+     * @param attributes keyed by loader attribute name.
+     * @param error why the record couldn't be read, or null.
+     */
+    ImportRecord( long line, Type type, Map<String, String> attributes, String error )
+    {
+        this( line, Operation.ADD, type, attributes, error );
+    }
+
+
+    /**
+     * @param line where the record starts in the file, for the error report.
+     * @param operation to do with the record.
+     * @param type of entity, may be null if the reader couldn't tell.
+     * @param attributes keyed by loader attribute name.
+     * @param error why the record couldn't be read, or null.
+     */
+    ImportRecord( long line, Operation operation, Type type, Map<String, String> attributes, String error )
+    {
+        this.line = line;
+        this.operation = operation;
+        this.type = type;
+        this.attributes = attributes != null ? attributes : new HashMap<String, String>();
+        this.error = error;
+    }
+
+
+    public long getLine()
+    {
+        return line;
+    }
+
+
+    public Operation getOperation()
+    {
+        return operation;
+    }
+
+
+    public Type getType()
+    {
+        return type;
+    }
+
+
+    /**
+     * @return the trimmed value of an attribute, or null if it isn't set.
+     */
+    public String get( String name )
+    {
+        String value = attributes.get( name );
+        return StringUtils.isBlank( value ) ? null : value.trim();
+    }
+
+
+    /**
+     * @return why the record couldn't be read, or null if it was.
+     */
+    public String getError()
+    {
+        return error;
+    }
+
+
+    /**
+     * @return the name of the entity, for the error report.
+     */
+    public String getKey()
+    {
+        if ( type == null )
+        {
+            return "";
+        }
+        switch ( type )
+        {
+            case USER:
+                return get( "userId" );
+            case USERROLE:
+            case USERADMINROLE:
+                return get( "userId" ) + "/" + get( "name" );
+            case PERMOBJ:
+                return get( "objName" );
+            case PERMOP:
+                return get( "objName" ) + "." + get( "opName" );
+            case PERMGRANT:
+                return get( "objName" ) + "." + get( "opName" ) + "/" + get( "roleNm" );
+            case ROLEINHERITANCE:
+                return get( "child" ) + "/" + get( "parent" );
+            default:
+                return get( "name" );
+        }
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "line " + line + " " + ( operation != Operation.ADD ? operation.getPrefix() : "" ) + ( type != null ?
+            type.name().toLowerCase( Locale.ENGLISH ) : "?" ) + " " + getKey();
+    }
+}
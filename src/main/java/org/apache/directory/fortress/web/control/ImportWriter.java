@@ -0,0 +1,310 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+
+import java.util.Locale;
+
+
+/**
+ * Checks the records of a bulk import and writes them to the directory, with the managers of the admin who started
+ * the import.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class ImportWriter
+{
+    private final AdminMgr adminMgr;
+    private final DelAdminMgr delAdminMgr;
+
+
+    ImportWriter( AdminMgr adminMgr, DelAdminMgr delAdminMgr )
+    {
+        this.adminMgr = adminMgr;
+        this.delAdminMgr = delAdminMgr;
+    }
+
+
+    /**
+     * Check a record has what's needed to write it, without going to the directory.
+     *
+     * @return why the record can't be imported, or null if it may be.
+     */
+    static String validate( ImportRecord record )
+    {
+        if ( record.getError() != null )
+        {
+            return record.getError();
+        }
+        if ( record.getType() == null )
+        {
+            return "unknown type";
+        }
+        for ( String name : record.getType().getRequired() )
+        {
+            if ( record.get( name ) == null )
+            {
+                return name + " is required";
+            }
+        }
+        String typeName = record.get( "typeName" );
+        if ( record.getType() == ImportRecord.Type.ORGUNIT && !OrgUnit.Type.USER.name().equalsIgnoreCase( typeName )
+            && !OrgUnit.Type.PERM.name().equalsIgnoreCase( typeName ) )
+        {
+            return "typeName must be USER or PERM";
+        }
+        if ( record.getOperation() == ImportRecord.Operation.UPDATE && ( record.getType() == ImportRecord.Type
+            .ROLEINHERITANCE || record.getType() == ImportRecord.Type.USERROLE || record.getType() == ImportRecord.Type
+            .USERADMINROLE || record.getType() == ImportRecord.Type.PERMGRANT ) )
+        {
+            return "a relationship can't be updated, only added or deleted";
+        }
+        String admin = record.get( "admin" );
+        if ( admin != null && !admin.equalsIgnoreCase( "true" ) && !admin.equalsIgnoreCase( "false" ) )
+        {
+            return "admin must be true or false";
+        }
+        return null;
+    }
+
+
+    /**
+     * Write a record that passed {@link #validate}.
+     *
+     * @return the entity added, updated or deleted, for the search indexes, or null if the record was a relationship
+     * between entities.
+     * @throws SecurityException as thrown by the manager, e.g. if the entity already exists.
+     */
+    FortEntity write( ImportRecord record ) throws SecurityException
+    {
+        switch ( record.getOperation() )
+        {
+            case UPDATE:
+                return update( record );
+            case DELETE:
+                return delete( record );
+            default:
+                return add( record );
+        }
+    }
+
+
+    private FortEntity add( ImportRecord record ) throws SecurityException
+    {
+        boolean admin = Boolean.parseBoolean( record.get( "admin" ) );
+        switch ( record.getType() )
+        {
+            case ORGUNIT:
+                OrgUnit orgUnit = new OrgUnit( record.get( "name" ), OrgUnit.Type.valueOf( record.get( "typeName" )
+                    .toUpperCase( Locale.ENGLISH ) ) );
+                orgUnit.setDescription( record.get( "description" ) );
+                return delAdminMgr.add( orgUnit );
+
+            case ROLE:
+                Role role = new Role( record.get( "name" ) );
+                role.setDescription( record.get( "description" ) );
+                return adminMgr.addRole( role );
+
+            case ADMINROLE:
+                AdminRole adminRole = new AdminRole( record.get( "name" ) );
+                adminRole.setDescription( record.get( "description" ) );
+                return delAdminMgr.addRole( adminRole );
+
+            case ROLEINHERITANCE:
+                adminMgr.addInheritance( new Role( record.get( "parent" ) ), new Role( record.get( "child" ) ) );
+                return null;
+
+            case USER:
+                User user = new User( record.get( "userId" ) );
+                user.setOu( record.get( "ou" ) );
+                user.setCn( record.get( "cn" ) != null ? record.get( "cn" ) : record.get( "userId" ) );
+                user.setSn( record.get( "sn" ) != null ? record.get( "sn" ) : record.get( "userId" ) );
+                user.setDescription( record.get( "description" ) );
+                if ( record.get( "password" ) != null )
+                {
+                    user.setPassword( record.get( "password" ).toCharArray() );
+                }
+                return adminMgr.addUser( user );
+
+            case PERMOBJ:
+                PermObj permObj = new PermObj( record.get( "objName" ) );
+                permObj.setOu( record.get( "ou" ) );
+                permObj.setDescription( record.get( "description" ) );
+                permObj.setAdmin( admin );
+                return adminMgr.addPermObj( permObj );
+
+            case PERMOP:
+                Permission permission = new Permission( record.get( "objName" ), record.get( "opName" ),
+                    record.get( "objId" ) );
+                permission.setDescription( record.get( "description" ) );
+                permission.setAdmin( admin );
+                return adminMgr.addPermission( permission );
+
+            case USERROLE:
+                adminMgr.assignUser( new UserRole( record.get( "userId" ), record.get( "name" ) ) );
+                return null;
+
+            case USERADMINROLE:
+                delAdminMgr.assignUser( new UserAdminRole( record.get( "userId" ), record.get( "name" ) ) );
+                return null;
+
+            default:
+                Permission grant = new Permission( record.get( "objName" ), record.get( "opName" ),
+                    record.get( "objId" ) );
+                grant.setAdmin( admin );
+                if ( admin )
+                {
+                    delAdminMgr.grantPermission( grant, new AdminRole( record.get( "roleNm" ) ) );
+                }
+                else
+                {
+                    adminMgr.grantPermission( grant, new Role( record.get( "roleNm" ) ) );
+                }
+                return null;
+        }
+    }
+
+
+    private FortEntity update( ImportRecord record ) throws SecurityException
+    {
+        boolean admin = Boolean.parseBoolean( record.get( "admin" ) );
+        switch ( record.getType() )
+        {
+            case ORGUNIT:
+                OrgUnit orgUnit = new OrgUnit( record.get( "name" ), OrgUnit.Type.valueOf( record.get( "typeName" )
+                    .toUpperCase( Locale.ENGLISH ) ) );
+                orgUnit.setDescription( record.get( "description" ) );
+                return delAdminMgr.update( orgUnit );
+
+            case ROLE:
+                Role role = new Role( record.get( "name" ) );
+                role.setDescription( record.get( "description" ) );
+                return adminMgr.updateRole( role );
+
+            case ADMINROLE:
+                AdminRole adminRole = new AdminRole( record.get( "name" ) );
+                adminRole.setDescription( record.get( "description" ) );
+                return delAdminMgr.updateRole( adminRole );
+
+            case USER:
+                User user = new User( record.get( "userId" ) );
+                user.setOu( record.get( "ou" ) );
+                user.setCn( record.get( "cn" ) );
+                user.setSn( record.get( "sn" ) );
+                user.setDescription( record.get( "description" ) );
+                return adminMgr.updateUser( user );
+
+            case PERMOBJ:
+                PermObj permObj = new PermObj( record.get( "objName" ) );
+                permObj.setOu( record.get( "ou" ) );
+                permObj.setDescription( record.get( "description" ) );
+                permObj.setAdmin( admin );
+                return adminMgr.updatePermObj( permObj );
+
+            default:
+                Permission permission = new Permission( record.get( "objName" ), record.get( "opName" ),
+                    record.get( "objId" ) );
+                permission.setDescription( record.get( "description" ) );
+                permission.setAdmin( admin );
+                return adminMgr.updatePermission( permission );
+        }
+    }
+
+
+    private FortEntity delete( ImportRecord record ) throws SecurityException
+    {
+        boolean admin = Boolean.parseBoolean( record.get( "admin" ) );
+        switch ( record.getType() )
+        {
+            case ORGUNIT:
+                OrgUnit orgUnit = new OrgUnit( record.get( "name" ), OrgUnit.Type.valueOf( record.get( "typeName" )
+                    .toUpperCase( Locale.ENGLISH ) ) );
+                return delAdminMgr.delete( orgUnit );
+
+            case ROLE:
+                Role role = new Role( record.get( "name" ) );
+                adminMgr.deleteRole( role );
+                return role;
+
+            case ADMINROLE:
+                AdminRole adminRole = new AdminRole( record.get( "name" ) );
+                delAdminMgr.deleteRole( adminRole );
+                return adminRole;
+
+            case ROLEINHERITANCE:
+                adminMgr.deleteInheritance( new Role( record.get( "parent" ) ), new Role( record.get( "child" ) ) );
+                return null;
+
+            case USER:
+                User user = new User( record.get( "userId" ) );
+                adminMgr.deleteUser( user );
+                return user;
+
+            case PERMOBJ:
+                PermObj permObj = new PermObj( record.get( "objName" ) );
+                permObj.setAdmin( admin );
+                adminMgr.deletePermObj( permObj );
+                return permObj;
+
+            case PERMOP:
+                Permission permission = new Permission( record.get( "objName" ), record.get( "opName" ),
+                    record.get( "objId" ) );
+                permission.setAdmin( admin );
+                adminMgr.deletePermission( permission );
+                return permission;
+
+            case USERROLE:
+                adminMgr.deassignUser( new UserRole( record.get( "userId" ), record.get( "name" ) ) );
+                return null;
+
+            case USERADMINROLE:
+                delAdminMgr.deassignUser( new UserAdminRole( record.get( "userId" ), record.get( "name" ) ) );
+                return null;
+
+            default:
+                Permission grant = new Permission( record.get( "objName" ), record.get( "opName" ),
+                    record.get( "objId" ) );
+                grant.setAdmin( admin );
+                if ( admin )
+                {
+                    delAdminMgr.revokePermission( grant, new AdminRole( record.get( "roleNm" ) ) );
+                }
+                else
+                {
+                    adminMgr.revokePermission( grant, new Role( record.get( "roleNm" ) ) );
+                }
+                return null;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.wicket.util.crypt.Base64;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+
+/**
+ * Reads an import file of LDIF entries, e.g. as exported from another fortress directory.  Entries are mapped by
+ * their fortress object classes:
+ * <ul>
+ * <li>ftOrgUnit: an orgunit, of type USER if it's under ou=OS-U, otherwise PERM.</li>
+ * <li>ftUserAttrs or inetOrgPerson: a user, and a userrole and useradminrole for each value of ftRA and ftARA.  Hashed
+ * passwords can't be carried over, those users are added without one.</li>
+ * <li>ftRls: a role, or an adminrole if it's under ou=AdminRoles, and a roleinheritance for each of its ftParents.</li>
+ * <li>ftObject: a permobj, admin if it's under ou=AdminPerms.</li>
+ * <li>ftOperation: a permop, and a permgrant for each value of ftRoles.</li>
+ * </ul>
+ * Other entries, and change records other than add, are reported as errors.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class LdifImportReader extends ImportReader
+{
+    private final BufferedReader reader;
+    private final Queue<ImportRecord> pending = new ArrayDeque<>();
+    private String lookAhead;
+    private long line;
+
+
+    LdifImportReader( BufferedReader reader )
+    {
+        this.reader = reader;
+    }
+
+
+    @Override
+    public ImportRecord next() throws IOException
+    {
+        while ( pending.isEmpty() )
+        {
+            Map<String, List<String>> entry = new HashMap<>();
+            long start = entry( entry );
+            if ( start < 0 )
+            {
+                return null;
+            }
+            // the file may start with a version line of its own:
+            if ( !( entry.size() == 1 && entry.containsKey( "version" ) ) )
+            {
+                map( start, entry );
+            }
+        }
+        return pending.poll();
+    }
+
+
+    /**
+     * Read the attributes of the next entry, unfolding continued lines and decoding base64 values.  Attribute names
+     * are lower cased.
+     *
+     * @return the line the entry starts on, or -1 at the end of the file.
+     */
+    private long entry( Map<String, List<String>> entry ) throws IOException
+    {
+        long start = -1;
+        String attribute;
+        while ( ( attribute = logicalLine() ) != null )
+        {
+            if ( attribute.isEmpty() )
+            {
+                if ( start >= 0 )
+                {
+                    return start;
+                }
+                continue;
+            }
+            if ( start < 0 )
+            {
+                start = line;
+            }
+            int colon = attribute.indexOf( ':' );
+            if ( colon <= 0 )
+            {
+                put( entry, "#error", "malformed line: " + attribute );
+                continue;
+            }
+            String name = attribute.substring( 0, colon ).trim().toLowerCase( Locale.ENGLISH );
+            String value = attribute.substring( colon + 1 );
+            if ( value.startsWith( ":" ) )
+            {
+                try
+                {
+                    value = new String( Base64.decodeBase64( value.substring( 1 ).trim().getBytes(
+                        StandardCharsets.US_ASCII ) ), StandardCharsets.UTF_8 );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                    put( entry, "#error", "malformed base64 value of " + name );
+                    continue;
+                }
+            }
+            else if ( value.startsWith( "<" ) )
+            {
+                put( entry, "#error", "values read from urls aren't supported: " + name );
+                continue;
+            }
+            put( entry, name, value.trim() );
+        }
+        return start;
+    }
+
+
+    /**
+     * Return the next line with its continuation lines, those starting with a space, appended.  Comments are skipped.
+     */
+    private String logicalLine() throws IOException
+    {
+        String current = lookAhead != null ? lookAhead : readLine();
+        lookAhead = null;
+        while ( current != null && current.startsWith( "#" ) )
+        {
+            current = readLine();
+        }
+        if ( current == null )
+        {
+            return null;
+        }
+        StringBuilder logical = new StringBuilder( current );
+        String next;
+        while ( ( next = readLine() ) != null && next.startsWith( " " ) )
+        {
+            logical.append( next.substring( 1 ) );
+        }
+        lookAhead = next;
+        return logical.toString();
+    }
+
+
+    private String readLine() throws IOException
+    {
+        String text = reader.readLine();
+        if ( text != null )
+        {
+            line++;
+        }
+        return text;
+    }
+
+
+    private void map( long start, Map<String, List<String>> entry )
+    {
+        String dn = first( entry, "dn" );
+        String lowerDn = dn == null ? "" : dn.toLowerCase( Locale.ENGLISH );
+        List<String> classes = lower( entry.get( "objectclass" ) );
+        String changeType = first( entry, "changetype" );
+        if ( entry.containsKey( "#error" ) )
+        {
+            pending.add( new ImportRecord( start, null, null, dn + ": " + first( entry, "#error" ) ) );
+        }
+        else if ( dn == null )
+        {
+            pending.add( new ImportRecord( start, null, null, "entry has no dn" ) );
+        }
+        else if ( changeType != null && !changeType.equalsIgnoreCase( "add" ) )
+        {
+            pending.add( new ImportRecord( start, null, null, dn + ": changetype " + changeType
+                + " isn't supported, only add" ) );
+        }
+        else if ( classes.contains( "ftorgunit" ) )
+        {
+            Map<String, String> ou = new HashMap<>();
+            ou.put( "name", first( entry, "ou" ) );
+            ou.put( "description", first( entry, "description" ) );
+            ou.put( "typeName", lowerDn.contains( "ou=os-u," ) ? "USER" : "PERM" );
+            pending.add( new ImportRecord( start, ImportRecord.Type.ORGUNIT, ou, null ) );
+        }
+        else if ( classes.contains( "ftuserattrs" ) || classes.contains( "inetorgperson" ) )
+        {
+            String userId = first( entry, "uid" );
+            Map<String, String> user = new HashMap<>();
+            user.put( "userId", userId );
+            user.put( "ou", first( entry, "ou" ) );
+            user.put( "cn", first( entry, "cn" ) );
+            user.put( "sn", first( entry, "sn" ) );
+            user.put( "description", first( entry, "description" ) );
+            String password = first( entry, "userpassword" );
+            if ( password != null && !password.startsWith( "{" ) )
+            {
+                user.put( "password", password );
+            }
+            pending.add( new ImportRecord( start, ImportRecord.Type.USER, user, null ) );
+            assignments( start, userId, entry.get( "ftra" ), ImportRecord.Type.USERROLE );
+            assignments( start, userId, entry.get( "ftara" ), ImportRecord.Type.USERADMINROLE );
+        }
+        else if ( classes.contains( "ftrls" ) )
+        {
+            String name = first( entry, "ftrolename" ) != null ? first( entry, "ftrolename" ) : first( entry, "cn" );
+            Map<String, String> role = new HashMap<>();
+            role.put( "name", name );
+            role.put( "description", first( entry, "description" ) );
+            pending.add( new ImportRecord( start, lowerDn.contains( "ou=adminroles," ) ? ImportRecord.Type.ADMINROLE
+                : ImportRecord.Type.ROLE, role, null ) );
+            for ( String parent : values( entry, "ftparents" ) )
+            {
+                Map<String, String> inheritance = new HashMap<>();
+                inheritance.put( "child", name );
+                inheritance.put( "parent", parent );
+                pending.add( new ImportRecord( start, ImportRecord.Type.ROLEINHERITANCE, inheritance, null ) );
+            }
+        }
+        else if ( classes.contains( "ftobject" ) )
+        {
+            Map<String, String> permObj = new HashMap<>();
+            permObj.put( "objName", first( entry, "ftobjnm" ) );
+            permObj.put( "ou", first( entry, "ou" ) );
+            permObj.put( "description", first( entry, "description" ) );
+            permObj.put( "admin", String.valueOf( lowerDn.contains( "ou=adminperms," ) ) );
+            pending.add( new ImportRecord( start, ImportRecord.Type.PERMOBJ, permObj, null ) );
+        }
+        else if ( classes.contains( "ftoperation" ) )
+        {
+            Map<String, String> permOp = new HashMap<>();
+            permOp.put( "objName", first( entry, "ftobjnm" ) );
+            permOp.put( "opName", first( entry, "ftopnm" ) );
+            permOp.put( "objId", first( entry, "ftobjid" ) );
+            permOp.put( "description", first( entry, "description" ) );
+            permOp.put( "admin", String.valueOf( lowerDn.contains( "ou=adminperms," ) ) );
+            pending.add( new ImportRecord( start, ImportRecord.Type.PERMOP, permOp, null ) );
+            for ( String role : values( entry, "ftroles" ) )
+            {
+                Map<String, String> grant = new HashMap<>( permOp );
+                grant.remove( "description" );
+                grant.put( "roleNm", role );
+                pending.add( new ImportRecord( start, ImportRecord.Type.PERMGRANT, grant, null ) );
+            }
+        }
+        else
+        {
+            pending.add( new ImportRecord( start, null, null, dn + ": not a fortress user, role, permission or "
+                + "organization entry" ) );
+        }
+    }
+
+
+    private void assignments( long start, String userId, List<String> roles, ImportRecord.Type type )
+    {
+        if ( roles == null )
+        {
+            return;
+        }
+        for ( String role : roles )
+        {
+            // fortress keeps the temporal constraints in the same value, after the role name:
+            String name = role.contains( "$" ) ? role.substring( 0, role.indexOf( '$' ) ) : role;
+            Map<String, String> assignment = new HashMap<>();
+            assignment.put( "userId", userId );
+            assignment.put( "name", name );
+            pending.add( new ImportRecord( start, type, assignment, null ) );
+        }
+    }
+
+
+    private static void put( Map<String, List<String>> entry, String name, String value )
+    {
+        List<String> values = entry.get( name );
+        if ( values == null )
+        {
+            values = new ArrayList<>( 1 );
+            entry.put( name, values );
+        }
+        values.add( value );
+    }
+
+
+    private static String first( Map<String, List<String>> entry, String name )
+    {
+        List<String> values = entry.get( name );
+        return values == null || values.isEmpty() ? null : values.get( 0 );
+    }
+
+
+    private static List<String> values( Map<String, List<String>> entry, String name )
+    {
+        List<String> values = entry.get( name );
+        return values != null ? values : new ArrayList<String>();
+    }
+
+
+    private static List<String> lower( List<String> values )
+    {
+        List<String> lower = new ArrayList<>();
+        if ( values != null )
+        {
+            for ( String value : values )
+            {
+                lower.add( value.toLowerCase( Locale.ENGLISH ) );
+            }
+        }
+        return lower;
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.commons.lang.StringUtils;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+
+/**
+ * Writes a file in the fortress ant loader format, as used by FortressWebDemoUsers.xml, an element at a time with a
+ * streaming (StAX) writer: sections, e.g. addrole, each holding the entities, e.g. role, as empty elements with their
+ * attributes.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class LoaderXmlWriter
+{
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+    private static final String INDENT = "    ";
+    private final Writer writer;
+    private final XMLStreamWriter xml;
+
+
+    /**
+     * Start the file, up to the loader's FortressAdmin element.
+     *
+     * @param out receives the file, left open.
+     * @param name of the ant project.
+     */
+    LoaderXmlWriter( OutputStream out, String name ) throws XMLStreamException
+    {
+        // the xml writer's own stream encoder writes a byte at a time, encode into a buffer instead:
+        writer = new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ) );
+        xml = FACTORY.createXMLStreamWriter( writer );
+        xml.writeStartDocument( "UTF-8", "1.0" );
+        newLine( 0 );
+        xml.writeStartElement( "project" );
+        xml.writeAttribute( "basedir", "." );
+        xml.writeAttribute( "default", "all" );
+        xml.writeAttribute( "name", name );
+        newLine( 1 );
+        xml.writeStartElement( "taskdef" );
+        xml.writeAttribute( "classname", "org.apache.directory.fortress.core.ant.FortressAntTask" );
+        xml.writeAttribute( "name", "FortressAdmin" );
+        newLine( 2 );
+        xml.writeEmptyElement( "classpath" );
+        xml.writeAttribute( "path", "${java.class.path}" );
+        newLine( 1 );
+        xml.writeEndElement();
+        newLine( 1 );
+        xml.writeStartElement( "target" );
+        xml.writeAttribute( "name", "all" );
+        newLine( 2 );
+        xml.writeStartElement( "FortressAdmin" );
+    }
+
+
+    void startSection( String name ) throws XMLStreamException
+    {
+        newLine( 0 );
+        newLine( 3 );
+        xml.writeStartElement( name );
+    }
+
+
+    void endSection() throws XMLStreamException
+    {
+        newLine( 3 );
+        xml.writeEndElement();
+    }
+
+
+    /**
+     * Start an entity of the current section, followed by its {@link #attribute}s.
+     */
+    void entity( String name ) throws XMLStreamException
+    {
+        newLine( 4 );
+        xml.writeEmptyElement( name );
+    }
+
+
+    /**
+     * Add an attribute to the entity just started, unless it's null or empty.
+     */
+    void attribute( String name, Object value ) throws XMLStreamException
+    {
+        if ( value != null && !( value instanceof Collection && ( ( Collection<?> ) value ).isEmpty() )
+            && StringUtils.isNotEmpty( value.toString() ) )
+        {
+            xml.writeAttribute( name, value.toString() );
+        }
+    }
+
+
+    /**
+     * End the file, and flush it to the stream.
+     */
+    void finish() throws XMLStreamException, IOException
+    {
+        newLine( 2 );
+        xml.writeEndElement();
+        newLine( 1 );
+        xml.writeEndElement();
+        newLine( 0 );
+        xml.writeEndElement();
+        newLine( 0 );
+        xml.writeEndDocument();
+        xml.flush();
+        writer.flush();
+    }
+
+
+    private void newLine( int depth ) throws XMLStreamException
+    {
+        xml.writeCharacters( "\n" + StringUtils.repeat( INDENT, depth ) );
+    }
+}
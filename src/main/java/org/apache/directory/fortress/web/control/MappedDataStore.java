@@ -0,0 +1,346 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import org.apache.log4j.Logger;
+import org.apache.wicket.pageStore.IDataStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Page store that keeps serialized page versions in a fixed size memory-mapped file rather than on the java heap.
+ * <p>
+ * The file is written as a ring.  Every page is appended at the current write position and the oldest pages are
+ * overwritten once the ring wraps around, so the store never grows beyond its configured size.  Overwritten entries
+ * are detected lazily when they are next read and reported as missing, which wicket handles as an expired page.
+ * <p>
+ * Each session may additionally be capped.  When a session exceeds its cap its oldest page versions are evicted first.
+ * The most bytes a session held is reported once, when the session ends.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class MappedDataStore implements IDataStore
+{
+    private static final Logger LOG = Logger.getLogger( MappedDataStore.class.getName() );
+
+    static final Counter bytesWritten = Counter.build()
+            .name("pageStore_bytes_written_total")
+            .help("Page Store Bytes Written Total").register();
+    static final Counter pagesWritten = Counter.build()
+            .name("pageStore_pages_written_total")
+            .help("Page Store Pages Written Total").register();
+    static final Counter pagesOverwritten = Counter.build()
+            .name("pageStore_pages_overwritten_total")
+            .help("Page Store Pages Overwritten Total").register();
+    static final Counter pagesRejected = Counter.build()
+            .name("pageStore_pages_rejected_total")
+            .help("Page Store Pages Too Large To Store Total").register();
+    static final Counter pagesEvicted = Counter.build()
+            .name("pageStore_pages_evicted_total")
+            .help("Page Store Pages Evicted By Session Cap Total").register();
+    static final Histogram sessionSize = Histogram.build()
+            .name("pageStore_session_size_bytes")
+            .help("Page Store Peak Bytes Held Per Session")
+            .exponentialBuckets( 16 * 1024, 2, 12 )
+            .register();
+    static final Gauge sessionsStored = Gauge.build()
+            .name("pageStore_sessions")
+            .help("Page Store Sessions").register();
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int sessionCapacity;
+    private final Map<String, SessionPages> sessions = new ConcurrentHashMap<>();
+    // logical (ever increasing) write position, physical offset is position % capacity:
+    private long position;
+
+
+    /**
+     * Location of a page version inside the ring.
+     */
+    private static class Entry
+    {
+        private final long position;
+        private final int length;
+
+
+        private Entry( long position, int length )
+        {
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+
+    /**
+     * The page versions of one session, kept in write order so the oldest ones are at the head of the map.
+     */
+    private static class SessionPages
+    {
+        private final LinkedHashMap<Integer, Entry> pages = new LinkedHashMap<>();
+        private long bytes;
+        private long peak;
+
+
+        private Entry remove( Integer id )
+        {
+            Entry entry = pages.remove( id );
+            if ( entry != null )
+            {
+                bytes -= entry.length;
+            }
+            return entry;
+        }
+
+
+        private void put( Integer id, Entry entry )
+        {
+            pages.put( id, entry );
+            bytes += entry.length;
+            peak = Math.max( peak, bytes );
+        }
+
+
+        private Entry oldest()
+        {
+            return pages.isEmpty() ? null : pages.values().iterator().next();
+        }
+
+
+        private void removeOldest()
+        {
+            remove( pages.keySet().iterator().next() );
+        }
+    }
+
+
+    /**
+     * @param folder directory that will contain the mapped file.
+     * @param capacity size of the mapped region in bytes.
+     * @param sessionCapacity maximum bytes a single session may occupy, 0 for no limit.
+     */
+    public MappedDataStore( File folder, int capacity, int sessionCapacity )
+    {
+        this.capacity = capacity;
+        this.sessionCapacity = sessionCapacity;
+        try
+        {
+            if ( !folder.exists() && !folder.mkdirs() )
+            {
+                throw new IOException( "unable to create page store folder: " + folder );
+            }
+            file = File.createTempFile( "fortress-pages", ".dat", folder );
+            file.deleteOnExit();
+            raf = new RandomAccessFile( file, "rw" );
+            raf.setLength( capacity );
+            buffer = raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, capacity );
+        }
+        catch ( IOException ioe )
+        {
+            String error = "MappedDataStore caught IOException=" + ioe;
+            LOG.error( error );
+            throw new RuntimeException( error, ioe );
+        }
+        LOG.info( "MappedDataStore file: " + file + ", capacity: " + capacity + ", session capacity: " + sessionCapacity );
+    }
+
+
+    @Override
+    public byte[] getData( String sessionId, int id )
+    {
+        SessionPages session = sessions.get( sessionId );
+        if ( session == null )
+        {
+            return null;
+        }
+        synchronized ( this )
+        {
+            Entry entry = session.pages.get( id );
+            if ( entry == null )
+            {
+                return null;
+            }
+            if ( isOverwritten( entry ) )
+            {
+                session.remove( id );
+                pagesOverwritten.inc();
+                return null;
+            }
+            byte[] data = new byte[entry.length];
+            int offset = ( int ) ( entry.position % capacity );
+            ByteBuffer view = buffer.duplicate();
+            view.position( offset );
+            view.get( data );
+            return data;
+        }
+    }
+
+
+    @Override
+    public void removeData( String sessionId, int id )
+    {
+        SessionPages session = sessions.get( sessionId );
+        if ( session != null )
+        {
+            synchronized ( this )
+            {
+                session.remove( id );
+            }
+        }
+    }
+
+
+    @Override
+    public void removeData( String sessionId )
+    {
+        SessionPages session = sessions.remove( sessionId );
+        if ( session != null )
+        {
+            sessionsStored.dec();
+            long peak;
+            synchronized ( this )
+            {
+                peak = session.peak;
+            }
+            sessionSize.observe( peak );
+        }
+    }
+
+
+    @Override
+    public void storeData( String sessionId, int id, byte[] data )
+    {
+        if ( data.length > capacity || ( sessionCapacity > 0 && data.length > sessionCapacity ) )
+        {
+            LOG.warn( "storeData page id: " + id + " size: " + data.length + " exceeds store capacity" );
+            pagesRejected.inc();
+            return;
+        }
+        synchronized ( this )
+        {
+            int offset = ( int ) ( position % capacity );
+            if ( offset + data.length > capacity )
+            {
+                // doesn't fit at the tail, wrap to the start of the ring:
+                position += capacity - offset;
+                offset = 0;
+            }
+            ByteBuffer view = buffer.duplicate();
+            view.position( offset );
+            view.put( data );
+            SessionPages session = sessions.get( sessionId );
+            if ( session == null )
+            {
+                session = new SessionPages();
+                sessions.put( sessionId, session );
+                sessionsStored.inc();
+            }
+            // reinsert so the map stays in write order:
+            session.remove( id );
+            session.put( id, new Entry( position, data.length ) );
+            position += data.length;
+            pruneOverwritten( session );
+            evictOverCapacity( sessionId, session );
+        }
+        bytesWritten.inc( data.length );
+        pagesWritten.inc();
+    }
+
+
+    @Override
+    public synchronized void destroy()
+    {
+        sessions.clear();
+        try
+        {
+            raf.close();
+        }
+        catch ( IOException ioe )
+        {
+            LOG.warn( "destroy caught IOException=" + ioe );
+        }
+        if ( !file.delete() )
+        {
+            LOG.warn( "destroy unable to delete file: " + file );
+        }
+    }
+
+
+    @Override
+    public boolean isReplicated()
+    {
+        return false;
+    }
+
+
+    @Override
+    public boolean canBeAsynchronous()
+    {
+        return true;
+    }
+
+
+    private boolean isOverwritten( Entry entry )
+    {
+        return position - entry.position > capacity;
+    }
+
+
+    private void pruneOverwritten( SessionPages session )
+    {
+        Entry oldest = session.oldest();
+        while ( oldest != null && isOverwritten( oldest ) )
+        {
+            session.removeOldest();
+            pagesOverwritten.inc();
+            oldest = session.oldest();
+        }
+    }
+
+
+    /**
+     * Enforce the per session cap by dropping the session's oldest page versions first.
+     */
+    private void evictOverCapacity( String sessionId, SessionPages session )
+    {
+        while ( sessionCapacity > 0 && session.bytes > sessionCapacity && session.pages.size() > 1 )
+        {
+            session.removeOldest();
+            pagesEvicted.inc();
+            LOG.debug( "evictOverCapacity sessionId: " + sessionId + " bytes: " + session.bytes );
+        }
+    }
+}
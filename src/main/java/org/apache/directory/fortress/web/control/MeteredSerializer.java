@@ -0,0 +1,157 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.java.DeflatedJavaSerializer;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.wicketstuff.pageserializer.kryo2.KryoSerializer;
+
+
+/**
+ * Wraps the page serializer selected by the 'page.serializer' property and reports serialization time and page size
+ * to the prometheus registry exposed on /metrics.  Page sizes are reported per page class.
+ * <p>
+ * Supported values are 'java' (default), 'deflated' and 'kryo'.  Kryo is faster and produces smaller pages than
+ * {@link java.io.ObjectOutputStream}, but isn't the default until it is shown to round trip every page of this
+ * application, with their spring bean proxies, grids and fortress model classes.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class MeteredSerializer implements ISerializer
+{
+    private static final Logger LOG = Logger.getLogger( MeteredSerializer.class.getName() );
+
+    static final Summary serializeLatency = Summary.build()
+            .name("pageSerialize_latency_seconds")
+            .help("Page Serialize Time seconds")
+            .register();
+    static final Summary deserializeLatency = Summary.build()
+            .name("pageDeserialize_latency_seconds")
+            .help("Page Deserialize Time seconds")
+            .register();
+    static final Histogram serializedSize = Histogram.build()
+            .name("pageSerialize_size_bytes")
+            .help("Serialized Page Size bytes")
+            .labelNames( "page" )
+            .exponentialBuckets( 1024, 2, 14 )
+            .register();
+    static final Counter serializeFailures = Counter.build()
+            .name("pageSerialize_failure_total")
+            .help("Page Serialize Failure Total").register();
+
+    private final ISerializer delegate;
+
+
+    public MeteredSerializer( ISerializer delegate )
+    {
+        this.delegate = delegate;
+    }
+
+
+    /**
+     * Create the serializer named by the 'page.serializer' fortress property.
+     *
+     * @param applicationKey the wicket application key, needed by the java serializers.
+     * @return metered serializer wrapping the configured implementation.
+     */
+    public static MeteredSerializer newInstance( String applicationKey )
+    {
+        String type = Config.getInstance().getProperty( GlobalIds.PAGE_SERIALIZER, GlobalIds.JAVA_SERIALIZER );
+        ISerializer serializer;
+        if ( GlobalIds.KRYO_SERIALIZER.equalsIgnoreCase( type ) )
+        {
+            serializer = new KryoSerializer();
+        }
+        else if ( GlobalIds.DEFLATED_SERIALIZER.equalsIgnoreCase( type ) )
+        {
+            serializer = new DeflatedJavaSerializer( applicationKey );
+        }
+        else
+        {
+            serializer = new JavaSerializer( applicationKey );
+        }
+        LOG.info( "Page serializer: " + serializer.getClass().getName() );
+        return new MeteredSerializer( serializer );
+    }
+
+
+    @Override
+    public byte[] serialize( Object object )
+    {
+        Summary.Timer timer = serializeLatency.startTimer();
+        byte[] data;
+        try
+        {
+            data = delegate.serialize( object );
+        }
+        finally
+        {
+            timer.observeDuration();
+        }
+        if ( data == null )
+        {
+            serializeFailures.inc();
+        }
+        else
+        {
+            serializedSize.labels( label( object.getClass() ) ).observe( data.length );
+        }
+        return data;
+    }
+
+
+    @Override
+    public Object deserialize( byte[] data )
+    {
+        Summary.Timer timer = deserializeLatency.startTimer();
+        try
+        {
+            return delegate.deserialize( data );
+        }
+        finally
+        {
+            timer.observeDuration();
+        }
+    }
+
+
+    /**
+     * Return the page's class name, or that of the first named class it extends if it's anonymous, e.g. 'UserPage'
+     * for 'new UserPage() { ... }'.
+     */
+    private static String label( Class<?> pageClass )
+    {
+        Class<?> named = pageClass;
+        while ( named.isAnonymousClass() )
+        {
+            named = named.getSuperclass();
+        }
+        return named.getSimpleName();
+    }
+}
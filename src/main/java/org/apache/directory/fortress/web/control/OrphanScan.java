@@ -0,0 +1,857 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * Application wide analysis of the directory for RBAC entities nothing uses any more: roles no user is authorized for,
+ * by assignment or through the role hierarchy, permissions granted no role or user, and objects with no permissions.
+ * Each is left behind by churn and still slows the searches that list its kind.
+ * <p>
+ * The analysis is started from the orphans page and run by a background thread.  It reads every user, role,
+ * permission and object, holds the users' authorized roles in a {@link RoleAssignmentIndex} and takes the roles
+ * missing from the union of its rows, and joins the permissions to the roles and the objects to the permissions on
+ * hash sets of their keys.  The orphans of a kind may then be deleted together: the analysis is run again first, so
+ * only those still orphans are deleted, 'orphan.delete.threads' (default 4) at a time, roles before the roles they
+ * inherit from.  ARBAC roles, permissions and objects aren't analyzed.
+ * <p>
+ * The analysis itself is global, each administrator is shown, and may delete, the orphans within their ARBAC scope:
+ * the roles within the range of their admin roles, and the permissions and objects in their permission ous, see
+ * {@link #getResult(AdminScope)}.  The outcome of a deletion, or why a run failed, is shown only to the administrator
+ * that started it, as it names the entities deleted and the errors.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class OrphanScan
+{
+    private static final Logger LOG = Logger.getLogger( OrphanScan.class.getName() );
+    private static final int THREADS = Config.getInstance().getInt( GlobalIds.ORPHAN_DELETE_THREADS, 4 );
+    // the deletion errors kept for the page, the rest are only counted:
+    private static final int MAX_ERRORS = 5;
+    private static final int MAX_MESSAGES = 64;
+    private static final Object LOCK = new Object();
+
+    static final Summary scanLatency = Summary.build()
+            .name("orphanScan_latency_seconds")
+            .help("Orphan Entity Analysis Time seconds")
+            .register();
+    static final Counter deletes = Counter.build()
+            .name("orphanScan_deletes_total")
+            .help("Orphan Entity Deletes Total")
+            .labelNames( "type", "result" )
+            .register();
+
+    // guarded by LOCK:
+    private static ExecutorService runner;
+    private static FanOutExecutor pool;
+    private static String activity;
+    // the last outcome of each administrator's runs, by their lower case user id:
+    private static final Map<String, String> MESSAGES = new LinkedHashMap<String, String>( 16, 0.75f, true )
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, String> eldest )
+        {
+            return size() > MAX_MESSAGES;
+        }
+    };
+    private static volatile Result result;
+
+
+    /**
+     * The kinds of orphans.
+     */
+    public enum Type
+    {
+        ROLE( "Roles no user is authorized for" ),
+        PERMISSION( "Permissions granted no role or user" ),
+        OBJECT( "Objects with no permissions" );
+
+        private final String label;
+
+
+        Type( String label )
+        {
+            this.label = label;
+        }
+
+
+        public String getLabel()
+        {
+            return label;
+        }
+    }
+
+
+    /**
+     * An entity found unused.
+     */
+    public static final class Orphan implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final Type type;
+        private final String objName;
+        private final String opName;
+        private final String objId;
+        // of the object, or of the permission's object:
+        private final String ou;
+        private final List<String> parents;
+
+
+        private Orphan( Type type, String objName, String opName, String objId, String ou, Collection<String> parents )
+        {
+            this.type = type;
+            this.objName = objName;
+            this.opName = opName;
+            this.objId = objId;
+            this.ou = ou;
+            this.parents = parents != null ? new ArrayList<>( parents ) : new ArrayList<String>();
+        }
+
+
+        public Type getType()
+        {
+            return type;
+        }
+
+
+        /**
+         * @return the name of the role or object, or the object and operation names of the permission.
+         */
+        public String getName()
+        {
+            if ( type != Type.PERMISSION )
+            {
+                return objName;
+            }
+            return objName + "." + opName + ( objId != null && !objId.isEmpty() ? " (" + objId + ")" : "" );
+        }
+
+
+        private boolean isIn( AdminScope scope )
+        {
+            return type == Type.ROLE ? scope.hasRole( objName ) : scope.hasPermOu( ou );
+        }
+
+
+        private String key()
+        {
+            return type + "|" + OrphanScan.key( objName ) + "|" + OrphanScan.key( opName ) + "|" + OrphanScan.key(
+                objId );
+        }
+
+
+        private FortEntity toEntity()
+        {
+            switch ( type )
+            {
+                case ROLE:
+                    return new Role( objName );
+                case PERMISSION:
+                    return new Permission( objName, opName, objId );
+                default:
+                    return new PermObj( objName );
+            }
+        }
+    }
+
+
+    /**
+     * The outcome of an analysis, replaced as a whole by the next one.
+     */
+    public static final class Result
+    {
+        private final Map<Type, Integer> checked = new EnumMap<>( Type.class );
+        private final Map<Type, List<Orphan>> orphans = new EnumMap<>( Type.class );
+        // the names of the roles, and the ous of the permissions and objects, analyzed, by lower case name:
+        private final Map<String, Integer> roles = new HashMap<>();
+        private final Map<Type, Map<String, Integer>> ous = new EnumMap<>( Type.class );
+        private final long scanned;
+        private long elapsed;
+
+
+        private Result()
+        {
+            for ( Type type : Type.values() )
+            {
+                orphans.put( type, new ArrayList<Orphan>() );
+            }
+            ous.put( Type.PERMISSION, new HashMap<String, Integer>() );
+            ous.put( Type.OBJECT, new HashMap<String, Integer>() );
+            scanned = System.currentTimeMillis();
+        }
+
+
+        /**
+         * Keep the entities within an administrator's scope.
+         */
+        private Result( Result result, AdminScope scope )
+        {
+            this.scanned = result.scanned;
+            this.elapsed = result.elapsed;
+            int count = 0;
+            for ( Map.Entry<String, Integer> role : result.roles.entrySet() )
+            {
+                if ( scope.hasRole( role.getKey() ) )
+                {
+                    count += role.getValue();
+                }
+            }
+            checked.put( Type.ROLE, count );
+            for ( Map.Entry<Type, Map<String, Integer>> type : result.ous.entrySet() )
+            {
+                count = 0;
+                for ( Map.Entry<String, Integer> ou : type.getValue().entrySet() )
+                {
+                    if ( scope.hasPermOu( ou.getKey() ) )
+                    {
+                        count += ou.getValue();
+                    }
+                }
+                checked.put( type.getKey(), count );
+            }
+            for ( Map.Entry<Type, List<Orphan>> type : result.orphans.entrySet() )
+            {
+                List<Orphan> kept = new ArrayList<>();
+                for ( Orphan orphan : type.getValue() )
+                {
+                    if ( orphan.isIn( scope ) )
+                    {
+                        kept.add( orphan );
+                    }
+                }
+                orphans.put( type.getKey(), kept );
+            }
+        }
+
+
+        /**
+         * @param scope of an administrator.
+         * @return the analysis with only the entities within the scope counted and listed.
+         */
+        Result scoped( AdminScope scope )
+        {
+            return scope.isAll() ? this : new Result( this, scope );
+        }
+
+
+        /**
+         * @return the time the analysis finished.
+         */
+        public long getScanned()
+        {
+            return scanned;
+        }
+
+
+        public long getElapsedMillis()
+        {
+            return elapsed;
+        }
+
+
+        /**
+         * @return the number of entities of a kind analyzed.
+         */
+        public int getChecked( Type type )
+        {
+            return checked.get( type );
+        }
+
+
+        /**
+         * @return the orphans of a kind, by name.
+         */
+        public List<Orphan> getOrphans( Type type )
+        {
+            return Collections.unmodifiableList( orphans.get( type ) );
+        }
+    }
+
+
+    private static class Loader
+    {
+        @SpringBean
+        private ReviewMgr reviewMgr;
+
+
+        private Loader()
+        {
+            Injector.get().inject( this );
+        }
+
+
+        private Result analyze() throws SecurityException
+        {
+            long start = System.currentTimeMillis();
+            Fetch<Role> roleFetch = new Fetch<>( new Callable<List<Role>>()
+            {
+                @Override
+                public List<Role> call() throws SecurityException
+                {
+                    return reviewMgr.findRoles( "" );
+                }
+            } );
+            Fetch<Permission> permFetch = new Fetch<>( new Callable<List<Permission>>()
+            {
+                @Override
+                public List<Permission> call() throws SecurityException
+                {
+                    return reviewMgr.findPermissions( new Permission( "", "" ) );
+                }
+            } );
+            Fetch<PermObj> permObjFetch = new Fetch<>( new Callable<List<PermObj>>()
+            {
+                @Override
+                public List<PermObj> call() throws SecurityException
+                {
+                    return reviewMgr.findPermObjs( new PermObj( "" ) );
+                }
+            } );
+            List<User> users = reviewMgr.findUsers( new User( "" ) );
+            List<Role> roles = roleFetch.get();
+            List<Permission> perms = permFetch.get();
+            List<PermObj> permObjs = permObjFetch.get();
+            Result analyzed = OrphanScan.analyze( users != null ? users : new ArrayList<User>(), roles != null ?
+                roles : new ArrayList<Role>(), perms != null ? perms : new ArrayList<Permission>(), permObjs != null ?
+                permObjs : new ArrayList<PermObj>() );
+            analyzed.elapsed = System.currentTimeMillis() - start;
+            scanLatency.observe( analyzed.elapsed / 1000.0 );
+            return analyzed;
+        }
+    }
+
+
+    private OrphanScan()
+    {
+    }
+
+
+    /**
+     * Start an analysis, called on a request thread.
+     *
+     * @param session of the administrator, who's told if it fails.
+     * @return false if an analysis or deletion is already running.
+     */
+    public static boolean analyze( Session session )
+    {
+        final Loader loader = new Loader();
+        return run( "Analyzing", owner( session ), new Callable<Void>()
+        {
+            @Override
+            public Void call() throws SecurityException
+            {
+                result = loader.analyze();
+                LOG.info( ".analyze found " + result.orphans.get( Type.ROLE ).size() + " roles, " + result.orphans
+                    .get( Type.PERMISSION ).size() + " permissions and " + result.orphans.get( Type.OBJECT ).size()
+                    + " objects unused" );
+                return null;
+            }
+        } );
+    }
+
+
+    /**
+     * Start the deletion of the orphans of a kind listed by the last analysis that are still orphans, called on a
+     * request thread.  The analysis is run again once they're deleted.
+     *
+     * @param type of the orphans.
+     * @param adminMgr of the administrator, already set with their session, deletes the orphans.
+     * @param session of the administrator, only the orphans within their scope are deleted, and only they are told
+     * the outcome.
+     * @return false if an analysis or deletion is already running, or there's no analysis.
+     */
+    public static boolean delete( final Type type, final AdminMgr adminMgr, Session session )
+    {
+        final Result listed = getResult( AdminScope.get( session ) );
+        if ( listed == null )
+        {
+            return false;
+        }
+        final Loader loader = new Loader();
+        final String owner = owner( session );
+        return run( "Deleting " + type.getLabel().toLowerCase( Locale.ENGLISH ), owner, new Callable<Void>()
+        {
+            @Override
+            public Void call() throws SecurityException, InterruptedException
+            {
+                Result current = loader.analyze();
+                Set<String> keys = new HashSet<>();
+                for ( Orphan orphan : current.orphans.get( type ) )
+                {
+                    keys.add( orphan.key() );
+                }
+                List<Orphan> targets = new ArrayList<>();
+                for ( Orphan orphan : listed.orphans.get( type ) )
+                {
+                    if ( keys.contains( orphan.key() ) )
+                    {
+                        targets.add( orphan );
+                    }
+                }
+                String deleted = delete( targets, adminMgr );
+                synchronized ( LOCK )
+                {
+                    MESSAGES.put( owner, deleted );
+                }
+                result = loader.analyze();
+                return null;
+            }
+        } );
+    }
+
+
+    /**
+     * @return the last analysis, of every entity, or null if none has finished.
+     */
+    public static Result getResult()
+    {
+        return result;
+    }
+
+
+    /**
+     * Return the last analysis as an administrator may see it, i.e. only the entities within their scope are counted
+     * and listed.
+     *
+     * @param scope of the administrator, see {@link AdminScope#get}.
+     * @return the analysis, or null if none has finished.
+     */
+    public static Result getResult( AdminScope scope )
+    {
+        Result analyzed = result;
+        return analyzed != null ? analyzed.scoped( scope ) : null;
+    }
+
+
+    /**
+     * @return what's running, or null if nothing is.
+     */
+    public static String getActivity()
+    {
+        synchronized ( LOCK )
+        {
+            return activity;
+        }
+    }
+
+
+    /**
+     * @param session of the administrator.
+     * @return the outcome of their last deletion, or why their last analysis or deletion failed, null if neither.
+     */
+    public static String getMessage( Session session )
+    {
+        synchronized ( LOCK )
+        {
+            return MESSAGES.get( owner( session ) );
+        }
+    }
+
+
+    /**
+     * Stop the analysis or deletion running, called when the application is destroyed.
+     */
+    public static void stop()
+    {
+        synchronized ( LOCK )
+        {
+            if ( runner != null )
+            {
+                runner.shutdownNow();
+                pool.shutdownNow();
+                runner = null;
+                pool = null;
+                activity = null;
+            }
+        }
+    }
+
+
+    /**
+     * Find the orphans among the results of a search of every user, role, permission and object.
+     */
+    static Result analyze( List<User> users, List<Role> roles, List<Permission> perms, List<PermObj> permObjs )
+    {
+        Result analyzed = new Result();
+        analyzed.checked.put( Type.ROLE, roles.size() );
+        analyzed.checked.put( Type.PERMISSION, perms.size() );
+        analyzed.checked.put( Type.OBJECT, permObjs.size() );
+        Map<String, String> objOus = new HashMap<>();
+        for ( PermObj permObj : permObjs )
+        {
+            objOus.put( key( permObj.getObjName() ), permObj.getOu() );
+            count( analyzed.ous.get( Type.OBJECT ), permObj.getOu() );
+        }
+        for ( Role role : roles )
+        {
+            count( analyzed.roles, role.getName() );
+        }
+        RoleAssignmentIndex index = new RoleAssignmentIndex( users, roles );
+        long[] unused = index.union();
+        for ( int i = 0; i < unused.length; i++ )
+        {
+            unused[i] = ~unused[i];
+        }
+        Map<String, Role> found = new HashMap<>();
+        for ( Role role : roles )
+        {
+            found.put( key( role.getName() ), role );
+        }
+        // only the roles found, not those merely named by an assignment or as a parent:
+        for ( String name : index.roles( unused, index.mask( found.keySet(), null ) ) )
+        {
+            Role role = found.get( key( name ) );
+            analyzed.orphans.get( Type.ROLE ).add( new Orphan( Type.ROLE, role.getName(), null, null, null, role
+                .getParents() ) );
+        }
+        Set<String> granted = new HashSet<>();
+        for ( Permission perm : perms )
+        {
+            String ou = objOus.get( key( perm.getObjName() ) );
+            count( analyzed.ous.get( Type.PERMISSION ), ou );
+            granted.add( key( perm.getObjName() ) );
+            if ( perm.getUsers() != null && !perm.getUsers().isEmpty() )
+            {
+                continue;
+            }
+            boolean used = false;
+            if ( perm.getRoles() != null )
+            {
+                for ( String roleName : perm.getRoles() )
+                {
+                    used |= found.containsKey( key( roleName ) );
+                }
+            }
+            if ( !used )
+            {
+                analyzed.orphans.get( Type.PERMISSION ).add( new Orphan( Type.PERMISSION, perm.getObjName(), perm
+                    .getOpName(), perm.getObjId(), ou, null ) );
+            }
+        }
+        for ( PermObj permObj : permObjs )
+        {
+            if ( !granted.contains( key( permObj.getObjName() ) ) )
+            {
+                analyzed.orphans.get( Type.OBJECT ).add( new Orphan( Type.OBJECT, permObj.getObjName(), null, null,
+                    permObj.getOu(), null ) );
+            }
+        }
+        for ( List<Orphan> orphans : analyzed.orphans.values() )
+        {
+            Collections.sort( orphans, new Comparator<Orphan>()
+            {
+                @Override
+                public int compare( Orphan o1, Orphan o2 )
+                {
+                    return o1.getName().compareToIgnoreCase( o2.getName() );
+                }
+            } );
+        }
+        return analyzed;
+    }
+
+
+    /**
+     * Return the waves the orphans are deleted in, every role in a wave before the roles it inherits from, as fortress
+     * won't delete a role with children.  Orphans other than roles are deleted in one wave.
+     */
+    static List<List<Orphan>> waves( List<Orphan> targets )
+    {
+        List<List<Orphan>> waves = new ArrayList<>();
+        Map<String, Orphan> remaining = new LinkedHashMap<>();
+        for ( Orphan orphan : targets )
+        {
+            remaining.put( orphan.key(), orphan );
+        }
+        while ( !remaining.isEmpty() )
+        {
+            Set<String> parents = new HashSet<>();
+            for ( Orphan orphan : remaining.values() )
+            {
+                for ( String parent : orphan.parents )
+                {
+                    parents.add( new Orphan( Type.ROLE, parent, null, null, null, null ).key() );
+                }
+            }
+            List<Orphan> wave = new ArrayList<>();
+            for ( Map.Entry<String, Orphan> orphan : remaining.entrySet() )
+            {
+                if ( !parents.contains( orphan.getKey() ) )
+                {
+                    wave.add( orphan.getValue() );
+                }
+            }
+            if ( wave.isEmpty() )
+            {
+                // a cycle, fortress decides:
+                wave.addAll( remaining.values() );
+            }
+            for ( Orphan orphan : wave )
+            {
+                remaining.remove( orphan.key() );
+            }
+            waves.add( wave );
+        }
+        return waves;
+    }
+
+
+    private static String delete( List<Orphan> targets, final AdminMgr adminMgr ) throws InterruptedException
+    {
+        int succeeded = 0;
+        int failed = 0;
+        List<String> errors = new ArrayList<>();
+        for ( List<Orphan> wave : waves( targets ) )
+        {
+            // at most a batch in the pool at once, so the rest of the wave isn't rejected:
+            for ( int start = 0; start < wave.size(); start += THREADS * 2 )
+            {
+                List<Orphan> batch = wave.subList( start, Math.min( wave.size(), start + THREADS * 2 ) );
+                List<Future<FortEntity>> futures = new ArrayList<>();
+                for ( final Orphan orphan : batch )
+                {
+                    futures.add( submit( new Callable<FortEntity>()
+                    {
+                        @Override
+                        public FortEntity call() throws SecurityException
+                        {
+                            FortEntity entity = orphan.toEntity();
+                            switch ( orphan.type )
+                            {
+                                case ROLE:
+                                    adminMgr.deleteRole( ( Role ) entity );
+                                    break;
+                                case PERMISSION:
+                                    adminMgr.deletePermission( ( Permission ) entity );
+                                    break;
+                                default:
+                                    adminMgr.deletePermObj( ( PermObj ) entity );
+                                    break;
+                            }
+                            return entity;
+                        }
+                    } ) );
+                }
+                for ( int i = 0; i < futures.size(); i++ )
+                {
+                    Orphan orphan = batch.get( i );
+                    try
+                    {
+                        deleted( futures.get( i ).get() );
+                        succeeded++;
+                        deletes.labels( orphan.type.name(), "succeeded" ).inc();
+                    }
+                    catch ( ExecutionException e )
+                    {
+                        failed++;
+                        deletes.labels( orphan.type.name(), "failed" ).inc();
+                        LOG.warn( ".delete " + orphan.getName() + " failed: " + e.getCause() );
+                        if ( errors.size() < MAX_ERRORS )
+                        {
+                            errors.add( orphan.getName() + ": " + e.getCause().getMessage() );
+                        }
+                    }
+                }
+            }
+        }
+        if ( succeeded > 0 )
+        {
+            Type type = targets.get( 0 ).type;
+            ReviewCache.invalidate( type == Type.ROLE ? ReviewCache.Region.ROLE : ReviewCache.Region.PERM_OBJ );
+            RoleUsage.invalidate();
+            if ( type == Type.ROLE )
+            {
+                RoleAssignmentIndex.invalidate();
+                ComplianceScan.rescan();
+            }
+        }
+        String outcome = "Deleted " + succeeded + " of " + targets.size() + " still unused";
+        if ( failed > 0 )
+        {
+            outcome += ", " + failed + " failed: " + StringUtils.join( errors, "; " );
+        }
+        return outcome;
+    }
+
+
+    /**
+     * Tell the indexes kept of single entities of a deletion.
+     */
+    private static void deleted( FortEntity entity )
+    {
+        SuggestionIndex.onSave( entity, SaveModelEvent.Operations.DELETE );
+        GlobalSearchIndex.onSave( entity, SaveModelEvent.Operations.DELETE );
+        ActivationGuard.onSave( entity, SaveModelEvent.Operations.DELETE );
+    }
+
+
+    private static String owner( Session session )
+    {
+        return session != null && session.getUserId() != null ? session.getUserId().toLowerCase( Locale.ENGLISH ) :
+            "";
+    }
+
+
+    private static boolean run( String name, final String owner, final Callable<Void> job )
+    {
+        // the managers are spring beans, which need the application and session of the request to be resolved:
+        final Callable<Void> attached = Prefetch.attach( job );
+        synchronized ( LOCK )
+        {
+            if ( activity != null )
+            {
+                return false;
+            }
+            if ( runner == null )
+            {
+                runner = Executors.newSingleThreadExecutor( new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread( Runnable runnable )
+                    {
+                        Thread thread = new Thread( runnable, "fortress-orphan-scan" );
+                        thread.setDaemon( true );
+                        thread.setPriority( Thread.MIN_PRIORITY );
+                        return thread;
+                    }
+                } );
+                pool = FanOutExecutor.newInstance( "fortress-orphan", THREADS, THREADS * 2 );
+            }
+            activity = name;
+            runner.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        attached.call();
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        LOG.info( ".run interrupted" );
+                    }
+                    catch ( Exception e )
+                    {
+                        LOG.error( ".run failed", e );
+                        synchronized ( LOCK )
+                        {
+                            MESSAGES.put( owner, "Failed: " + e );
+                        }
+                    }
+                    finally
+                    {
+                        synchronized ( LOCK )
+                        {
+                            activity = null;
+                        }
+                    }
+                }
+            } );
+            return true;
+        }
+    }
+
+
+    private static Future<FortEntity> submit( Callable<FortEntity> task )
+    {
+        Callable<FortEntity> attached = Prefetch.attach( task );
+        FanOutExecutor executor;
+        synchronized ( LOCK )
+        {
+            executor = pool;
+        }
+        try
+        {
+            if ( executor != null )
+            {
+                return executor.submit( attached );
+            }
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // deleted by the job's own thread instead
+        }
+        FutureTask<FortEntity> inline = new FutureTask<>( attached );
+        inline.run();
+        return inline;
+    }
+
+
+    private static void count( Map<String, Integer> counts, String name )
+    {
+        Integer count = counts.get( key( name ) );
+        counts.put( key( name ), count != null ? count + 1 : 1 );
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+}
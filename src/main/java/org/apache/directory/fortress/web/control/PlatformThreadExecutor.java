@@ -0,0 +1,96 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.web.common.GlobalIds;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A {@link FanOutExecutor} backed by a bounded pool of daemon platform threads.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class PlatformThreadExecutor extends FanOutExecutor
+{
+    private final ThreadPoolExecutor executor;
+
+
+    PlatformThreadExecutor( final String name, int threads, int queue )
+    {
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>( queue ), new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, name + "-" + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        executor.allowCoreThreadTimeOut( true );
+    }
+
+
+    @Override
+    public <T> Future<T> submit( Callable<T> task )
+    {
+        return executor.submit( task );
+    }
+
+
+    @Override
+    public int getActiveCount()
+    {
+        return executor.getActiveCount();
+    }
+
+
+    @Override
+    public int getQueueSize()
+    {
+        return executor.getQueue().size();
+    }
+
+
+    @Override
+    public String getMode()
+    {
+        return GlobalIds.PLATFORM_EXECUTOR;
+    }
+
+
+    @Override
+    public void shutdownNow()
+    {
+        executor.shutdownNow();
+    }
+}
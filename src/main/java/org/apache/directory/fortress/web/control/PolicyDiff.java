@@ -0,0 +1,695 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Summary;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+
+/**
+ * Compares a policy file, in any of the import formats, with the policy in the directory, and writes what would have
+ * to change for the directory to match the file: the entities to add, update and, optionally, delete.  Nothing is
+ * written to the directory until the difference is {@link #apply applied}, as an {@link ImportJob} of only the
+ * changes, so a file that's mostly in the directory already costs a few writes rather than one per entity.
+ * <p>
+ * Both sides are read into hash maps keyed by the entity's canonical identity, its type and identifying attributes,
+ * trimmed and lower cased as the directory compares them.  Each file entity is looked up in the directory's map, then
+ * those of the directory's that weren't found are the deletes, so the comparison is linear in the number of
+ * entities.  An attribute the file leaves out, e.g. a role's description, is left as it is in the directory, as the
+ * loader would.
+ * <p>
+ * Only the policy is compared: org units, roles, admin roles, role inheritance, permission objects, operations and
+ * grants.  Users, their assignments and the entities the import doesn't support, e.g. SSD sets, are counted as
+ * skipped.  Deletes are only of the types in the file, so a file of roles doesn't delete the permissions.
+ * <p>
+ * The changes are written to a temporary file in the loader format, so they may be downloaded, and aren't kept in
+ * the page; only the first diff.max.shown are, to be listed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class PolicyDiff implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( PolicyDiff.class.getName() );
+    private static final int MAX_SHOWN = Config.getInstance().getInt( GlobalIds.DIFF_MAX_SHOWN, 500 );
+    private static final Set<ImportRecord.Type> COMPARED = EnumSet.of( ImportRecord.Type.ORGUNIT,
+        ImportRecord.Type.ROLE, ImportRecord.Type.ADMINROLE, ImportRecord.Type.ROLEINHERITANCE,
+        ImportRecord.Type.PERMOBJ, ImportRecord.Type.PERMOP, ImportRecord.Type.PERMGRANT );
+    private static final String SEPARATOR = "\u0000";
+
+    static final Summary diffLatency = Summary.build()
+            .name("policy_diff_latency_seconds")
+            .help("Policy Diff Latency In Seconds").register();
+
+    private final String fileName;
+    private final boolean deletes;
+    private final Map<ImportRecord.Type, int[]> counts = new EnumMap<>( ImportRecord.Type.class );
+    private final List<Change> changes = new ArrayList<>();
+    private int total;
+    private int unchanged;
+    private int skipped;
+    private int invalid;
+    private File delta;
+
+
+    /**
+     * One entity that differs between the file and the directory.
+     */
+    public static final class Change implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final ImportRecord.Operation operation;
+        private final ImportRecord.Type type;
+        private final String key;
+        private final String detail;
+
+
+        Change( ImportRecord.Operation operation, ImportRecord.Type type, String key, String detail )
+        {
+            this.operation = operation;
+            this.type = type;
+            this.key = key;
+            this.detail = detail;
+        }
+
+
+        public ImportRecord.Operation getOperation()
+        {
+            return operation;
+        }
+
+
+        public ImportRecord.Type getType()
+        {
+            return type;
+        }
+
+
+        public String getKey()
+        {
+            return key;
+        }
+
+
+        /**
+         * @return the attributes that differ, for an update, or null.
+         */
+        public String getDetail()
+        {
+            return detail;
+        }
+    }
+
+
+    private PolicyDiff( String fileName, boolean deletes )
+    {
+        this.fileName = fileName;
+        this.deletes = deletes;
+        for ( ImportRecord.Type type : COMPARED )
+        {
+            counts.put( type, new int[ImportRecord.Operation.values().length] );
+        }
+    }
+
+
+    /**
+     * Compare a policy file with the directory.
+     *
+     * @param fileName name of the uploaded file.
+     * @param format of the file.
+     * @param in contents of the file, closed when it's been read.
+     * @param deletes whether the entities that aren't in the file are to be deleted.
+     * @param reviewMgr of the admin, used to read the policy.
+     * @param delReviewMgr of the admin, used to read the admin roles and org units.
+     * @return the difference.
+     * @throws IOException if the file can't be read, or the difference written.
+     * @throws SecurityException if the policy can't be read from the directory.
+     */
+    public static PolicyDiff compare( String fileName, ImportReader.Format format, InputStream in, boolean deletes,
+        final ReviewMgr reviewMgr, final DelReviewMgr delReviewMgr ) throws IOException, SecurityException
+    {
+        long start = System.currentTimeMillis();
+        Summary.Timer timer = diffLatency.startTimer();
+        // the directory is searched while the file is read:
+        Fetch<OrgUnit> userOus = new Fetch<>( new Callable<List<OrgUnit>>()
+        {
+            @Override
+            public List<OrgUnit> call() throws SecurityException
+            {
+                return delReviewMgr.search( OrgUnit.Type.USER, "" );
+            }
+        } );
+        Fetch<OrgUnit> permOus = new Fetch<>( new Callable<List<OrgUnit>>()
+        {
+            @Override
+            public List<OrgUnit> call() throws SecurityException
+            {
+                return delReviewMgr.search( OrgUnit.Type.PERM, "" );
+            }
+        } );
+        Fetch<Role> roles = new Fetch<>( new Callable<List<Role>>()
+        {
+            @Override
+            public List<Role> call() throws SecurityException
+            {
+                return reviewMgr.findRoles( "" );
+            }
+        } );
+        Fetch<AdminRole> adminRoles = new Fetch<>( new Callable<List<AdminRole>>()
+        {
+            @Override
+            public List<AdminRole> call() throws SecurityException
+            {
+                return delReviewMgr.findRoles( "" );
+            }
+        } );
+        List<Fetch<PermObj>> permObjs = new ArrayList<>();
+        List<Fetch<Permission>> perms = new ArrayList<>();
+        for ( final boolean admin : new boolean[]{ false, true } )
+        {
+            permObjs.add( new Fetch<>( new Callable<List<PermObj>>()
+            {
+                @Override
+                public List<PermObj> call() throws SecurityException
+                {
+                    PermObj permObj = new PermObj( "" );
+                    permObj.setAdmin( admin );
+                    return reviewMgr.findPermObjs( permObj );
+                }
+            } ) );
+            perms.add( new Fetch<>( new Callable<List<Permission>>()
+            {
+                @Override
+                public List<Permission> call() throws SecurityException
+                {
+                    Permission perm = new Permission( "", "" );
+                    perm.setAdmin( admin );
+                    return reviewMgr.findPermissions( perm );
+                }
+            } ) );
+        }
+
+        PolicyDiff diff = new PolicyDiff( fileName, deletes );
+        try
+        {
+            Map<String, ImportRecord> file = diff.read( format, in );
+
+            Map<String, ImportRecord> directory = new HashMap<>();
+            for ( OrgUnit orgUnit : userOus.get() )
+            {
+                put( directory, ImportRecord.Type.ORGUNIT, "name", orgUnit.getName(), "typeName", OrgUnit.Type.USER
+                    .name(), "description", orgUnit.getDescription() );
+            }
+            for ( OrgUnit orgUnit : permOus.get() )
+            {
+                put( directory, ImportRecord.Type.ORGUNIT, "name", orgUnit.getName(), "typeName", OrgUnit.Type.PERM
+                    .name(), "description", orgUnit.getDescription() );
+            }
+            for ( Role role : roles.get() )
+            {
+                put( directory, ImportRecord.Type.ROLE, "name", role.getName(), "description", role.getDescription() );
+                if ( role.getParents() != null )
+                {
+                    for ( String parent : role.getParents() )
+                    {
+                        put( directory, ImportRecord.Type.ROLEINHERITANCE, "child", role.getName(), "parent",
+                            parent );
+                    }
+                }
+            }
+            for ( AdminRole role : adminRoles.get() )
+            {
+                put( directory, ImportRecord.Type.ADMINROLE, "name", role.getName(), "description", role
+                    .getDescription() );
+            }
+            for ( Fetch<PermObj> fetch : permObjs )
+            {
+                for ( PermObj permObj : fetch.get() )
+                {
+                    put( directory, ImportRecord.Type.PERMOBJ, "objName", permObj.getObjName(), "ou", permObj.getOu(),
+                        "description", permObj.getDescription(), "admin", String.valueOf( permObj.isAdmin() ) );
+                }
+            }
+            for ( Fetch<Permission> fetch : perms )
+            {
+                for ( Permission perm : fetch.get() )
+                {
+                    put( directory, ImportRecord.Type.PERMOP, "objName", perm.getObjName(), "opName", perm.getOpName(),
+                        "objId", perm.getObjId(), "description", perm.getDescription(), "admin", String.valueOf(
+                            perm.isAdmin() ) );
+                    if ( perm.getRoles() != null )
+                    {
+                        for ( String role : perm.getRoles() )
+                        {
+                            put( directory, ImportRecord.Type.PERMGRANT, "objName", perm.getObjName(), "opName",
+                                perm.getOpName(), "objId", perm.getObjId(), "roleNm", role, "admin", String.valueOf(
+                                    perm.isAdmin() ) );
+                        }
+                    }
+                }
+            }
+
+            diff.compare( file, directory );
+            timer.observeDuration();
+            LOG.info( ".compare " + fileName + ": " + diff.total + " entities, " + diff.getChanges() + " changes in "
+                + ( System.currentTimeMillis() - start ) + " ms" );
+            return diff;
+        }
+        catch ( IOException | SecurityException | RuntimeException e )
+        {
+            timer.observeDuration();
+            diff.discard();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Read the file's policy entities, those that are valid and of a compared type, keyed by their identity.
+     */
+    private Map<String, ImportRecord> read( ImportReader.Format format, InputStream in ) throws IOException
+    {
+        Map<String, ImportRecord> file = new HashMap<>();
+        try ( ImportReader reader = ImportReader.open( format, in ) )
+        {
+            ImportRecord record;
+            while ( ( record = reader.next() ) != null )
+            {
+                total++;
+                if ( record.getType() == null || !COMPARED.contains( record.getType() ) )
+                {
+                    skipped++;
+                }
+                else if ( ImportWriter.validate( record ) != null || record.getOperation() != ImportRecord
+                    .Operation.ADD )
+                {
+                    invalid++;
+                }
+                else
+                {
+                    // a later record for the same entity replaces the earlier, as it would when loaded:
+                    file.put( key( record ), record );
+                }
+            }
+        }
+        return file;
+    }
+
+
+    private void compare( Map<String, ImportRecord> file, Map<String, ImportRecord> directory ) throws IOException
+    {
+        Map<ImportRecord.Type, List<ImportRecord>> adds = new EnumMap<>( ImportRecord.Type.class );
+        Map<ImportRecord.Type, List<ImportRecord>> updates = new EnumMap<>( ImportRecord.Type.class );
+        Map<ImportRecord.Type, List<ImportRecord>> removes = new EnumMap<>( ImportRecord.Type.class );
+        Set<ImportRecord.Type> types = EnumSet.noneOf( ImportRecord.Type.class );
+        for ( Map.Entry<String, ImportRecord> entry : file.entrySet() )
+        {
+            ImportRecord wanted = entry.getValue();
+            types.add( wanted.getType() );
+            ImportRecord existing = directory.get( entry.getKey() );
+            if ( existing == null )
+            {
+                group( adds, wanted );
+            }
+            else if ( differences( wanted, existing ) != null )
+            {
+                group( updates, wanted );
+            }
+            else
+            {
+                unchanged++;
+            }
+        }
+        if ( deletes )
+        {
+            for ( Map.Entry<String, ImportRecord> entry : directory.entrySet() )
+            {
+                if ( types.contains( entry.getValue().getType() ) && !file.containsKey( entry.getKey() ) )
+                {
+                    group( removes, entry.getValue() );
+                }
+            }
+        }
+        if ( adds.isEmpty() && updates.isEmpty() && removes.isEmpty() )
+        {
+            return;
+        }
+
+        delta = File.createTempFile( "fortress-diff-", ".xml" );
+        delta.deleteOnExit();
+        try ( OutputStream out = new BufferedOutputStream( new FileOutputStream( delta ) ) )
+        {
+            LoaderXmlWriter xml = new LoaderXmlWriter( out, "Fortress Policy Diff" );
+            // deletes first, of the entities that refer to others before those they refer to:
+            List<ImportRecord.Type> reversed = new ArrayList<>( removes.keySet() );
+            Collections.reverse( reversed );
+            for ( ImportRecord.Type type : reversed )
+            {
+                write( xml, ImportRecord.Operation.DELETE, type, removes.get( type ), directory );
+            }
+            for ( ImportRecord.Type type : COMPARED )
+            {
+                write( xml, ImportRecord.Operation.ADD, type, adds.get( type ), directory );
+                write( xml, ImportRecord.Operation.UPDATE, type, updates.get( type ), directory );
+            }
+            xml.finish();
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+    }
+
+
+    private void write( LoaderXmlWriter xml, ImportRecord.Operation operation, ImportRecord.Type type,
+        List<ImportRecord> records, Map<String, ImportRecord> directory ) throws XMLStreamException
+    {
+        if ( records == null )
+        {
+            return;
+        }
+        xml.startSection( operation.getPrefix() + type.name().toLowerCase( Locale.ENGLISH ) );
+        for ( ImportRecord record : records )
+        {
+            counts.get( type )[operation.ordinal()]++;
+            xml.entity( type.getElement() );
+            for ( String name : identity( type ) )
+            {
+                xml.attribute( name, record.get( name ) );
+            }
+            for ( String name : values( type ) )
+            {
+                xml.attribute( name, record.get( name ) );
+            }
+            if ( changes.size() < MAX_SHOWN )
+            {
+                changes.add( new Change( operation, type, record.getKey(), operation == ImportRecord.Operation
+                    .UPDATE ? differences( record, directory.get( key( record ) ) ) : null ) );
+            }
+        }
+        xml.endSection();
+    }
+
+
+    /**
+     * @return the attributes the file sets that differ from the directory's, or null if there are none.
+     */
+    private static String differences( ImportRecord wanted, ImportRecord existing )
+    {
+        StringBuilder differences = null;
+        for ( String name : values( wanted.getType() ) )
+        {
+            String value = wanted.get( name );
+            // org unit names are compared by the directory without case, descriptions aren't:
+            if ( value != null && !( name.equals( "ou" ) ? value.equalsIgnoreCase( existing.get( name ) ) : value
+                .equals( existing.get( name ) ) ) )
+            {
+                differences = differences == null ? new StringBuilder() : differences.append( ", " );
+                differences.append( name ).append( ": " ).append( StringUtils.defaultString( existing.get( name ) ) )
+                    .append( " -> " ).append( value );
+            }
+        }
+        return differences != null ? differences.toString() : null;
+    }
+
+
+    /**
+     * Start an import of the changes.  The changes may only be applied once.
+     *
+     * @param owner userId of the admin applying the changes.
+     * @param adminMgr of the admin, used to write the changes.
+     * @param delAdminMgr of the admin, used to write the admin roles and permissions.
+     * @return the import job writing the changes.
+     * @throws IOException if the changes can't be read.
+     * @throws IllegalStateException if there are no changes, or they have been applied.
+     * @throws java.util.concurrent.RejectedExecutionException if the maximum number of imports are already running.
+     */
+    public ImportJob apply( String owner, AdminMgr adminMgr, DelAdminMgr delAdminMgr ) throws IOException
+    {
+        if ( !isApplicable() )
+        {
+            throw new IllegalStateException( "the changes of " + fileName + " have already been applied" );
+        }
+        ImportJob job = ImportJob.start( owner, "changes to " + fileName, ImportReader.Format.XML,
+            new FileInputStream( delta ), adminMgr, delAdminMgr );
+        discard();
+        return job;
+    }
+
+
+    /**
+     * Remove the changes' file, once applied or no longer wanted.
+     */
+    public void discard()
+    {
+        if ( delta != null && delta.exists() && !delta.delete() )
+        {
+            LOG.warn( ".discard could not delete " + delta );
+        }
+    }
+
+
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+
+    /**
+     * @return whether the entities that aren't in the file are deleted.
+     */
+    public boolean isDeletes()
+    {
+        return deletes;
+    }
+
+
+    /**
+     * @return the compared types, in the order they're written.
+     */
+    public List<ImportRecord.Type> getTypes()
+    {
+        return new ArrayList<>( COMPARED );
+    }
+
+
+    /**
+     * @return the number of entities of a type to be added, updated or deleted.
+     */
+    public int getCount( ImportRecord.Type type, ImportRecord.Operation operation )
+    {
+        int[] count = counts.get( type );
+        return count != null ? count[operation.ordinal()] : 0;
+    }
+
+
+    /**
+     * @return the number of entities to be added, updated or deleted.
+     */
+    public int getChanges()
+    {
+        int changed = 0;
+        for ( int[] count : counts.values() )
+        {
+            for ( int c : count )
+            {
+                changed += c;
+            }
+        }
+        return changed;
+    }
+
+
+    /**
+     * @return the first diff.max.shown of the changes.
+     */
+    public List<Change> getShown()
+    {
+        return changes;
+    }
+
+
+    /**
+     * @return the records read from the file.
+     */
+    public int getTotal()
+    {
+        return total;
+    }
+
+
+    public int getUnchanged()
+    {
+        return unchanged;
+    }
+
+
+    /**
+     * @return the records of the file that aren't compared, e.g. users, or SSD sets which the import doesn't support.
+     */
+    public int getSkipped()
+    {
+        return skipped;
+    }
+
+
+    /**
+     * @return the records of the file that are incomplete, or aren't adds.
+     */
+    public int getInvalid()
+    {
+        return invalid;
+    }
+
+
+    /**
+     * @return the changes, in the loader format, or null if there are none or they have been applied.
+     */
+    public File getDelta()
+    {
+        return isApplicable() ? delta : null;
+    }
+
+
+    public boolean isApplicable()
+    {
+        return delta != null && delta.exists();
+    }
+
+
+    /**
+     * Add a directory entity, given as loader attribute names and values, keyed by its identity.
+     */
+    private static void put( Map<String, ImportRecord> directory, ImportRecord.Type type, String... attributes )
+    {
+        Map<String, String> values = new HashMap<>();
+        for ( int i = 0; i < attributes.length; i += 2 )
+        {
+            values.put( attributes[i], attributes[i + 1] );
+        }
+        ImportRecord record = new ImportRecord( 0, type, values, null );
+        directory.put( key( record ), record );
+    }
+
+
+    /**
+     * @return the type and identifying attributes of an entity, as the directory compares them.
+     */
+    private static String key( ImportRecord record )
+    {
+        StringBuilder key = new StringBuilder( record.getType().name() );
+        for ( String name : identity( record.getType() ) )
+        {
+            String value = name.equals( "admin" ) ? String.valueOf( Boolean.parseBoolean( record.get( name ) ) )
+                : StringUtils.defaultString( record.get( name ) );
+            key.append( SEPARATOR ).append( value.toLowerCase( Locale.ENGLISH ) );
+        }
+        return key.toString();
+    }
+
+
+    private static String[] identity( ImportRecord.Type type )
+    {
+        switch ( type )
+        {
+            case ORGUNIT:
+                return new String[]{ "name", "typeName" };
+            case ROLEINHERITANCE:
+                return new String[]{ "child", "parent" };
+            case PERMOBJ:
+                return new String[]{ "objName", "admin" };
+            case PERMOP:
+                return new String[]{ "objName", "opName", "objId", "admin" };
+            case PERMGRANT:
+                return new String[]{ "objName", "opName", "objId", "roleNm", "admin" };
+            default:
+                return new String[]{ "name" };
+        }
+    }
+
+
+    /**
+     * @return the attributes of an entity that may be updated.
+     */
+    private static String[] values( ImportRecord.Type type )
+    {
+        switch ( type )
+        {
+            case ORGUNIT:
+            case ROLE:
+            case ADMINROLE:
+            case PERMOP:
+                return new String[]{ "description" };
+            case PERMOBJ:
+                return new String[]{ "ou", "description" };
+            default:
+                return new String[0];
+        }
+    }
+
+
+    private static void group( Map<ImportRecord.Type, List<ImportRecord>> groups, ImportRecord record )
+    {
+        List<ImportRecord> group = groups.get( record.getType() );
+        if ( group == null )
+        {
+            group = new ArrayList<>();
+            groups.put( record.getType(), group );
+        }
+        group.add( record );
+    }
+}
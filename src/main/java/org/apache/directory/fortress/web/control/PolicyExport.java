@@ -0,0 +1,432 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Summary;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+
+/**
+ * A dump of the policy, everything but the users, in the fortress ant loader format also used by
+ * FortressWebDemoUsers.xml, so it may be loaded into another directory with the FortressAdmin task, or imported on the
+ * import page.  Written by the {@link PolicyExportServlet}.
+ * <p>
+ * Each entity type is read with its own search, and the searches are started on the {@link Prefetch} pool together.
+ * The document is written with a streaming (StAX) writer, a section as soon as its search is done, and a section's
+ * entities are let go once they've been written.
+ * <p>
+ * The directory doesn't offer a snapshot across searches, so changes made while the export is running may or may not
+ * be in it.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PolicyExport implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
+    @SpringBean
+    private PwPolicyMgr pwPolicyMgr;
+    private final Session session;
+    private final String applicationKey;
+    private final String fileName;
+
+    static final Summary exportLatency = Summary.build()
+            .name("policy_export_latency_seconds")
+            .help("Policy Export Latency In Seconds").register();
+
+
+    /**
+     * @param session of the administrator, whose permissions the searches are checked against.
+     */
+    public PolicyExport( Session session )
+    {
+        Injector.get().inject( this );
+        this.session = session;
+        this.applicationKey = Application.get().getApplicationKey();
+        this.fileName = "fortress-policy-" + new SimpleDateFormat( "yyyyMMdd-HHmmss" ).format( new Date() ) + ".xml.gz";
+    }
+
+
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+
+    /**
+     * Write the policy.  Called by the servlet, where the wicket application isn't otherwise available to the
+     * injected beans.
+     *
+     * @param out receives the document, left open.
+     * @throws SecurityException if a search fails, e.g. the administrator may not run it.
+     * @throws XMLStreamException if the document can't be written.
+     * @throws IOException if the stream can't be written, e.g. the browser went away.
+     */
+    void write( OutputStream out ) throws SecurityException, XMLStreamException, IOException
+    {
+        Summary.Timer timer = exportLatency.startTimer();
+        ThreadContext previous = ThreadContext.get( false );
+        ThreadContext.setApplication( Application.get( applicationKey ) );
+        try
+        {
+            reviewMgr.setAdmin( session );
+            delReviewMgr.setAdmin( session );
+            pwPolicyMgr.setAdmin( session );
+            // none of the searches depend on another, start them all now:
+            Fetch<PwPolicy> policies = new Fetch<>( new Callable<List<PwPolicy>>()
+            {
+                @Override
+                public List<PwPolicy> call() throws SecurityException
+                {
+                    return pwPolicyMgr.search( "" );
+                }
+            } );
+            Fetch<OrgUnit> userOus = new Fetch<>( new Callable<List<OrgUnit>>()
+            {
+                @Override
+                public List<OrgUnit> call() throws SecurityException
+                {
+                    return delReviewMgr.search( OrgUnit.Type.USER, "" );
+                }
+            } );
+            Fetch<OrgUnit> permOus = new Fetch<>( new Callable<List<OrgUnit>>()
+            {
+                @Override
+                public List<OrgUnit> call() throws SecurityException
+                {
+                    return delReviewMgr.search( OrgUnit.Type.PERM, "" );
+                }
+            } );
+            Fetch<Role> roles = new Fetch<>( new Callable<List<Role>>()
+            {
+                @Override
+                public List<Role> call() throws SecurityException
+                {
+                    return reviewMgr.findRoles( "" );
+                }
+            } );
+            Fetch<AdminRole> adminRoles = new Fetch<>( new Callable<List<AdminRole>>()
+            {
+                @Override
+                public List<AdminRole> call() throws SecurityException
+                {
+                    return delReviewMgr.findRoles( "" );
+                }
+            } );
+            Fetch<PermObj> permObjs = new Fetch<>( new PermObjSearch( false ) );
+            Fetch<PermObj> adminPermObjs = new Fetch<>( new PermObjSearch( true ) );
+            Fetch<Permission> perms = new Fetch<>( new PermissionSearch( false ) );
+            Fetch<Permission> adminPerms = new Fetch<>( new PermissionSearch( true ) );
+            Fetch<SDSet> ssds = new Fetch<>( new Callable<List<SDSet>>()
+            {
+                @Override
+                public List<SDSet> call() throws SecurityException
+                {
+                    return reviewMgr.ssdSets( sdSet( SDSet.SDType.STATIC ) );
+                }
+            } );
+            Fetch<SDSet> dsds = new Fetch<>( new Callable<List<SDSet>>()
+            {
+                @Override
+                public List<SDSet> call() throws SecurityException
+                {
+                    return reviewMgr.dsdSets( sdSet( SDSet.SDType.DYNAMIC ) );
+                }
+            } );
+
+            LoaderXmlWriter xml = new LoaderXmlWriter( out, "Fortress Policy Export" );
+
+            // in the order the loader adds them, so each section only refers to entities added before it:
+            xml.startSection( "addpwpolicy" );
+            for ( PwPolicy policy : policies.get() )
+            {
+                xml.entity( "policy" );
+                xml.attribute( "name", policy.getName() );
+                xml.attribute( "minAge", policy.getMinAge() );
+                xml.attribute( "maxAge", policy.getMaxAge() );
+                xml.attribute( "inHistory", policy.getInHistory() );
+                xml.attribute( "checkQuality", policy.getCheckQuality() );
+                xml.attribute( "minLength", policy.getMinLength() );
+                xml.attribute( "expireWarning", policy.getExpireWarning() );
+                xml.attribute( "graceLoginLimit", policy.getGraceLoginLimit() );
+                xml.attribute( "lockout", policy.getLockout() );
+                xml.attribute( "lockoutDuration", policy.getLockoutDuration() );
+                xml.attribute( "maxFailure", policy.getMaxFailure() );
+                xml.attribute( "failureCountInterval", policy.getFailureCountInterval() );
+                xml.attribute( "mustChange", policy.getMustChange() );
+                xml.attribute( "allowUserChange", policy.getAllowUserChange() );
+                xml.attribute( "safeModify", policy.getSafeModify() );
+            }
+            xml.endSection();
+
+            xml.startSection( "addorgunit" );
+            writeOrgUnits( xml, userOus.get() );
+            writeOrgUnits( xml, permOus.get() );
+            xml.endSection();
+
+            List<Role> roleList = roles.get();
+            xml.startSection( "addrole" );
+            for ( Role role : roleList )
+            {
+                xml.entity( "role" );
+                xml.attribute( "name", role.getName() );
+                xml.attribute( "description", role.getDescription() );
+            }
+            xml.endSection();
+            xml.startSection( "addroleinheritance" );
+            writeInheritance( xml, roleList );
+            xml.endSection();
+            roleList = null;
+
+            List<AdminRole> adminRoleList = adminRoles.get();
+            xml.startSection( "addadminrole" );
+            for ( AdminRole role : adminRoleList )
+            {
+                xml.entity( "role" );
+                xml.attribute( "name", role.getName() );
+                xml.attribute( "description", role.getDescription() );
+                xml.attribute( "osps", StringUtils.join( role.getOsPSet(), ',' ) );
+                xml.attribute( "osus", StringUtils.join( role.getOsUSet(), ',' ) );
+                xml.attribute( "beginrange", role.getBeginRange() );
+                xml.attribute( "endrange", role.getEndRange() );
+                xml.attribute( "begininclusive", StringUtils.isNotEmpty( role.getBeginRange() ) ?
+                    String.valueOf( role.isBeginInclusive() ) : null );
+                xml.attribute( "endinclusive", StringUtils.isNotEmpty( role.getEndRange() ) ?
+                    String.valueOf( role.isEndInclusive() ) : null );
+            }
+            xml.endSection();
+            xml.startSection( "addadminroleinheritance" );
+            writeInheritance( xml, adminRoleList );
+            xml.endSection();
+            adminRoleList = null;
+
+            xml.startSection( "addpermobj" );
+            writePermObjs( xml, permObjs.get() );
+            writePermObjs( xml, adminPermObjs.get() );
+            xml.endSection();
+
+            List<Permission> permList = perms.get();
+            List<Permission> adminPermList = adminPerms.get();
+            xml.startSection( "addpermop" );
+            writePermOps( xml, permList );
+            writePermOps( xml, adminPermList );
+            xml.endSection();
+            xml.startSection( "addpermgrant" );
+            writePermGrants( xml, permList );
+            writePermGrants( xml, adminPermList );
+            xml.endSection();
+            permList = null;
+            adminPermList = null;
+
+            xml.startSection( "addsdset" );
+            writeSdSets( xml, ssds.get(), "SSD" );
+            writeSdSets( xml, dsds.get(), "DSD" );
+            xml.endSection();
+
+            xml.finish();
+        }
+        finally
+        {
+            ThreadContext.restore( previous );
+            timer.observeDuration();
+        }
+    }
+
+
+    private static void writeOrgUnits( LoaderXmlWriter xml, List<OrgUnit> orgUnits ) throws XMLStreamException
+    {
+        for ( OrgUnit orgUnit : orgUnits )
+        {
+            xml.entity( "orgunit" );
+            xml.attribute( "name", orgUnit.getName() );
+            xml.attribute( "typeName", orgUnit.getType() != null ? orgUnit.getType().name() : null );
+            xml.attribute( "description", orgUnit.getDescription() );
+        }
+    }
+
+
+    private static void writeInheritance( LoaderXmlWriter xml, List<? extends Role> roles ) throws XMLStreamException
+    {
+        for ( Role role : roles )
+        {
+            if ( role.getParents() == null )
+            {
+                continue;
+            }
+            for ( String parent : role.getParents() )
+            {
+                xml.entity( "relationship" );
+                xml.attribute( "child", role.getName() );
+                xml.attribute( "parent", parent );
+            }
+        }
+    }
+
+
+    private static void writePermObjs( LoaderXmlWriter xml, List<PermObj> permObjs ) throws XMLStreamException
+    {
+        for ( PermObj permObj : permObjs )
+        {
+            xml.entity( "permobj" );
+            xml.attribute( "objName", permObj.getObjName() );
+            xml.attribute( "description", permObj.getDescription() );
+            xml.attribute( "ou", permObj.getOu() );
+            xml.attribute( "type", permObj.getType() );
+            xml.attribute( "admin", permObj.isAdmin() ? "true" : null );
+        }
+    }
+
+
+    private static void writePermOps( LoaderXmlWriter xml, List<Permission> perms ) throws XMLStreamException
+    {
+        for ( Permission perm : perms )
+        {
+            xml.entity( "permop" );
+            xml.attribute( "objName", perm.getObjName() );
+            xml.attribute( "opName", perm.getOpName() );
+            xml.attribute( "objId", perm.getObjId() );
+            xml.attribute( "description", perm.getDescription() );
+            xml.attribute( "type", perm.getType() );
+            xml.attribute( "admin", perm.isAdmin() ? "true" : null );
+        }
+    }
+
+
+    private static void writePermGrants( LoaderXmlWriter xml, List<Permission> perms ) throws XMLStreamException
+    {
+        for ( Permission perm : perms )
+        {
+            if ( perm.getRoles() == null )
+            {
+                continue;
+            }
+            for ( String role : perm.getRoles() )
+            {
+                xml.entity( "permgrant" );
+                xml.attribute( "objName", perm.getObjName() );
+                xml.attribute( "opName", perm.getOpName() );
+                xml.attribute( "objId", perm.getObjId() );
+                xml.attribute( "roleNm", role );
+                xml.attribute( "admin", perm.isAdmin() ? "true" : null );
+            }
+        }
+    }
+
+
+    private static void writeSdSets( LoaderXmlWriter xml, List<SDSet> sdSets, String type ) throws XMLStreamException
+    {
+        for ( SDSet sdSet : sdSets )
+        {
+            xml.entity( "sdset" );
+            xml.attribute( "name", sdSet.getName() );
+            xml.attribute( "description", sdSet.getDescription() );
+            xml.attribute( "members", sdSet.getMembers() != null ? StringUtils.join( sdSet.getMembers(), ',' ) : null );
+            xml.attribute( "cardinality", sdSet.getCardinality() );
+            xml.attribute( "type", type );
+        }
+    }
+
+
+
+
+
+
+
+    private static SDSet sdSet( SDSet.SDType type )
+    {
+        SDSet sdSet = new SDSet();
+        sdSet.setName( "" );
+        sdSet.setType( type );
+        return sdSet;
+    }
+
+
+    private class PermObjSearch implements Callable<List<PermObj>>
+    {
+        private final boolean admin;
+
+
+        PermObjSearch( boolean admin )
+        {
+            this.admin = admin;
+        }
+
+
+        @Override
+        public List<PermObj> call() throws SecurityException
+        {
+            PermObj permObj = new PermObj( "" );
+            permObj.setAdmin( admin );
+            return reviewMgr.findPermObjs( permObj );
+        }
+    }
+
+
+    private class PermissionSearch implements Callable<List<Permission>>
+    {
+        private final boolean admin;
+
+
+        PermissionSearch( boolean admin )
+        {
+            this.admin = admin;
+        }
+
+
+        @Override
+        public List<Permission> call() throws SecurityException
+        {
+            Permission perm = new Permission( "", "" );
+            perm.setAdmin( admin );
+            return reviewMgr.findPermissions( perm );
+        }
+    }
+}
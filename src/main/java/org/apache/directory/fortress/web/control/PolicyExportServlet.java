@@ -0,0 +1,120 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.log4j.Logger;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Downloads the policy as gzipped fortress loader xml, see {@link PolicyExport}.  The document is compressed and sent
+ * as it's written, so neither it nor the compressed file is held in memory.
+ * <p>
+ * The export is written on the request thread: its searches run on the {@link Prefetch} pool, and that pool's tasks
+ * shouldn't be waited on from another of its tasks.
+ * <p>
+ * Exports are registered by the import page with {@link #register}, under a random token kept in the administrator's
+ * http session.  Each may be downloaded once.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PolicyExportServlet extends HttpServlet
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( PolicyExportServlet.class.getName() );
+    /** Where the servlet is mapped in web.xml */
+    public static final String MOUNT_PATH = "/policy/export";
+    private static final String TOKEN_PARAM = "token";
+    private static final String ATTRIBUTE_PREFIX = PolicyExportServlet.class.getName() + ".";
+
+    static final Counter exportRequests = Counter.build()
+            .name("policy_export_requests_total")
+            .help("Policy Export Requests Total")
+            .labelNames( "result" )
+            .register();
+
+
+    /**
+     * Keep an export in the http session of the current wicket request, to be downloaded by the browser.
+     *
+     * @param export the policy to download.
+     * @return the url to download it from.
+     */
+    public static String register( PolicyExport export )
+    {
+        HttpServletRequest request = ( HttpServletRequest ) RequestCycle.get().getRequest().getContainerRequest();
+        String token = UUID.randomUUID().toString();
+        request.getSession().setAttribute( ATTRIBUTE_PREFIX + token, export );
+        return request.getContextPath() + MOUNT_PATH + "?" + TOKEN_PARAM + "=" + token;
+    }
+
+
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        HttpSession session = request.getSession( false );
+        String token = request.getParameter( TOKEN_PARAM );
+        PolicyExport export = ( session == null || token == null ) ? null :
+            ( PolicyExport ) session.getAttribute( ATTRIBUTE_PREFIX + token );
+        if ( export == null )
+        {
+            exportRequests.labels( "expired" ).inc();
+            response.sendError( HttpServletResponse.SC_NOT_FOUND );
+            return;
+        }
+        session.removeAttribute( ATTRIBUTE_PREFIX + token );
+
+        response.setContentType( "application/gzip" );
+        response.setHeader( "Content-Disposition", "attachment; filename=\"" + export.getFileName() + "\"" );
+        try
+        {
+            GZIPOutputStream out = new GZIPOutputStream( response.getOutputStream() );
+            export.write( out );
+            out.finish();
+            out.flush();
+            exportRequests.labels( "completed" ).inc();
+        }
+        catch ( SecurityException | XMLStreamException | RuntimeException | IOException e )
+        {
+            LOG.warn( ".doGet export " + export.getFileName() + " caught " + e );
+            exportRequests.labels( "failed" ).inc();
+            // once the first bytes have gone the browser can only be told by the download breaking off:
+            if ( !response.isCommitted() )
+            {
+                response.reset();
+                response.sendError( HttpServletResponse.SC_INTERNAL_SERVER_ERROR );
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Application;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * Runs the data fetches of a page in the background, so they start as soon as the page is constructed and run in
+ * parallel, rather than one after the other as each lazy panel is requested.  The lazy panels pick the results up
+ * with {@link #get}, and so only wait for whatever is still outstanding.
+ * <p>
+ * Tasks run with the wicket application and session of the submitting thread attached, so may use injected beans.
+ * When the pool is saturated, or a fetch is still queued when the wait times out, callers get nothing back and load
+ * the data themselves.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class Prefetch
+{
+    private static final Logger LOG = Logger.getLogger( Prefetch.class.getName() );
+    private static final int THREADS = Config.getInstance().getInt( GlobalIds.PREFETCH_THREADS, 8 );
+    private static final int QUEUE = Config.getInstance().getInt( GlobalIds.PREFETCH_QUEUE, 100 );
+    private static final long TIMEOUT_SECONDS = Config.getInstance().getInt( GlobalIds.PREFETCH_TIMEOUT_SECONDS, 60 );
+    private static final Object LOCK = new Object();
+    private static FanOutExecutor executor;
+
+    static final Counter prefetchRequests = Counter.build()
+            .name("prefetch_requests_total")
+            .help("Page Data Prefetch Requests Total")
+            .labelNames( "result" )
+            .register();
+    static final Summary prefetchWait = Summary.build()
+            .name("prefetch_wait_latency_seconds")
+            .help("Time Spent Waiting For Prefetched Page Data In Seconds").register();
+
+
+    private Prefetch()
+    {
+    }
+
+
+    /**
+     * Start a fetch in the background.
+     *
+     * @param task loads the data, typically a fortress manager call.
+     * @return the pending result, or null if the fetch couldn't be started.
+     */
+    public static <T> Future<T> submit( final Callable<T> task )
+    {
+        try
+        {
+            return executor().submit( attach( task ) );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            prefetchRequests.labels( "rejected" ).inc();
+            LOG.debug( ".submit pool saturated, fetch left to the caller" );
+            return null;
+        }
+    }
+
+
+    /**
+     * Wrap a task so it runs with the wicket application and session of the calling thread attached.
+     *
+     * @param task to be run by another thread.
+     * @return the wrapped task.
+     */
+    static <T> Callable<T> attach( final Callable<T> task )
+    {
+        final Application application = ThreadContext.getApplication();
+        final Session session = ThreadContext.getSession();
+        return new Callable<T>()
+        {
+            @Override
+            public T call() throws Exception
+            {
+                ThreadContext previous = ThreadContext.get( false );
+                ThreadContext.setApplication( application );
+                ThreadContext.setSession( session );
+                try
+                {
+                    return task.call();
+                }
+                finally
+                {
+                    ThreadContext.restore( previous );
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Wait for a fetch started by {@link #submit}.
+     *
+     * @param future as returned by submit, may be null.
+     * @return the result, or null if it isn't available and must be loaded by the caller.
+     * @throws RuntimeException as thrown by the fetch.
+     */
+    public static <T> T get( Future<T> future )
+    {
+        try
+        {
+            return await( future );
+        }
+        catch ( RuntimeException e )
+        {
+            throw e;
+        }
+        catch ( InterruptedException e )
+        {
+            return null;
+        }
+        catch ( Exception e )
+        {
+            LOG.warn( ".get fetch failed, retrying on the request thread: " + e );
+            return null;
+        }
+    }
+
+
+    /**
+     * Wait for a fetch started by {@link #submit}, and rethrow what it failed with.  A fetch that times out while
+     * still queued is cancelled, one that is already running is waited for, as starting it again would only add to
+     * the load that's slowing it down.
+     *
+     * @param future as returned by submit, may be null.
+     * @return the result, or null if the fetch never ran and must be loaded by the caller.
+     * @throws Exception as thrown by the fetch, or InterruptedException if the caller was interrupted.
+     */
+    static <T> T await( Future<T> future ) throws Exception
+    {
+        if ( future == null )
+        {
+            return null;
+        }
+        Summary.Timer timer = prefetchWait.startTimer();
+        try
+        {
+            T result;
+            try
+            {
+                result = future.get( TIMEOUT_SECONDS, TimeUnit.SECONDS );
+            }
+            catch ( TimeoutException e )
+            {
+                prefetchRequests.labels( "timeout" ).inc();
+                if ( future.cancel( false ) )
+                {
+                    LOG.warn( ".get fetch still queued after " + TIMEOUT_SECONDS + " seconds, running it on the "
+                        + "request thread" );
+                    return null;
+                }
+                result = future.get();
+            }
+            prefetchRequests.labels( "used" ).inc();
+            return result;
+        }
+        catch ( ExecutionException e )
+        {
+            prefetchRequests.labels( "failed" ).inc();
+            if ( e.getCause() instanceof Exception )
+            {
+                throw ( Exception ) e.getCause();
+            }
+            if ( e.getCause() instanceof Error )
+            {
+                throw ( Error ) e.getCause();
+            }
+            throw e;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            future.cancel( true );
+            throw e;
+        }
+        finally
+        {
+            timer.observeDuration();
+        }
+    }
+
+
+    /**
+     * Stop the pool, called when the application is destroyed.
+     */
+    public static void stop()
+    {
+        synchronized ( LOCK )
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+
+    private static FanOutExecutor executor()
+    {
+        synchronized ( LOCK )
+        {
+            if ( executor == null )
+            {
+                executor = FanOutExecutor.newInstance( "fortress-prefetch", THREADS, QUEUE );
+            }
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * Case insensitive prefix index over a set of names, held as two parallel sorted arrays.
+ * <p>
+ * Lookups binary search the immutable snapshot and never block.  Updates copy the arrays under a lock and publish a
+ * new snapshot, which is cheap relative to the rate entities are saved through the admin pages.  Names whose lower
+ * case form is the same string share a single instance.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PrefixIndex
+{
+    private static final String[] EMPTY = new String[0];
+
+    private volatile Snapshot snapshot = new Snapshot( EMPTY, EMPTY );
+
+
+    /**
+     * Sorted lower case keys and the names they were derived from, at the same positions.
+     */
+    private static class Snapshot
+    {
+        private final String[] keys;
+        private final String[] names;
+
+
+        private Snapshot( String[] keys, String[] names )
+        {
+            this.keys = keys;
+            this.names = names;
+        }
+    }
+
+
+    /**
+     * Replace the contents of the index.
+     *
+     * @param values names to be indexed, nulls and duplicates are ignored.
+     */
+    public synchronized void load( Collection<String> values )
+    {
+        List<String[]> pairs = new ArrayList<>( values.size() );
+        for ( String value : values )
+        {
+            if ( value != null && value.length() > 0 )
+            {
+                pairs.add( new String[]{ key( value ), value } );
+            }
+        }
+        String[][] sorted = pairs.toArray( new String[pairs.size()][] );
+        Arrays.sort( sorted, new Comparator<String[]>()
+        {
+            @Override
+            public int compare( String[] p1, String[] p2 )
+            {
+                return p1[0].compareTo( p2[0] );
+            }
+        } );
+        String[] keys = new String[sorted.length];
+        String[] names = new String[sorted.length];
+        int size = 0;
+        for ( String[] pair : sorted )
+        {
+            if ( size > 0 && keys[size - 1].equals( pair[0] ) )
+            {
+                continue;
+            }
+            keys[size] = pair[0];
+            names[size] = pair[0].equals( pair[1] ) ? pair[0] : pair[1];
+            size++;
+        }
+        snapshot = new Snapshot( Arrays.copyOf( keys, size ), Arrays.copyOf( names, size ) );
+    }
+
+
+    /**
+     * Add a name, or replace the spelling of one that differs only by case.
+     *
+     * @param value name to be indexed.
+     */
+    public synchronized void add( String value )
+    {
+        if ( value == null || value.length() == 0 )
+        {
+            return;
+        }
+        String key = key( value );
+        Snapshot current = snapshot;
+        int pos = Arrays.binarySearch( current.keys, key );
+        if ( pos >= 0 )
+        {
+            String[] names = current.names.clone();
+            names[pos] = key.equals( value ) ? current.keys[pos] : value;
+            snapshot = new Snapshot( current.keys, names );
+            return;
+        }
+        int insert = -pos - 1;
+        int size = current.keys.length;
+        String[] keys = new String[size + 1];
+        String[] names = new String[size + 1];
+        System.arraycopy( current.keys, 0, keys, 0, insert );
+        System.arraycopy( current.names, 0, names, 0, insert );
+        keys[insert] = key;
+        names[insert] = key.equals( value ) ? key : value;
+        System.arraycopy( current.keys, insert, keys, insert + 1, size - insert );
+        System.arraycopy( current.names, insert, names, insert + 1, size - insert );
+        snapshot = new Snapshot( keys, names );
+    }
+
+
+    /**
+     * Remove a name, case insensitive.
+     *
+     * @param value name to be removed.
+     */
+    public synchronized void remove( String value )
+    {
+        if ( value == null )
+        {
+            return;
+        }
+        Snapshot current = snapshot;
+        int pos = Arrays.binarySearch( current.keys, key( value ) );
+        if ( pos < 0 )
+        {
+            return;
+        }
+        int size = current.keys.length;
+        String[] keys = new String[size - 1];
+        String[] names = new String[size - 1];
+        System.arraycopy( current.keys, 0, keys, 0, pos );
+        System.arraycopy( current.names, 0, names, 0, pos );
+        System.arraycopy( current.keys, pos + 1, keys, pos, size - pos - 1 );
+        System.arraycopy( current.names, pos + 1, names, pos, size - pos - 1 );
+        snapshot = new Snapshot( keys, names );
+    }
+
+
+    /**
+     * Return names that start with the given prefix, case insensitive, in sorted order.
+     *
+     * @param prefix contains the leading characters typed by the user.
+     * @param limit maximum number of names to return.
+     * @return list of matching names, empty if none.
+     */
+    public List<String> find( String prefix, int limit )
+    {
+        Snapshot current = snapshot;
+        String key = prefix == null ? "" : key( prefix );
+        int pos = Arrays.binarySearch( current.keys, key );
+        if ( pos < 0 )
+        {
+            pos = -pos - 1;
+        }
+        List<String> matches = new ArrayList<>( Math.min( limit, 16 ) );
+        for ( int i = pos; i < current.keys.length && matches.size() < limit; i++ )
+        {
+            if ( !current.keys[i].startsWith( key ) )
+            {
+                break;
+            }
+            matches.add( current.names[i] );
+        }
+        return matches;
+    }
+
+
+    /**
+     * @return number of names held.
+     */
+    public int size()
+    {
+        return snapshot.keys.length;
+    }
+
+
+    private static String key( String value )
+    {
+        return value.toLowerCase( Locale.ENGLISH );
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.wicket.core.util.lang.WicketObjects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Application wide cache in front of the review queries run by the list models, shared by every administrator with the
+ * same ARBAC scope.
+ * <p>
+ * Entries are keyed by region, the administrator's scope and the query, and are bounded in number (LRU) and in age.
+ * A region is invalidated as soon as an entity of its type is added, updated or deleted through a detail panel, see
+ * {@link #onSave}.  Changes made outside this application become visible once entries expire.  Callers receive a copy
+ * of the cached list, since the panels edit the selected entity in place.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class ReviewCache
+{
+    private static final int MAX_ENTRIES = Config.getInstance().getInt( GlobalIds.REVIEW_CACHE_MAX_ENTRIES, 1000 );
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(
+        Config.getInstance().getInt( GlobalIds.REVIEW_CACHE_TTL_SECONDS, 120 ) );
+    private static final boolean ENABLED = Config.getInstance().getBoolean( GlobalIds.REVIEW_CACHE_ENABLED, true );
+
+    static final Counter cacheRequests = Counter.build()
+            .name("reviewCache_requests_total")
+            .help("Review Query Cache Requests Total")
+            .labelNames( "region", "result" )
+            .register();
+    static final Counter cacheEvictions = Counter.build()
+            .name("reviewCache_evictions_total")
+            .help("Review Query Cache Evictions Total")
+            .labelNames( "reason" )
+            .register();
+    static final Gauge cacheEntries = Gauge.build()
+            .name("reviewCache_entries")
+            .help("Review Query Cache Entries").register();
+
+    // bumped on invalidation so a load that raced with a save doesn't cache stale results:
+    private static final Map<Region, Long> GENERATIONS = new EnumMap<>( Region.class );
+    private static final Map<String, Entry> CACHE = new LinkedHashMap<String, Entry>( 64, 0.75f, true )
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest )
+        {
+            if ( size() > MAX_ENTRIES )
+            {
+                cacheEvictions.labels( "size" ).inc();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * The entity types cached, each invalidated as a unit.
+     */
+    public enum Region
+    {
+        ROLE,
+        ADMIN_ROLE,
+        PERM_OBJ,
+        SSD,
+        DSD,
+        POLICY
+    }
+
+
+    /**
+     * A review query, typically wrapping a single fortress manager call.
+     */
+    public interface Query<T>
+    {
+        List<T> load() throws SecurityException;
+    }
+
+
+    private static class Entry
+    {
+        private final Region region;
+        private final List<?> value;
+        private final long created = System.currentTimeMillis();
+
+
+        private Entry( Region region, List<?> value )
+        {
+            this.region = region;
+            this.value = value;
+        }
+    }
+
+    static
+    {
+        for ( Region region : Region.values() )
+        {
+            GENERATIONS.put( region, 0L );
+        }
+    }
+
+
+    private ReviewCache()
+    {
+    }
+
+
+    /**
+     * Return the administrator's ARBAC scope, i.e. the admin roles activated in the session.  Administrators with the
+     * same admin roles are allowed the same review results and so share cache entries.
+     *
+     * @param session fortress session of the administrator, may be null for trusted queries.
+     * @return the scope to be passed to {@link #get}.
+     */
+    public static String scope( Session session )
+    {
+        if ( session == null )
+        {
+            return "";
+        }
+        List<String> names = new ArrayList<>();
+        if ( session.getAdminRoles() != null )
+        {
+            for ( UserAdminRole adminRole : session.getAdminRoles() )
+            {
+                names.add( adminRole.getName().toLowerCase() );
+            }
+        }
+        if ( names.isEmpty() )
+        {
+            // without admin roles the results depend on the user alone:
+            return "user:" + session.getUserId();
+        }
+        Collections.sort( names );
+        return names.toString();
+    }
+
+
+    /**
+     * Return a copy of the cached query results, running the query on a miss.
+     *
+     * @param region entity type returned by the query.
+     * @param scope as returned by {@link #scope(Session)}.
+     * @param query identifies the query and its arguments, e.g. 'findRoles:' + searchVal.
+     * @param loader runs the query.
+     * @return the query results, may be null if the query returned null.
+     * @throws SecurityException as thrown by the query.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> get( Region region, String scope, String query, Query<T> loader ) throws
+        SecurityException
+    {
+        if ( !ENABLED )
+        {
+            return loader.load();
+        }
+        String key = region + "|" + scope + "|" + query;
+        long generation;
+        synchronized ( CACHE )
+        {
+            Entry entry = CACHE.get( key );
+            if ( entry != null && System.currentTimeMillis() - entry.created > TTL_MILLIS )
+            {
+                CACHE.remove( key );
+                cacheEvictions.labels( "ttl" ).inc();
+                entry = null;
+            }
+            if ( entry != null )
+            {
+                cacheRequests.labels( region.name(), "hit" ).inc();
+                return copy( ( List<T> ) entry.value );
+            }
+            generation = GENERATIONS.get( region );
+        }
+        cacheRequests.labels( region.name(), "miss" ).inc();
+        List<T> value = loader.load();
+        if ( value != null )
+        {
+            List<T> cached = copy( value );
+            synchronized ( CACHE )
+            {
+                if ( GENERATIONS.get( region ) == generation )
+                {
+                    CACHE.put( key, new Entry( region, cached ) );
+                    cacheEntries.set( CACHE.size() );
+                }
+            }
+        }
+        return value;
+    }
+
+
+    /**
+     * Drop every entry of a region.
+     *
+     * @param region entity type that changed.
+     */
+    public static void invalidate( Region region )
+    {
+        synchronized ( CACHE )
+        {
+            GENERATIONS.put( region, GENERATIONS.get( region ) + 1 );
+            for ( Iterator<Entry> it = CACHE.values().iterator(); it.hasNext(); )
+            {
+                if ( it.next().region == region )
+                {
+                    it.remove();
+                    cacheEvictions.labels( "invalidated" ).inc();
+                }
+            }
+            cacheEntries.set( CACHE.size() );
+        }
+    }
+
+
+    /**
+     * Invalidate the regions affected by an entity saved through a detail panel.
+     *
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity == null || operation == null || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        // AdminRole extends Role so must be tested first:
+        if ( entity instanceof AdminRole )
+        {
+            invalidate( Region.ADMIN_ROLE );
+        }
+        else if ( entity instanceof Role )
+        {
+            invalidate( Region.ROLE );
+            if ( operation == SaveModelEvent.Operations.DELETE )
+            {
+                // fortress removes a deleted role from the sets it was a member of:
+                invalidate( Region.SSD );
+                invalidate( Region.DSD );
+            }
+        }
+        else if ( entity instanceof PermObj )
+        {
+            invalidate( Region.PERM_OBJ );
+        }
+        else if ( entity instanceof SDSet )
+        {
+            invalidate( ( ( SDSet ) entity ).getType() == SDSet.SDType.DYNAMIC ? Region.DSD : Region.SSD );
+        }
+        else if ( entity instanceof PwPolicy )
+        {
+            invalidate( Region.POLICY );
+        }
+    }
+
+
+    private static <T> List<T> copy( List<T> value )
+    {
+        return WicketObjects.cloneObject( new ArrayList<>( value ) );
+    }
+}
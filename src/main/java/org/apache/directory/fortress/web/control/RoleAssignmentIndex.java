@@ -0,0 +1,640 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Index of the RBAC roles every user is authorized for, i.e. assigned or inherited through the role hierarchy, held as
+ * one row of bits per user, a bit per role.  Used to find the users a new or changed SSD or DSD set would constrain
+ * before it's saved, see {@link #check}: a user is constrained when authorized for at least the set's cardinality of
+ * its members, as fortress would then refuse the user another of them.  That's a masked bit count per user, so
+ * checking every user takes milliseconds.
+ * <p>
+ * Indexes are built from a search of every user and every role, shared by administrators with the same ARBAC scope,
+ * and reused for 'sd.impact.index.ttl.seconds' (default 300).  They are dropped as soon as a user, a user's role
+ * assignment or a role is saved through this application, see {@link #onSave}, so only changes made outside it wait
+ * for the index to expire.  Temporal constraints of the assignments aren't considered.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class RoleAssignmentIndex
+{
+    private static final Logger LOG = Logger.getLogger( RoleAssignmentIndex.class.getName() );
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(
+        Config.getInstance().getInt( GlobalIds.SD_IMPACT_INDEX_TTL_SECONDS, 300 ) );
+    private static final int MAX_INDEXES = 4;
+    private static final int DEFAULT_CARDINALITY = 2;
+    private static final Object LOCK = new Object();
+
+    static final Summary buildLatency = Summary.build()
+            .name("roleAssignmentIndex_build_latency_seconds")
+            .help("Role Assignment Index Build Time seconds")
+            .register();
+    static final Summary checkLatency = Summary.build()
+            .name("sdImpact_latency_seconds")
+            .help("SD Set Impact Check Time seconds")
+            .register();
+    static final Counter indexRequests = Counter.build()
+            .name("roleAssignmentIndex_requests_total")
+            .help("Role Assignment Index Requests Total")
+            .labelNames( "result" )
+            .register();
+
+    // guarded by LOCK, bumped on invalidation so a build that raced with a save isn't kept:
+    private static long generation;
+    private static final Map<String, RoleAssignmentIndex> INDEXES = new LinkedHashMap<String, RoleAssignmentIndex>(
+        8, 0.75f, true )
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, RoleAssignmentIndex> eldest )
+        {
+            return size() > MAX_INDEXES;
+        }
+    };
+
+    private final String[] userIds;
+    private final String[] roleNames;
+    private final Map<String, Integer> roleBits;
+    private final int words;
+    // the bits of each role and its ancestors, by the role's bit:
+    private final int[][] inherited;
+    // the rows of every user, one after the other, words long:
+    private final long[] authorized;
+    private final long created = System.currentTimeMillis();
+
+
+    /**
+     * A user who would be constrained by a set.
+     */
+    public static final class Conflict implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String userId;
+        private final List<String> roles;
+
+
+        Conflict( String userId, List<String> roles )
+        {
+            this.userId = userId;
+            this.roles = roles;
+        }
+
+
+        public String getUserId()
+        {
+            return userId;
+        }
+
+
+        /**
+         * @return the set's members the user is authorized for.
+         */
+        public List<String> getRoles()
+        {
+            return roles;
+        }
+    }
+
+
+    /**
+     * The users a set would constrain.
+     */
+    public static final class Impact implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final int cardinality;
+        private final int checked;
+        private final List<String> unknown = new ArrayList<>();
+        private final List<Conflict> shown = new ArrayList<>();
+        private int total;
+
+
+        private Impact( int cardinality, int checked )
+        {
+            this.cardinality = cardinality;
+            this.checked = checked;
+        }
+
+
+        public int getCardinality()
+        {
+            return cardinality;
+        }
+
+
+        /**
+         * @return the number of users checked.
+         */
+        public int getChecked()
+        {
+            return checked;
+        }
+
+
+        /**
+         * @return the number of users constrained, maybe more than are shown.
+         */
+        public int getTotal()
+        {
+            return total;
+        }
+
+
+        /**
+         * @return the first of the users constrained, in the order found.
+         */
+        public List<Conflict> getShown()
+        {
+            return shown;
+        }
+
+
+        /**
+         * @return the set's members that aren't roles in the directory.
+         */
+        public List<String> getUnknown()
+        {
+            return unknown;
+        }
+    }
+
+
+    /**
+     * Build an index from the results of a search of every user and every role.
+     *
+     * @param users as found, with their role assignments.
+     * @param roles as found, with their parents.
+     */
+    RoleAssignmentIndex( List<User> users, List<Role> roles )
+    {
+        roleBits = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for ( Role role : roles )
+        {
+            bit( role.getName(), names );
+        }
+        // the parents of every role, by bit, and of every role named by an assignment if not found by the search:
+        Map<Integer, Collection<String>> parents = new HashMap<>();
+        for ( Role role : roles )
+        {
+            if ( role.getParents() != null )
+            {
+                parents.put( bit( role.getName(), names ), role.getParents() );
+            }
+        }
+        userIds = new String[users.size()];
+        for ( User user : users )
+        {
+            if ( user.getRoles() != null )
+            {
+                for ( UserRole userRole : user.getRoles() )
+                {
+                    bit( userRole.getName(), names );
+                }
+            }
+        }
+        inherited = closure( parents, names );
+        roleNames = names.toArray( new String[names.size()] );
+        words = Math.max( 1, ( roleNames.length + 63 ) >>> 6 );
+        authorized = new long[users.size() * words];
+        int row = 0;
+        for ( User user : users )
+        {
+            userIds[row] = user.getUserId();
+            if ( user.getRoles() != null )
+            {
+                int base = row * words;
+                for ( UserRole userRole : user.getRoles() )
+                {
+                    for ( int bit : inherited[roleBits.get( key( userRole.getName() ) )] )
+                    {
+                        authorized[base + ( bit >>> 6 )] |= 1L << bit;
+                    }
+                }
+            }
+            row++;
+        }
+    }
+
+
+    /**
+     * Return the index for an administrator, building it if there's none, or it has expired.
+     *
+     * @param reviewMgr searches the users and roles, already set with the administrator's session.
+     * @param session of the administrator, whose ARBAC scope the index is shared by.
+     * @return the index.
+     * @throws SecurityException if the users or roles couldn't be searched.
+     */
+    public static RoleAssignmentIndex get( final ReviewMgr reviewMgr, Session session ) throws SecurityException
+    {
+        String scope = ReviewCache.scope( session );
+        long built;
+        synchronized ( LOCK )
+        {
+            RoleAssignmentIndex index = INDEXES.get( scope );
+            if ( index != null && System.currentTimeMillis() - index.created <= TTL_MILLIS )
+            {
+                indexRequests.labels( "hit" ).inc();
+                return index;
+            }
+            built = generation;
+        }
+        indexRequests.labels( "miss" ).inc();
+        Summary.Timer timer = buildLatency.startTimer();
+        Fetch<Role> roleFetch = new Fetch<>( new Callable<List<Role>>()
+        {
+            @Override
+            public List<Role> call() throws SecurityException
+            {
+                return reviewMgr.findRoles( "" );
+            }
+        } );
+        List<User> users = reviewMgr.findUsers( new User( "" ) );
+        List<Role> roles = roleFetch.get();
+        RoleAssignmentIndex index = new RoleAssignmentIndex( users != null ? users : new ArrayList<User>(),
+            roles != null ? roles : new ArrayList<Role>() );
+        timer.observeDuration();
+        LOG.info( ".get built index of " + index.userIds.length + " users and " + index.roleNames.length + " roles" );
+        synchronized ( LOCK )
+        {
+            if ( generation == built )
+            {
+                INDEXES.put( scope, index );
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * Drop every index.
+     */
+    public static void invalidate()
+    {
+        synchronized ( LOCK )
+        {
+            generation++;
+            INDEXES.clear();
+        }
+    }
+
+
+    /**
+     * Drop the indexes when a user or RBAC role is saved.
+     *
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity == null || operation == null || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        if ( entity instanceof User || entity instanceof UserRole || ( entity instanceof Role && !( entity
+            instanceof AdminRole ) ) )
+        {
+            invalidate();
+        }
+    }
+
+
+    /**
+     * Find the users a set would constrain, those authorized for at least its cardinality of its members.
+     *
+     * @param sdSet as it would be saved.
+     * @param maxShown the most users to return, the rest are only counted.
+     * @return the users found.
+     */
+    public Impact check( SDSet sdSet, int maxShown )
+    {
+        Summary.Timer timer = checkLatency.startTimer();
+        int cardinality = cardinality( sdSet );
+        Impact impact = new Impact( cardinality, userIds.length );
+        long[] mask = mask( sdSet.getMembers(), impact.unknown );
+        for ( int row : constrained( mask, cardinality ) )
+        {
+            if ( impact.total++ < maxShown )
+            {
+                impact.shown.add( new Conflict( userIds[row], roles( authorized, row * words, mask ) ) );
+            }
+        }
+        timer.observeDuration();
+        return impact;
+    }
+
+
+    /**
+     * Return the bits of a set's members.
+     *
+     * @param members role names, may be null.
+     * @param unknown has the members that aren't roles of the index added, may be null.
+     * @return a row of bits.
+     */
+    long[] mask( Collection<String> members, List<String> unknown )
+    {
+        long[] mask = new long[words];
+        if ( members != null )
+        {
+            for ( String member : members )
+            {
+                Integer bit = roleBits.get( key( member ) );
+                if ( bit != null )
+                {
+                    mask[bit >>> 6] |= 1L << bit;
+                }
+                else if ( unknown != null )
+                {
+                    unknown.add( member );
+                }
+            }
+        }
+        return mask;
+    }
+
+
+    /**
+     * Return the users authorized for at least a cardinality of the roles of a mask.
+     *
+     * @param mask as returned by {@link #mask}.
+     * @param cardinality of the set.
+     * @return the rows of the users, in ascending order.
+     */
+    int[] constrained( long[] mask, int cardinality )
+    {
+        // only the words holding members are counted:
+        int masked = 0;
+        int[] maskIndex = new int[words];
+        long[] maskWords = new long[words];
+        for ( int i = 0; i < words; i++ )
+        {
+            if ( mask[i] != 0 )
+            {
+                maskIndex[masked] = i;
+                maskWords[masked++] = mask[i];
+            }
+        }
+        int[] rows = new int[16];
+        int found = 0;
+        for ( int row = 0, base = 0; row < userIds.length; row++, base += words )
+        {
+            int count = 0;
+            for ( int i = 0; i < masked; i++ )
+            {
+                count += Long.bitCount( authorized[base + maskIndex[i]] & maskWords[i] );
+            }
+            if ( count >= cardinality )
+            {
+                if ( found == rows.length )
+                {
+                    rows = Arrays.copyOf( rows, found * 2 );
+                }
+                rows[found++] = row;
+            }
+        }
+        return Arrays.copyOf( rows, found );
+    }
+
+
+    /**
+     * Return whether a row of bits, e.g. as returned by {@link #authorized}, holds at least a cardinality of the roles
+     * of a mask.
+     */
+    static boolean constrained( long[] row, long[] mask, int cardinality )
+    {
+        int count = 0;
+        for ( int i = 0; i < mask.length; i++ )
+        {
+            count += Long.bitCount( row[i] & mask[i] );
+        }
+        return count >= cardinality;
+    }
+
+
+    /**
+     * Return the roles a user is authorized for now, as a row of bits.
+     *
+     * @param user as read, with the role assignments.
+     * @return the row, or null if the user is assigned a role the index doesn't know.
+     */
+    long[] authorized( User user )
+    {
+        long[] row = new long[words];
+        if ( user.getRoles() != null )
+        {
+            for ( UserRole userRole : user.getRoles() )
+            {
+                Integer role = roleBits.get( key( userRole.getName() ) );
+                if ( role == null )
+                {
+                    return null;
+                }
+                for ( int bit : inherited[role] )
+                {
+                    row[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+        return row;
+    }
+
+
+    /**
+     * Return the row of bits of an indexed user.
+     */
+    long[] authorized( int row )
+    {
+        return Arrays.copyOfRange( authorized, row * words, ( row + 1 ) * words );
+    }
+
+
+    /**
+     * Return the roles at least one user is authorized for, as a row of bits.
+     */
+    long[] union()
+    {
+        long[] union = new long[words];
+        for ( int base = 0; base < authorized.length; base += words )
+        {
+            for ( int i = 0; i < words; i++ )
+            {
+                union[i] |= authorized[base + i];
+            }
+        }
+        return union;
+    }
+
+
+    String getUserId( int row )
+    {
+        return userIds[row];
+    }
+
+
+    /**
+     * Return the roles of a row of bits that are also in a mask.
+     */
+    List<String> roles( long[] row, long[] mask )
+    {
+        return roles( row, 0, mask );
+    }
+
+
+    static int cardinality( SDSet sdSet )
+    {
+        return sdSet.getCardinality() != null && sdSet.getCardinality() > 0 ? sdSet.getCardinality() :
+            DEFAULT_CARDINALITY;
+    }
+
+
+    public int getUserCount()
+    {
+        return userIds.length;
+    }
+
+
+    public int getRoleCount()
+    {
+        return roleNames.length;
+    }
+
+
+    private List<String> roles( long[] row, int base, long[] mask )
+    {
+        List<String> roles = new ArrayList<>();
+        for ( int i = 0; i < words; i++ )
+        {
+            long bits = row[base + i] & mask[i];
+            while ( bits != 0 )
+            {
+                roles.add( roleNames[( i << 6 ) + Long.numberOfTrailingZeros( bits )] );
+                bits &= bits - 1;
+            }
+        }
+        return roles;
+    }
+
+
+    private int bit( String name, List<String> names )
+    {
+        String key = key( name );
+        Integer bit = roleBits.get( key );
+        if ( bit == null )
+        {
+            bit = names.size();
+            roleBits.put( key, bit );
+            names.add( name );
+        }
+        return bit;
+    }
+
+
+    /**
+     * Return, for every role, the bits of the roles it authorizes: itself and its ancestors.
+     */
+    private int[][] closure( Map<Integer, Collection<String>> parents, List<String> names )
+    {
+        // parents may name roles not otherwise seen:
+        for ( Collection<String> roleParents : new ArrayList<>( parents.values() ) )
+        {
+            for ( String parent : roleParents )
+            {
+                bit( parent, names );
+            }
+        }
+        int[][] inherited = new int[names.size()][];
+        for ( int role = 0; role < inherited.length; role++ )
+        {
+            if ( inherited[role] == null )
+            {
+                BitSet ancestors = new BitSet();
+                ancestors( role, parents, ancestors );
+                inherited[role] = new int[ancestors.cardinality()];
+                for ( int bit = ancestors.nextSetBit( 0 ), i = 0; bit >= 0; bit = ancestors.nextSetBit( bit + 1 ) )
+                {
+                    inherited[role][i++] = bit;
+                }
+            }
+        }
+        return inherited;
+    }
+
+
+    private void ancestors( int role, Map<Integer, Collection<String>> parents, BitSet ancestors )
+    {
+        // a role already set is on the path, or done, which also stops a cycle:
+        if ( ancestors.get( role ) )
+        {
+            return;
+        }
+        ancestors.set( role );
+        Collection<String> names = parents.get( role );
+        if ( names != null )
+        {
+            for ( String parent : names )
+            {
+                ancestors( roleBits.get( key( parent ) ), parents, ancestors );
+            }
+        }
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+}
@@ -0,0 +1,556 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Usage statistics of every RBAC, or ARBAC, role: the number of users assigned it, the number authorized for it only
+ * through the role hierarchy, i.e. assigned one of its descendants, and the number of permissions granted it.  Counted
+ * together from one search of the users, roles and permissions, so the role grids show them without a query per row.
+ * <p>
+ * Statistics are shared by administrators with the same ARBAC scope and reused for 'role.usage.ttl.seconds' (default
+ * 300), or until a user, role or permission is saved through this application, see {@link #onSave}.  Once out of date
+ * they're still returned while newer ones are counted in the background, so only the first requests wait, on the same
+ * count.  Temporal constraints of the assignments aren't considered.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class RoleUsage
+{
+    private static final Logger LOG = Logger.getLogger( RoleUsage.class.getName() );
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(
+        Config.getInstance().getInt( GlobalIds.ROLE_USAGE_TTL_SECONDS, 300 ) );
+    private static final int MAX_ENTRIES = 8;
+    private static final int ASSIGNED = 0;
+    private static final int AUTHORIZED = 1;
+    private static final int PERMISSIONS = 2;
+    private static final Object LOCK = new Object();
+
+    static final Summary buildLatency = Summary.build()
+            .name("roleUsage_build_latency_seconds")
+            .help("Role Usage Statistics Build Time seconds")
+            .register();
+    static final Counter usageRequests = Counter.build()
+            .name("roleUsage_requests_total")
+            .help("Role Usage Statistics Requests Total")
+            .labelNames( "result" )
+            .register();
+
+    // guarded by LOCK, bumped on invalidation so out of date statistics are rebuilt:
+    private static long generation;
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<String, Entry>( 8, 0.75f, true )
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest )
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // first counts of a scope, by key, guarded by LOCK, so requests that arrive together wait on the same one:
+    private static final Map<String, FutureTask<RoleUsage>> BUILDING = new HashMap<>();
+
+    // the counts of every role, by lower case name:
+    private final Map<String, int[]> counts;
+    private final long created = System.currentTimeMillis();
+
+
+    private static class Entry
+    {
+        private final RoleUsage usage;
+        private final long generation;
+        private boolean rebuilding;
+
+
+        private Entry( RoleUsage usage, long generation )
+        {
+            this.usage = usage;
+            this.generation = generation;
+        }
+    }
+
+
+    /**
+     * Count the statistics from the results of a search of every user, role and permission.
+     *
+     * @param users as found, with their role assignments.
+     * @param roles as found, with their parents.
+     * @param permissions as found, with the roles granted them.
+     * @param isAdmin true to count the ARBAC assignments of the users, otherwise the RBAC ones.
+     */
+    RoleUsage( List<User> users, List<? extends Role> roles, List<Permission> permissions, boolean isAdmin )
+    {
+        Map<String, Integer> bits = new HashMap<>();
+        Map<Integer, Collection<String>> parents = new HashMap<>();
+        for ( Role role : roles )
+        {
+            int bit = bit( role.getName(), bits );
+            if ( role.getParents() != null )
+            {
+                parents.put( bit, role.getParents() );
+            }
+        }
+        // parents may name roles not otherwise seen:
+        for ( Collection<String> roleParents : new ArrayList<>( parents.values() ) )
+        {
+            for ( String parent : roleParents )
+            {
+                bit( parent, bits );
+            }
+        }
+        List<int[]> rows = new ArrayList<>();
+        for ( int i = 0; i < bits.size(); i++ )
+        {
+            rows.add( new int[3] );
+        }
+        Map<Integer, BitSet> inherited = new HashMap<>();
+        BitSet authorized = new BitSet();
+        for ( User user : users )
+        {
+            authorized.clear();
+            for ( String name : assigned( user, isAdmin ) )
+            {
+                Integer bit = bits.get( key( name ) );
+                if ( bit == null )
+                {
+                    // assigned a role the search didn't find:
+                    bit = bit( name, bits );
+                    rows.add( new int[3] );
+                }
+                rows.get( bit )[ASSIGNED]++;
+                authorized.or( ancestors( bit, parents, bits, inherited ) );
+            }
+            for ( int bit = authorized.nextSetBit( 0 ); bit >= 0; bit = authorized.nextSetBit( bit + 1 ) )
+            {
+                rows.get( bit )[AUTHORIZED]++;
+            }
+        }
+        for ( Permission permission : permissions )
+        {
+            if ( permission.getRoles() != null )
+            {
+                for ( String name : permission.getRoles() )
+                {
+                    Integer bit = bits.get( key( name ) );
+                    if ( bit != null )
+                    {
+                        rows.get( bit )[PERMISSIONS]++;
+                    }
+                }
+            }
+        }
+        counts = new HashMap<>();
+        for ( Map.Entry<String, Integer> bit : bits.entrySet() )
+        {
+            counts.put( bit.getKey(), rows.get( bit.getValue() ) );
+        }
+    }
+
+
+    /**
+     * Return the statistics for an administrator.  Counted now if there are none, if there are, but they're out of date,
+     * they're returned and newer ones counted in the background.
+     *
+     * @param reviewMgr searches the users, roles and permissions, already set with the administrator's session.
+     * @param delReviewMgr searches the ARBAC roles, already set with the administrator's session.
+     * @param scope of the administrator's ARBAC roles, as returned by {@link ReviewCache#scope}.
+     * @param isAdmin true for the statistics of the ARBAC roles.
+     * @return the statistics.
+     * @throws SecurityException if the users, roles or permissions couldn't be searched.
+     */
+    public static RoleUsage get( final ReviewMgr reviewMgr, final DelReviewMgr delReviewMgr, String scope,
+        final boolean isAdmin ) throws SecurityException
+    {
+        final String key = scope + "|" + isAdmin;
+        Entry entry;
+        synchronized ( LOCK )
+        {
+            entry = ENTRIES.get( key );
+            if ( entry != null && entry.generation == generation && System.currentTimeMillis() - entry.usage.created
+                <= TTL_MILLIS )
+            {
+                usageRequests.labels( "hit" ).inc();
+                return entry.usage;
+            }
+            if ( entry != null && entry.rebuilding )
+            {
+                usageRequests.labels( "stale" ).inc();
+                return entry.usage;
+            }
+            if ( entry != null )
+            {
+                entry.rebuilding = true;
+            }
+        }
+        if ( entry == null )
+        {
+            return first( reviewMgr, delReviewMgr, key, isAdmin );
+        }
+        usageRequests.labels( "stale" ).inc();
+        final Entry stale = entry;
+        if ( Prefetch.submit( new Callable<RoleUsage>()
+        {
+            @Override
+            public RoleUsage call() throws SecurityException
+            {
+                try
+                {
+                    return build( reviewMgr, delReviewMgr, key, isAdmin, false );
+                }
+                finally
+                {
+                    synchronized ( LOCK )
+                    {
+                        stale.rebuilding = false;
+                    }
+                }
+            }
+        } ) == null )
+        {
+            // tried again by the next request:
+            synchronized ( LOCK )
+            {
+                stale.rebuilding = false;
+            }
+        }
+        return stale.usage;
+    }
+
+
+    /**
+     * Count the statistics of a scope that has none, or wait for the count another request already started.
+     */
+    private static RoleUsage first( final ReviewMgr reviewMgr, final DelReviewMgr delReviewMgr, final String key,
+        final boolean isAdmin ) throws SecurityException
+    {
+        FutureTask<RoleUsage> task;
+        boolean started = false;
+        synchronized ( LOCK )
+        {
+            task = BUILDING.get( key );
+            if ( task == null )
+            {
+                task = new FutureTask<>( new Callable<RoleUsage>()
+                {
+                    @Override
+                    public RoleUsage call() throws SecurityException
+                    {
+                        return build( reviewMgr, delReviewMgr, key, isAdmin, true );
+                    }
+                } );
+                BUILDING.put( key, task );
+                started = true;
+            }
+        }
+        if ( started )
+        {
+            usageRequests.labels( "miss" ).inc();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                // build has already put the entry, so a request arriving now finds it:
+                synchronized ( LOCK )
+                {
+                    BUILDING.remove( key );
+                }
+            }
+        }
+        else
+        {
+            usageRequests.labels( "coalesced" ).inc();
+        }
+        try
+        {
+            return task.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "interrupted waiting for the role usage", e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof SecurityException )
+            {
+                throw ( SecurityException ) e.getCause();
+            }
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) e.getCause();
+            }
+            throw new IllegalStateException( e.getCause() );
+        }
+    }
+
+
+    /**
+     * Drop every statistics, so each is counted again when next requested.
+     */
+    public static void invalidate()
+    {
+        synchronized ( LOCK )
+        {
+            generation++;
+        }
+    }
+
+
+    /**
+     * Put the statistics out of date when a user, role or permission is saved.
+     *
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity == null || operation == null || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        if ( entity instanceof User || entity instanceof UserRole || entity instanceof Role || entity instanceof
+            Permission )
+        {
+            invalidate();
+        }
+    }
+
+
+    /**
+     * @return the number of users assigned the role, or null if it wasn't counted, e.g. it's since been added.
+     */
+    public Integer getAssignedUsers( String roleName )
+    {
+        int[] row = counts.get( key( roleName ) );
+        return row != null ? row[ASSIGNED] : null;
+    }
+
+
+    /**
+     * @return the number of users authorized for the role only through the role hierarchy, or null if it wasn't counted.
+     */
+    public Integer getInheritedUsers( String roleName )
+    {
+        int[] row = counts.get( key( roleName ) );
+        return row != null ? row[AUTHORIZED] - row[ASSIGNED] : null;
+    }
+
+
+    /**
+     * @return the number of permissions granted the role, not counting those of its ancestors, or null if it wasn't
+     * counted.
+     */
+    public Integer getPermissions( String roleName )
+    {
+        int[] row = counts.get( key( roleName ) );
+        return row != null ? row[PERMISSIONS] : null;
+    }
+
+
+    /**
+     * Search the users, roles and permissions, and count them.
+     *
+     * @param parallel true to search the roles and permissions on the {@link Prefetch} pool, while the caller searches
+     * the users.  False when already on the pool, where a search queued behind this task could never be run.
+     */
+    private static RoleUsage build( final ReviewMgr reviewMgr, final DelReviewMgr delReviewMgr, String key,
+        final boolean isAdmin, boolean parallel ) throws SecurityException
+    {
+        long built;
+        synchronized ( LOCK )
+        {
+            built = generation;
+        }
+        Summary.Timer timer = buildLatency.startTimer();
+        List<User> users;
+        List<Role> roles;
+        List<Permission> permissions;
+        if ( parallel )
+        {
+            Fetch<Role> roleFetch = new Fetch<>( new Callable<List<Role>>()
+            {
+                @Override
+                public List<Role> call() throws SecurityException
+                {
+                    return findRoles( reviewMgr, delReviewMgr, isAdmin );
+                }
+            } );
+            Fetch<Permission> permFetch = new Fetch<>( new Callable<List<Permission>>()
+            {
+                @Override
+                public List<Permission> call() throws SecurityException
+                {
+                    return findPermissions( reviewMgr, isAdmin );
+                }
+            } );
+            users = reviewMgr.findUsers( new User( "" ) );
+            roles = roleFetch.get();
+            permissions = permFetch.get();
+        }
+        else
+        {
+            users = reviewMgr.findUsers( new User( "" ) );
+            roles = findRoles( reviewMgr, delReviewMgr, isAdmin );
+            permissions = findPermissions( reviewMgr, isAdmin );
+        }
+        RoleUsage usage = new RoleUsage( users != null ? users : new ArrayList<User>(), roles != null ? roles :
+            new ArrayList<Role>(), permissions != null ? permissions : new ArrayList<Permission>(), isAdmin );
+        timer.observeDuration();
+        LOG.info( ".build counted " + usage.counts.size() + ( isAdmin ? " admin" : "" ) + " roles" );
+        synchronized ( LOCK )
+        {
+            ENTRIES.put( key, new Entry( usage, built ) );
+        }
+        return usage;
+    }
+
+
+    private static List<Role> findRoles( ReviewMgr reviewMgr, DelReviewMgr delReviewMgr, boolean isAdmin )
+        throws SecurityException
+    {
+        if ( !isAdmin )
+        {
+            return reviewMgr.findRoles( "" );
+        }
+        List<AdminRole> adminRoles = delReviewMgr.findRoles( "" );
+        return adminRoles != null ? new ArrayList<Role>( adminRoles ) : null;
+    }
+
+
+    private static List<Permission> findPermissions( ReviewMgr reviewMgr, boolean isAdmin ) throws SecurityException
+    {
+        Permission permission = new Permission( "", "" );
+        permission.setAdmin( isAdmin );
+        return reviewMgr.findPermissions( permission );
+    }
+
+
+    private static List<String> assigned( User user, boolean isAdmin )
+    {
+        List<String> names = new ArrayList<>();
+        if ( isAdmin && user.getAdminRoles() != null )
+        {
+            for ( UserAdminRole userAdminRole : user.getAdminRoles() )
+            {
+                names.add( userAdminRole.getName() );
+            }
+        }
+        else if ( !isAdmin && user.getRoles() != null )
+        {
+            for ( UserRole userRole : user.getRoles() )
+            {
+                names.add( userRole.getName() );
+            }
+        }
+        return names;
+    }
+
+
+    /**
+     * Return the bits of a role and, transitively, the roles it inherits from, remembered for the next user.
+     */
+    private static BitSet ancestors( int role, Map<Integer, Collection<String>> parents, Map<String, Integer> bits,
+        Map<Integer, BitSet> inherited )
+    {
+        BitSet ancestors = inherited.get( role );
+        if ( ancestors == null )
+        {
+            ancestors = new BitSet();
+            List<Integer> pending = new ArrayList<>();
+            pending.add( role );
+            while ( !pending.isEmpty() )
+            {
+                int next = pending.remove( pending.size() - 1 );
+                // a role already set is done, which also stops a cycle:
+                if ( !ancestors.get( next ) )
+                {
+                    ancestors.set( next );
+                    Collection<String> names = parents.get( next );
+                    if ( names != null )
+                    {
+                        for ( String parent : names )
+                        {
+                            pending.add( bits.get( key( parent ) ) );
+                        }
+                    }
+                }
+            }
+            inherited.put( role, ancestors );
+        }
+        return ancestors;
+    }
+
+
+    private static int bit( String name, Map<String, Integer> bits )
+    {
+        String key = key( name );
+        Integer bit = bits.get( key );
+        if ( bit == null )
+        {
+            bit = bits.size();
+            bits.put( key, bit );
+        }
+        return bit;
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+}
@@ -37,6 +37,7 @@ import org.apache.wicket.ajax.AjaxRequestTarget;
 
 import javax.servlet.http.HttpServletRequest;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -209,21 +210,17 @@ public class SecUtils
      */
     public static void initializeSession(Component component, J2eePolicyMgr j2eePolicyMgr, AccessMgr accessMgr, String szPrincipal ) throws SecurityException
     {
-        Session realmSession = null;
-
         if(j2eePolicyMgr == null || accessMgr == null)
         {
             throw new SecurityException( GlobalIds.SESSION_INITIALIZATION_FAILED, "initializeSession failed - verify the injection of fortress spring beans into your application" );
         }
-        try
+        if( StringUtils.isEmpty( szPrincipal ))
         {
-            if( StringUtils.isNotEmpty( szPrincipal ))
-                realmSession = j2eePolicyMgr.deserialize( szPrincipal );
-        }
-        catch( SecurityException se )
-        {
-            throw new RuntimeException( se );
+            return;
         }
+        // Deserialized once per login and shared by concurrent first requests:
+        SessionBootstrap.Result bootstrap = SessionBootstrap.bootstrapRbac( szPrincipal, j2eePolicyMgr, accessMgr, IS_PERM_CACHED );
+        Session realmSession = bootstrap.getSession();
         if(realmSession != null)
         {
             synchronized ( ( WicketSession ) WicketSession.get() )
@@ -231,9 +228,12 @@ public class SecUtils
                 if ( SecUtils.getSession( component ) == null )
                 {
                     LOG.info( "realmSession user: " + realmSession.getUserId() );
-                    // Retrieve user permissions and attach RBAC session to Wicket session:
+                    // Attach RBAC session and its permissions to Wicket session:
                     ( ( WicketSession ) WicketSession.get() ).setSession( realmSession );
-                    getPermissions( component, accessMgr );
+                    if ( IS_PERM_CACHED )
+                    {
+                        ( ( WicketSession ) WicketSession.get() ).setPermissions( bootstrap.getPermissions() );
+                    }
                 }
             }
         }
@@ -253,11 +253,52 @@ public class SecUtils
      * @return true if success, false otherwise.
      */
     public static boolean addActiveRole( Component component, AjaxRequestTarget target, AccessMgr accessMgr, String roleName )
+    {
+        return addActiveRole( component, target, accessMgr, null, roleName );
+    }
+
+    /**
+     * Call RBAC addActiveRole to activate a new role into user's session, first checking the DSD sets locally.
+     * An activation that would violate a DSD set of the user's roles, or of a role already active, is refused
+     * without calling fortress, see {@link ActivationGuard}.
+     * If all successful the user's cached perms are recomputed from the perms of their active roles.
+     *
+     * @param component contains handle to wicket session.
+     * @param target used to display modal if something goes wrong
+     * @param accessMgr used to call fortress api for role op
+     * @param reviewMgr used to load the DSD sets and role perms, if null fortress alone checks the activation.
+     * @param roleName contains the role name target
+     * @return true if success, false otherwise.
+     */
+    public static boolean addActiveRole( Component component, AjaxRequestTarget target, AccessMgr accessMgr, ReviewMgr reviewMgr, String roleName )
     {
         boolean isSuccessful = false;
+        WicketSession session = ( WicketSession ) component.getSession();
+        ActivationGuard guard = getActivationGuard( session, reviewMgr );
+        if ( guard != null )
+        {
+            String msg = null;
+            if ( ActivationGuard.isActive( session.getSession(), roleName ) )
+            {
+                msg = "Role selection " + roleName + " activation failed because of Role already active in Session";
+            }
+            else
+            {
+                String conflict = guard.conflict( session.getSession(), roleName );
+                if ( conflict != null )
+                {
+                    msg = "Role selection " + roleName + " activation failed because of Dynamic SoD rule violation: " + conflict;
+                }
+            }
+            if ( msg != null )
+            {
+                LOG.error( msg );
+                target.appendJavaScript( ";alert('" + msg + "');" );
+                return false;
+            }
+        }
         try
         {
-            WicketSession session = ( WicketSession ) component.getSession();
             session.getSession().setWarnings( null );
             accessMgr.addActiveRole( session.getSession(), new UserRole( roleName ) );
             List<Warning> warnings = session.getSession().getWarnings();
@@ -278,7 +319,7 @@ public class SecUtils
             }
 
             // User's active role set changed so refresh their permissions:
-            SecUtils.getPermissions( component, accessMgr );
+            refreshPermissions( component, accessMgr, reviewMgr, guard );
             isSuccessful = true;
             String message = "Activate role name: " + roleName + " successful";
             LOG.info( message );
@@ -289,6 +330,8 @@ public class SecUtils
             if ( se.getErrorId() == GlobalErrIds.DSD_VALIDATION_FAILED )
             {
                 msg += "Dynamic SoD rule violation";
+                // the local copy missed it, so is out of date:
+                session.setActivationGuard( null );
             }
             else if ( se.getErrorId() == GlobalErrIds.URLE_ALREADY_ACTIVE )
             {
@@ -318,6 +361,22 @@ public class SecUtils
      * @return true if success, false otherwise.
      */
     public static boolean dropActiveRole( Component component, AjaxRequestTarget target, AccessMgr accessMgr, String roleName )
+    {
+        return dropActiveRole( component, target, accessMgr, null, roleName );
+    }
+
+    /**
+     * Call RBAC dropActiveRole to deactivate a new role from user's session.
+     * If all successful the user's cached perms are recomputed from the perms of their remaining active roles.
+     *
+     * @param component contains handle to wicket session.
+     * @param target used to display modal if something goes wrong
+     * @param accessMgr used to call fortress api for role op
+     * @param reviewMgr used to load the role perms, if null the perms are retrieved from fortress again.
+     * @param roleName contains the role name target
+     * @return true if success, false otherwise.
+     */
+    public static boolean dropActiveRole( Component component, AjaxRequestTarget target, AccessMgr accessMgr, ReviewMgr reviewMgr, String roleName )
     {
         boolean isSuccessful = false;
         try
@@ -325,7 +384,7 @@ public class SecUtils
             WicketSession session = ( WicketSession ) component.getSession();
             accessMgr.dropActiveRole( session.getSession(), new UserRole( roleName ) );
             // User's active role set changed so refresh their permissions:
-            SecUtils.getPermissions( component, accessMgr );
+            refreshPermissions( component, accessMgr, reviewMgr, getActivationGuard( session, reviewMgr ) );
             isSuccessful = true;
             LOG.info( "Fortress dropActiveRole roleName: " + roleName + " was successful" );
         }
@@ -346,6 +405,72 @@ public class SecUtils
         return isSuccessful;
     }
 
+    /**
+     * Return the user's assigned roles, each with whether it's active and, if not, whether activating it would
+     * violate a DSD set, so a role picker can show which may be activated before one is clicked.
+     *
+     * @param component contains handle to wicket session.
+     * @param reviewMgr used to load the DSD sets.
+     * @return the roles, empty if the DSD sets couldn't be loaded.
+     */
+    public static List<ActivationGuard.Candidate> getActivationCandidates( Component component, ReviewMgr reviewMgr )
+    {
+        WicketSession session = ( WicketSession ) component.getSession();
+        ActivationGuard guard = getActivationGuard( session, reviewMgr );
+        return guard != null ? guard.candidates( session.getSession() ) : new ArrayList<ActivationGuard.Candidate>();
+    }
+
+    /**
+     * Return the DSD guard of the session, loading it if there's none or it's out of date.
+     *
+     * @return the guard, or null if there's no review manager or the guard couldn't be loaded.
+     */
+    private static ActivationGuard getActivationGuard( WicketSession session, ReviewMgr reviewMgr )
+    {
+        if ( reviewMgr == null || session.getSession() == null )
+        {
+            return null;
+        }
+        ActivationGuard guard = session.getActivationGuard();
+        if ( guard == null || !guard.isCurrent( session.getSession() ) )
+        {
+            try
+            {
+                guard = ActivationGuard.load( reviewMgr, session.getSession().getUserId() );
+            }
+            catch ( SecurityException se )
+            {
+                // fortress still checks the activation:
+                LOG.warn( "getActivationGuard caught SecurityException=" + se );
+                guard = null;
+            }
+            session.setActivationGuard( guard );
+        }
+        return guard;
+    }
+
+    /**
+     * Recompute the cached perms from those of the active roles, or retrieve them from fortress again if that can't be
+     * done.
+     */
+    private static void refreshPermissions( Component component, AccessMgr accessMgr, ReviewMgr reviewMgr, ActivationGuard guard )
+    {
+        if ( IS_PERM_CACHED && guard != null )
+        {
+            try
+            {
+                WicketSession session = ( WicketSession ) component.getSession();
+                session.setPermissions( guard.permissions( reviewMgr, session.getSession() ) );
+                return;
+            }
+            catch ( SecurityException se )
+            {
+                LOG.warn( "refreshPermissions caught SecurityException=" + se );
+            }
+        }
+        SecUtils.getPermissions( component, accessMgr );
+    }
+
     /**
      * Enables fortress session on behalf of a java.security.Principal retrieved from the container.
      *
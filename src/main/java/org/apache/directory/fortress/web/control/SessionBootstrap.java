@@ -0,0 +1,235 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.DelAccessMgr;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.realm.J2eePolicyMgr;
+import org.apache.log4j.Logger;
+import org.apache.wicket.core.util.lang.WicketObjects;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+
+/**
+ * Turns the container's principal into a fortress session and its ARBAC permissions once per login.
+ * <p>
+ * Deserializing the realm principal is an XML unmarshal of the whole fortress session and is followed by a
+ * sessionPermissions call to the directory.  Concurrent first requests of the same login, keyed by a digest of the
+ * principal, wait on the bootstrap already in flight rather than starting their own.  Nothing is kept once it
+ * completes, each http session holds its own result, so a logout or a changed principal is never answered from an
+ * earlier login.  Callers receive a copy so the session shared by the waiters is never mutated by role activation.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class SessionBootstrap
+{
+    private static final Logger LOG = Logger.getLogger( SessionBootstrap.class.getName() );
+
+    static final Summary bootstrapLatency = Summary.build()
+            .name("sessionBootstrap_latency_seconds")
+            .help("Session Bootstrap Time seconds, deserialize principal and load permissions")
+            .register();
+    static final Counter bootstrapCoalesced = Counter.build()
+            .name("sessionBootstrap_coalesced_total")
+            .help("Session Bootstrap Requests That Waited On One In Flight Total").register();
+
+    private static final ConcurrentMap<String, FutureTask<Result>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+
+    /**
+     * The fortress session and permissions produced by a bootstrap.
+     */
+    public static class Result
+    {
+        private final Session session;
+        private final List<Permission> permissions;
+
+
+        Result( Session session, List<Permission> permissions )
+        {
+            this.session = session;
+            this.permissions = permissions;
+        }
+
+
+        public Session getSession()
+        {
+            return session;
+        }
+
+
+        public List<Permission> getPermissions()
+        {
+            return permissions;
+        }
+
+
+        private Result copy()
+        {
+            List<Permission> perms = permissions == null ? null : new ArrayList<>( permissions );
+            Session clone = session == null ? null : WicketObjects.cloneObject( session );
+            return new Result( clone, perms );
+        }
+    }
+
+
+    private SessionBootstrap()
+    {
+    }
+
+
+    /**
+     * Deserialize the principal into a fortress session (or create a trusted one when it can't be shared with the
+     * container) and retrieve the session's ARBAC permissions.
+     *
+     * @param szPrincipal the principal as returned from the container.
+     * @param userId used to create a trusted session when the principal can't be deserialized.
+     * @param isShared false if the container's session can't be shared, e.g. the embedded jetty server.
+     * @param j2eePolicyMgr used to deserialize the principal.
+     * @param accessMgr used to create a trusted session.
+     * @param delAccessMgr used to pull back the arbac permissions.
+     * @return copy of the bootstrapped session and permissions.
+     */
+    public static Result bootstrap( final String szPrincipal, final String userId, final boolean isShared,
+        final J2eePolicyMgr j2eePolicyMgr, final AccessMgr accessMgr, final DelAccessMgr delAccessMgr )
+    {
+        return load( "arbac:" + digest( szPrincipal ), new Callable<Result>()
+        {
+            @Override
+            public Result call() throws Exception
+            {
+                Session session = null;
+                if ( isShared )
+                {
+                    session = j2eePolicyMgr.deserialize( szPrincipal );
+                }
+                // If this is null, it means this app cannot share an rbac session with container and must now (re)create session here:
+                if ( session == null )
+                {
+                    session = SecUtils.createSession( accessMgr, userId );
+                }
+                return new Result( session, delAccessMgr.sessionPermissions( session ) );
+            }
+        } );
+    }
+
+
+    /**
+     * Deserialize the principal into a fortress session and, if permissions are cached, retrieve its RBAC permissions.
+     *
+     * @param szPrincipal the principal as returned from the container.
+     * @param j2eePolicyMgr used to deserialize the principal.
+     * @param accessMgr used to pull back the rbac permissions.
+     * @param isPermCached true if the permissions should be retrieved too.
+     * @return copy of the bootstrapped session and permissions, the session is null if principal can't be deserialized.
+     */
+    public static Result bootstrapRbac( final String szPrincipal, final J2eePolicyMgr j2eePolicyMgr,
+        final AccessMgr accessMgr, final boolean isPermCached )
+    {
+        return load( "rbac:" + isPermCached + ":" + digest( szPrincipal ), new Callable<Result>()
+        {
+            @Override
+            public Result call() throws Exception
+            {
+                Session session = j2eePolicyMgr.deserialize( szPrincipal );
+                List<Permission> permissions = null;
+                if ( session != null && isPermCached )
+                {
+                    permissions = accessMgr.sessionPermissions( session );
+                }
+                return new Result( session, permissions );
+            }
+        } );
+    }
+
+
+    private static Result load( String key, Callable<Result> loader )
+    {
+        Result result;
+        FutureTask<Result> task = new FutureTask<>( loader );
+        FutureTask<Result> running = IN_FLIGHT.putIfAbsent( key, task );
+        if ( running == null )
+        {
+            Summary.Timer timer = bootstrapLatency.startTimer();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                timer.observeDuration();
+                IN_FLIGHT.remove( key );
+            }
+            running = task;
+        }
+        else
+        {
+            bootstrapCoalesced.inc();
+        }
+
+        try
+        {
+            result = running.get();
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "bootstrap interrupted", ie );
+        }
+        catch ( ExecutionException ee )
+        {
+            String error = "bootstrap caught Exception=" + ee.getCause();
+            LOG.error( error );
+            throw new RuntimeException( error, ee.getCause() );
+        }
+        return result.copy();
+    }
+
+
+    private static String digest( String szPrincipal )
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+            return new BigInteger( 1, md.digest( szPrincipal.getBytes( StandardCharsets.UTF_8 ) ) ).toString( 16 );
+        }
+        catch ( NoSuchAlgorithmException nsae )
+        {
+            throw new RuntimeException( nsae );
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Counter;
+import org.apache.log4j.Logger;
+import org.apache.wicket.util.io.IOUtils;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Serves the public web app assets (css, images) directly from the servlet context so they don't pass through the
+ * spring security or wicket filter chains.  It must be mapped ahead of those filters in web.xml.
+ * <p>
+ * Assets are read once and held in memory along with a content hash used as the ETag.  Pages reference them through
+ * {@link #url(ServletContext, String)}, which appends the hash so those requests may be cached for a year.  If a
+ * precompressed '.br' or '.gz' file sits next to the asset it is served to clients that accept it, otherwise
+ * text assets are gzipped on first use.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class StaticResourceFilter implements Filter
+{
+    private static final Logger LOG = Logger.getLogger( StaticResourceFilter.class.getName() );
+    private static final String VERSION_PARAM = "v";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "public, max-age=3600";
+    private static final ConcurrentMap<String, Asset> ASSETS = new ConcurrentHashMap<>();
+
+    static final Counter staticRequests = Counter.build()
+            .name("static_request_total")
+            .help("Static Resource Request Total")
+            .labelNames( "result" )
+            .register();
+
+    private ServletContext servletContext;
+
+
+    /**
+     * An asset as read from the servlet context.
+     */
+    private static class Asset
+    {
+        private final byte[] content;
+        private final byte[] gzip;
+        private final byte[] brotli;
+        private final String hash;
+        private final String contentType;
+
+
+        private Asset( byte[] content, byte[] gzip, byte[] brotli, String hash, String contentType )
+        {
+            this.content = content;
+            this.gzip = gzip;
+            this.brotli = brotli;
+            this.hash = hash;
+            this.contentType = contentType;
+        }
+    }
+
+
+    /**
+     * Return the fingerprinted url of a web app asset.
+     *
+     * @param servletContext used to locate the asset.
+     * @param path context relative path without leading slash, e.g. 'css/camo-style.css'.
+     * @return the path with the content hash appended, or the path as is if the asset can't be found.
+     */
+    public static String url( ServletContext servletContext, String path )
+    {
+        Asset asset = getAsset( servletContext, "/" + path );
+        return asset == null ? path : path + "?" + VERSION_PARAM + "=" + asset.hash;
+    }
+
+
+    @Override
+    public void init( FilterConfig filterConfig ) throws ServletException
+    {
+        servletContext = filterConfig.getServletContext();
+    }
+
+
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) throws IOException,
+        ServletException
+    {
+        HttpServletRequest httpReq = ( HttpServletRequest ) request;
+        HttpServletResponse httpResp = ( HttpServletResponse ) response;
+        String path = httpReq.getRequestURI().substring( httpReq.getContextPath().length() );
+        Asset asset = getAsset( servletContext, path );
+        if ( asset == null )
+        {
+            staticRequests.labels( "passed" ).inc();
+            chain.doFilter( request, response );
+            return;
+        }
+
+        byte[] body = asset.content;
+        String encoding = null;
+        String acceptEncoding = httpReq.getHeader( "Accept-Encoding" );
+        if ( acceptEncoding != null )
+        {
+            float brotli = asset.brotli != null ? quality( acceptEncoding, "br" ) : 0;
+            float gzip = asset.gzip != null ? quality( acceptEncoding, "gzip" ) : 0;
+            // brotli is smaller, so it wins a tie:
+            if ( brotli > 0 && brotli >= gzip )
+            {
+                body = asset.brotli;
+                encoding = "br";
+            }
+            else if ( gzip > 0 )
+            {
+                body = asset.gzip;
+                encoding = "gzip";
+            }
+        }
+
+        // each encoding is a different representation, so has its own tag:
+        String etag = "\"" + asset.hash + ( encoding != null ? "-" + encoding : "" ) + "\"";
+        httpResp.setHeader( "ETag", etag );
+        httpResp.setHeader( "Vary", "Accept-Encoding" );
+        httpResp.setHeader( "Cache-Control", asset.hash.equals( request.getParameter( VERSION_PARAM ) ) ? IMMUTABLE : REVALIDATE );
+        if ( matches( httpReq.getHeader( "If-None-Match" ), etag ) )
+        {
+            staticRequests.labels( "not_modified" ).inc();
+            httpResp.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return;
+        }
+        if ( encoding != null )
+        {
+            httpResp.setHeader( "Content-Encoding", encoding );
+        }
+        staticRequests.labels( "served" ).inc();
+        if ( asset.contentType != null )
+        {
+            httpResp.setContentType( asset.contentType );
+        }
+        httpResp.setContentLength( body.length );
+        if ( !"HEAD".equals( httpReq.getMethod() ) )
+        {
+            httpResp.getOutputStream().write( body );
+        }
+    }
+
+
+    @Override
+    public void destroy()
+    {
+        ASSETS.clear();
+    }
+
+
+    private static Asset getAsset( ServletContext servletContext, String path )
+    {
+        Asset asset = ASSETS.get( path );
+        if ( asset == null && !path.contains( ".." ) )
+        {
+            try
+            {
+                byte[] content = read( servletContext, path );
+                if ( content != null )
+                {
+                    String contentType = servletContext.getMimeType( path );
+                    byte[] gzip = read( servletContext, path + ".gz" );
+                    if ( gzip == null && isCompressible( contentType ) )
+                    {
+                        gzip = gzip( content );
+                    }
+                    asset = new Asset( content, gzip, read( servletContext, path + ".br" ), hash( content ), contentType );
+                    ASSETS.putIfAbsent( path, asset );
+                }
+            }
+            catch ( IOException ioe )
+            {
+                LOG.warn( "getAsset path: " + path + " caught IOException=" + ioe );
+            }
+        }
+        return asset;
+    }
+
+
+    private static byte[] read( ServletContext servletContext, String path ) throws IOException
+    {
+        InputStream in = servletContext.getResourceAsStream( path );
+        if ( in == null )
+        {
+            return null;
+        }
+        try
+        {
+            return IOUtils.toByteArray( in );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Return the q-value an Accept-Encoding header gives a content coding, e.g. 0 for 'gzip' in 'br, gzip;q=0'.
+     *
+     * @param acceptEncoding the header value.
+     * @param coding the content coding, e.g. 'gzip'.
+     * @return the coding's q-value, or that of '*' if the coding isn't listed, 0 if neither is.
+     */
+    static float quality( String acceptEncoding, String coding )
+    {
+        float wildcard = 0;
+        for ( String token : acceptEncoding.split( "," ) )
+        {
+            String[] params = token.split( ";" );
+            String name = params[0].trim();
+            float q = 1;
+            for ( int i = 1; i < params.length; i++ )
+            {
+                String param = params[i].trim();
+                if ( param.startsWith( "q=" ) || param.startsWith( "Q=" ) )
+                {
+                    try
+                    {
+                        q = Float.parseFloat( param.substring( 2 ).trim() );
+                    }
+                    catch ( NumberFormatException nfe )
+                    {
+                        q = 0;
+                    }
+                }
+            }
+            if ( name.equalsIgnoreCase( coding ) )
+            {
+                return q;
+            }
+            if ( name.equals( "*" ) )
+            {
+                wildcard = q;
+            }
+        }
+        return wildcard;
+    }
+
+
+    /**
+     * Return whether an If-None-Match header matches an entity tag, i.e. it's '*' or lists the tag, compared weakly
+     * as RFC 7232 asks, so 'W/"abc"' matches '"abc"'.
+     *
+     * @param ifNoneMatch the header value, may be null.
+     * @param etag the quoted entity tag of the representation.
+     * @return true if the client's copy is current.
+     */
+    static boolean matches( String ifNoneMatch, String etag )
+    {
+        if ( ifNoneMatch == null )
+        {
+            return false;
+        }
+        String opaque = opaque( etag );
+        for ( String token : ifNoneMatch.split( "," ) )
+        {
+            String tag = token.trim();
+            if ( tag.equals( "*" ) || opaque.equals( opaque( tag ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static String opaque( String etag )
+    {
+        return etag.startsWith( "W/" ) ? etag.substring( 2 ) : etag;
+    }
+
+
+    private static boolean isCompressible( String contentType )
+    {
+        return contentType != null && ( contentType.startsWith( "text/" ) || contentType.contains( "javascript" )
+            || contentType.contains( "svg" ) );
+    }
+
+
+    private static byte[] gzip( byte[] content ) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream( content.length / 2 );
+        GZIPOutputStream gzip = new GZIPOutputStream( out );
+        gzip.write( content );
+        gzip.close();
+        return out.toByteArray();
+    }
+
+
+    private static String hash( byte[] content )
+    {
+        try
+        {
+            return new BigInteger( 1, MessageDigest.getInstance( "MD5" ).digest( content ) ).toString( 16 );
+        }
+        catch ( NoSuchAlgorithmException nsae )
+        {
+            throw new RuntimeException( nsae );
+        }
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Type-ahead indexes for the names an administrator picks from the search modals.
+ * <p>
+ * Indexes are shared by administrators with the same ARBAC scope, see {@link ReviewCache#scope}, and are loaded with
+ * managers set to the session of the administrator that first needs them, so they hold only what that administrator's
+ * search modals would find.  Loads run on a background thread, started when a suggestion field is first rendered, and
+ * each index is then kept current by {@link #onSave} as entities are added, updated and deleted through the admin
+ * pages: a name saved is added only to the indexes of the administrator that saved it, those of other scopes, which
+ * may not be allowed to see it, are reloaded instead.  Changes made outside this application are picked up when the index is reloaded, every
+ * 'suggest.index.refresh.minutes' (default 60).  Suggestions only aid data entry, the selected name is still validated
+ * by fortress when the entity is saved.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class SuggestionIndex
+{
+    private static final Logger LOG = Logger.getLogger( SuggestionIndex.class.getName() );
+    private static final int MAX_SCOPES = 64;
+    private static final Object LOCK = new Object();
+    // the indexes of each ARBAC scope, least recently used first, guarded by SCOPES:
+    private static final Map<String, Map<Type, Holder>> SCOPES = new LinkedHashMap<String, Map<Type, Holder>>( 16,
+        0.75f, true )
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Map<Type, Holder>> eldest )
+        {
+            return size() > MAX_SCOPES;
+        }
+    };
+    private static ExecutorService executor;
+
+    static final Summary suggestLatency = Summary.build()
+            .name("suggest_latency_seconds")
+            .help("Type-ahead Suggestion Time seconds")
+            .labelNames( "type" )
+            .register();
+    static final Summary loadLatency = Summary.build()
+            .name("suggestIndex_load_latency_seconds")
+            .help("Type-ahead Index Load Time seconds")
+            .labelNames( "type" )
+            .register();
+    static final Gauge indexSize = Gauge.build()
+            .name("suggestIndex_names")
+            .help("Type-ahead Index Names Held")
+            .labelNames( "type" )
+            .register();
+
+    /**
+     * The kinds of names that may be suggested.
+     */
+    public enum Type
+    {
+        USER,
+        ROLE,
+        ADMIN_ROLE,
+        USER_OU,
+        PERM_OU,
+        PERM_OBJ,
+        POLICY
+    }
+
+
+    /**
+     * An index plus when it was last loaded from the directory.
+     */
+    private static class Holder
+    {
+        private final PrefixIndex index = new PrefixIndex();
+        private volatile long loaded;
+        // a save this index may not apply itself, it's reloaded on next use:
+        private volatile boolean stale;
+        // the administrator may not search these names, saves aren't applied either:
+        private volatile boolean denied;
+        private boolean loading;
+    }
+
+
+    /**
+     * Loads the names of one type from the directory as an administrator.  Created on a request thread, so the spring
+     * beans can be injected, and then used only by the background thread.
+     */
+    private static class Loader
+    {
+        @SpringBean
+        private ReviewMgr reviewMgr;
+        @SpringBean
+        private DelReviewMgr delReviewMgr;
+        @SpringBean
+        private PwPolicyMgr pwPolicyMgr;
+
+
+        private Loader( Session session )
+        {
+            Injector.get().inject( this );
+            reviewMgr.setAdmin( session );
+            delReviewMgr.setAdmin( session );
+            pwPolicyMgr.setAdmin( session );
+        }
+
+
+        private List<String> load( Type type, int limit ) throws SecurityException
+        {
+            List<String> names = new ArrayList<>();
+            switch ( type )
+            {
+                case USER:
+                    names.addAll( reviewMgr.findUsers( new User( "" ), limit ) );
+                    break;
+                case ROLE:
+                    names.addAll( reviewMgr.findRoles( "", limit ) );
+                    break;
+                case ADMIN_ROLE:
+                    for ( AdminRole adminRole : delReviewMgr.findRoles( "" ) )
+                    {
+                        names.add( adminRole.getName() );
+                    }
+                    break;
+                case USER_OU:
+                case PERM_OU:
+                    OrgUnit.Type ouType = type == Type.USER_OU ? OrgUnit.Type.USER : OrgUnit.Type.PERM;
+                    for ( OrgUnit ou : delReviewMgr.search( ouType, "" ) )
+                    {
+                        names.add( ou.getName() );
+                    }
+                    break;
+                case PERM_OBJ:
+                    for ( PermObj permObj : reviewMgr.findPermObjs( new PermObj( "" ) ) )
+                    {
+                        names.add( permObj.getObjName() );
+                    }
+                    break;
+                case POLICY:
+                    for ( PwPolicy policy : pwPolicyMgr.search( "" ) )
+                    {
+                        names.add( policy.getName() );
+                    }
+                    break;
+            }
+            return names;
+        }
+    }
+
+
+    private SuggestionIndex()
+    {
+    }
+
+
+    /**
+     * Start the thread that loads the indexes.  Called when the application starts.
+     */
+    public static void start()
+    {
+        synchronized ( LOCK )
+        {
+            if ( executor != null )
+            {
+                return;
+            }
+            executor = Executors.newSingleThreadExecutor( new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-suggest-index" );
+                    thread.setDaemon( true );
+                    thread.setPriority( Thread.MIN_PRIORITY );
+                    return thread;
+                }
+            } );
+        }
+    }
+
+
+    /**
+     * Stop loading the indexes, called when the application is destroyed.
+     */
+    public static void stop()
+    {
+        synchronized ( LOCK )
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+        synchronized ( SCOPES )
+        {
+            SCOPES.clear();
+        }
+    }
+
+
+    /**
+     * Start loading the administrator's index of a type, if it isn't loaded or is stale, so it's ready by the time
+     * the first characters are typed.  Called from a request thread.
+     *
+     * @param session of the administrator.
+     * @param type kind of name.
+     */
+    public static void prepare( Session session, Type type )
+    {
+        refreshIfStale( session, type, getHolder( session, type ) );
+    }
+
+
+    /**
+     * Return the names of a given type that start with the characters typed so far.  Called from a request thread.
+     *
+     * @param session of the administrator, whose ARBAC scope the names are searched with.
+     * @param type kind of name.
+     * @param prefix characters typed by the user, case insensitive.
+     * @param limit maximum number of suggestions.
+     * @return matching names in sorted order, empty if none or the index hasn't been loaded yet.
+     */
+    public static List<String> suggest( Session session, Type type, String prefix, int limit )
+    {
+        Holder holder = getHolder( session, type );
+        refreshIfStale( session, type, holder );
+        Summary.Timer timer = suggestLatency.labels( type.name() ).startTimer();
+        try
+        {
+            return holder.index.find( prefix, limit );
+        }
+        finally
+        {
+            timer.observeDuration();
+        }
+    }
+
+
+    /**
+     * Apply a saved entity whose saver isn't known, e.g. by an import: deleted names are removed from every index of
+     * its type, other saves mark them to be reloaded.
+     *
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        onSave( null, entity, operation );
+    }
+
+
+    /**
+     * Apply a saved entity to the index of its type held for the administrator that saved it.  Deleted names are
+     * removed from the indexes of every scope, otherwise those of other scopes are marked to be reloaded, as the name
+     * may be outside their ARBAC scope.  Indexes that haven't been loaded yet are left alone.
+     *
+     * @param session of the administrator that saved the entity, or null if not known.
+     * @param entity as carried by the {@link SaveModelEvent}.
+     * @param operation ADD, UPDATE or DELETE, others are ignored.
+     */
+    public static void onSave( Session session, FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity == null || operation == null || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        Type type = null;
+        String name = null;
+        // AdminRole extends Role so must be tested first:
+        if ( entity instanceof AdminRole )
+        {
+            type = Type.ADMIN_ROLE;
+            name = ( ( AdminRole ) entity ).getName();
+        }
+        else if ( entity instanceof Role )
+        {
+            type = Type.ROLE;
+            name = ( ( Role ) entity ).getName();
+        }
+        else if ( entity instanceof User )
+        {
+            type = Type.USER;
+            name = ( ( User ) entity ).getUserId();
+        }
+        else if ( entity instanceof OrgUnit )
+        {
+            OrgUnit ou = ( OrgUnit ) entity;
+            type = ou.getType() == OrgUnit.Type.PERM ? Type.PERM_OU : Type.USER_OU;
+            name = ou.getName();
+        }
+        else if ( entity instanceof PermObj )
+        {
+            type = Type.PERM_OBJ;
+            name = ( ( PermObj ) entity ).getObjName();
+        }
+        else if ( entity instanceof PwPolicy )
+        {
+            type = Type.POLICY;
+            name = ( ( PwPolicy ) entity ).getName();
+        }
+        if ( type == null )
+        {
+            return;
+        }
+        Holder saver = session != null ? getHolder( session, type ) : null;
+        for ( Holder holder : getHolders( type ) )
+        {
+            if ( holder.loaded == 0 || holder.denied )
+            {
+                continue;
+            }
+            if ( operation == SaveModelEvent.Operations.DELETE )
+            {
+                // removing a name can't show another administrator what they may not see:
+                holder.index.remove( name );
+            }
+            else if ( holder == saver )
+            {
+                holder.index.add( name );
+            }
+            else
+            {
+                holder.stale = true;
+            }
+        }
+        updateSize( type );
+    }
+
+
+    private static Holder getHolder( Session session, Type type )
+    {
+        String scope = ReviewCache.scope( session );
+        synchronized ( SCOPES )
+        {
+            Map<Type, Holder> holders = SCOPES.get( scope );
+            if ( holders == null )
+            {
+                holders = new EnumMap<>( Type.class );
+                SCOPES.put( scope, holders );
+            }
+            Holder holder = holders.get( type );
+            if ( holder == null )
+            {
+                holder = new Holder();
+                holders.put( type, holder );
+            }
+            return holder;
+        }
+    }
+
+
+    private static List<Holder> getHolders( Type type )
+    {
+        List<Holder> found = new ArrayList<>();
+        synchronized ( SCOPES )
+        {
+            for ( Map<Type, Holder> holders : SCOPES.values() )
+            {
+                if ( holders.containsKey( type ) )
+                {
+                    found.add( holders.get( type ) );
+                }
+            }
+        }
+        return found;
+    }
+
+
+    private static void updateSize( Type type )
+    {
+        int size = 0;
+        for ( Holder holder : getHolders( type ) )
+        {
+            size += holder.index.size();
+        }
+        indexSize.labels( type.name() ).set( size );
+    }
+
+
+    /**
+     * Load the index on first use and reload it once it is older than the refresh interval, on the background thread.
+     * Only one load of a given index is queued at a time, callers keep answering from the current contents, which are
+     * empty until the first load has finished.
+     */
+    private static void refreshIfStale( Session session, final Type type, final Holder holder )
+    {
+        long refresh = TimeUnit.MINUTES.toMillis(
+            Config.getInstance().getInt( GlobalIds.SUGGEST_INDEX_REFRESH_MINUTES, 60 ) );
+        if ( session == null || ( holder.loaded != 0 && !holder.stale && System.currentTimeMillis() - holder.loaded
+            < refresh ) )
+        {
+            return;
+        }
+        synchronized ( holder )
+        {
+            if ( holder.loading || ( holder.loaded != 0 && !holder.stale && System.currentTimeMillis() - holder
+                .loaded < refresh ) )
+            {
+                return;
+            }
+            holder.loading = true;
+        }
+        final Loader loader = new Loader( session );
+        try
+        {
+            synchronized ( LOCK )
+            {
+                if ( executor == null )
+                {
+                    throw new RejectedExecutionException( "not started" );
+                }
+                executor.execute( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        load( loader, type, holder );
+                    }
+                } );
+            }
+        }
+        catch ( RejectedExecutionException ree )
+        {
+            LOG.warn( "refreshIfStale type: " + type + " caught RejectedExecutionException=" + ree );
+            synchronized ( holder )
+            {
+                holder.loading = false;
+            }
+        }
+    }
+
+
+    private static void load( Loader loader, Type type, Holder holder )
+    {
+        Summary.Timer timer = loadLatency.labels( type.name() ).startTimer();
+        // saves from here on are seen by this load, or mark it stale again:
+        holder.stale = false;
+        try
+        {
+            int limit = Config.getInstance().getInt( GlobalIds.SUGGEST_INDEX_MAX, 200000 );
+            holder.index.load( loader.load( type, limit ) );
+            holder.denied = false;
+            LOG.info( "load type: " + type + " loaded: " + holder.index.size() );
+        }
+        catch ( SecurityException se )
+        {
+            // e.g. the administrator may not search these names:
+            LOG.warn( "load type: " + type + " caught SecurityException=" + se );
+            holder.index.load( new ArrayList<String>() );
+            holder.denied = true;
+        }
+        finally
+        {
+            timer.observeDuration();
+            synchronized ( holder )
+            {
+                // on failure wait for the next interval rather than retrying on every keystroke:
+                holder.loaded = System.currentTimeMillis();
+                holder.loading = false;
+            }
+        }
+        updateSize( type );
+    }
+}
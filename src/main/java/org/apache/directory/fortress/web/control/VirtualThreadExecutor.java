@@ -0,0 +1,185 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A {@link FanOutExecutor} that starts a virtual thread per task.  Tasks wait for a permit before running, so no more
+ * run at once than there are permits; parked virtual threads cost next to nothing, so the wait doesn't tie up a
+ * platform thread.
+ * <p>
+ * The jdk classes are looked up reflectively, so the app still builds for, and runs on, older jvms.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class VirtualThreadExecutor extends FanOutExecutor
+{
+    private static final Logger LOG = Logger.getLogger( VirtualThreadExecutor.class.getName() );
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int capacity;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+
+    private VirtualThreadExecutor( ExecutorService executor, Semaphore permits, int capacity )
+    {
+        this.executor = executor;
+        this.permits = permits;
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * @param capacity the number of tasks, running or waiting for a permit, beyond which more are rejected.
+     * @return the executor, or null if the jvm doesn't support virtual threads.
+     */
+    static VirtualThreadExecutor newInstance( String name, Semaphore permits, int capacity )
+    {
+        try
+        {
+            // i.e. Executors.newThreadPerTaskExecutor( Thread.ofVirtual().name( name + "-", 1 ).factory() ):
+            Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+            Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+            builder = builderClass.getMethod( "name", String.class, long.class ).invoke( builder, name + "-", 1L );
+            ThreadFactory factory = ( ThreadFactory ) builderClass.getMethod( "factory" ).invoke( builder );
+            ExecutorService executor = ( ExecutorService ) Executors.class.getMethod( "newThreadPerTaskExecutor",
+                ThreadFactory.class ).invoke( null, factory );
+            return new VirtualThreadExecutor( executor, permits, capacity );
+        }
+        catch ( ReflectiveOperationException e )
+        {
+            LOG.debug( ".newInstance virtual threads not available: " + e );
+            return null;
+        }
+    }
+
+
+    @Override
+    public <T> Future<T> submit( final Callable<T> task )
+    {
+        if ( outstanding.incrementAndGet() > capacity )
+        {
+            outstanding.decrementAndGet();
+            throw new RejectedExecutionException( "executor saturated, " + capacity + " tasks outstanding" );
+        }
+        final FutureTask<T> future = new FutureTask<T>( new Callable<T>()
+        {
+            @Override
+            public T call() throws Exception
+            {
+                active.incrementAndGet();
+                try
+                {
+                    return task.call();
+                }
+                finally
+                {
+                    active.decrementAndGet();
+                }
+            }
+        } )
+        {
+            @Override
+            protected void done()
+            {
+                // called once the task completes, fails or is cancelled:
+                outstanding.decrementAndGet();
+            }
+        };
+        try
+        {
+            // the future is only started once it has a permit, so until then it may still be cancelled as queued:
+            executor.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        permits.acquire();
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        future.cancel( false );
+                        return;
+                    }
+                    try
+                    {
+                        future.run();
+                    }
+                    finally
+                    {
+                        permits.release();
+                    }
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            outstanding.decrementAndGet();
+            throw e;
+        }
+        return future;
+    }
+
+
+    @Override
+    public int getActiveCount()
+    {
+        return active.get();
+    }
+
+
+    @Override
+    public int getQueueSize()
+    {
+        return Math.max( 0, outstanding.get() - active.get() );
+    }
+
+
+    @Override
+    public String getMode()
+    {
+        return GlobalIds.VIRTUAL_EXECUTOR;
+    }
+
+
+    @Override
+    public void shutdownNow()
+    {
+        executor.shutdownNow();
+    }
+}
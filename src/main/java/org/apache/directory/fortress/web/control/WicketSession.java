@@ -25,7 +25,10 @@ import org.apache.wicket.request.Request;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.Session;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -41,6 +44,9 @@ public class WicketSession extends WebSession
     private static final long serialVersionUID = 1L;
     private Session session;
     private List<Permission> permissions;
+    private ActivationGuard activationGuard;
+    // passwords of staged user changes, held only in memory so they never reach the page store:
+    private transient Map<String, char[]> stagedPasswords;
 
 
     /**
@@ -77,4 +83,58 @@ public class WicketSession extends WebSession
     {
         this.permissions = permissions;
     }
+
+
+    /**
+     * @return the DSD guard of the session's role activations, may be out of date or null.
+     */
+    public ActivationGuard getActivationGuard()
+    {
+        return activationGuard;
+    }
+
+
+    public void setActivationGuard( ActivationGuard activationGuard )
+    {
+        this.activationGuard = activationGuard;
+    }
+
+
+    /**
+     * Hold the password of a staged change until it's committed, see {@link ChangeSet}.
+     *
+     * @param id identifies the change.
+     * @param password a copy, cleared by {@link #clearStagedPassword(String)}.
+     */
+    public synchronized void stagePassword( String id, char[] password )
+    {
+        if ( stagedPasswords == null )
+        {
+            stagedPasswords = new HashMap<>();
+        }
+        clearStagedPassword( id );
+        stagedPasswords.put( id, password );
+    }
+
+
+    /**
+     * @return the password of the staged change, or null if there is none, e.g. the session was restored from disk.
+     */
+    public synchronized char[] getStagedPassword( String id )
+    {
+        return stagedPasswords != null ? stagedPasswords.get( id ) : null;
+    }
+
+
+    /**
+     * Overwrite, and drop, the password of a staged change.
+     */
+    public synchronized void clearStagedPassword( String id )
+    {
+        char[] password = stagedPasswords != null ? stagedPasswords.remove( id ) : null;
+        if ( password != null )
+        {
+            Arrays.fill( password, '\0' );
+        }
+    }
 }
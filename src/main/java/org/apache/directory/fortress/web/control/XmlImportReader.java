@@ -0,0 +1,172 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Reads an import file in the fortress ant loader format, e.g. FortressWebDemoUsers.xml.  The type of each record is
+ * given by the element it's in: the users of an adduser element, the user role assignments of an adduserrole, and so
+ * on, and the records of update and del elements, e.g. delrole, are updated and deleted.  The elements may be anywhere
+ * in the file, so the loader's project, target and FortressAdmin elements are optional.  The entities of the other
+ * loader elements, e.g. addsdset, are reported as errors.
+ * <p>
+ * The file is parsed with a streaming (StAX) parser, with doctypes and external entities disabled.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class XmlImportReader extends ImportReader
+{
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+    static
+    {
+        FACTORY.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+        FACTORY.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+    }
+
+    private static final String[] ROOTS = { "project", "target", "FortressAdmin" };
+    private final InputStream in;
+    private final XMLStreamReader reader;
+    private int depth;
+    /** The loader element currently open, and the depth it was opened at. */
+    private String container;
+    private int containerDepth = -1;
+
+
+    XmlImportReader( InputStream in ) throws IOException
+    {
+        this.in = in;
+        try
+        {
+            this.reader = FACTORY.createXMLStreamReader( in );
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new IOException( "not an xml file: " + e.getMessage(), e );
+        }
+    }
+
+
+    @Override
+    public ImportRecord next() throws IOException
+    {
+        try
+        {
+            while ( reader.hasNext() )
+            {
+                int event = reader.next();
+                if ( event == XMLStreamConstants.END_ELEMENT )
+                {
+                    if ( depth-- == containerDepth )
+                    {
+                        container = null;
+                        containerDepth = -1;
+                    }
+                }
+                else if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if ( container == null )
+                    {
+                        if ( !isRoot( name ) )
+                        {
+                            container = name;
+                            containerDepth = depth;
+                        }
+                    }
+                    else if ( depth == containerDepth + 1 && isLoaderElement( container ) )
+                    {
+                        return record( name );
+                    }
+                }
+            }
+            return null;
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new IOException( "malformed xml: " + e.getMessage(), e );
+        }
+    }
+
+
+    private ImportRecord record( String element )
+    {
+        long line = reader.getLocation().getLineNumber();
+        Map<String, String> attributes = new HashMap<>();
+        for ( int i = 0; i < reader.getAttributeCount(); i++ )
+        {
+            attributes.put( reader.getAttributeLocalName( i ), reader.getAttributeValue( i ) );
+        }
+        ImportRecord.Type type = ImportRecord.Type.of( container );
+        String error = type == null ? container + " isn't supported by the import, " + element + " skipped" : null;
+        return new ImportRecord( line, ImportRecord.Operation.of( container ), type, attributes, error );
+    }
+
+
+    /**
+     * Elements that aren't loader operations, e.g. the ant taskdef, are skipped.
+     */
+    private static boolean isLoaderElement( String name )
+    {
+        return name.startsWith( "add" ) || name.startsWith( "del" ) || name.startsWith( "update" );
+    }
+
+
+    private static boolean isRoot( String name )
+    {
+        for ( String root : ROOTS )
+        {
+            if ( root.equals( name ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            reader.close();
+        }
+        catch ( XMLStreamException e )
+        {
+            // closing the stream is what matters
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
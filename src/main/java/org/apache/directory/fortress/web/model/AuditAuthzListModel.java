@@ -31,9 +31,13 @@ import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.UserAudit;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.control.AuditExecutor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -51,6 +55,7 @@ public class AuditAuthzListModel extends Model<SerializableList<AuthZ>>
     private static final Logger LOG = Logger.getLogger(AuditAuthzListModel.class.getName());
     private UserAudit userAudit;
     private SerializableList<AuthZ> authZs = null;
+    private transient Future<List<AuthZ>> pending;
 
     /**
      * Default constructor
@@ -89,6 +94,78 @@ public class AuditAuthzListModel extends Model<SerializableList<AuthZ>>
             return authZs;
         }
         
+        List<AuthZ> fetched = AuditExecutor.get( pending );
+        pending = null;
+        authZs = new SerializableList<>( fetched != null ? fetched : load( userAudit ) );
+        
+        return authZs;
+    }
+    
+
+    @Override
+    public void setObject( SerializableList<AuthZ> object )
+    {
+        LOG.debug( ".setObject count: " + object.size() );
+        authZs = object;
+    }
+    
+
+    @Override
+    public void detach()
+    {
+        authZs = null;
+        userAudit = null;
+    }
+    
+
+    /**
+     * Run the search on the audit pool, rather than when the data is first requested.
+     *
+     * @return this model.
+     */
+    public AuditAuthzListModel search()
+    {
+        final UserAudit userAudit = this.userAudit;
+        try
+        {
+            pending = AuditExecutor.submit( new Callable<List<AuthZ>>()
+            {
+                @Override
+                public List<AuthZ> call()
+                {
+                    List<AuthZ> authZList = load( userAudit );
+                    return authZList != null ? authZList : new ArrayList<AuthZ>();
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // left for the next call:
+            pending = null;
+        }
+        return this;
+    }
+
+
+    /**
+     * Return true once the search started by {@link #search} has completed, starting it again if it wasn't accepted
+     * by the audit pool, or the model has been restored from the page store since.
+     *
+     * @return true if the data may be requested without waiting for the directory.
+     */
+    public boolean isLoaded()
+    {
+        if ( pending == null && authZs == null )
+        {
+            search();
+        }
+        return pending == null ? authZs != null : pending.isDone();
+    }
+    
+
+    private List<AuthZ> load( UserAudit userAudit )
+    {
+        List<AuthZ> authZList;
         // if caller did not set userId return an empty list:
         if (userAudit == null ||
              ( !StringUtils.isNotEmpty( userAudit.getUserId() )   &&
@@ -109,7 +186,7 @@ public class AuditAuthzListModel extends Model<SerializableList<AuthZ>>
 
         {
             LOG.debug( ".getObject null" );
-            authZs = new SerializableList<>( new ArrayList<AuthZ>() );
+            authZList = new ArrayList<>();
         }
         else
         {
@@ -129,27 +206,11 @@ public class AuditAuthzListModel extends Model<SerializableList<AuthZ>>
                 userAudit.setDn( permission.getDn() );
             }
             
-            authZs = new SerializableList<>( getList( userAudit ) );
+            authZList = getList( userAudit );
             userAudit.setDn( "" );
         }
         
-        return authZs;
-    }
-    
-
-    @Override
-    public void setObject( SerializableList<AuthZ> object )
-    {
-        LOG.debug( ".setObject count: " + object.size() );
-        authZs = object;
-    }
-    
-
-    @Override
-    public void detach()
-    {
-        authZs = null;
-        userAudit = null;
+        return authZList;
     }
     
 
@@ -30,9 +30,13 @@ import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.UserAudit;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.control.AuditExecutor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -48,6 +52,7 @@ public class AuditBindListModel extends Model<SerializableList<Bind>>
     private static final Logger LOG = Logger.getLogger( AuditBindListModel.class.getName() );
     private UserAudit userAudit;
     private SerializableList<Bind> binds = null;
+    private transient Future<List<Bind>> pending;
 
     /**
      * Default constructor
@@ -86,23 +91,9 @@ public class AuditBindListModel extends Model<SerializableList<Bind>>
             return binds;
         }
         
-        // if caller did not set userId return an empty list:
-        if ( ( userAudit == null ) || 
-             ( 
-                 !StringUtils.isNotEmpty( userAudit.getUserId() ) &&
-                 ( userAudit.getBeginDate() == null ) && 
-                 ( userAudit.getEndDate() == null )
-             )
-           )
-        {
-            LOG.debug(".getObject null");
-            binds = new SerializableList<>( new ArrayList<Bind>() );
-        }
-        else
-        {
-            // get the list of matching bind records from fortress:
-            binds = new SerializableList<>( getList(userAudit) );
-        }
+        List<Bind> fetched = AuditExecutor.get( pending );
+        pending = null;
+        binds = new SerializableList<>( fetched != null ? fetched : load( userAudit ) );
         
         return binds;
     }
@@ -124,6 +115,76 @@ public class AuditBindListModel extends Model<SerializableList<Bind>>
     }
     
 
+    /**
+     * Run the search on the audit pool, rather than when the data is first requested.
+     *
+     * @return this model.
+     */
+    public AuditBindListModel search()
+    {
+        final UserAudit userAudit = this.userAudit;
+        try
+        {
+            pending = AuditExecutor.submit( new Callable<List<Bind>>()
+            {
+                @Override
+                public List<Bind> call()
+                {
+                    List<Bind> bindList = load( userAudit );
+                    return bindList != null ? bindList : new ArrayList<Bind>();
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // left for the next call:
+            pending = null;
+        }
+        return this;
+    }
+
+
+    /**
+     * Return true once the search started by {@link #search} has completed, starting it again if it wasn't accepted
+     * by the audit pool, or the model has been restored from the page store since.
+     *
+     * @return true if the data may be requested without waiting for the directory.
+     */
+    public boolean isLoaded()
+    {
+        if ( pending == null && binds == null )
+        {
+            search();
+        }
+        return pending == null ? binds != null : pending.isDone();
+    }
+
+
+    private List<Bind> load( UserAudit userAudit )
+    {
+        List<Bind> bindList;
+        // if caller did not set userId return an empty list:
+        if ( ( userAudit == null ) || 
+             ( 
+                 !StringUtils.isNotEmpty( userAudit.getUserId() ) &&
+                 ( userAudit.getBeginDate() == null ) && 
+                 ( userAudit.getEndDate() == null )
+             )
+           )
+        {
+            LOG.debug(".getObject null");
+            bindList = new ArrayList<>();
+        }
+        else
+        {
+            // get the list of matching bind records from fortress:
+            bindList = getList( userAudit );
+        }
+        
+        return bindList;
+    }
+
+
     private List<Bind> getList( UserAudit userAudit )
     {
         List<Bind> bindList = null;
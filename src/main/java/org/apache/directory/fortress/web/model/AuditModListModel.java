@@ -31,9 +31,13 @@ import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserAudit;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.control.AuditExecutor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -51,6 +55,7 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
     private static final Logger LOG = Logger.getLogger(AuditModListModel.class.getName());
     private UserAudit userAudit;
     private SerializableList<Mod> mods = null;
+    private transient Future<List<Mod>> pending;
 
     /**
      * Default constructor
@@ -88,6 +93,78 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
             return mods;
         }
         
+        List<Mod> fetched = AuditExecutor.get( pending );
+        pending = null;
+        mods = new SerializableList<>( fetched != null ? fetched : load( userAudit ) );
+        
+        return mods;
+    }
+    
+
+    @Override
+    public void setObject( SerializableList<Mod> object )
+    {
+        LOG.debug(".setObject count: " + object.size() );
+        this.mods = object;
+    }
+
+    
+    @Override
+    public void detach()
+    {
+        this.mods = null;
+        userAudit = null;
+    }
+
+    
+    /**
+     * Run the search on the audit pool, rather than when the data is first requested.
+     *
+     * @return this model.
+     */
+    public AuditModListModel search()
+    {
+        final UserAudit userAudit = this.userAudit;
+        try
+        {
+            pending = AuditExecutor.submit( new Callable<List<Mod>>()
+            {
+                @Override
+                public List<Mod> call()
+                {
+                    List<Mod> modList = load( userAudit );
+                    return modList != null ? modList : new ArrayList<Mod>();
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // left for the next call:
+            pending = null;
+        }
+        return this;
+    }
+
+
+    /**
+     * Return true once the search started by {@link #search} has completed, starting it again if it wasn't accepted
+     * by the audit pool, or the model has been restored from the page store since.
+     *
+     * @return true if the data may be requested without waiting for the directory.
+     */
+    public boolean isLoaded()
+    {
+        if ( pending == null && mods == null )
+        {
+            search();
+        }
+        return pending == null ? mods != null : pending.isDone();
+    }
+    
+
+    private List<Mod> load( UserAudit userAudit )
+    {
+        List<Mod> modList;
         // if caller did not set userId return an empty list:
         if ( ( userAudit == null ) ||
              ( 
@@ -100,7 +177,7 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
            )
         {
             LOG.debug( ".getObject null" );
-            mods = new SerializableList<>( new ArrayList<Mod>() );
+            modList = new ArrayList<>();
         }
         else
         {
@@ -120,29 +197,13 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
                 userAudit.setInternalUserId( user.getInternalId() );
             }
             
-            mods = new SerializableList<>( getList( userAudit ) );
+            modList = getList( userAudit );
         }
         
-        return mods;
-    }
-    
-
-    @Override
-    public void setObject( SerializableList<Mod> object )
-    {
-        LOG.debug(".setObject count: " + object.size() );
-        this.mods = object;
+        return modList;
     }
-
     
-    @Override
-    public void detach()
-    {
-        this.mods = null;
-        userAudit = null;
-    }
 
-    
     private List<Mod> getList( UserAudit userAudit )
     {
         List<Mod> modList = null;
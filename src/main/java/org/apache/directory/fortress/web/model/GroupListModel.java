@@ -20,6 +20,7 @@
 package org.apache.directory.fortress.web.model;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.web.control.Prefetch;
 import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
@@ -34,6 +35,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -49,6 +52,7 @@ public class GroupListModel extends Model<SerializableList<Group>>
     private static final Logger LOG = Logger.getLogger( GroupListModel.class.getName() );
     private Group group;
     private SerializableList<Group> groups = null;
+    private transient Future<List<Group>> prefetched;
 
     /**
      * Default constructor
@@ -87,6 +91,14 @@ public class GroupListModel extends Model<SerializableList<Group>>
             return groups;
         }
         
+        List<Group> fetched = Prefetch.get( prefetched );
+        prefetched = null;
+        if ( fetched != null )
+        {
+            groups = new SerializableList<>( fetched );
+            return groups;
+        }
+        
         if ( group == null )
         {
             LOG.debug( ".getObject null" );
@@ -117,6 +129,30 @@ public class GroupListModel extends Model<SerializableList<Group>>
     }
     
 
+    /**
+     * Start loading the list in the background, to be picked up by the first call to {@link #getObject()}.  Called by
+     * pages so the load runs while the rest of the page is constructed and rendered.
+     *
+     * @return this model.
+     */
+    public GroupListModel prefetch()
+    {
+        if ( group != null )
+        {
+            prefetched = Prefetch.submit( new Callable<List<Group>>()
+            {
+                @Override
+                public List<Group> call()
+                {
+                    List<Group> foundGroups = getList( group );
+                    return foundGroups != null ? foundGroups : new ArrayList<Group>();
+                }
+            } );
+        }
+        return this;
+    }
+
+
     @Override
     public void detach()
     {
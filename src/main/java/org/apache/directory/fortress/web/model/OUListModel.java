@@ -20,6 +20,7 @@
 package org.apache.directory.fortress.web.model;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.web.control.Prefetch;
 import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
@@ -33,6 +34,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -48,6 +51,7 @@ public class OUListModel extends Model<SerializableList<OrgUnit>>
     private static final Logger LOG = Logger.getLogger( OUListModel.class.getName() );
     private OrgUnit orgUnit;
     private SerializableList<OrgUnit> orgUnits = null;
+    private transient Future<List<OrgUnit>> prefetched;
 
     /**
      * Default constructor
@@ -86,6 +90,14 @@ public class OUListModel extends Model<SerializableList<OrgUnit>>
             return orgUnits;
         }
         
+        List<OrgUnit> fetched = Prefetch.get( prefetched );
+        prefetched = null;
+        if ( fetched != null )
+        {
+            orgUnits = new SerializableList<>( fetched );
+            return orgUnits;
+        }
+        
         if ( orgUnit == null )
         {
             LOG.debug( ".getObject null" );
@@ -109,6 +121,29 @@ public class OUListModel extends Model<SerializableList<OrgUnit>>
     }
     
 
+    /**
+     * Start loading the list in the background, to be picked up by the first call to {@link #getObject()}.  Called by
+     * pages so the load runs while the rest of the page is constructed and rendered.
+     *
+     * @return this model.
+     */
+    public OUListModel prefetch()
+    {
+        if ( orgUnit != null )
+        {
+            prefetched = Prefetch.submit( new Callable<List<OrgUnit>>()
+            {
+                @Override
+                public List<OrgUnit> call()
+                {
+                    return getList( orgUnit );
+                }
+            } );
+        }
+        return this;
+    }
+
+
     @Override
     public void detach()
     {
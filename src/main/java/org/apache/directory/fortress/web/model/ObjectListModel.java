@@ -20,6 +20,8 @@
 package org.apache.directory.fortress.web.model;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.web.control.Prefetch;
+import org.apache.directory.fortress.web.control.ReviewCache;
 import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
@@ -35,6 +37,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 
 /**
@@ -51,7 +55,9 @@ public class ObjectListModel extends Model<SerializableList<PermObj>>
     private static final Logger LOG = Logger.getLogger( ObjectListModel.class.getName() );
     private PermObj permObj;
     private SerializableList<PermObj> permObjs = null;
+    private transient Future<List<PermObj>> prefetched;
     private boolean isAdmin;
+    private String scope;
 
     /**
      * Default constructor
@@ -61,6 +67,7 @@ public class ObjectListModel extends Model<SerializableList<PermObj>>
         Injector.get().inject(this);
         this.isAdmin = isAdmin;
         reviewMgr.setAdmin( session );
+        scope = ReviewCache.scope( session );
     }
     
 
@@ -75,6 +82,7 @@ public class ObjectListModel extends Model<SerializableList<PermObj>>
         this.permObj = permObj;
         this.isAdmin = isAdmin;
         reviewMgr.setAdmin( session );
+        scope = ReviewCache.scope( session );
     }
 
 
@@ -92,6 +100,14 @@ public class ObjectListModel extends Model<SerializableList<PermObj>>
             return permObjs;
         }
         
+        List<PermObj> fetched = Prefetch.get( prefetched );
+        prefetched = null;
+        if ( fetched != null )
+        {
+            permObjs = new SerializableList<>( fetched );
+            return permObjs;
+        }
+        
         if (permObj == null)
         {
             LOG.debug(".getObject null");
@@ -115,6 +131,29 @@ public class ObjectListModel extends Model<SerializableList<PermObj>>
     }
 
     
+    /**
+     * Start loading the list in the background, to be picked up by the first call to {@link #getObject()}.  Called by
+     * pages so the load runs while the rest of the page is constructed and rendered.
+     *
+     * @return this model.
+     */
+    public ObjectListModel prefetch()
+    {
+        if ( permObj != null )
+        {
+            prefetched = Prefetch.submit( new Callable<List<PermObj>>()
+            {
+                @Override
+                public List<PermObj> call()
+                {
+                    return getList( permObj );
+                }
+            } );
+        }
+        return this;
+    }
+
+
     @Override
     public void detach()
     {
@@ -124,7 +163,7 @@ public class ObjectListModel extends Model<SerializableList<PermObj>>
     }
 
     
-    public List<PermObj> getList(PermObj permObj)
+    public List<PermObj> getList(final PermObj permObj)
     {
         List<PermObj> permObjList = null;
         
@@ -141,12 +180,29 @@ public class ObjectListModel extends Model<SerializableList<PermObj>>
                     permObj.setAdmin( true );
                 }
                 
-                permObjList = reviewMgr.findPermObjs( permObj );
+                permObjList = ReviewCache.get( ReviewCache.Region.PERM_OBJ, scope, "findPermObjs:" + isAdmin + ":" +
+                    permObj.getObjName(), new ReviewCache.Query<PermObj>()
+                {
+                    @Override
+                    public List<PermObj> load() throws SecurityException
+                    {
+                        return reviewMgr.findPermObjs( permObj );
+                    }
+                } );
             }
             else
             {
                 // TODO: make this work with administrative permissions:
-                permObjList = reviewMgr.findPermObjs( new OrgUnit( ou ) );
+                final OrgUnit orgUnit = new OrgUnit( ou );
+                permObjList = ReviewCache.get( ReviewCache.Region.PERM_OBJ, scope, "findPermObjsByOu:" + ou,
+                    new ReviewCache.Query<PermObj>()
+                    {
+                        @Override
+                        public List<PermObj> load() throws SecurityException
+                        {
+                            return reviewMgr.findPermObjs( orgUnit );
+                        }
+                    } );
             }
             // sort list by objName:
             if( CollectionUtils.isNotEmpty( permObjList ))
@@ -20,6 +20,7 @@
 package org.apache.directory.fortress.web.model;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.web.control.Prefetch;
 import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
@@ -33,6 +34,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -48,6 +51,7 @@ public class PermListModel extends Model<SerializableList<Permission>>
     private static final Logger LOG = Logger.getLogger(PermListModel.class.getName());
     private Permission perm;
     private SerializableList<Permission> perms = null;
+    private transient Future<List<Permission>> prefetched;
     private boolean isAdmin;
 
     public PermListModel( boolean isAdmin, Session session )
@@ -87,6 +91,14 @@ public class PermListModel extends Model<SerializableList<Permission>>
             return perms;
         }
         
+        List<Permission> fetched = Prefetch.get( prefetched );
+        prefetched = null;
+        if ( fetched != null )
+        {
+            perms = new SerializableList<>( fetched );
+            return perms;
+        }
+        
         if (perm == null)
         {
             LOG.debug( ".getObject null ");
@@ -111,6 +123,29 @@ public class PermListModel extends Model<SerializableList<Permission>>
     }
     
 
+    /**
+     * Start loading the list in the background, to be picked up by the first call to {@link #getObject()}.  Called by
+     * pages so the load runs while the rest of the page is constructed and rendered.
+     *
+     * @return this model.
+     */
+    public PermListModel prefetch()
+    {
+        if ( perm != null )
+        {
+            prefetched = Prefetch.submit( new Callable<List<Permission>>()
+            {
+                @Override
+                public List<Permission> call()
+                {
+                    return getList( perm );
+                }
+            } );
+        }
+        return this;
+    }
+
+
     @Override
     public void detach()
     {
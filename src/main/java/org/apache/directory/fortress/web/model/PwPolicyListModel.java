@@ -20,6 +20,8 @@
 package org.apache.directory.fortress.web.model;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.web.control.Prefetch;
+import org.apache.directory.fortress.web.control.ReviewCache;
 import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
@@ -33,6 +35,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -48,6 +52,7 @@ public class PwPolicyListModel extends Model<SerializableList<PwPolicy>>
     private static final Logger LOG = Logger.getLogger(PwPolicyListModel.class.getName());
     private PwPolicy policy;
     private SerializableList<PwPolicy> policies = null;
+    private transient Future<List<PwPolicy>> prefetched;
 
     /**
      * Default constructor
@@ -88,6 +93,14 @@ public class PwPolicyListModel extends Model<SerializableList<PwPolicy>>
             return policies;
         }
         
+        List<PwPolicy> fetched = Prefetch.get( prefetched );
+        prefetched = null;
+        if ( fetched != null )
+        {
+            policies = new SerializableList<>( fetched );
+            return policies;
+        }
+        
         if ( policy == null )
         {
             LOG.debug( ".getObject null" );
@@ -111,6 +124,29 @@ public class PwPolicyListModel extends Model<SerializableList<PwPolicy>>
     }
     
 
+    /**
+     * Start loading the list in the background, to be picked up by the first call to {@link #getObject()}.  Called by
+     * pages so the load runs while the rest of the page is constructed and rendered.
+     *
+     * @return this model.
+     */
+    public PwPolicyListModel prefetch()
+    {
+        if ( policy != null )
+        {
+            prefetched = Prefetch.submit( new Callable<List<PwPolicy>>()
+            {
+                @Override
+                public List<PwPolicy> call()
+                {
+                    return getList( policy );
+                }
+            } );
+        }
+        return this;
+    }
+
+
     @Override
     public void detach()
     {
@@ -125,9 +161,18 @@ public class PwPolicyListModel extends Model<SerializableList<PwPolicy>>
         
         try
         {
-            String szPolicyNm = policy != null ? policy.getName() : "";
+            final String szPolicyNm = policy != null ? policy.getName() : "";
             LOG.debug( ".getList policyNm: " + szPolicyNm );
-            policiesList = pwPolicyMgr.search( szPolicyNm );
+            // policy searches aren't subject to ARBAC so all admins share one scope:
+            policiesList = ReviewCache.get( ReviewCache.Region.POLICY, ReviewCache.scope( null ), "search:" + szPolicyNm,
+                new ReviewCache.Query<PwPolicy>()
+                {
+                    @Override
+                    public List<PwPolicy> load() throws SecurityException
+                    {
+                        return pwPolicyMgr.search( szPolicyNm );
+                    }
+                } );
             // sort list by policy name:
             if( CollectionUtils.isNotEmpty( policiesList ))
             {
@@ -20,6 +20,8 @@
 package org.apache.directory.fortress.web.model;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.web.control.Prefetch;
+import org.apache.directory.fortress.web.control.ReviewCache;
 import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
@@ -35,6 +37,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -52,7 +56,9 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
     private static final Logger LOG = Logger.getLogger(RoleListModel.class.getName());
     private Role role;
     private SerializableList<? extends Role> roles = null;
+    private transient Future<List<? extends Role>> prefetched;
     private boolean isAdmin;
+    private String scope;
 
 
     public RoleListModel( boolean isAdmin, Session session )
@@ -60,6 +66,7 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
         Injector.get().inject( this );
         this.isAdmin = isAdmin;
         this.reviewMgr.setAdmin( session );
+        this.scope = ReviewCache.scope( session );
     }
     
 
@@ -74,6 +81,7 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
         this.role = role;
         this.isAdmin = isAdmin;
         this.reviewMgr.setAdmin( session );
+        this.scope = ReviewCache.scope( session );
     }
     
 
@@ -91,6 +99,14 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
             return roles;
         }
         
+        List<? extends Role> fetched = Prefetch.get( prefetched );
+        prefetched = null;
+        if ( fetched != null )
+        {
+            roles = new SerializableList<>( fetched );
+            return roles;
+        }
+        
         if ( role == null )
         {
             LOG.debug(".getObject null");
@@ -122,6 +138,29 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
     }
     
 
+    /**
+     * Start loading the list in the background, to be picked up by the first call to {@link #getObject()}.  Called by
+     * pages so the load runs while the rest of the page is constructed and rendered.
+     *
+     * @return this model.
+     */
+    public RoleListModel prefetch()
+    {
+        if ( role != null )
+        {
+            prefetched = Prefetch.submit( new Callable<List<? extends Role>>()
+            {
+                @Override
+                public List<? extends Role> call()
+                {
+                    return isAdmin ? getAdminList( role.getName() ) : getList( role.getName() );
+                }
+            } );
+        }
+        return this;
+    }
+
+
     @Override
     public void detach()
     {
@@ -131,14 +170,22 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
     }
     
 
-    private List<Role> getList( String szRoleNm )
+    private List<Role> getList( final String szRoleNm )
     {
         List<Role> rolesList = null;
         
         try
         {
             LOG.debug( ".getList roleNm: " + szRoleNm );
-            rolesList = reviewMgr.findRoles( szRoleNm );
+            rolesList = ReviewCache.get( ReviewCache.Region.ROLE, scope, "findRoles:" + szRoleNm,
+                new ReviewCache.Query<Role>()
+                {
+                    @Override
+                    public List<Role> load() throws SecurityException
+                    {
+                        return reviewMgr.findRoles( szRoleNm );
+                    }
+                } );
             // sort list by role name:
             if( CollectionUtils.isNotEmpty( rolesList ))
             {
@@ -162,14 +209,22 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
     }
     
 
-    private List<AdminRole> getAdminList( String szRoleNm )
+    private List<AdminRole> getAdminList( final String szRoleNm )
     {
         List<AdminRole> rolesList = null;
         
         try
         {
             LOG.debug( ".getList roleNm: " + szRoleNm );
-            rolesList = delReviewMgr.findRoles( szRoleNm );
+            rolesList = ReviewCache.get( ReviewCache.Region.ADMIN_ROLE, scope, "findRoles:" + szRoleNm,
+                new ReviewCache.Query<AdminRole>()
+                {
+                    @Override
+                    public List<AdminRole> load() throws SecurityException
+                    {
+                        return delReviewMgr.findRoles( szRoleNm );
+                    }
+                } );
             if( CollectionUtils.isNotEmpty( rolesList ))
             {
                 Collections.sort( rolesList, new Comparator<AdminRole>()
@@ -0,0 +1,107 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.web.control.Prefetch;
+import org.apache.directory.fortress.web.control.ReviewCache;
+import org.apache.directory.fortress.web.control.RoleUsage;
+import org.apache.log4j.Logger;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.SecurityException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * The usage statistics of the roles shown by RoleListPanel, see {@link RoleUsage}.  Null if they couldn't be counted.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class RoleUsageModel extends LoadableDetachableModel<RoleUsage>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
+    private static final Logger LOG = Logger.getLogger(RoleUsageModel.class.getName());
+    private transient Future<RoleUsage> prefetched;
+    private boolean isAdmin;
+    private String scope;
+
+
+    public RoleUsageModel( boolean isAdmin, Session session )
+    {
+        Injector.get().inject( this );
+        this.isAdmin = isAdmin;
+        this.reviewMgr.setAdmin( session );
+        this.delReviewMgr.setAdmin( session );
+        this.scope = ReviewCache.scope( session );
+    }
+
+
+    /**
+     * Start counting the statistics in the background, to be picked up by the first call to {@link #getObject()}.
+     *
+     * @return this model.
+     */
+    public RoleUsageModel prefetch()
+    {
+        prefetched = Prefetch.submit( new Callable<RoleUsage>()
+        {
+            @Override
+            public RoleUsage call() throws SecurityException
+            {
+                return RoleUsage.get( reviewMgr, delReviewMgr, scope, isAdmin );
+            }
+        } );
+        return this;
+    }
+
+
+    @Override
+    protected RoleUsage load()
+    {
+        RoleUsage usage = Prefetch.get( prefetched );
+        prefetched = null;
+        if ( usage != null )
+        {
+            return usage;
+        }
+        try
+        {
+            return RoleUsage.get( reviewMgr, delReviewMgr, scope, isAdmin );
+        }
+        catch ( SecurityException se )
+        {
+            String error = ".load caught SecurityException=" + se;
+            LOG.warn( error );
+            return null;
+        }
+    }
+}
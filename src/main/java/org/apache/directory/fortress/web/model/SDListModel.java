@@ -20,6 +20,8 @@
 package org.apache.directory.fortress.web.model;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.web.control.Prefetch;
+import org.apache.directory.fortress.web.control.ReviewCache;
 import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
@@ -34,6 +36,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -49,6 +53,8 @@ public class SDListModel extends Model<SerializableList<SDSet>>
     private static final Logger LOG = Logger.getLogger(SDListModel.class.getName());
     private SDSet sdSet;
     private SerializableList<SDSet> sdSets = null;
+    private transient Future<List<SDSet>> prefetched;
+    private String scope;
 
     /**
      * Default constructor
@@ -57,6 +63,7 @@ public class SDListModel extends Model<SerializableList<SDSet>>
     {
         Injector.get().inject( this );
         reviewMgr.setAdmin( session );
+        scope = ReviewCache.scope( session );
     }
     
 
@@ -70,6 +77,7 @@ public class SDListModel extends Model<SerializableList<SDSet>>
         Injector.get().inject( this );
         this.sdSet = sdSet;
         reviewMgr.setAdmin( session );
+        scope = ReviewCache.scope( session );
     }
     
 
@@ -87,6 +95,14 @@ public class SDListModel extends Model<SerializableList<SDSet>>
             return sdSets;
         }
         
+        List<SDSet> fetched = Prefetch.get( prefetched );
+        prefetched = null;
+        if ( fetched != null )
+        {
+            sdSets = new SerializableList<>( fetched );
+            return sdSets;
+        }
+        
         if ( sdSet == null )
         {
             LOG.debug( ".getObject null" );
@@ -110,6 +126,29 @@ public class SDListModel extends Model<SerializableList<SDSet>>
     }
     
 
+    /**
+     * Start loading the list in the background, to be picked up by the first call to {@link #getObject()}.  Called by
+     * pages so the load runs while the rest of the page is constructed and rendered.
+     *
+     * @return this model.
+     */
+    public SDListModel prefetch()
+    {
+        if ( sdSet != null )
+        {
+            prefetched = Prefetch.submit( new Callable<List<SDSet>>()
+            {
+                @Override
+                public List<SDSet> call()
+                {
+                    return getList( sdSet );
+                }
+            } );
+        }
+        return this;
+    }
+
+
     @Override
     public void detach()
     {
@@ -119,7 +158,7 @@ public class SDListModel extends Model<SerializableList<SDSet>>
     }
 
     
-    private List<SDSet> getList( SDSet sdSet )
+    private List<SDSet> getList( final SDSet sdSet )
     {
         List<SDSet> sdSetList = null;
 
@@ -137,26 +176,58 @@ public class SDListModel extends Model<SerializableList<SDSet>>
             {
                 Object[] roleNms = sdSet.getMembers().toArray();
                 String szRoleNm = (String)roleNms[0];
-                Role role = new Role( szRoleNm );
+                final Role role = new Role( szRoleNm );
                 
                 if ( sdSet.getType().equals( SDSet.SDType.STATIC ) )
                 {
-                    sdSetList = reviewMgr.ssdRoleSets( role );
+                    sdSetList = ReviewCache.get( ReviewCache.Region.SSD, scope, "ssdRoleSets:" + szRoleNm,
+                        new ReviewCache.Query<SDSet>()
+                        {
+                            @Override
+                            public List<SDSet> load() throws SecurityException
+                            {
+                                return reviewMgr.ssdRoleSets( role );
+                            }
+                        } );
                 }
                 else
                 {
-                    sdSetList = reviewMgr.dsdRoleSets( role );
+                    sdSetList = ReviewCache.get( ReviewCache.Region.DSD, scope, "dsdRoleSets:" + szRoleNm,
+                        new ReviewCache.Query<SDSet>()
+                        {
+                            @Override
+                            public List<SDSet> load() throws SecurityException
+                            {
+                                return reviewMgr.dsdRoleSets( role );
+                            }
+                        } );
                 }
             }
             else
             {
                 if ( sdSet.getType().equals( SDSet.SDType.STATIC ) )
                 {
-                    sdSetList = reviewMgr.ssdSets( sdSet );
+                    sdSetList = ReviewCache.get( ReviewCache.Region.SSD, scope, "ssdSets:" + szSdSetNm,
+                        new ReviewCache.Query<SDSet>()
+                        {
+                            @Override
+                            public List<SDSet> load() throws SecurityException
+                            {
+                                return reviewMgr.ssdSets( sdSet );
+                            }
+                        } );
                 }
                 else
                 {
-                    sdSetList = reviewMgr.dsdSets( sdSet );
+                    sdSetList = ReviewCache.get( ReviewCache.Region.DSD, scope, "dsdSets:" + szSdSetNm,
+                        new ReviewCache.Query<SDSet>()
+                        {
+                            @Override
+                            public List<SDSet> load() throws SecurityException
+                            {
+                                return reviewMgr.dsdSets( sdSet );
+                            }
+                        } );
                 }
             }
             // sort list by set name:
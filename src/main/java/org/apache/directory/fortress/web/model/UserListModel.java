@@ -21,11 +21,13 @@ package org.apache.directory.fortress.web.model;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.web.control.Prefetch;
 import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.panel.UserListPanel;
+import org.apache.directory.fortress.web.panel.PhotoResource;
 import org.apache.directory.fortress.core.DelReviewMgr;
 import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.AdminRole;
@@ -41,6 +43,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -59,6 +63,7 @@ public class UserListModel extends Model<SerializableList<User>>
     private User user;
     private Permission perm;
     private SerializableList<User> users = null;
+    private transient Future<List<User>> prefetched;
 
     /**
      * Default constructor
@@ -111,6 +116,14 @@ public class UserListModel extends Model<SerializableList<User>>
             return users;
         }
         
+        List<User> fetched = Prefetch.get( prefetched );
+        prefetched = null;
+        if ( fetched != null )
+        {
+            users = new SerializableList<>( fetched );
+            return users;
+        }
+        
         if ( ( user == null ) && ( perm == null  ))
         {
             log.debug( ".getObject null" );
@@ -134,6 +147,29 @@ public class UserListModel extends Model<SerializableList<User>>
     }
     
 
+    /**
+     * Start loading the list in the background, to be picked up by the first call to {@link #getObject()}.  Called by
+     * pages so the load runs while the rest of the page is constructed and rendered.
+     *
+     * @return this model.
+     */
+    public UserListModel prefetch()
+    {
+        if ( user != null || perm != null )
+        {
+            prefetched = Prefetch.submit( new Callable<List<User>>()
+            {
+                @Override
+                public List<User> call()
+                {
+                    return getList( user );
+                }
+            } );
+        }
+        return this;
+    }
+
+
     @Override
     public void detach()
     {
@@ -183,6 +219,11 @@ public class UserListModel extends Model<SerializableList<User>>
             // sort list by userId:
             if( CollectionUtils.isNotEmpty( usersList ))
             {
+                // photos are served by the photo resource, keep them out of the page store:
+                for ( User user1 : usersList )
+                {
+                    PhotoResource.strip( user1 );
+                }
                 Collections.sort( usersList, new Comparator<User>()
                 {
                     @Override
@@ -0,0 +1,186 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AccountIndex;
+import org.apache.directory.fortress.web.control.AdminScope;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.navigation.paging.AjaxPagingNavigator;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.PageableListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Lists the accounts of the kind chosen on the {@link AccountListPanel}, as of the last refresh of the account index.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AccountDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int ROWS_PER_PAGE = 10;
+    private final Displayable display;
+    private final PageableListView<AccountIndex.Account> accounts;
+    private AccountIndex.Kind kind;
+    private int days;
+    private boolean changed;
+
+
+    public AccountDetailPanel( String id, Displayable display )
+    {
+        super( id );
+        this.display = display;
+        setOutputMarkupId( true );
+        // read from the index on every request, so a refresh is shown once it finishes:
+        final LoadableDetachableModel<List<AccountIndex.Account>> found = new LoadableDetachableModel<List<AccountIndex
+            .Account>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<AccountIndex.Account> load()
+            {
+                AccountIndex.Index index = AccountIndex.getIndex();
+                return index == null || kind == null ? Collections.<AccountIndex.Account>emptyList() : index.find(
+                    kind, days, AdminScope.get( SecUtils.getSession( AccountDetailPanel.this ) ) );
+            }
+        };
+        add( new Label( "accountDetailEmpty", "Choose a kind of account to list" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( kind == null );
+            }
+        } );
+        WebMarkupContainer result = new WebMarkupContainer( "result" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( kind != null );
+            }
+        };
+        add( result );
+        result.add( new Label( "summary", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                if ( kind == null )
+                {
+                    return "";
+                }
+                String summary = found.getObject().size() + " " + kind.getLabel().toLowerCase();
+                return kind == AccountIndex.Kind.LOCKED ? summary : summary + " " + days + " days";
+            }
+        } ) );
+        accounts = new PageableListView<AccountIndex.Account>( "accounts", found, ROWS_PER_PAGE )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<AccountIndex.Account> item )
+            {
+                AccountIndex.Account account = item.getModelObject();
+                item.add( new Label( GlobalIds.USER_ID, account.getUserId() ) );
+                item.add( new Label( "locked", account.isLocked() ? "yes" : "" ) );
+                item.add( new Label( GlobalIds.END_DATE, account.getEndDate() ) );
+                item.add( new Label( "beginLockDate", account.getBeginLockDate() ) );
+                item.add( new Label( "endLockDate", account.getEndLockDate() ) );
+                item.add( new Label( "lastLogin", account.getLastLogin() ) );
+            }
+        };
+        result.add( accounts );
+        result.add( new AjaxPagingNavigator( "navigator", accounts ) );
+    }
+
+
+    /**
+     * Show the accounts of a kind.
+     *
+     * @param kind of the accounts.
+     * @param days the end date is within, or the last login before.
+     */
+    public void setKind( AccountIndex.Kind kind, int days )
+    {
+        this.kind = kind;
+        this.days = days;
+        accounts.setCurrentPage( 0 );
+        changed = true;
+    }
+
+
+    /**
+     * Show the accounts from a refresh that has just finished.
+     */
+    public void refresh( AjaxRequestTarget target )
+    {
+        if ( kind != null )
+        {
+            target.add( this );
+        }
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            AjaxRequestTarget target = ( AjaxRequestTarget ) event.getPayload();
+            changed = false;
+            target.add( this );
+            display.display( target );
+        }
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AccountIndex;
+import org.apache.directory.fortress.web.control.AdminScope;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
+import org.apache.wicket.ajax.AbstractAjaxTimerBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.validation.validator.RangeValidator;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * Counts the accounts locked, those ending within some days and those with no login within some days, from the last
+ * refresh of the account index, see {@link AccountIndex}, those of a kind are shown by the {@link AccountDetailPanel}.
+ * The counts follow the days as they're changed.  The locked accounts may be unlocked, and the end date of those ending
+ * extended, the browser then checks back until the index has been refreshed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AccountListPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int POLL_SECONDS = 2;
+    private static final int MAX_DAYS = 3650;
+    @SpringBean
+    private AdminMgr adminMgr;
+    private final Displayable display;
+    private final AbstractAjaxTimerBehavior poll;
+    // refresh time of the index shown when one was started, polling stops when it's replaced:
+    private Long waitingOn;
+    private boolean changed;
+    private Integer expiringDays = 7;
+    private Integer extendDays = 30;
+    private Integer idleDays = 30;
+
+
+    public AccountListPanel( String id, Displayable display, final AccountDetailPanel detailPanel )
+    {
+        super( id );
+        this.display = display;
+        this.adminMgr.setAdmin( SecUtils.getSession( this ) );
+        setOutputMarkupId( true );
+        add( new Label( "activity", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                String activity = AccountIndex.getActivity();
+                if ( activity != null )
+                {
+                    return activity + "...";
+                }
+                if ( AccountIndex.getIndex() == null )
+                {
+                    return "The first refresh hasn't finished yet";
+                }
+                return AccountIndex.getMessage( SecUtils.getSession( AccountListPanel.this ) );
+            }
+        } ) );
+        add( new RefreshLink( "refresh", false ) );
+        add( new RefreshLink( "fullRefresh", true ) );
+        WebMarkupContainer result = new WebMarkupContainer( "result" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( AccountIndex.getIndex() != null );
+            }
+        };
+        add( result );
+        result.add( new Label( "summary", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                AccountIndex.Index index = AccountIndex.getIndex();
+                if ( index == null )
+                {
+                    return "";
+                }
+                SimpleDateFormat format = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
+                return index.getUserCount( scope() ) + " users.  Last refreshed " + format.format( new Date( index.getIndexed()
+                    ) ) + ( index.isFull() ? " in full" : ", changes only" ) + ", in " + index.getElapsedMillis()
+                    + "ms, logins from the last " + AccountIndex.getLoginDays() + " days";
+            }
+        } ) );
+        Form<Void> form = new Form<>( "accountForm" );
+        result.add( form );
+        form.add( new CountLabel( "lockedCount", AccountIndex.Kind.LOCKED ) );
+        form.add( new ShowLink( "showLocked", AccountIndex.Kind.LOCKED, detailPanel ) );
+        form.add( new UpdateLink( "unlock", AccountIndex.Kind.LOCKED, "unlockUserAccount" ) );
+        form.add( new DaysField( "expiringDays", 0, MAX_DAYS ) );
+        form.add( new CountLabel( "expiringCount", AccountIndex.Kind.EXPIRING ) );
+        form.add( new ShowLink( "showExpiring", AccountIndex.Kind.EXPIRING, detailPanel ) );
+        form.add( new DaysField( "extendDays", 1, MAX_DAYS ) );
+        form.add( new UpdateLink( "extend", AccountIndex.Kind.EXPIRING, GlobalIds.UPDATE_USER ) );
+        form.add( new DaysField( "idleDays", 1, AccountIndex.getLoginDays() ) );
+        form.add( new CountLabel( "idleCount", AccountIndex.Kind.IDLE ) );
+        form.add( new ShowLink( "showIdle", AccountIndex.Kind.IDLE, detailPanel ) );
+        poll = new AbstractAjaxTimerBehavior( Duration.seconds( POLL_SECONDS ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onTimer( AjaxRequestTarget target )
+            {
+                if ( !isWaiting() )
+                {
+                    waitingOn = null;
+                    stop( target );
+                    target.add( AccountListPanel.this );
+                    detailPanel.refresh( target );
+                }
+            }
+        };
+        add( poll );
+        poll.stop( null );
+    }
+
+
+    /**
+     * A number of days, the counts are shown again as soon as it's changed.
+     */
+    private class DaysField extends TextField<Integer>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        DaysField( String id, int min, int max )
+        {
+            super( id, new PropertyModel<Integer>( AccountListPanel.this, id ), Integer.class );
+            setRequired( true );
+            add( new RangeValidator<>( min, max ) );
+            add( new AjaxFormComponentUpdatingBehavior( "change" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onUpdate( AjaxRequestTarget target )
+                {
+                    target.add( AccountListPanel.this );
+                }
+
+
+                @Override
+                protected void onError( AjaxRequestTarget target, RuntimeException e )
+                {
+                    display.display( target );
+                }
+            } );
+        }
+    }
+
+
+    private class CountLabel extends Label
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        CountLabel( String id, final AccountIndex.Kind kind )
+        {
+            super( id, new AbstractReadOnlyModel<String>()
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                public String getObject()
+                {
+                    return String.valueOf( find( kind ).size() );
+                }
+            } );
+        }
+    }
+
+
+    private class ShowLink extends AjaxLink<Void>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final AccountIndex.Kind kind;
+        private final AccountDetailPanel detailPanel;
+
+
+        ShowLink( String id, AccountIndex.Kind kind, AccountDetailPanel detailPanel )
+        {
+            super( id );
+            this.kind = kind;
+            this.detailPanel = detailPanel;
+        }
+
+
+        @Override
+        public void onClick( AjaxRequestTarget target )
+        {
+            detailPanel.setKind( kind, days( kind ) );
+        }
+
+
+        @Override
+        protected void onConfigure()
+        {
+            super.onConfigure();
+            setVisible( !find( kind ).isEmpty() );
+        }
+    }
+
+
+    /**
+     * Unlocks, or extends, the accounts of a kind.
+     */
+    private class UpdateLink extends SecureIndicatingAjaxLink
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final AccountIndex.Kind kind;
+
+
+        UpdateLink( String id, AccountIndex.Kind kind, String operation )
+        {
+            super( id, GlobalIds.ADMIN_MGR, operation );
+            this.kind = kind;
+        }
+
+
+        @Override
+        public void onClick( AjaxRequestTarget target )
+        {
+            List<String> userIds = new ArrayList<>();
+            for ( AccountIndex.Account account : find( kind ) )
+            {
+                userIds.add( account.getUserId() );
+            }
+            Session session = SecUtils.getSession( this );
+            boolean isStarted = kind == AccountIndex.Kind.LOCKED ? AccountIndex.unlock( userIds, adminMgr, session )
+                : AccountIndex.extend( userIds, expiringDays, extendDays, adminMgr, session );
+            if ( isStarted )
+            {
+                AccountIndex.Index index = AccountIndex.getIndex();
+                waitingOn = index != null ? index.getIndexed() : 0L;
+                display.setMessage( ( kind == AccountIndex.Kind.LOCKED ? "Unlocking " : "Extending " ) + userIds
+                    .size() + " accounts" );
+            }
+            else
+            {
+                String activity = AccountIndex.getActivity();
+                display.setMessage( activity != null ? "Already running: " + activity : "Refreshes aren't running" );
+            }
+            changed = true;
+        }
+
+
+        @Override
+        protected void onConfigure()
+        {
+            super.onConfigure();
+            setVisible( !find( kind ).isEmpty() );
+        }
+
+
+        @Override
+        protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+        {
+            super.updateAjaxAttributes( attributes );
+            String question = kind == AccountIndex.Kind.LOCKED ? "Unlock the accounts that are still locked?" :
+                "Extend the end date of the accounts still ending within the days?";
+            attributes.getAjaxCallListeners().add( new AjaxCallListener().onPrecondition( "return confirm('"
+                + question + "');" ) );
+        }
+    }
+
+
+    /**
+     * Starts a refresh, and the polling for its result.
+     */
+    private class RefreshLink extends SecureIndicatingAjaxLink
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final boolean full;
+
+
+        RefreshLink( String id, boolean full )
+        {
+            super( id, GlobalIds.REVIEW_MGR, GlobalIds.FIND_USERS );
+            this.full = full;
+        }
+
+
+        @Override
+        public void onClick( AjaxRequestTarget target )
+        {
+            AccountIndex.Index index = AccountIndex.getIndex();
+            if ( AccountIndex.refreshNow( full ) )
+            {
+                waitingOn = index != null ? index.getIndexed() : 0L;
+                display.setMessage( full ? "Full refresh started" : "Refresh of the changes started" );
+            }
+            else
+            {
+                display.setMessage( "Refreshes aren't running" );
+            }
+            changed = true;
+        }
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            AjaxRequestTarget target = ( AjaxRequestTarget ) event.getPayload();
+            changed = false;
+            if ( poll.isStopped() && isWaiting() )
+            {
+                poll.restart( target );
+            }
+            target.add( this );
+            display.display( target );
+        }
+    }
+
+
+    /**
+     * @return the accounts of a kind for the days entered, empty if the index isn't ready.
+     */
+    private List<AccountIndex.Account> find( AccountIndex.Kind kind )
+    {
+        AccountIndex.Index index = AccountIndex.getIndex();
+        return index != null ? index.find( kind, days( kind ), scope() ) : new ArrayList<AccountIndex.Account>();
+    }
+
+
+    /**
+     * @return the ARBAC scope of the administrator, only the accounts within it are listed and updated.
+     */
+    private AdminScope scope()
+    {
+        return AdminScope.get( SecUtils.getSession( this ) );
+    }
+
+
+    private int days( AccountIndex.Kind kind )
+    {
+        return kind == AccountIndex.Kind.IDLE ? idleDays : expiringDays;
+    }
+
+
+    private boolean isWaiting()
+    {
+        if ( AccountIndex.getActivity() != null )
+        {
+            return true;
+        }
+        if ( waitingOn == null )
+        {
+            return false;
+        }
+        AccountIndex.Index index = AccountIndex.getIndex();
+        return ( index != null ? index.getIndexed() : 0L ) == waitingOn;
+    }
+}
@@ -26,13 +26,11 @@ import com.inmethod.grid.IGridColumn;
 import com.inmethod.grid.column.PropertyColumn;
 import com.inmethod.grid.treegrid.TreeGrid;
 import org.apache.commons.lang.StringUtils;
-import org.apache.directory.fortress.core.util.time.TUtil;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.CheckBox;
@@ -40,7 +38,12 @@ import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.directory.fortress.web.model.AuditAuthzListModel;
+import org.apache.directory.fortress.web.control.AuditExport;
+import org.apache.directory.fortress.web.control.AuditExportServlet;
+import org.apache.directory.fortress.web.control.FormSyncBehavior;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
 import org.apache.directory.fortress.web.AuditAuthzPage;
 import org.apache.directory.fortress.web.common.GlobalIds;
 import org.apache.directory.fortress.web.control.SecUtils;
@@ -56,10 +59,7 @@ import org.apache.directory.fortress.core.model.UserAudit;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 
@@ -86,18 +86,32 @@ public class AuditAuthzListPanel extends FormComponentPanel
 
 
     public AuditAuthzListPanel( String id, UserAudit userAudit )
+    {
+        this( id, userAudit, null );
+    }
+
+
+    /**
+     * @param pageModel search results, e.g. loaded on the audit pool by the page, see
+     * {@link AuditAuthzListModel#search}.  Loaded here if null.
+     */
+    public AuditAuthzListPanel( String id, UserAudit userAudit, AuditAuthzListModel pageModel )
     {
         super( id );
-        init( userAudit );
+        init( userAudit, pageModel );
     }
 
 
-    private void init( UserAudit userAudit )
+    private void init( UserAudit userAudit, AuditAuthzListModel pageModel )
     {
-        AuditAuthzListModel pageModel = new AuditAuthzListModel( userAudit, SecUtils.getSession( this ) );
+        if ( pageModel == null )
+        {
+            pageModel = new AuditAuthzListModel( userAudit, SecUtils.getSession( this ) );
+        }
         setDefaultModel( pageModel );
         createAndLoadGrid();
         this.listForm = new Form( "authzform" );
+        this.listForm.add( new FormSyncBehavior() );
         this.listForm.addOrReplace( grid );
         this.listForm.setModel( new CompoundPropertyModel<>( userAudit ) );
         addEditFields();
@@ -108,92 +122,27 @@ public class AuditAuthzListPanel extends FormComponentPanel
 
     private void addEditFields()
     {
-        userFld = new TextField( GlobalIds.USER_ID );
+        userFld = new SuggestionTextField( GlobalIds.USER_ID, SuggestionIndex.Type.USER );
         userFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( userFld );
-            }
-        };
-        userFld.add( ajaxUpdater );
         this.listForm.add( userFld );
         addUserSearchModal();
 
-        objFld = new TextField( GlobalIds.OBJ_NAME );
+        objFld = new SuggestionTextField( GlobalIds.OBJ_NAME, SuggestionIndex.Type.PERM_OBJ );
         objFld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( objFld );
-            }
-        };
-        objFld.add( ajaxUpdater );
         this.listForm.add( objFld );
 
         opFld = new TextField( GlobalIds.OP_NAME );
         opFld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( opFld );
-            }
-        };
-        opFld.add( ajaxUpdater );
         this.listForm.add( opFld );
 
         final CheckBox isAdminCB = new CheckBox( GlobalIds.ADMIN );
         isAdminCB.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( isAdminCB );
-            }
-        };
-        isAdminCB.add( ajaxUpdater );
         isAdminCB.setRequired( false );
         this.listForm.add( isAdminCB );
         addPermSearchModal();
 
         final CheckBox failedOnlyCB = new CheckBox( GlobalIds.FAILED_ONLY );
         failedOnlyCB.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( failedOnlyCB );
-            }
-        };
-        failedOnlyCB.add( ajaxUpdater );
         failedOnlyCB.setRequired( false );
         this.listForm.add( failedOnlyCB );
 
@@ -203,38 +152,12 @@ public class AuditAuthzListPanel extends FormComponentPanel
         // Begin Date
         beginDateDP = new DatePicker( GlobalIds.BEGIN_DATE );
         beginDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( beginDateDP );
-            }
-        };
-        beginDateDP.add( ajaxUpdater );
         beginDateDP.setRequired( false );
         this.listForm.add( beginDateDP );
 
         // End Date
         endDateDP = new DatePicker( GlobalIds.END_DATE );
         endDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( endDateDP );
-            }
-        };
-        endDateDP.add( ajaxUpdater );
         endDateDP.setRequired( false );
         this.listForm.add( endDateDP );
     }
@@ -293,6 +216,39 @@ public class AuditAuthzListPanel extends FormComponentPanel
                 attributes.getAjaxCallListeners().add( ajaxCallListener );
             }
         } );
+        this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.EXPORT, GlobalIds.AUDIT_MGR,
+            GlobalIds.GET_USER_AUTHZS )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target, Form form )
+            {
+                LOG.debug( ".export onSubmit" );
+                // the export is downloaded by a separate request, so gets its own copy of the search arguments:
+                UserAudit userAudit = WicketObjects.cloneObject( ( UserAudit ) listForm.getModelObject() );
+                if ( !StringUtils.isNotEmpty( userAudit.getUserId() ) )
+                {
+                    userAudit.setUserId( "" );
+                }
+                if ( permission != null )
+                {
+                    userAudit.setDn( permission.getDn() );
+                }
+                String url = AuditExportServlet.register( new AuthzExport( new AuditAuthzListModel( userAudit,
+                    SecUtils.getSession( this ) ) ) );
+                target.appendJavaScript( "window.location.href='" + url + "';" );
+            }
+
+
+            @Override
+            public void onError( AjaxRequestTarget target, Form form )
+            {
+                LOG.warn( ".export.onError" );
+            }
+        } );
         this.listForm.add( new AjaxSubmitLink( GlobalIds.CLEAR )
         {
             /** Default serialVersionUID */
@@ -582,36 +538,34 @@ public class AuditAuthzListPanel extends FormComponentPanel
     {
         for ( AuthZ authZ : authZs )
         {
-            Date start = null;
-            try
-            {
-                start = TUtil.decodeGeneralizedTime( authZ.getReqStart() );
-            }
-            catch ( ParseException pe )
-            {
-                LOG.warn( "ParseException=" + pe.getMessage() );
-            }
-            if ( start != null )
-            {
-                SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
-                String formattedDate = formatter.format( start );
-                authZ.setReqStart( formattedDate );
-            }
-            authZ.setReqResult( GlobalIds.FAILURE );
-            /*
-                        TODO: On RC40 - Replace above line with the following:
-                        if(StringUtils.isNotEmpty( authZ.getReqAssertion() ) && (authZ.getReqAssertion().equals( org.apache.directory.fortress.core.GlobalIds.AUTH_Z_FAILED_VALUE ) ) )
-                        {
-                            authZ.setReqResult( GlobalIds.FAILURE );
-                        }
-                        else
-                        {
-                            authZ.setReqResult( GlobalIds.SUCCESS );
-                        }
-            */
-            authZ.setReqAuthzID( AuditUtils.getAuthZId( authZ.getReqAuthzID() ) );
-            AuditUtils.mapAuthZPerm( authZ );
+            AuditUtils.format( authZ );
             rootNode.add( new DefaultMutableTreeNode( authZ ) );
         }
     }
+
+
+    /**
+     * Downloads the authorization records matching the search, with the values shown in the grid.
+     */
+    private static final class AuthzExport extends AuditExport<AuthZ>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        AuthzExport( AuditAuthzListModel model )
+        {
+            super( "authorizations.csv", model, "Timestamp", "User ID", "Object Name", "Object ID",
+                "Operation", "Result" );
+        }
+
+
+        @Override
+        protected String[] toRow( AuthZ authZ )
+        {
+            AuditUtils.format( authZ );
+            return new String[] { authZ.getReqStart(), authZ.getReqAuthzID(), authZ.getReqAttr(),
+                authZ.getReqDerefAliases(), authZ.getReqAttrsOnly(), authZ.getReqResult() };
+        }
+    }
 }
@@ -27,13 +27,11 @@ import com.inmethod.grid.column.PropertyColumn;
 import com.inmethod.grid.treegrid.TreeGrid;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.directory.fortress.core.util.time.TUtil;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.CheckBox;
@@ -41,14 +39,18 @@ import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.directory.fortress.web.model.AuditBindListModel;
+import org.apache.directory.fortress.web.control.AuditExport;
+import org.apache.directory.fortress.web.control.AuditExportServlet;
+import org.apache.directory.fortress.web.control.FormSyncBehavior;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
 import org.apache.directory.fortress.web.AuditBindPage;
 import org.apache.directory.fortress.web.common.GlobalIds;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.web.model.SerializableList;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 import org.apache.directory.fortress.core.model.Bind;
@@ -58,10 +60,7 @@ import org.apache.directory.fortress.core.model.UserAudit;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 
@@ -85,19 +84,33 @@ public class AuditBindListPanel extends FormComponentPanel
 
 
     public AuditBindListPanel( String id, UserAudit userAudit )
+    {
+        this( id, userAudit, null );
+    }
+
+
+    /**
+     * @param pageModel search results, e.g. loaded on the audit pool by the page, see
+     * {@link AuditBindListModel#search}.  Loaded here if null.
+     */
+    public AuditBindListPanel( String id, UserAudit userAudit, AuditBindListModel pageModel )
     {
         super( id );
-        init( userAudit );
+        init( userAudit, pageModel );
     }
 
 
     @SuppressWarnings( "Convert2Diamond" )
-    private void init( UserAudit userAudit )
+    private void init( UserAudit userAudit, AuditBindListModel pageModel )
     {
-        IModel<SerializableList<Bind>> pageModel = new AuditBindListModel( userAudit, SecUtils.getSession( this ) );
+        if ( pageModel == null )
+        {
+            pageModel = new AuditBindListModel( userAudit, SecUtils.getSession( this ) );
+        }
         setDefaultModel( pageModel );
         createAndLoadGrid();
         this.listForm = new Form( "bindform" );
+        this.listForm.add( new FormSyncBehavior() );
         this.listForm.addOrReplace( grid );
         this.listForm.setModel( new CompoundPropertyModel<UserAudit>( userAudit ) );
         addEditFields();
@@ -108,77 +121,25 @@ public class AuditBindListPanel extends FormComponentPanel
 
     private void addEditFields()
     {
-        userFld = new TextField( GlobalIds.USER_ID );
+        userFld = new SuggestionTextField( GlobalIds.USER_ID, SuggestionIndex.Type.USER );
         userFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( userFld );
-            }
-        };
-        userFld.add( ajaxUpdater );
         this.listForm.add( userFld );
         addUserSearchModal();
 
         final CheckBox failedOnlyCB = new CheckBox( GlobalIds.FAILED_ONLY );
         failedOnlyCB.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( failedOnlyCB );
-            }
-        };
-        failedOnlyCB.add( ajaxUpdater );
         failedOnlyCB.setRequired( false );
         this.listForm.add( failedOnlyCB );
 
         // Begin Date
         beginDateDP = new DatePicker( GlobalIds.BEGIN_DATE );
         beginDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( beginDateDP );
-            }
-        };
-        beginDateDP.add( ajaxUpdater );
         beginDateDP.setRequired( false );
         this.listForm.add( beginDateDP );
 
         // End Date
         endDateDP = new DatePicker( GlobalIds.END_DATE );
         endDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( endDateDP );
-            }
-        };
-        endDateDP.add( ajaxUpdater );
         endDateDP.setRequired( false );
         this.listForm.add( endDateDP );
     }
@@ -233,6 +194,35 @@ public class AuditBindListPanel extends FormComponentPanel
                 attributes.getAjaxCallListeners().add( ajaxCallListener );
             }
         } );
+        this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.EXPORT, GlobalIds.AUDIT_MGR,
+            GlobalIds.GET_USER_BINDS )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target, Form form )
+            {
+                LOG.debug( ".export onSubmit" );
+                // the export is downloaded by a separate request, so gets its own copy of the search arguments:
+                UserAudit userAudit = WicketObjects.cloneObject( ( UserAudit ) listForm.getModelObject() );
+                if ( !StringUtils.isNotEmpty( userAudit.getUserId() ) )
+                {
+                    userAudit.setUserId( "" );
+                }
+                String url = AuditExportServlet.register( new BindExport( new AuditBindListModel( userAudit,
+                    SecUtils.getSession( this ) ) ) );
+                target.appendJavaScript( "window.location.href='" + url + "';" );
+            }
+
+
+            @Override
+            public void onError( AjaxRequestTarget target, Form form )
+            {
+                LOG.warn( ".export.onError" );
+            }
+        } );
         this.listForm.add( new AjaxSubmitLink( GlobalIds.CLEAR )
         {
             /** Default serialVersionUID */
@@ -426,31 +416,32 @@ public class AuditBindListPanel extends FormComponentPanel
     {
         for ( Bind bind : binds )
         {
-            Date start = null;
-            try
-            {
-                start = TUtil.decodeGeneralizedTime( bind.getReqStart() );
-            }
-            catch ( ParseException pe )
-            {
-                LOG.warn( "ParseException=" + pe.getMessage() );
-            }
-            if ( start != null )
-            {
-                SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
-                String formattedDate = formatter.format( start );
-                bind.setReqStart( formattedDate );
-            }
-            if ( bind.getReqResult().equals( GlobalIds.BIND_SUCCESS_CODE ) )
-            {
-                bind.setReqResult( GlobalIds.SUCCESS );
-            }
-            else
-            {
-                bind.setReqResult( GlobalIds.FAILURE );
-            }
-            bind.setReqDN( AuditUtils.getAuthZId( bind.getReqDN() ) );
+            AuditUtils.format( bind );
             rootNode.add( new DefaultMutableTreeNode( bind ) );
         }
     }
+
+
+    /**
+     * Downloads the bind records matching the search, with the values shown in the grid.
+     */
+    private static final class BindExport extends AuditExport<Bind>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        BindExport( AuditBindListModel model )
+        {
+            super( "binds.csv", model, "Timestamp", "User ID", "Result" );
+        }
+
+
+        @Override
+        protected String[] toRow( Bind bind )
+        {
+            AuditUtils.format( bind );
+            return new String[] { bind.getReqStart(), bind.getReqDN(), bind.getReqResult() };
+        }
+    }
 }
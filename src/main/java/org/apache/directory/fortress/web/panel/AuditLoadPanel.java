@@ -0,0 +1,116 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AbstractAjaxTimerBehavior;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.handler.resource.ResourceReferenceRequestHandler;
+import org.apache.wicket.util.time.Duration;
+
+
+/**
+ * Stands in for an audit list panel until its search, running on the audit pool, has completed.  Unlike an
+ * {@link org.apache.wicket.extensions.ajax.markup.html.AjaxLazyLoadPanel}, whose request waits for the data, the
+ * browser checks back every poll interval and each check returns straight away, so no container thread is held while
+ * the directory is searched.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class AuditLoadPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final String CONTENT_ID = "content";
+    private static final int POLL_MILLIS = Config.getInstance().getInt( GlobalIds.AUDIT_POLL_MILLIS, 1000 );
+    private final AbstractAjaxTimerBehavior poll;
+    private boolean loaded;
+
+
+    public AuditLoadPanel( String id )
+    {
+        super( id );
+        setOutputMarkupId( true );
+        add( new Label( CONTENT_ID, "<img alt=\"Loading...\" src=\"" + RequestCycle.get().urlFor(
+            new ResourceReferenceRequestHandler( AbstractDefaultAjaxBehavior.INDICATOR ) ) + "\"/>" )
+            .setEscapeModelStrings( false ) );
+        poll = new AbstractAjaxTimerBehavior( Duration.milliseconds( POLL_MILLIS ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onTimer( AjaxRequestTarget target )
+            {
+                if ( !loaded && isLoaded() )
+                {
+                    stop( target );
+                    load();
+                    target.add( AuditLoadPanel.this );
+                }
+            }
+        };
+        add( poll );
+    }
+
+
+    @Override
+    protected void onConfigure()
+    {
+        super.onConfigure();
+        // quick searches may be done before the page is first rendered:
+        if ( !loaded && isLoaded() )
+        {
+            load();
+            remove( poll );
+        }
+    }
+
+
+    /**
+     * Return true once the search has completed, so the list panel may be created without waiting for it.
+     */
+    protected abstract boolean isLoaded();
+
+
+    /**
+     * Create the list panel, once the search has completed.
+     *
+     * @param id of the component to create.
+     * @return the list panel.
+     */
+    public abstract Component getLazyLoadComponent( String id );
+
+
+    private void load()
+    {
+        loaded = true;
+        replace( getLazyLoadComponent( CONTENT_ID ) );
+    }
+}
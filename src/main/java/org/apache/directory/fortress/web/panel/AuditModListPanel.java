@@ -27,27 +27,29 @@ import com.inmethod.grid.column.PropertyColumn;
 import com.inmethod.grid.treegrid.TreeGrid;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.directory.fortress.core.util.time.TUtil;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.directory.fortress.web.model.AuditModListModel;
+import org.apache.directory.fortress.web.control.AuditExport;
+import org.apache.directory.fortress.web.control.AuditExportServlet;
+import org.apache.directory.fortress.web.control.FormSyncBehavior;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
 import org.apache.directory.fortress.web.AuditModPage;
 import org.apache.directory.fortress.web.common.GlobalIds;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.web.model.SerializableList;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 import org.apache.directory.fortress.core.model.Mod;
@@ -58,10 +60,7 @@ import org.apache.directory.fortress.core.model.UserAudit;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 
@@ -88,18 +87,32 @@ public class AuditModListPanel extends FormComponentPanel
 
 
     public AuditModListPanel( String id, UserAudit userAudit )
+    {
+        this( id, userAudit, null );
+    }
+
+
+    /**
+     * @param pageModel search results, e.g. loaded on the audit pool by the page, see
+     * {@link AuditModListModel#search}.  Loaded here if null.
+     */
+    public AuditModListPanel( String id, UserAudit userAudit, AuditModListModel pageModel )
     {
         super( id );
-        init( userAudit );
+        init( userAudit, pageModel );
     }
 
 
-    private void init( UserAudit userAudit )
+    private void init( UserAudit userAudit, AuditModListModel pageModel )
     {
-        IModel<SerializableList<Mod>> pageModel = new AuditModListModel( userAudit, SecUtils.getSession( this ) );
+        if ( pageModel == null )
+        {
+            pageModel = new AuditModListModel( userAudit, SecUtils.getSession( this ) );
+        }
         setDefaultModel( pageModel );
         createAndLoadGrid();
         this.listForm = new Form( "modform" );
+        this.listForm.add( new FormSyncBehavior() );
         this.listForm.addOrReplace( grid );
         this.listForm.setModel( new CompoundPropertyModel<>( userAudit ) );
         addFormFields();
@@ -110,94 +123,29 @@ public class AuditModListPanel extends FormComponentPanel
 
     private void addFormFields()
     {
-        userFld = new TextField( GlobalIds.USER_ID );
+        userFld = new SuggestionTextField( GlobalIds.USER_ID, SuggestionIndex.Type.USER );
         userFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( userFld );
-            }
-        };
-        userFld.add( ajaxUpdater );
         this.listForm.add( userFld );
         addUserSearchModal();
 
-        objFld = new TextField( GlobalIds.OBJ_NAME );
+        objFld = new SuggestionTextField( GlobalIds.OBJ_NAME, SuggestionIndex.Type.PERM_OBJ );
         objFld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( objFld );
-            }
-        };
-        objFld.add( ajaxUpdater );
         this.listForm.add( objFld );
 
         opFld = new TextField( GlobalIds.OP_NAME );
         opFld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( opFld );
-            }
-        };
-        opFld.add( ajaxUpdater );
         this.listForm.add( opFld );
         addPermSearchModal();
 
         // Begin Date
         beginDateDP = new DatePicker( GlobalIds.BEGIN_DATE );
         beginDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( beginDateDP );
-            }
-        };
-        beginDateDP.add( ajaxUpdater );
         beginDateDP.setRequired( false );
         this.listForm.add( beginDateDP );
 
         // End Date
         endDateDP = new DatePicker( GlobalIds.END_DATE );
         endDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( endDateDP );
-            }
-        };
-        endDateDP.add( ajaxUpdater );
         endDateDP.setRequired( false );
         this.listForm.add( endDateDP );
     }
@@ -255,6 +203,38 @@ public class AuditModListPanel extends FormComponentPanel
                 attributes.getAjaxCallListeners().add( ajaxCallListener );
             }
         } );
+        this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.EXPORT, GlobalIds.AUDIT_MGR, "searchAdminMods" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target, Form form )
+            {
+                LOG.debug( ".export onSubmit" );
+                // the export is downloaded by a separate request, so gets its own copy of the search arguments:
+                UserAudit userAudit = WicketObjects.cloneObject( ( UserAudit ) listForm.getModelObject() );
+                if ( !StringUtils.isNotEmpty( userAudit.getUserId() ) )
+                {
+                    userAudit.setUserId( "" );
+                }
+                if ( permission != null )
+                {
+                    userAudit.setDn( permission.getDn() );
+                }
+                String url = AuditExportServlet.register( new ModExport( new AuditModListModel( userAudit,
+                    SecUtils.getSession( this ) ) ) );
+                target.appendJavaScript( "window.location.href='" + url + "';" );
+            }
+
+
+            @Override
+            public void onError( AjaxRequestTarget target, Form form )
+            {
+                LOG.warn( ".export.onError" );
+            }
+        } );
         this.listForm.add( new AjaxSubmitLink( GlobalIds.CLEAR )
         {
             /** Default serialVersionUID */
@@ -522,22 +502,32 @@ public class AuditModListPanel extends FormComponentPanel
     {
         for ( Mod mod : mods )
         {
-            Date start = null;
-            try
-            {
-                start = TUtil.decodeGeneralizedTime( mod.getReqStart() );
-            }
-            catch ( ParseException pe )
-            {
-                LOG.warn( "ParseException=" + pe.getMessage() );
-            }
-            if ( start != null )
-            {
-                SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
-                String formattedDate = formatter.format( start );
-                mod.setReqStart( formattedDate );
-            }
+            AuditUtils.format( mod );
             rootNode.add( new DefaultMutableTreeNode( mod ) );
         }
     }
+
+
+    /**
+     * Downloads the modification records matching the search, with the values shown in the grid.
+     */
+    private static final class ModExport extends AuditExport<Mod>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        ModExport( AuditModListModel model )
+        {
+            super( "modifications.csv", model, "Timestamp", "LDAP Operation", "Target Location" );
+        }
+
+
+        @Override
+        protected String[] toRow( Mod mod )
+        {
+            AuditUtils.format( mod );
+            return new String[] { mod.getReqStart(), mod.getReqType(), mod.getReqDN() };
+        }
+    }
 }
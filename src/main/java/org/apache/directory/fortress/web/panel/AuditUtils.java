@@ -23,11 +23,17 @@ package org.apache.directory.fortress.web.panel;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.Mod;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.util.time.TUtil;
 import org.apache.log4j.Logger;
 
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
 import java.util.StringTokenizer;
 
@@ -216,4 +222,78 @@ final class AuditUtils
         }
         return user;
     }
+
+
+    /**
+     * Convert the raw values of an authorization record to the form shown by the audit pages and exports.
+     *
+     * @param authZ as returned by the audit manager, updated in place.
+     */
+    static void format( AuthZ authZ )
+    {
+        authZ.setReqStart( formatTimestamp( authZ.getReqStart() ) );
+        authZ.setReqResult( org.apache.directory.fortress.web.common.GlobalIds.FAILURE );
+        /*
+                    TODO: On RC40 - Replace above line with the following:
+                    if(StringUtils.isNotEmpty( authZ.getReqAssertion() ) && (authZ.getReqAssertion().equals( org.apache.directory.fortress.core.GlobalIds.AUTH_Z_FAILED_VALUE ) ) )
+                    {
+                        authZ.setReqResult( GlobalIds.FAILURE );
+                    }
+                    else
+                    {
+                        authZ.setReqResult( GlobalIds.SUCCESS );
+                    }
+        */
+        authZ.setReqAuthzID( getAuthZId( authZ.getReqAuthzID() ) );
+        mapAuthZPerm( authZ );
+    }
+
+    /**
+     * Convert the raw values of a bind record to the form shown by the audit pages and exports.
+     *
+     * @param bind as returned by the audit manager, updated in place.
+     */
+    static void format( Bind bind )
+    {
+        bind.setReqStart( formatTimestamp( bind.getReqStart() ) );
+        if ( bind.getReqResult().equals( org.apache.directory.fortress.web.common.GlobalIds.BIND_SUCCESS_CODE ) )
+        {
+            bind.setReqResult( org.apache.directory.fortress.web.common.GlobalIds.SUCCESS );
+        }
+        else
+        {
+            bind.setReqResult( org.apache.directory.fortress.web.common.GlobalIds.FAILURE );
+        }
+        bind.setReqDN( getAuthZId( bind.getReqDN() ) );
+    }
+
+    /**
+     * Convert the raw values of a modification record to the form shown by the audit pages and exports.
+     *
+     * @param mod as returned by the audit manager, updated in place.
+     */
+    static void format( Mod mod )
+    {
+        mod.setReqStart( formatTimestamp( mod.getReqStart() ) );
+    }
+
+    private static String formatTimestamp( String reqStart )
+    {
+        Date start = null;
+        try
+        {
+            start = TUtil.decodeGeneralizedTime( reqStart );
+        }
+        catch ( ParseException pe )
+        {
+            LOG.warn( "ParseException=" + pe.getMessage() );
+        }
+        if ( start == null )
+        {
+            return reqStart;
+        }
+        SimpleDateFormat formatter = new SimpleDateFormat(
+            org.apache.directory.fortress.web.common.GlobalIds.AUDIT_TIMESTAMP_FORMAT );
+        return formatter.format( start );
+    }
 }
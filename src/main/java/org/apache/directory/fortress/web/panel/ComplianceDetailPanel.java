@@ -0,0 +1,217 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AdminScope;
+import org.apache.directory.fortress.web.control.ComplianceScan;
+import org.apache.directory.fortress.web.control.RoleAssignmentIndex;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.navigation.paging.AjaxPagingNavigator;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.PageableListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Lists the users the last compliance scan found violating an SSD set, chosen on the {@link ComplianceListPanel}, with
+ * the set's members each is authorized for.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ComplianceDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_SHOWN = Config.getInstance().getInt( GlobalIds.COMPLIANCE_MAX_SHOWN, 1000 );
+    private static final int ROWS_PER_PAGE = 10;
+    private final Displayable display;
+    private final LoadableDetachableModel<List<RoleAssignmentIndex.Conflict>> violations;
+    private final PageableListView<RoleAssignmentIndex.Conflict> users;
+    private String setName;
+    private boolean changed;
+
+
+    public ComplianceDetailPanel( String id, Displayable display )
+    {
+        super( id );
+        this.display = display;
+        setOutputMarkupId( true );
+        // read from the last scan on every request, so a newer scan is shown once it finishes:
+        violations = new LoadableDetachableModel<List<RoleAssignmentIndex.Conflict>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<RoleAssignmentIndex.Conflict> load()
+            {
+                ComplianceScan.Result scanned = scanned();
+                return scanned == null || setName == null ? Collections.<RoleAssignmentIndex.Conflict>emptyList()
+                    : scanned.getViolations( setName, MAX_SHOWN );
+            }
+        };
+        add( new Label( "complianceDetailEmpty", "Choose a set to list the users violating it" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( setName == null );
+            }
+        } );
+        WebMarkupContainer result = new WebMarkupContainer( "result" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( setName != null );
+            }
+        };
+        add( result );
+        result.add( new Label( "summary", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                ComplianceScan.Checked set = find();
+                if ( set == null )
+                {
+                    return setName + " is no longer an SSD set";
+                }
+                String summary = set.getViolationCount() + " users are authorized for " + set.getCardinality()
+                    + " or more of the members of " + set.getName() + ": " + StringUtils.join( set.getMembers(),
+                    ", " );
+                if ( set.getViolationCount() > violations.getObject().size() )
+                {
+                    summary += ", the first " + violations.getObject().size() + " are listed";
+                }
+                return summary;
+            }
+        } ) );
+        users = new PageableListView<RoleAssignmentIndex.Conflict>( "users", violations, ROWS_PER_PAGE )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<RoleAssignmentIndex.Conflict> item )
+            {
+                RoleAssignmentIndex.Conflict conflict = item.getModelObject();
+                item.add( new Label( GlobalIds.USER_ID, conflict.getUserId() ) );
+                item.add( new Label( "roles", StringUtils.join( conflict.getRoles(), ", " ) ) );
+            }
+        };
+        result.add( users );
+        result.add( new AjaxPagingNavigator( "navigator", users ) );
+    }
+
+
+    /**
+     * Show the users violating a set.
+     *
+     * @param setName of the SSD set.
+     */
+    public void setSet( String setName )
+    {
+        this.setName = setName;
+        users.setCurrentPage( 0 );
+        changed = true;
+    }
+
+
+    /**
+     * Show the set from a scan that has just finished.
+     */
+    public void refresh( AjaxRequestTarget target )
+    {
+        if ( setName != null )
+        {
+            target.add( this );
+        }
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            AjaxRequestTarget target = ( AjaxRequestTarget ) event.getPayload();
+            changed = false;
+            target.add( this );
+            display.display( target );
+        }
+    }
+
+
+    private ComplianceScan.Checked find()
+    {
+        ComplianceScan.Result scanned = scanned();
+        if ( scanned != null )
+        {
+            for ( ComplianceScan.Checked set : scanned.getSets() )
+            {
+                if ( set.getName().equalsIgnoreCase( setName ) )
+                {
+                    return set;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * @return the last scan as the administrator may see it.
+     */
+    private ComplianceScan.Result scanned()
+    {
+        return ComplianceScan.getResult( AdminScope.get( SecUtils.getSession( this ) ) );
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AdminScope;
+import org.apache.directory.fortress.web.control.ComplianceScan;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
+import org.apache.wicket.ajax.AbstractAjaxTimerBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.util.time.Duration;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * Lists the SSD sets checked by the last compliance scan, see {@link ComplianceScan}, with the number of users violating
+ * each, those with the most first.  The violating users of a set are shown by the {@link ComplianceDetailPanel}.  A scan
+ * may be started rather than waiting for the next, the browser then checks back until it has finished.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ComplianceListPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int POLL_SECONDS = 2;
+    private final Displayable display;
+    private final AbstractAjaxTimerBehavior poll;
+    // finish time of the scan shown when one was started, polling stops when it's replaced:
+    private Long waitingOn;
+    private boolean changed;
+
+
+    public ComplianceListPanel( String id, Displayable display, final ComplianceDetailPanel detailPanel )
+    {
+        super( id );
+        this.display = display;
+        setOutputMarkupId( true );
+        add( new Label( "complianceEmpty", "The first scan hasn't finished yet" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( ComplianceScan.getResult() == null );
+            }
+        } );
+        add( new ScanLink( "scan", false ) );
+        add( new ScanLink( "fullScan", true ) );
+        WebMarkupContainer result = new WebMarkupContainer( "result" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( ComplianceScan.getResult() != null );
+            }
+        };
+        add( result );
+        result.add( new Label( "summary", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                ComplianceScan.Result scanned = scanned();
+                if ( scanned == null )
+                {
+                    return "";
+                }
+                SimpleDateFormat format = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
+                return scanned.getViolatingUserCount() + " of " + scanned.getUserCount() + " users violate at "
+                    + "least one of " + scanned.getSets().size() + " sets.  Last scanned " + format.format( new Date(
+                    scanned.getScanned() ) ) + ( scanned.isFull() ? " in full" : ", changes only" ) + ", in "
+                    + scanned.getElapsedMillis() + "ms, last full scan " + format.format( new Date( scanned
+                    .getFullScanned() ) );
+            }
+        } ) );
+        result.add( new ListView<ComplianceScan.Checked>( "sets", new AbstractReadOnlyModel<List<ComplianceScan
+            .Checked>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public List<ComplianceScan.Checked> getObject()
+            {
+                ComplianceScan.Result scanned = scanned();
+                return scanned == null ? Collections.<ComplianceScan.Checked>emptyList() : scanned.getSets();
+            }
+        } )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<ComplianceScan.Checked> item )
+            {
+                ComplianceScan.Checked set = item.getModelObject();
+                final String name = set.getName();
+                item.add( new Label( GlobalIds.NAME, name ) );
+                item.add( new Label( "cardinality", String.valueOf( set.getCardinality() ) ) );
+                String members = StringUtils.join( set.getMembers(), ", " );
+                if ( !set.getUnknown().isEmpty() )
+                {
+                    members += " (not roles: " + StringUtils.join( set.getUnknown(), ", " ) + ")";
+                }
+                item.add( new Label( "members", members ) );
+                item.add( new Label( "violations", String.valueOf( set.getViolationCount() ) ) );
+                item.add( new AjaxLink<Void>( "show" )
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public void onClick( AjaxRequestTarget target )
+                    {
+                        detailPanel.setSet( name );
+                    }
+                }.setVisible( set.getViolationCount() > 0 ) );
+            }
+        } );
+        poll = new AbstractAjaxTimerBehavior( Duration.seconds( POLL_SECONDS ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onTimer( AjaxRequestTarget target )
+            {
+                if ( !isWaiting() )
+                {
+                    waitingOn = null;
+                    stop( target );
+                    target.add( ComplianceListPanel.this );
+                    detailPanel.refresh( target );
+                }
+            }
+        };
+        add( poll );
+        poll.stop( null );
+    }
+
+
+    /**
+     * Starts a scan, and the polling for its result.
+     */
+    private class ScanLink extends SecureIndicatingAjaxLink
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final boolean full;
+
+
+        ScanLink( String id, boolean full )
+        {
+            super( id, GlobalIds.REVIEW_MGR, GlobalIds.FIND_USERS );
+            this.full = full;
+        }
+
+
+        @Override
+        public void onClick( AjaxRequestTarget target )
+        {
+            ComplianceScan.Result scanned = ComplianceScan.getResult();
+            if ( ComplianceScan.scanNow( full ) )
+            {
+                waitingOn = scanned != null ? scanned.getScanned() : 0L;
+                display.setMessage( full ? "Full scan started" : "Scan of the changes started" );
+            }
+            else
+            {
+                display.setMessage( "Scans aren't running" );
+            }
+            changed = true;
+        }
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            AjaxRequestTarget target = ( AjaxRequestTarget ) event.getPayload();
+            changed = false;
+            if ( poll.isStopped() && isWaiting() )
+            {
+                poll.restart( target );
+            }
+            target.add( this );
+            display.display( target );
+        }
+    }
+
+
+    private boolean isWaiting()
+    {
+        if ( waitingOn == null )
+        {
+            return false;
+        }
+        ComplianceScan.Result scanned = ComplianceScan.getResult();
+        return ( scanned != null ? scanned.getScanned() : 0L ) == waitingOn;
+    }
+
+
+    /**
+     * @return the last scan as the administrator may see it.
+     */
+    private ComplianceScan.Result scanned()
+    {
+        return ComplianceScan.getResult( AdminScope.get( SecUtils.getSession( this ) ) );
+    }
+}
@@ -53,6 +53,7 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
@@ -140,7 +141,8 @@ public class GroupDetailPanel extends FormComponentPanel
             memberPropsCB.setOutputMarkupId( true );
             add( memberPropsCB );
 
-            memberAssignTF = new TextField( "memberAssign", new PropertyModel( this, "memberAssign" ) );
+            memberAssignTF = new SuggestionTextField( "memberAssign", new PropertyModel<String>( this, "memberAssign" ),
+                SuggestionIndex.Type.USER );
             memberAssignTF.setOutputMarkupId( true );
             add( memberAssignTF );
             addUserSearchModal();
@@ -31,7 +31,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
@@ -41,6 +40,7 @@ import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.FormSyncBehavior;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.GroupListModel;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
@@ -48,15 +48,14 @@ import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.model.Group;
-import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.Session;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 
@@ -75,6 +74,7 @@ public class GroupListPanel extends FormComponentPanel
     private DefaultMutableTreeNode node;
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
+    private TreeRows rows;
     private TextField searchValFld;
     private RadioGroup radioGroup;
     private String searchVal;
@@ -84,9 +84,22 @@ public class GroupListPanel extends FormComponentPanel
 
 
     public GroupListPanel( String id )
+    {
+        this( id, null );
+    }
+
+
+    /**
+     * @param groupListModel initial contents of the grid, e.g. prefetched by the page, see
+     * {@link #newListModel}.  Loaded here if null.
+     */
+    public GroupListPanel( String id, GroupListModel groupListModel )
     {
         super( id );
-        GroupListModel groupListModel = new GroupListModel( new Group( "" ), SecUtils.getSession( this ) );
+        if ( groupListModel == null )
+        {
+            groupListModel = newListModel( SecUtils.getSession( this ) );
+        }
         setDefaultModel( groupListModel );
         addGrid();
         radioGroup = new RadioGroup( "searchOptions", new PropertyModel( this, "selectedRadioButton" ) );
@@ -100,19 +113,6 @@ public class GroupListPanel extends FormComponentPanel
         radioGroup.setRenderBodyOnly( false );
         searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this, GlobalIds.SEARCH_VAL ) );
         searchValFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( searchValFld );
-            }
-        };
-        searchValFld.add( ajaxUpdater );
         radioGroup.add( searchValFld );
 
         this.listForm.add( radioGroup );
@@ -159,6 +159,7 @@ public class GroupListPanel extends FormComponentPanel
                 {
                     info( "No matching objects found" );
                 }
+                rows.reindex();
                 target.add( grid );
             }
 
@@ -199,40 +200,23 @@ public class GroupListPanel extends FormComponentPanel
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
-            switch ( modelEvent.getOperation() )
+            AjaxRequestTarget target = modelEvent.getAjaxRequestTarget();
+            if ( rows.apply( modelEvent, true ) )
             {
-                case ADD:
-                    add( modelEvent.getEntity() );
-                    break;
-                case UPDATE:
-                    //modelEvent.
-                    modelChanged();
-                    break;
-                case DELETE:
-                    prune();
-                    break;
-                default:
-                    log.error( "onEvent caught invalid operation" );
-                    break;
+                // only the changed row is rendered:
+                grid.update();
             }
-            AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
             log.debug( ".onEvent AJAX - GroupListPanel - SaveModelEvent: " + target.toString() );
         }
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    /**
+     * Return the model of the grid's initial contents, all groups visible to the administrator.
+     */
+    public static GroupListModel newListModel( Session session )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
-        {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            Group group = ( Group ) node.getUserObject();
-            log.debug( ".removeSelectedItems user node: " + group.getName() );
-            //List<Group> groups = ((List<Group>) getDefaultModel().getObject());
-            //groups.remove(group.getName());
-        }
+        return new GroupListModel( new Group( "" ), session );
     }
 
 
@@ -276,6 +260,7 @@ public class GroupListPanel extends FormComponentPanel
 
         List<Group> groups = ( List<Group> ) getDefaultModel().getObject();
         treeModel = createTreeModel( groups );
+        rows = new TreeRows( treeModel );
         grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "grouptreegrid", treeModel, columns )
         {
             /** Default serialVersionUID */
@@ -311,6 +296,7 @@ public class GroupListPanel extends FormComponentPanel
         // expand the root node
         grid.getTreeState().expandAll();
         this.listForm = new Form( "grouplistform" );
+        this.listForm.add( new FormSyncBehavior() );
         this.listForm.add( grid );
         add( this.listForm );
         grid.setOutputMarkupId( true );
@@ -385,21 +371,4 @@ public class GroupListPanel extends FormComponentPanel
         memberModalWindow.setInitialHeight( 450 );
         memberModalWindow.setCookieName( "member-modal" );
     }
-
-
-    public void add( FortEntity entity )
-    {
-        if ( getDefaultModelObject() != null )
-        {
-            //List<Group> groups = ((List<Group>) getDefaultModelObject());
-            //groups.add( ( Group ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, 0 );
-        }
-    }
-
-
-    public void prune()
-    {
-        removeSelectedItems( grid );
-    }
 }
\ No newline at end of file
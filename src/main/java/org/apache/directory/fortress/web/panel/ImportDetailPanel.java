@@ -0,0 +1,235 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ImportJob;
+import org.apache.directory.fortress.web.control.ImportReader;
+import org.apache.directory.fortress.web.control.PolicyExport;
+import org.apache.directory.fortress.web.control.PolicyExportServlet;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.form.DropDownChoice;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.upload.FileUpload;
+import org.apache.wicket.markup.html.form.upload.FileUploadField;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.lang.Bytes;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Uploads a file of users, roles and permissions and starts importing it.  The file may be CSV, LDIF or the fortress
+ * ant loader's XML, see {@link ImportReader}.  The import runs in the background, its progress is shown by the
+ * {@link ImportListPanel}.
+ * <p>
+ * The policy may also be exported here, in the loader's XML, to be imported into another directory.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ImportDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger log = Logger.getLogger( ImportDetailPanel.class.getName() );
+    private static final int MAX_UPLOAD_MB = Config.getInstance().getInt( GlobalIds.IMPORT_MAX_UPLOAD_MB, 512 );
+    private static final String AUTO = "auto";
+    @SpringBean
+    private AdminMgr adminMgr;
+    @SpringBean
+    private DelAdminMgr delAdminMgr;
+    private final Displayable display;
+    private final ImportListPanel listPanel;
+    private String formatSelection = AUTO;
+    private boolean changed;
+
+
+    public ImportDetailPanel( String id, Displayable display, ImportListPanel listPanel )
+    {
+        super( id );
+        this.adminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.delAdminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.display = display;
+        this.listPanel = listPanel;
+        add( new ImportForm( GlobalIds.EDIT_FIELDS ) );
+        add( new ExportForm( "exportFields" ) );
+    }
+
+
+    private class ImportForm extends Form<Void>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final FileUploadField upload;
+
+
+        ImportForm( String id )
+        {
+            super( id );
+            setMultiPart( true );
+            setMaxSize( Bytes.megabytes( MAX_UPLOAD_MB ) );
+            upload = new FileUploadField( "upload" );
+            add( upload );
+            add( new DropDownChoice<>( "format", new PropertyModel<String>( ImportDetailPanel.this,
+                "formatSelection" ), Arrays.asList( AUTO, ImportReader.Format.CSV.name(), ImportReader.Format.LDIF
+                .name(), ImportReader.Format.XML.name() ) ) );
+            add( new SecureIndicatingAjaxButton( "import", GlobalIds.ADMIN_MGR, GlobalIds.ADD_USER )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target, Form form )
+                {
+                    log.debug( ".onSubmit Import" );
+                    changed = true;
+                    FileUpload fileUpload = upload.getFileUpload();
+                    if ( fileUpload == null )
+                    {
+                        display.setMessage( "Choose a file to import" );
+                        return;
+                    }
+                    String fileName = fileUpload.getClientFileName();
+                    ImportReader.Format format = AUTO.equals( formatSelection ) ? ImportReader.Format.of( fileName )
+                        : ImportReader.Format.valueOf( formatSelection );
+                    if ( format == null )
+                    {
+                        display.setMessage( "The format of " + fileName + " can't be told from its name, choose one" );
+                        return;
+                    }
+                    try
+                    {
+                        ImportJob.start( SecUtils.getSession( this ).getUserId(), fileName, format,
+                            fileUpload.getInputStream(), adminMgr, delAdminMgr );
+                        display.setMessage( "Import of " + fileName + " has been started" );
+                        listPanel.refresh();
+                    }
+                    catch ( RejectedExecutionException e )
+                    {
+                        display.setMessage( e.getMessage() );
+                    }
+                    catch ( IOException e )
+                    {
+                        String error = ".onSubmit caught IOException=" + e;
+                        log.error( error );
+                        display.setMessage( error );
+                    }
+                    finally
+                    {
+                        fileUpload.closeStreams();
+                        fileUpload.delete();
+                    }
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target, Form form )
+                {
+                    log.warn( "ImportDetailPanel.import.onError" );
+                    changed = true;
+                    display.setMessage( "The file couldn't be uploaded, it may be larger than " + MAX_UPLOAD_MB
+                        + " MB" );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            } );
+        }
+    }
+
+
+    private class ExportForm extends Form<Void>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        ExportForm( String id )
+        {
+            super( id );
+            add( new SecureIndicatingAjaxButton( GlobalIds.EXPORT, GlobalIds.REVIEW_MGR, GlobalIds.FIND_ROLES )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target, Form form )
+                {
+                    log.debug( ".onSubmit Export" );
+                    String url = PolicyExportServlet.register( new PolicyExport( SecUtils.getSession( this ) ) );
+                    target.appendJavaScript( "window.location.href='" + url + "';" );
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target, Form form )
+                {
+                    log.warn( "ImportDetailPanel.export.onError" );
+                }
+            } );
+        }
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            changed = false;
+            display.display( ( AjaxRequestTarget ) event.getPayload() );
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ImportJob;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
+import org.apache.log4j.Logger;
+import org.apache.wicket.ajax.AbstractAjaxTimerBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.DownloadLink;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.time.Duration;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Lists the bulk imports of the administrator, with their progress.  While any are running the browser checks back
+ * every poll interval for their progress; polling stops once they've all finished and starts again when one is
+ * started or resumed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ImportListPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger log = Logger.getLogger( ImportListPanel.class.getName() );
+    private static final int POLL_MILLIS = Config.getInstance().getInt( GlobalIds.IMPORT_POLL_MILLIS, 1000 );
+    @SpringBean
+    private AdminMgr adminMgr;
+    @SpringBean
+    private DelAdminMgr delAdminMgr;
+    private final Displayable display;
+    private final LoadableDetachableModel<List<ImportJob>> jobs;
+    private final AbstractAjaxTimerBehavior poll;
+    private boolean changed;
+
+
+    public ImportListPanel( String id, Displayable display )
+    {
+        super( id );
+        this.adminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.delAdminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.display = display;
+        setOutputMarkupId( true );
+        final String owner = SecUtils.getSession( this ).getUserId();
+        // the jobs aren't serializable, so are looked up again on every request:
+        jobs = new LoadableDetachableModel<List<ImportJob>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<ImportJob> load()
+            {
+                return ImportJob.list( owner );
+            }
+        };
+        add( new Label( "importEmpty", "No imports" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( jobs.getObject().isEmpty() );
+            }
+        } );
+        add( new ListView<ImportJob>( "jobs", jobs )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<ImportJob> item )
+            {
+                ImportJob job = item.getModelObject();
+                final String jobId = job.getId();
+                item.add( new Label( "fileName", job.getFileName() ) );
+                item.add( new Label( "format", job.getFormat().name() ) );
+                item.add( new Label( "started", new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT ).format(
+                    new Date( job.getStarted() ) ) ) );
+                item.add( new Label( "status", job.getMessage() != null ? job.getStatus() + ": " + job.getMessage()
+                    : job.getStatus().name() ) );
+                item.add( new Label( "processed", String.valueOf( job.getProcessed() ) ) );
+                item.add( new Label( "succeeded", String.valueOf( job.getSucceeded() ) ) );
+                item.add( new Label( "failed", String.valueOf( job.getFailed() ) ) );
+                item.add( new Label( "rate", job.getRate() + "/s" ) );
+                item.add( new DownloadLink( "errors", new AbstractReadOnlyModel<File>()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public File getObject()
+                    {
+                        ImportJob job = ImportJob.get( jobId );
+                        return job != null ? job.getErrorReport() : null;
+                    }
+                }, "import-errors.csv" ).setVisible( job.getFailed() > 0 ) );
+                item.add( new SecureIndicatingAjaxLink( "resume", GlobalIds.ADMIN_MGR, GlobalIds.ADD_USER )
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public void onClick( AjaxRequestTarget target )
+                    {
+                        ImportJob job = ImportJob.get( jobId );
+                        if ( job == null || !job.isResumable() )
+                        {
+                            return;
+                        }
+                        try
+                        {
+                            job.resume( adminMgr, delAdminMgr );
+                            display.setMessage( "Import of " + job.getFileName() + " has been resumed" );
+                        }
+                        catch ( RejectedExecutionException e )
+                        {
+                            log.warn( ".resume import " + jobId + ": " + e.getMessage() );
+                            display.setMessage( e.getMessage() );
+                        }
+                        changed = true;
+                    }
+                }.setVisible( job.isResumable() ) );
+                item.add( new AjaxLink<Void>( "cancel" )
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public void onClick( AjaxRequestTarget target )
+                    {
+                        ImportJob job = ImportJob.get( jobId );
+                        if ( job != null )
+                        {
+                            job.cancel();
+                            display.setMessage( "Import of " + job.getFileName() + " will stop after the batch in "
+                                + "progress" );
+                        }
+                        changed = true;
+                    }
+                }.setVisible( job.isRunning() ) );
+            }
+        } );
+        poll = new AbstractAjaxTimerBehavior( Duration.milliseconds( POLL_MILLIS ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onTimer( AjaxRequestTarget target )
+            {
+                target.add( ImportListPanel.this );
+                if ( !isRunning() )
+                {
+                    stop( target );
+                }
+            }
+        };
+        add( poll );
+    }
+
+
+    /**
+     * Show a job that has just been started, and poll for its progress.
+     */
+    public void refresh()
+    {
+        changed = true;
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            AjaxRequestTarget target = ( AjaxRequestTarget ) event.getPayload();
+            changed = false;
+            if ( poll.isStopped() && isRunning() )
+            {
+                poll.restart( target );
+            }
+            target.add( this );
+            display.display( target );
+        }
+    }
+
+
+    private boolean isRunning()
+    {
+        for ( ImportJob job : jobs.getObject() )
+        {
+            if ( job.isRunning() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
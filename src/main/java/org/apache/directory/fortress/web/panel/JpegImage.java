@@ -21,12 +21,17 @@
 package org.apache.directory.fortress.web.panel;
 
 
+import org.apache.directory.fortress.core.model.User;
 import org.apache.wicket.markup.html.image.Image;
-import org.apache.wicket.request.resource.DynamicImageResource;
-import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.ByteArrayResource;
 
 
 /**
+ * Renders a user's photo through the shared {@link PhotoResource}.  The url carries the userId, the photo's content
+ * hash and the thumbnail size, so only the hash needs to be known here and the browser may cache the image.
+ * <p>
+ * A photo still held by the entity, i.e. uploaded but not yet saved, is served by a resource of this component
+ * instead, so it's only seen on this page and isn't registered with the shared resource until the user is saved.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  * @version $Rev$
@@ -35,24 +40,50 @@ public abstract class JpegImage extends Image
 {
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
+    private final int size;
+    private boolean preview;
 
 
-    public JpegImage( String id )
+    /**
+     * @param id wicket id.
+     * @param size edge length in pixels the photo is scaled to, 0 for the full size photo.
+     */
+    public JpegImage( String id, int size )
     {
         super( id );
-        setImageResource( new DynamicImageResource()
+        this.size = size;
+    }
+
+
+    @Override
+    protected void onConfigure()
+    {
+        super.onConfigure();
+        User user = getUser();
+        preview = user != null && user.getJpegPhoto() != null && user.getJpegPhoto().length > 0;
+        if ( preview )
         {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
+            // an uploaded photo that hasn't been saved yet:
+            setImageResourceReference( null, null );
+            setImageResource( new ByteArrayResource( "image/jpeg", user.getJpegPhoto() ) );
+        }
+        else
+        {
+            String userId = user == null ? null : user.getUserId();
+            setImageResource( null );
+            setImageResourceReference( PhotoResource.REFERENCE, PhotoResource.parameters( userId, PhotoResource
+                .hashOf( userId ), size ) );
+        }
+    }
 
 
-            protected byte[] getImageData( IResource.Attributes attributes )
-            {
-                return getPhoto();
-            }
-        } );
+    @Override
+    protected boolean shouldAddAntiCacheParameter()
+    {
+        // the shared resource's url changes with the content hash, the preview's doesn't:
+        return preview;
     }
 
 
-    protected abstract byte[] getPhoto();
+    protected abstract User getUser();
 }
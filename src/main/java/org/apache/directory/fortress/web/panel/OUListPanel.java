@@ -42,15 +42,14 @@ import org.apache.directory.fortress.web.model.OUListModel;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.Session;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 
@@ -68,27 +67,37 @@ public class OUListPanel extends FormComponentPanel
     private DefaultMutableTreeNode node;
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
+    private TreeRows rows;
     private String searchVal;
 
 
     public OUListPanel( String id, final boolean isUser )
+    {
+        this( id, isUser, null );
+    }
+
+
+    /**
+     * @param ouListModel initial contents of the grid, e.g. prefetched by the page, see
+     * {@link #newListModel}.  Loaded here if null.
+     */
+    public OUListPanel( String id, final boolean isUser, OUListModel ouListModel )
     {
         super( id );
-        OrgUnit orgUnit = new OrgUnit();
-        orgUnit.setName( "" );
         String searchLabel;
         if ( isUser )
         {
-            orgUnit.setType( OrgUnit.Type.USER );
             searchLabel = "User OU Name";
         }
         else
         {
-            orgUnit.setType( OrgUnit.Type.PERM );
             searchLabel = "Perm OU Name";
         }
 
-        OUListModel ouListModel = new OUListModel( orgUnit, SecUtils.getSession( this ) );
+        if ( ouListModel == null )
+        {
+            ouListModel = newListModel( isUser, SecUtils.getSession( this ) );
+        }
         setDefaultModel( ouListModel );
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns = new ArrayList<>();
         PropertyColumn name = new PropertyColumn<>( Model.of( searchLabel ), "userObject.name" );
@@ -106,6 +115,7 @@ public class OUListPanel extends FormComponentPanel
 
         List<OrgUnit> orgUnits = ( List<OrgUnit> ) getDefaultModel().getObject();
         treeModel = createTreeModel( orgUnits );
+        rows = new TreeRows( treeModel );
         grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "outreegrid", treeModel, columns )
         {
             /** Default serialVersionUID */
@@ -189,6 +199,7 @@ public class OUListPanel extends FormComponentPanel
                 {
                     info( "No matching objects found" );
                 }
+                rows.reindex();
                 target.add( grid );
             }
 
@@ -230,39 +241,27 @@ public class OUListPanel extends FormComponentPanel
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
-            switch ( modelEvent.getOperation() )
+            AjaxRequestTarget target = modelEvent.getAjaxRequestTarget();
+            if ( rows.apply( modelEvent, false ) )
             {
-                case ADD:
-                    add( modelEvent.getEntity() );
-                    break;
-                case UPDATE:
-                    modelChanged();
-                    break;
-                case DELETE:
-                    prune();
-                    break;
-                default:
-                    break;
+                // only the changed row is rendered:
+                grid.update();
             }
-            AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add( grid );
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    /**
+     * Return the model of the grid's initial contents, all user or permission ous visible to the
+     * administrator.
+     */
+    public static OUListModel newListModel( boolean isUser, Session session )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
-        {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            OrgUnit orgUnit = ( OrgUnit ) node.getUserObject();
-            log.debug( ".removeSelectedItems ou node: " + orgUnit.getName() );
-            List<OrgUnit> orgUnits = ( ( List<OrgUnit> ) getDefaultModel().getObject() );
-            orgUnits.remove( orgUnit );
-        }
+        OrgUnit orgUnit = new OrgUnit();
+        orgUnit.setName( "" );
+        orgUnit.setType( isUser ? OrgUnit.Type.USER : OrgUnit.Type.PERM );
+        return new OUListModel( orgUnit, session );
     }
 
 
@@ -285,21 +284,4 @@ public class OUListPanel extends FormComponentPanel
         }
         return model;
     }
-
-
-    public void add( FortEntity entity )
-    {
-        if ( getDefaultModelObject() != null )
-        {
-            List<OrgUnit> orgUnits = ( ( List<OrgUnit> ) getDefaultModelObject() );
-            orgUnits.add( ( OrgUnit ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, orgUnits.size() );
-        }
-    }
-
-
-    public void prune()
-    {
-        removeSelectedItems( grid );
-    }
 }
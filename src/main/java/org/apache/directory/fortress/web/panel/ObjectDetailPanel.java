@@ -24,6 +24,7 @@ package org.apache.directory.fortress.web.panel;
 import com.googlecode.wicket.kendo.ui.form.button.AjaxButton;
 import io.prometheus.client.Summary;
 import org.apache.directory.fortress.web.NavPanel;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
@@ -346,7 +347,7 @@ public class ObjectDetailPanel extends FormComponentPanel
             type.setRequired( false );
             Label internalId = new Label( "internalId" );
             add( internalId );
-            ouTF = new TextField( "ou" );
+            ouTF = new SuggestionTextField( "ou", SuggestionIndex.Type.PERM_OU );
             // making this required prevents the modals from opening:
             //ouTF.setRequired( true );
             ouTF.setOutputMarkupId( true );
@@ -31,7 +31,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
@@ -41,22 +40,22 @@ import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.FormSyncBehavior;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.ObjectListModel;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.PermObj;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 
@@ -75,6 +74,7 @@ public class ObjectListPanel extends FormComponentPanel
     private DefaultMutableTreeNode node;
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
+    private TreeRows rows;
     private TextField searchValFld;
     private RadioGroup radioGroup;
     private String searchVal;
@@ -84,10 +84,22 @@ public class ObjectListPanel extends FormComponentPanel
 
 
     public ObjectListPanel( String id, final boolean isAdmin )
+    {
+        this( id, isAdmin, null );
+    }
+
+
+    /**
+     * @param objectListModel initial contents of the grid, e.g. prefetched by the page, see
+     * {@link #newListModel}.  Loaded here if null.
+     */
+    public ObjectListPanel( String id, final boolean isAdmin, ObjectListModel objectListModel )
     {
         super( id );
-        ObjectListModel objectListModel = new ObjectListModel( new PermObj( "" ), isAdmin,
-            SecUtils.getSession( this ) );
+        if ( objectListModel == null )
+        {
+            objectListModel = newListModel( isAdmin, SecUtils.getSession( this ) );
+        }
         setDefaultModel( objectListModel );
         addGrid();
         radioGroup = new RadioGroup( "searchOptions", new PropertyModel( this, "selectedRadioButton" ) );
@@ -101,19 +113,6 @@ public class ObjectListPanel extends FormComponentPanel
         radioGroup.setRenderBodyOnly( false );
         searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this, GlobalIds.SEARCH_VAL ) );
         searchValFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( searchValFld );
-            }
-        };
-        searchValFld.add( ajaxUpdater );
         radioGroup.add( searchValFld );
 
         this.listForm.add( radioGroup );
@@ -161,6 +160,7 @@ public class ObjectListPanel extends FormComponentPanel
                 {
                     info( "No matching objects found" );
                 }
+                rows.reindex();
                 target.add( grid );
             }
 
@@ -201,39 +201,23 @@ public class ObjectListPanel extends FormComponentPanel
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
-            switch ( modelEvent.getOperation() )
+            AjaxRequestTarget target = modelEvent.getAjaxRequestTarget();
+            if ( rows.apply( modelEvent, true ) )
             {
-                case ADD:
-                    add( modelEvent.getEntity() );
-                    break;
-                case UPDATE:
-                    modelChanged();
-                    break;
-                case DELETE:
-                    prune();
-                    break;
-                default:
-                    log.error( "onEvent caught invalid operation" );
-                    break;
+                // only the changed row is rendered:
+                grid.update();
             }
-            AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
             log.debug( ".onEvent AJAX - ObjectListPanel - SaveModelEvent: " + target.toString() );
         }
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    /**
+     * Return the model of the grid's initial contents, all permission objects visible to the administrator.
+     */
+    public static ObjectListModel newListModel( boolean isAdmin, Session session )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
-        {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            PermObj permObj = ( PermObj ) node.getUserObject();
-            log.debug( ".removeSelectedItems user node: " + permObj.getObjName() );
-            List<PermObj> permObjs = ( ( List<PermObj> ) getDefaultModel().getObject() );
-            permObjs.remove( permObj );
-        }
+        return new ObjectListModel( new PermObj( "" ), isAdmin, session );
     }
 
 
@@ -280,6 +264,7 @@ public class ObjectListPanel extends FormComponentPanel
 
         List<PermObj> permObjs = ( List<PermObj> ) getDefaultModel().getObject();
         treeModel = createTreeModel( permObjs );
+        rows = new TreeRows( treeModel );
         grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "objecttreegrid", treeModel, columns )
         {
             /** Default serialVersionUID */
@@ -315,6 +300,7 @@ public class ObjectListPanel extends FormComponentPanel
         // expand the root node
         grid.getTreeState().expandAll();
         this.listForm = new Form( "objectlistform" );
+        this.listForm.add( new FormSyncBehavior() );
         this.listForm.add( grid );
         add( this.listForm );
         grid.setOutputMarkupId( true );
@@ -389,22 +375,4 @@ public class ObjectListPanel extends FormComponentPanel
         ousModalWindow.setInitialHeight( 450 );
         ousModalWindow.setCookieName( "permou-modal" );
     }
-
-
-    public void add( FortEntity entity )
-    {
-        if ( getDefaultModelObject() != null )
-        {
-            List<PermObj> permObjs = ( ( List<PermObj> ) getDefaultModelObject() );
-            permObjs.add( ( PermObj ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, 0 );
-            //treeModel.insertNodeInto(new DefaultMutableTreeNode(entity), rootNode, permObjs.size());
-        }
-    }
-
-
-    public void prune()
-    {
-        removeSelectedItems( grid );
-    }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AdminScope;
+import org.apache.directory.fortress.web.control.OrphanScan;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.navigation.paging.AjaxPagingNavigator;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.PageableListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Lists the orphans of the kind chosen on the {@link OrphanListPanel}, as found by the last analysis.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class OrphanDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int ROWS_PER_PAGE = 10;
+    private final Displayable display;
+    private final PageableListView<OrphanScan.Orphan> orphans;
+    private OrphanScan.Type type;
+    private boolean changed;
+
+
+    public OrphanDetailPanel( String id, Displayable display )
+    {
+        super( id );
+        this.display = display;
+        setOutputMarkupId( true );
+        // read from the last analysis on every request, so a newer one is shown once it finishes:
+        final LoadableDetachableModel<List<OrphanScan.Orphan>> found = new LoadableDetachableModel<List<OrphanScan
+            .Orphan>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<OrphanScan.Orphan> load()
+            {
+                OrphanScan.Result analyzed = OrphanScan.getResult( AdminScope.get( SecUtils.getSession(
+                    OrphanDetailPanel.this ) ) );
+                return analyzed == null || type == null ? Collections.<OrphanScan.Orphan>emptyList() : analyzed
+                    .getOrphans( type );
+            }
+        };
+        add( new Label( "orphanDetailEmpty", "Choose a kind to list its orphans" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( type == null );
+            }
+        } );
+        WebMarkupContainer result = new WebMarkupContainer( "result" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( type != null );
+            }
+        };
+        add( result );
+        result.add( new Label( "summary", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                return type == null ? "" : found.getObject().size() + " " + type.getLabel().toLowerCase();
+            }
+        } ) );
+        orphans = new PageableListView<OrphanScan.Orphan>( "orphans", found, ROWS_PER_PAGE )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<OrphanScan.Orphan> item )
+            {
+                item.add( new Label( GlobalIds.NAME, item.getModelObject().getName() ) );
+            }
+        };
+        result.add( orphans );
+        result.add( new AjaxPagingNavigator( "navigator", orphans ) );
+    }
+
+
+    /**
+     * Show the orphans of a kind.
+     *
+     * @param type of the orphans.
+     */
+    public void setType( OrphanScan.Type type )
+    {
+        this.type = type;
+        orphans.setCurrentPage( 0 );
+        changed = true;
+    }
+
+
+    /**
+     * Show the orphans from an analysis that has just finished.
+     */
+    public void refresh( AjaxRequestTarget target )
+    {
+        if ( type != null )
+        {
+            target.add( this );
+        }
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            AjaxRequestTarget target = ( AjaxRequestTarget ) event.getPayload();
+            changed = false;
+            target.add( this );
+            display.display( target );
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AdminScope;
+import org.apache.directory.fortress.web.control.OrphanScan;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
+import org.apache.wicket.ajax.AbstractAjaxTimerBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.time.Duration;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+
+/**
+ * Lists the number of orphans of each kind found by the last analysis, see {@link OrphanScan}, those of a kind are
+ * shown by the {@link OrphanDetailPanel}.  An analysis may be started, and the orphans of a kind deleted, the browser
+ * then checks back until it has finished.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class OrphanListPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int POLL_SECONDS = 2;
+    @SpringBean
+    private AdminMgr adminMgr;
+    private final Displayable display;
+    private final AbstractAjaxTimerBehavior poll;
+    private boolean changed;
+
+
+    public OrphanListPanel( String id, Displayable display, final OrphanDetailPanel detailPanel )
+    {
+        super( id );
+        this.display = display;
+        this.adminMgr.setAdmin( SecUtils.getSession( this ) );
+        setOutputMarkupId( true );
+        add( new Label( "activity", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                String activity = OrphanScan.getActivity();
+                if ( activity != null )
+                {
+                    return activity + "...";
+                }
+                if ( OrphanScan.getResult() == null )
+                {
+                    return "Not analyzed yet";
+                }
+                return OrphanScan.getMessage( SecUtils.getSession( OrphanListPanel.this ) );
+            }
+        } ) );
+        add( new SecureIndicatingAjaxLink( "analyze", GlobalIds.REVIEW_MGR, GlobalIds.FIND_ROLES )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick( AjaxRequestTarget target )
+            {
+                started( OrphanScan.analyze( SecUtils.getSession( this ) ), "Analysis started" );
+            }
+        } );
+        WebMarkupContainer result = new WebMarkupContainer( "result" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( OrphanScan.getResult() != null );
+            }
+        };
+        add( result );
+        result.add( new Label( "summary", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                OrphanScan.Result analyzed = OrphanScan.getResult();
+                if ( analyzed == null )
+                {
+                    return "";
+                }
+                SimpleDateFormat format = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
+                return "Last analyzed " + format.format( new Date( analyzed.getScanned() ) ) + ", in " + analyzed
+                    .getElapsedMillis() + "ms";
+            }
+        } ) );
+        result.add( new ListView<OrphanScan.Type>( "types", Arrays.asList( OrphanScan.Type.values() ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<OrphanScan.Type> item )
+            {
+                final OrphanScan.Type type = item.getModelObject();
+                item.add( new Label( "type", type.getLabel() ) );
+                item.add( new Label( "checked", new AbstractReadOnlyModel<String>()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public String getObject()
+                    {
+                        OrphanScan.Result analyzed = analyzed();
+                        return analyzed != null ? String.valueOf( analyzed.getChecked( type ) ) : "";
+                    }
+                } ) );
+                item.add( new Label( "orphans", new AbstractReadOnlyModel<String>()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public String getObject()
+                    {
+                        return String.valueOf( count( type ) );
+                    }
+                } ) );
+                item.add( new AjaxLink<Void>( "show" )
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public void onClick( AjaxRequestTarget target )
+                    {
+                        detailPanel.setType( type );
+                    }
+
+
+                    @Override
+                    protected void onConfigure()
+                    {
+                        super.onConfigure();
+                        setVisible( count( type ) > 0 );
+                    }
+                } );
+                item.add( new DeleteLink( "delete", type ) );
+            }
+        } );
+        poll = new AbstractAjaxTimerBehavior( Duration.seconds( POLL_SECONDS ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onTimer( AjaxRequestTarget target )
+            {
+                if ( OrphanScan.getActivity() == null )
+                {
+                    stop( target );
+                    target.add( OrphanListPanel.this );
+                    detailPanel.refresh( target );
+                }
+            }
+        };
+        add( poll );
+        poll.stop( null );
+    }
+
+
+    /**
+     * Deletes the orphans of a kind.
+     */
+    private class DeleteLink extends SecureIndicatingAjaxLink
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final OrphanScan.Type type;
+
+
+        DeleteLink( String id, OrphanScan.Type type )
+        {
+            super( id, GlobalIds.ADMIN_MGR, operation( type ) );
+            this.type = type;
+        }
+
+
+        @Override
+        public void onClick( AjaxRequestTarget target )
+        {
+            started( OrphanScan.delete( type, adminMgr, SecUtils.getSession( this ) ), "Deletion started" );
+        }
+
+
+        @Override
+        protected void onConfigure()
+        {
+            super.onConfigure();
+            setVisible( count( type ) > 0 );
+        }
+
+
+        @Override
+        protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+        {
+            super.updateAjaxAttributes( attributes );
+            attributes.getAjaxCallListeners().add( new AjaxCallListener().onPrecondition( "return confirm('Delete the "
+                + type.getLabel().toLowerCase() + " that are still unused?');" ) );
+        }
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            AjaxRequestTarget target = ( AjaxRequestTarget ) event.getPayload();
+            changed = false;
+            if ( poll.isStopped() && OrphanScan.getActivity() != null )
+            {
+                poll.restart( target );
+            }
+            target.add( this );
+            display.display( target );
+        }
+    }
+
+
+    private void started( boolean isStarted, String message )
+    {
+        String activity = OrphanScan.getActivity();
+        if ( isStarted )
+        {
+            display.setMessage( message );
+        }
+        else
+        {
+            display.setMessage( activity != null ? "Already running: " + activity : "Analyze first" );
+        }
+        changed = true;
+    }
+
+
+    private int count( OrphanScan.Type type )
+    {
+        OrphanScan.Result analyzed = analyzed();
+        return analyzed != null ? analyzed.getOrphans( type ).size() : 0;
+    }
+
+
+    /**
+     * @return the last analysis as the administrator may see it.
+     */
+    private OrphanScan.Result analyzed()
+    {
+        return OrphanScan.getResult( AdminScope.get( SecUtils.getSession( this ) ) );
+    }
+
+
+    private static String operation( OrphanScan.Type type )
+    {
+        switch ( type )
+        {
+            case ROLE:
+                return GlobalIds.DELETE_ROLE;
+            case PERMISSION:
+                return "deletePermission";
+            default:
+                return "deletePermObj";
+        }
+    }
+}
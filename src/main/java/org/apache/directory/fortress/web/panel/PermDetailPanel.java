@@ -27,6 +27,7 @@ import io.prometheus.client.Summary;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.web.NavPanel;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
@@ -366,7 +367,7 @@ public class PermDetailPanel extends FormComponentPanel
                 }
             } );
 
-            objectTF = new TextField( GlobalIds.OBJ_NAME );
+            objectTF = new SuggestionTextField( GlobalIds.OBJ_NAME, SuggestionIndex.Type.PERM_OBJ );
             // making this required prevents the object modal from opening when field empty:
             //objectTF.setRequired( true );
             objectTF.setOutputMarkupId( true );
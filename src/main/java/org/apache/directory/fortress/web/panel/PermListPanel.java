@@ -31,7 +31,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
@@ -39,14 +38,15 @@ import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.FormSyncBehavior;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.PermListModel;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
@@ -54,7 +54,6 @@ import org.apache.wicket.model.Model;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 
@@ -73,6 +72,7 @@ public class PermListPanel extends FormComponentPanel
     private DefaultMutableTreeNode node;
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
+    private TreeRows rows;
     private String permOperation;
     private String permObject;
     private TextField permObjectFld;
@@ -80,12 +80,24 @@ public class PermListPanel extends FormComponentPanel
 
 
     public PermListPanel( String id, final boolean isAdmin )
+    {
+        this( id, isAdmin, null );
+    }
+
+
+    /**
+     * @param permListModel initial contents of the grid, e.g. prefetched by the page, see
+     * {@link #newListModel}.  Loaded here if null.
+     */
+    public PermListPanel( String id, final boolean isAdmin, PermListModel permListModel )
     {
         super( id );
 
         this.isAdmin = isAdmin;
-        PermListModel permListModel = new PermListModel( new Permission( "", "" ),
-            isAdmin, SecUtils.getSession( this ) );
+        if ( permListModel == null )
+        {
+            permListModel = newListModel( isAdmin, SecUtils.getSession( this ) );
+        }
         setDefaultModel( permListModel );
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
             new ArrayList<>();
@@ -115,6 +127,7 @@ public class PermListPanel extends FormComponentPanel
 
         List<Permission> perms = ( List<Permission> ) getDefaultModel().getObject();
         treeModel = createTreeModel( perms );
+        rows = new TreeRows( treeModel );
 
         grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "permtreegrid", treeModel, columns )
         {
@@ -155,26 +168,13 @@ public class PermListPanel extends FormComponentPanel
         // expand the root node
         grid.getTreeState().expandAll();
         listForm = new Form( "form" );
+        listForm.add( new FormSyncBehavior() );
         listForm.add( grid );
         grid.setOutputMarkupId( true );
         add( listForm );
         permObjectFld = new TextField( "permObject", new PropertyModel<String>( this, "permObject" ) );
         permObjectFld.setOutputMarkupId( true );
 
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( permObjectFld );
-            }
-        };
-
-        permObjectFld.add( ajaxUpdater );
         this.listForm.add( permObjectFld );
         TextField permOperationFld = new TextField( "permOperation", new PropertyModel<String>( this, "permOperation" ) );
         this.listForm.add( permOperationFld );
@@ -223,6 +223,8 @@ public class PermListPanel extends FormComponentPanel
                     info( "No matching objects found" );
                 }
 
+                rows.reindex();
+
                 target.add( grid );
             }
 
@@ -350,62 +352,38 @@ public class PermListPanel extends FormComponentPanel
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
-
-            switch ( modelEvent.getOperation() )
+            AjaxRequestTarget target = modelEvent.getAjaxRequestTarget();
+            if ( rows.apply( modelEvent, true ) )
             {
-                case ADD:
-                    add( modelEvent.getEntity() );
-                    break;
-
-                case UPDATE:
-                    /*
-                    grid.markItemDirty(itemThatHasChanged);
-                    grid.update();
-                     */
-                    modelChanged();
-                    break;
-
-                case DELETE:
-                    prune();
-                    break;
-
-                case SEARCH:
-                    setDefaultModel( new PermListModel( ( Permission ) modelEvent.getEntity(), isAdmin,
-                        SecUtils.getSession( this ) ) );
-                    treeModel.reload();
-                    rootNode.removeAllChildren();
-
-                    for ( Permission perm : ( List<Permission> ) getDefaultModelObject() )
-                    {
-                        rootNode.add( new DefaultMutableTreeNode( perm ) );
-                    }
+                // only the changed row is rendered:
+                grid.update();
+            }
+            else if ( modelEvent.getOperation() == SaveModelEvent.Operations.SEARCH )
+            {
+                setDefaultModel( new PermListModel( ( Permission ) modelEvent.getEntity(), isAdmin,
+                    SecUtils.getSession( this ) ) );
+                treeModel.reload();
+                rootNode.removeAllChildren();
 
-                    break;
+                for ( Permission perm : ( List<Permission> ) getDefaultModelObject() )
+                {
+                    rootNode.add( new DefaultMutableTreeNode( perm ) );
+                }
 
-                default:
-                    break;
+                rows.reindex();
+                target.add( grid );
             }
-
-            AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add( grid );
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    /**
+     * Return the model of the grid's initial contents, all permissions visible to the administrator.
+     */
+    public static PermListModel newListModel( boolean isAdmin, Session session )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-
-        for ( IModel<DefaultMutableTreeNode> model : selected )
-        {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            Permission perm = ( Permission ) node.getUserObject();
-            log.debug( ".removeSelectedItems perm objNm: " + perm.getObjName() + " opNm: " + perm.getOpName() );
-            List<Permission> perms = ( ( List<Permission> ) getDefaultModel().getObject() );
-            perms.remove( perm );
-        }
+        return new PermListModel( new Permission( "", "" ), isAdmin, session );
     }
 
 
@@ -431,21 +409,4 @@ public class PermListPanel extends FormComponentPanel
 
         return model;
     }
-
-
-    public void add( FortEntity entity )
-    {
-        if ( getDefaultModelObject() != null )
-        {
-            List<Permission> perms = ( ( List<Permission> ) getDefaultModelObject() );
-            perms.add( ( Permission ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, 0 );
-        }
-    }
-
-
-    public void prune()
-    {
-        removeSelectedItems( grid );
-    }
 }
\ No newline at end of file
@@ -0,0 +1,434 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.fortress.web.panel;
+
+
+import io.prometheus.client.Counter;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.web.control.WicketSession;
+import org.apache.log4j.Logger;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.AbstractResource;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.time.Duration;
+
+import javax.imageio.ImageIO;
+import javax.servlet.http.HttpServletRequest;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Application wide resource serving user photos, mounted at 'photos/${userId}/${hash}/${size}'.
+ * <p>
+ * Photos are registered here when users are read from the directory and are then stripped from the {@link User}
+ * entities, so page models carry only the userId and the photo's content hash rather than the image bytes.  Since
+ * the url contains the content hash, responses may be cached by the browser indefinitely, and conditional requests
+ * are answered with 304.  Resized copies for the small thumbnails are generated once and held in a bounded cache.
+ * <p>
+ * The mount is protected like the pages, see web.xml.  A photo is only served if the hash requested is that of the
+ * photo last registered for the user, or of the photo read from the directory as the administrator logged into the
+ * session, otherwise 404 is returned.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PhotoResource extends AbstractResource
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( PhotoResource.class.getName() );
+    public static final String MOUNT_PATH = "photos/${userId}/${hash}/${size}";
+    public static final String DEFAULT_HASH = "default";
+    private static final String USER_ID = "userId";
+    private static final String HASH = "hash";
+    private static final String SIZE = "size";
+    private static final String DEFAULT_JPG = "GenericAvatar.jpg";
+    private static final int MAX_PHOTO_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_THUMBNAILS = 4096;
+    private static final int MAX_USERS = 100000;
+
+    static final Counter photoRequests = Counter.build()
+            .name("photo_request_total")
+            .help("Photo Request Total")
+            .labelNames( "result" )
+            .register();
+
+    /** The shared reference mounted by the application. */
+    public static final ResourceReference REFERENCE = new ResourceReference( PhotoResource.class, "photos" )
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final PhotoResource resource = new PhotoResource();
+
+
+        @Override
+        public IResource getResource()
+        {
+            return resource;
+        }
+    };
+
+    // full size photos keyed by hash, bounded by total bytes:
+    private static final LinkedHashMap<String, byte[]> PHOTOS = new LinkedHashMap<>( 256, 0.75f, true );
+    private static long photoBytes;
+    // resized photos keyed by hash and size:
+    private static final Map<String, byte[]> THUMBNAILS = Collections.synchronizedMap(
+        new LinkedHashMap<String, byte[]>( 256, 0.75f, true )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, byte[]> eldest )
+            {
+                return size() > MAX_THUMBNAILS;
+            }
+        } );
+    // latest photo hash of each user:
+    private static final Map<String, String> HASHES = Collections.synchronizedMap(
+        new LinkedHashMap<String, String>( 256, 0.75f, true )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, String> eldest )
+            {
+                return size() > MAX_USERS;
+            }
+        } );
+    private static volatile byte[] defaultImage;
+
+
+    /**
+     * Register a user's photo with the cache.
+     *
+     * @param userId owner of the photo.
+     * @param photo jpeg bytes.
+     * @return the photo's content hash, {@link #DEFAULT_HASH} if the photo is empty.
+     */
+    public static String register( String userId, byte[] photo )
+    {
+        if ( photo == null || photo.length == 0 )
+        {
+            return DEFAULT_HASH;
+        }
+        String hash = hash( photo );
+        synchronized ( PHOTOS )
+        {
+            if ( PHOTOS.put( hash, photo ) == null )
+            {
+                photoBytes += photo.length;
+                evict();
+            }
+        }
+        if ( userId != null )
+        {
+            HASHES.put( userId, hash );
+        }
+        return hash;
+    }
+
+
+    /**
+     * Move the user's photo into the cache and remove it from the entity so it isn't carried by the page models.
+     * Safe for entities that are later updated, fortress ignores an empty photo on update.
+     *
+     * @param user contains the photo.
+     */
+    public static void strip( User user )
+    {
+        if ( user != null && user.getJpegPhoto() != null && user.getJpegPhoto().length > 0 )
+        {
+            register( user.getUserId(), user.getJpegPhoto() );
+            user.setJpegPhoto( null );
+        }
+    }
+
+
+    /**
+     * Return the hash of the photo last registered for a user.
+     *
+     * @param userId owner of the photo.
+     * @return the hash or {@link #DEFAULT_HASH} if unknown.
+     */
+    public static String hashOf( String userId )
+    {
+        String hash = userId == null ? null : HASHES.get( userId );
+        return hash == null ? DEFAULT_HASH : hash;
+    }
+
+
+    /**
+     * Return the parameters of the photo url.
+     *
+     * @param userId owner of the photo.
+     * @param hash content hash of the photo.
+     * @param size edge length in pixels of the thumbnail, 0 for the full size photo.
+     * @return page parameters to be used with {@link #REFERENCE}.
+     */
+    public static PageParameters parameters( String userId, String hash, int size )
+    {
+        PageParameters parameters = new PageParameters();
+        parameters.set( USER_ID, StringUtils.isEmpty( userId ) ? "-" : userId );
+        parameters.set( HASH, hash );
+        parameters.set( SIZE, size );
+        return parameters;
+    }
+
+
+    @Override
+    protected ResourceResponse newResourceResponse( Attributes attributes )
+    {
+        PageParameters parameters = attributes.getParameters();
+        String userId = parameters.get( USER_ID ).toString();
+        String hash = parameters.get( HASH ).toString( DEFAULT_HASH );
+        int size = Math.max( 0, Math.min( parameters.get( SIZE ).toInt( 0 ), 512 ) );
+
+        ResourceResponse response = new ResourceResponse();
+        byte[] photo = getPhoto( userId, hash );
+        if ( photo == null )
+        {
+            photoRequests.labels( "not_found" ).inc();
+            response.setError( 404 );
+            return response;
+        }
+        // the hash is now known to be that of the photo:
+        response.setContentType( "image/jpeg" );
+        response.setCacheDuration( Duration.days( 365 ) );
+        response.setCacheScope( WebResponse.CacheScope.PRIVATE );
+        String etag = "\"" + hash + "-" + size + "\"";
+        response.getHeaders().addHeader( "ETag", etag );
+        HttpServletRequest servletReq = ( HttpServletRequest ) attributes.getRequest().getContainerRequest();
+        if ( etag.equals( servletReq.getHeader( "If-None-Match" ) ) )
+        {
+            photoRequests.labels( "not_modified" ).inc();
+            response.setStatusCode( 304 );
+            return response;
+        }
+        if ( size > 0 )
+        {
+            photo = getThumbnail( hash, photo, size );
+        }
+        photoRequests.labels( "served" ).inc();
+        final byte[] data = photo;
+        response.setContentLength( data.length );
+        response.setWriteCallback( new WriteCallback()
+        {
+            @Override
+            public void writeData( Attributes attributes ) throws IOException
+            {
+                attributes.getResponse().write( data );
+            }
+        } );
+        return response;
+    }
+
+
+    private static byte[] getPhoto( String userId, String hash )
+    {
+        if ( DEFAULT_HASH.equals( hash ) )
+        {
+            return getDefaultImage();
+        }
+        if ( "-".equals( userId ) )
+        {
+            return null;
+        }
+        byte[] photo = null;
+        if ( hash.equals( HASHES.get( userId ) ) )
+        {
+            synchronized ( PHOTOS )
+            {
+                photo = PHOTOS.get( hash );
+            }
+        }
+        if ( photo == null )
+        {
+            // evicted, registered on another node, or not the user's photo, read it as the session's administrator:
+            photoRequests.labels( "reload" ).inc();
+            photo = readPhoto( userId );
+            if ( photo == null || photo.length == 0 || !hash.equals( hash( photo ) ) )
+            {
+                return null;
+            }
+            register( userId, photo );
+        }
+        return photo;
+    }
+
+
+    private static byte[] readPhoto( String userId )
+    {
+        Session session = ( ( WicketSession ) WicketSession.get() ).getSession();
+        if ( session == null )
+        {
+            return null;
+        }
+        try
+        {
+            return new UserReader( session ).reviewMgr.readUser( new User( userId ) ).getJpegPhoto();
+        }
+        catch ( SecurityException se )
+        {
+            LOG.warn( "readPhoto userId: " + userId + " caught SecurityException=" + se );
+            return null;
+        }
+    }
+
+
+    /**
+     * Holds a review manager of its own, the resource is shared by all sessions.
+     */
+    private static class UserReader
+    {
+        @SpringBean
+        private ReviewMgr reviewMgr;
+
+
+        private UserReader( Session session )
+        {
+            Injector.get().inject( this );
+            reviewMgr.setAdmin( session );
+        }
+    }
+
+
+    private byte[] getThumbnail( String hash, byte[] photo, int size )
+    {
+        String key = hash + "-" + size;
+        byte[] thumbnail = THUMBNAILS.get( key );
+        if ( thumbnail == null )
+        {
+            thumbnail = resize( photo, size );
+            THUMBNAILS.put( key, thumbnail );
+        }
+        return thumbnail;
+    }
+
+
+    /**
+     * Scale the image so that its longest edge is no larger than size, images that are already small enough are
+     * returned as is.
+     */
+    private static byte[] resize( byte[] photo, int size )
+    {
+        try
+        {
+            BufferedImage image = ImageIO.read( new ByteArrayInputStream( photo ) );
+            if ( image == null || ( image.getWidth() <= size && image.getHeight() <= size ) )
+            {
+                return photo;
+            }
+            double scale = ( double ) size / Math.max( image.getWidth(), image.getHeight() );
+            int width = Math.max( 1, ( int ) ( image.getWidth() * scale ) );
+            int height = Math.max( 1, ( int ) ( image.getHeight() * scale ) );
+            BufferedImage scaled = new BufferedImage( width, height, BufferedImage.TYPE_INT_RGB );
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.setRenderingHint( RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR );
+            graphics.drawImage( image, 0, 0, width, height, null );
+            graphics.dispose();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write( scaled, "jpeg", out );
+            return out.toByteArray();
+        }
+        catch ( IOException ioe )
+        {
+            LOG.warn( "resize caught IOException=" + ioe );
+            return photo;
+        }
+    }
+
+
+    private static byte[] getDefaultImage()
+    {
+        if ( defaultImage == null )
+        {
+            InputStream in = PhotoResource.class.getClassLoader().getResourceAsStream( DEFAULT_JPG );
+            if ( in != null )
+            {
+                try
+                {
+                    defaultImage = IOUtils.toByteArray( in );
+                }
+                catch ( IOException ioe )
+                {
+                    LOG.error( "getDefaultImage caught IOException=" + ioe );
+                }
+                finally
+                {
+                    IOUtils.closeQuietly( in );
+                }
+            }
+        }
+        return defaultImage;
+    }
+
+
+    /**
+     * Drop the least recently used photos until the cache fits its byte budget.  Caller holds the PHOTOS lock.
+     */
+    private static void evict()
+    {
+        while ( photoBytes > MAX_PHOTO_BYTES && PHOTOS.size() > 1 )
+        {
+            Map.Entry<String, byte[]> eldest = PHOTOS.entrySet().iterator().next();
+            photoBytes -= eldest.getValue().length;
+            PHOTOS.remove( eldest.getKey() );
+        }
+    }
+
+
+    private static String hash( byte[] photo )
+    {
+        try
+        {
+            return new BigInteger( 1, MessageDigest.getInstance( "SHA-1" ).digest( photo ) ).toString( 16 );
+        }
+        catch ( NoSuchAlgorithmException nsae )
+        {
+            throw new RuntimeException( nsae );
+        }
+    }
+}
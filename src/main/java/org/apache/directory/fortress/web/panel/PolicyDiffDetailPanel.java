@@ -0,0 +1,201 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ImportReader;
+import org.apache.directory.fortress.web.control.PolicyDiff;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.form.CheckBox;
+import org.apache.wicket.markup.html.form.DropDownChoice;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.upload.FileUpload;
+import org.apache.wicket.markup.html.form.upload.FileUploadField;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.lang.Bytes;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * Uploads a policy file and compares it with the directory, see {@link PolicyDiff}.  The changes are shown by the
+ * {@link PolicyDiffListPanel}, from where they may be applied.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PolicyDiffDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger log = Logger.getLogger( PolicyDiffDetailPanel.class.getName() );
+    private static final int MAX_UPLOAD_MB = Config.getInstance().getInt( GlobalIds.IMPORT_MAX_UPLOAD_MB, 512 );
+    private static final String AUTO = "auto";
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
+    private final Displayable display;
+    private final PolicyDiffListPanel listPanel;
+    private String formatSelection = AUTO;
+    private boolean deletes;
+    private boolean changed;
+
+
+    public PolicyDiffDetailPanel( String id, Displayable display, PolicyDiffListPanel listPanel )
+    {
+        super( id );
+        this.reviewMgr.setAdmin( SecUtils.getSession( this ) );
+        this.delReviewMgr.setAdmin( SecUtils.getSession( this ) );
+        this.display = display;
+        this.listPanel = listPanel;
+        add( new DiffForm( GlobalIds.EDIT_FIELDS ) );
+    }
+
+
+    private class DiffForm extends Form<Void>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final FileUploadField upload;
+
+
+        DiffForm( String id )
+        {
+            super( id );
+            setMultiPart( true );
+            setMaxSize( Bytes.megabytes( MAX_UPLOAD_MB ) );
+            upload = new FileUploadField( "upload" );
+            add( upload );
+            add( new DropDownChoice<>( "format", new PropertyModel<String>( PolicyDiffDetailPanel.this,
+                "formatSelection" ), Arrays.asList( AUTO, ImportReader.Format.CSV.name(), ImportReader.Format.LDIF
+                .name(), ImportReader.Format.XML.name() ) ) );
+            add( new CheckBox( "deletes", new PropertyModel<Boolean>( PolicyDiffDetailPanel.this, "deletes" ) ) );
+            add( new SecureIndicatingAjaxButton( "compare", GlobalIds.REVIEW_MGR, GlobalIds.FIND_ROLES )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target, Form form )
+                {
+                    log.debug( ".onSubmit Compare" );
+                    changed = true;
+                    FileUpload fileUpload = upload.getFileUpload();
+                    if ( fileUpload == null )
+                    {
+                        display.setMessage( "Choose a policy file to compare" );
+                        return;
+                    }
+                    String fileName = fileUpload.getClientFileName();
+                    ImportReader.Format format = AUTO.equals( formatSelection ) ? ImportReader.Format.of( fileName )
+                        : ImportReader.Format.valueOf( formatSelection );
+                    if ( format == null )
+                    {
+                        display.setMessage( "The format of " + fileName + " can't be told from its name, choose one" );
+                        return;
+                    }
+                    try
+                    {
+                        PolicyDiff diff = PolicyDiff.compare( fileName, format, fileUpload.getInputStream(), deletes,
+                            reviewMgr, delReviewMgr );
+                        listPanel.setDiff( diff );
+                        display.setMessage( fileName + " differs from the directory by " + diff.getChanges()
+                            + " changes" );
+                    }
+                    catch ( SecurityException se )
+                    {
+                        String error = ".onSubmit caught SecurityException=" + se;
+                        log.error( error );
+                        display.setMessage( error );
+                    }
+                    catch ( IOException e )
+                    {
+                        String error = ".onSubmit caught IOException=" + e;
+                        log.error( error );
+                        display.setMessage( error );
+                    }
+                    finally
+                    {
+                        fileUpload.closeStreams();
+                        fileUpload.delete();
+                    }
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target, Form form )
+                {
+                    log.warn( "PolicyDiffDetailPanel.compare.onError" );
+                    changed = true;
+                    display.setMessage( "The file couldn't be uploaded, it may be larger than " + MAX_UPLOAD_MB
+                        + " MB" );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            } );
+        }
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            changed = false;
+            display.display( ( AjaxRequestTarget ) event.getPayload() );
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.web.ImportPage;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ImportRecord;
+import org.apache.directory.fortress.web.control.PolicyDiff;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
+import org.apache.log4j.Logger;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.DownloadLink;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Shows how a policy file differs from the directory: the number of entities of each type to be added, updated and
+ * deleted, and the first of the changes.  The changes may be downloaded, in the loader format, or applied, as an
+ * import, whose progress is shown on the import page.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PolicyDiffListPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger log = Logger.getLogger( PolicyDiffListPanel.class.getName() );
+    @SpringBean
+    private AdminMgr adminMgr;
+    @SpringBean
+    private DelAdminMgr delAdminMgr;
+    private final Displayable display;
+    private PolicyDiff diff;
+    private boolean changed;
+
+
+    public PolicyDiffListPanel( String id, Displayable display )
+    {
+        super( id );
+        this.adminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.delAdminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.display = display;
+        setOutputMarkupId( true );
+        add( new Label( "diffEmpty", "Choose a policy file to compare with the directory" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( diff == null );
+            }
+        } );
+        WebMarkupContainer result = new WebMarkupContainer( "result" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( diff != null );
+            }
+        };
+        add( result );
+        result.add( new Label( "summary", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                return diff == null ? "" : diff.getFileName() + ": " + diff.getTotal() + " read, " + diff
+                    .getUnchanged() + " unchanged, " + diff.getChanges() + " to change, " + diff.getSkipped()
+                    + " not compared, " + diff.getInvalid() + " invalid" + ( diff.isDeletes() ? "" :
+                    ", entities not in the file are kept" );
+            }
+        } ) );
+        result.add( new ListView<ImportRecord.Type>( "types", new AbstractReadOnlyModel<List<ImportRecord.Type>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public List<ImportRecord.Type> getObject()
+            {
+                return diff == null ? Collections.<ImportRecord.Type>emptyList() : diff.getTypes();
+            }
+        } )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<ImportRecord.Type> item )
+            {
+                ImportRecord.Type type = item.getModelObject();
+                item.add( new Label( "type", type.name().toLowerCase( Locale.ENGLISH ) ) );
+                item.add( new Label( "adds", String.valueOf( diff.getCount( type, ImportRecord.Operation.ADD ) ) ) );
+                item.add( new Label( "updates", String.valueOf( diff.getCount( type, ImportRecord.Operation.UPDATE )
+                ) ) );
+                item.add( new Label( "deletes", String.valueOf( diff.getCount( type, ImportRecord.Operation.DELETE )
+                ) ) );
+            }
+        } );
+        result.add( new ListView<PolicyDiff.Change>( "changes", new AbstractReadOnlyModel<List<PolicyDiff.Change>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public List<PolicyDiff.Change> getObject()
+            {
+                return diff == null ? Collections.<PolicyDiff.Change>emptyList() : diff.getShown();
+            }
+        } )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<PolicyDiff.Change> item )
+            {
+                PolicyDiff.Change change = item.getModelObject();
+                item.add( new Label( "operation", change.getOperation().name().toLowerCase( Locale.ENGLISH ) ) );
+                item.add( new Label( "changeType", change.getType().name().toLowerCase( Locale.ENGLISH ) ) );
+                item.add( new Label( "key", change.getKey() ) );
+                item.add( new Label( "detail", change.getDetail() ) );
+            }
+        } );
+        result.add( new Label( "more", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                return diff == null || diff.getChanges() <= diff.getShown().size() ? "" : "... and " + ( diff
+                    .getChanges() - diff.getShown().size() ) + " more, download the changes to see them all";
+            }
+        } ) );
+        result.add( new DownloadLink( "delta", new AbstractReadOnlyModel<File>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public File getObject()
+            {
+                return diff != null ? diff.getDelta() : null;
+            }
+        }, "changes.xml" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( diff != null && diff.isApplicable() );
+            }
+        } );
+        result.add( new SecureIndicatingAjaxLink( "apply", GlobalIds.ADMIN_MGR, GlobalIds.ADD_ROLE )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick( AjaxRequestTarget target )
+            {
+                if ( diff == null || !diff.isApplicable() )
+                {
+                    return;
+                }
+                try
+                {
+                    diff.apply( SecUtils.getSession( this ).getUserId(), adminMgr, delAdminMgr );
+                    setResponsePage( ImportPage.class );
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    log.warn( ".apply " + diff.getFileName() + ": " + e.getMessage() );
+                    display.setMessage( e.getMessage() );
+                    changed = true;
+                }
+                catch ( IOException e )
+                {
+                    String error = ".apply caught IOException=" + e;
+                    log.error( error );
+                    display.setMessage( error );
+                    changed = true;
+                }
+            }
+
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( diff != null && diff.isApplicable() );
+            }
+        } );
+    }
+
+
+    /**
+     * Show the difference of a file just compared, in place of the last.
+     */
+    public void setDiff( PolicyDiff diff )
+    {
+        if ( this.diff != null && this.diff != diff )
+        {
+            this.diff.discard();
+        }
+        this.diff = diff;
+        changed = true;
+    }
+
+
+    @Override
+    public void onEvent( IEvent<?> event )
+    {
+        if ( event.getPayload() instanceof AjaxRequestTarget && changed )
+        {
+            AjaxRequestTarget target = ( AjaxRequestTarget ) event.getPayload();
+            changed = false;
+            target.add( this );
+            display.display( target );
+        }
+    }
+}
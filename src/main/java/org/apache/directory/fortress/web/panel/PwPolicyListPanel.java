@@ -42,15 +42,14 @@ import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.PwPolicyListModel;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 
@@ -67,15 +66,28 @@ public class PwPolicyListPanel extends FormComponentPanel
     private DefaultMutableTreeNode node;
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
+    private TreeRows rows;
     private String searchVal;
 
 
-    @SuppressWarnings( "Convert2Diamond" )
     public PwPolicyListPanel( String id )
+    {
+        this( id, null );
+    }
+
+
+    /**
+     * @param policyListModel initial contents of the grid, e.g. prefetched by the page, see
+     * {@link #newListModel}.  Loaded here if null.
+     */
+    @SuppressWarnings( "Convert2Diamond" )
+    public PwPolicyListPanel( String id, PwPolicyListModel policyListModel )
     {
         super( id );
-        PwPolicyListModel policyListModel = new PwPolicyListModel( new PwPolicy( "" ),
-            SecUtils.getSession( this ) );
+        if ( policyListModel == null )
+        {
+            policyListModel = newListModel( SecUtils.getSession( this ) );
+        }
         setDefaultModel( policyListModel );
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
             new ArrayList<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>>();
@@ -156,6 +168,7 @@ public class PwPolicyListPanel extends FormComponentPanel
 
         List<PwPolicy> policies = ( List<PwPolicy> ) getDefaultModel().getObject();
         treeModel = createTreeModel( policies );
+        rows = new TreeRows( treeModel );
         grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "policytreegrid", treeModel, columns )
         {
             /** Default serialVersionUID */
@@ -227,6 +240,7 @@ public class PwPolicyListPanel extends FormComponentPanel
                 {
                     info( "No matching objects found" );
                 }
+                rows.reindex();
                 target.add( grid );
             }
 
@@ -268,39 +282,23 @@ public class PwPolicyListPanel extends FormComponentPanel
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
-            switch ( modelEvent.getOperation() )
+            AjaxRequestTarget target = modelEvent.getAjaxRequestTarget();
+            if ( rows.apply( modelEvent, false ) )
             {
-                case ADD:
-                    add( modelEvent.getEntity() );
-                    break;
-                case UPDATE:
-                    modelChanged();
-                    break;
-                case DELETE:
-                    prune();
-                    break;
-                default:
-                    break;
+                // only the changed row is rendered:
+                grid.update();
             }
-            AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add( grid );
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    /**
+     * Return the model of the grid's initial contents, all password policies visible to the administrator.
+     */
+    public static PwPolicyListModel newListModel( Session session )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
-        {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            PwPolicy policy = ( PwPolicy ) node.getUserObject();
-            log.debug( ".removeSelectedItems policy node: " + policy.getName() );
-            List<PwPolicy> policies = ( ( List<PwPolicy> ) getDefaultModel().getObject() );
-            policies.remove( policy );
-        }
+        return new PwPolicyListModel( new PwPolicy( "" ), session );
     }
 
 
@@ -319,21 +317,4 @@ public class PwPolicyListPanel extends FormComponentPanel
         }
         return model;
     }
-
-
-    public void add( FortEntity entity )
-    {
-        if ( getDefaultModelObject() != null )
-        {
-            List<PwPolicy> policies = ( ( List<PwPolicy> ) getDefaultModelObject() );
-            policies.add( ( PwPolicy ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, policies.size() );
-        }
-    }
-
-
-    public void prune()
-    {
-        removeSelectedItems( grid );
-    }
 }
@@ -31,20 +31,25 @@ import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.form.DropDownChoice;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.RoleUsage;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.RoleListModel;
+import org.apache.directory.fortress.web.model.RoleUsageModel;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 
@@ -52,7 +57,9 @@ import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 
@@ -66,19 +73,55 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private static final Logger log = Logger.getLogger( RoleListPanel.class.getName() );
+    private static final String SORT_NAME = "Name";
+    private static final String SORT_ASSIGNED = "Assigned Users";
+    private static final String SORT_INHERITED = "Inherited Users";
+    private static final String SORT_PERMISSIONS = "Permissions";
+    private static final String ASSIGNED_USERS = "assignedUsers";
+    private static final String INHERITED_USERS = "inheritedUsers";
+    private static final String PERMISSIONS = "permissions";
     private DefaultTreeModel treeModel;
     private DefaultMutableTreeNode node;
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
+    private TreeRows rows;
     private String searchVal;
+    private String sortBy = SORT_NAME;
     private boolean isAdmin;
+    private final RoleUsageModel usageModel;
 
 
     public RoleListPanel( String id, final boolean isAdmin )
+    {
+        this( id, isAdmin, null, null );
+    }
+
+
+    public RoleListPanel( String id, final boolean isAdmin, RoleListModel roleListModel )
+    {
+        this( id, isAdmin, roleListModel, null );
+    }
+
+
+    /**
+     * @param roleListModel initial contents of the grid, e.g. prefetched by the page, see
+     * {@link #newListModel}.  Loaded here if null.
+     * @param usageModel the usage statistics of the roles, e.g. prefetched by the page, see
+     * {@link #newUsageModel}.  Loaded here if null.
+     */
+    public RoleListPanel( String id, final boolean isAdmin, RoleListModel roleListModel, RoleUsageModel usageModel )
     {
         super( id );
         this.isAdmin = isAdmin;
-        RoleListModel roleListModel = new RoleListModel( createRole( "" ), isAdmin, SecUtils.getSession( this ) );
+        if ( roleListModel == null )
+        {
+            roleListModel = newListModel( isAdmin, SecUtils.getSession( this ) );
+        }
+        if ( usageModel == null )
+        {
+            usageModel = newUsageModel( isAdmin, SecUtils.getSession( this ) );
+        }
+        this.usageModel = usageModel;
         setDefaultModel( roleListModel );
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
             new ArrayList<>();
@@ -130,8 +173,21 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
         parents.setInitialSize( 250 );
         columns.add( parents );
 
+        UsageColumn assignedUsers = new UsageColumn( "Users", ASSIGNED_USERS );
+        assignedUsers.setInitialSize( 60 );
+        columns.add( assignedUsers );
+
+        UsageColumn inheritedUsers = new UsageColumn( "Inherited", INHERITED_USERS );
+        inheritedUsers.setInitialSize( 60 );
+        columns.add( inheritedUsers );
+
+        UsageColumn permissions = new UsageColumn( "Perms", PERMISSIONS );
+        permissions.setInitialSize( 60 );
+        columns.add( permissions );
+
         List<T> roles = ( List<T> ) getDefaultModel().getObject();
         treeModel = createTreeModel( roles );
+        rows = new TreeRows( treeModel );
         grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "roletreegrid", treeModel, columns )
         {
             /** Default serialVersionUID */
@@ -171,6 +227,23 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
         TextField searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this,
             GlobalIds.SEARCH_VAL ) );
         listForm.add( searchValFld );
+        DropDownChoice<String> sortByFld = new DropDownChoice<>( "sortBy", new PropertyModel<String>( this, "sortBy" ),
+            Arrays.asList( SORT_NAME, SORT_ASSIGNED, SORT_INHERITED, SORT_PERMISSIONS ) );
+        sortByFld.setNullValid( false );
+        sortByFld.add( new AjaxFormComponentUpdatingBehavior( "change" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onUpdate( AjaxRequestTarget target )
+            {
+                sort();
+                target.add( grid );
+            }
+        } );
+        listForm.add( sortByFld );
 
         listForm.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.REVIEW_MGR, "findRoles" )
         {
@@ -203,6 +276,7 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
                 {
                     info( "No matching objects found" );
                 }
+                sort();
                 target.add( grid );
             }
 
@@ -244,55 +318,118 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
-            switch ( modelEvent.getOperation() )
+            AjaxRequestTarget target = modelEvent.getAjaxRequestTarget();
+            if ( rows.apply( modelEvent, false ) )
             {
-                case ADD:
-                    add( modelEvent.getEntity() );
-                    break;
-                case UPDATE:
-                    modelChanged();
-                    break;
-                case DELETE:
-                    prune();
-                    break;
-                default:
-                    break;
+                // only the changed row is rendered:
+                grid.update();
             }
-            AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add( grid );
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
 
 
-    public void add( FortEntity entity )
+    @Override
+    protected void onDetach()
+    {
+        usageModel.detach();
+        super.onDetach();
+    }
+
+
+    /**
+     * Order the rows of the grid as chosen, the roles with the most users or permissions first.
+     */
+    private void sort()
     {
-        if ( getDefaultModelObject() != null )
+        List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
         {
-            List<Role> roles = ( ( List<Role> ) getDefaultModelObject() );
-            roles.add( ( Role ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, roles.size() );
+            nodes.add( ( DefaultMutableTreeNode ) rootNode.getChildAt( i ) );
         }
+        final RoleUsage usage = usageModel.getObject();
+        Collections.sort( nodes, new Comparator<DefaultMutableTreeNode>()
+        {
+            @Override
+            public int compare( DefaultMutableTreeNode n1, DefaultMutableTreeNode n2 )
+            {
+                String name1 = ( ( Role ) n1.getUserObject() ).getName();
+                String name2 = ( ( Role ) n2.getUserObject() ).getName();
+                if ( usage != null && !SORT_NAME.equals( sortBy ) )
+                {
+                    int compared = count( usage, name2 ) - count( usage, name1 );
+                    if ( compared != 0 )
+                    {
+                        return compared;
+                    }
+                }
+                return name1.compareToIgnoreCase( name2 );
+            }
+        } );
+        rootNode.removeAllChildren();
+        for ( DefaultMutableTreeNode node : nodes )
+        {
+            rootNode.add( node );
+        }
+        treeModel.reload();
+        rows.reindex();
     }
 
 
-    public void prune()
+    private int count( RoleUsage usage, String roleName )
     {
-        removeSelectedItems( grid );
+        Integer count;
+        switch ( sortBy )
+        {
+            case SORT_ASSIGNED:
+                count = usage.getAssignedUsers( roleName );
+                break;
+            case SORT_INHERITED:
+                count = usage.getInheritedUsers( roleName );
+                break;
+            default:
+                count = usage.getPermissions( roleName );
+                break;
+        }
+        // roles not counted go last:
+        return count != null ? count : -1;
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    /**
+     * A column of the usage statistics of the row's role, blank if the statistics couldn't be counted.
+     */
+    private class UsageColumn extends PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, Object, String>
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        UsageColumn( String header, String statistic )
         {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            Role role = ( Role ) node.getUserObject();
-            log.debug( ".removeSelectedItems role node: " + role.getName() );
-            List<Role> roles = ( ( List<Role> ) getDefaultModel().getObject() );
-            roles.remove( role );
+            super( Model.of( header ), statistic );
+        }
+
+
+        @Override
+        protected Object getProperty( Object object, String statistic )
+        {
+            RoleUsage usage = usageModel.getObject();
+            Object role = ( ( DefaultMutableTreeNode ) object ).getUserObject();
+            if ( usage == null || !( role instanceof Role ) )
+            {
+                return null;
+            }
+            String roleName = ( ( Role ) role ).getName();
+            switch ( statistic )
+            {
+                case ASSIGNED_USERS:
+                    return usage.getAssignedUsers( roleName );
+                case INHERITED_USERS:
+                    return usage.getInheritedUsers( roleName );
+                default:
+                    return usage.getPermissions( roleName );
+            }
         }
     }
 
@@ -314,7 +451,31 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
+    /**
+     * Return the model of the grid's initial contents, all roles visible to the administrator.
+     */
+    public static RoleListModel newListModel( boolean isAdmin, Session session )
+    {
+        return new RoleListModel( createRole( "", isAdmin ), isAdmin, session );
+    }
+
+
+    /**
+     * Return the model of the usage statistics of the roles, see {@link RoleUsage}.
+     */
+    public static RoleUsageModel newUsageModel( boolean isAdmin, Session session )
+    {
+        return new RoleUsageModel( isAdmin, session );
+    }
+
+
     private Role createRole( String name )
+    {
+        return createRole( name, isAdmin );
+    }
+
+
+    private static Role createRole( String name, boolean isAdmin )
     {
         Role role;
 
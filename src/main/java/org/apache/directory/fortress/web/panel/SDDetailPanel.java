@@ -34,26 +34,35 @@ import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
+import org.apache.wicket.ajax.markup.html.navigation.paging.AjaxPagingNavigator;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
+import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.basic.Label;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.PageableListView;
+import org.apache.wicket.model.AbstractReadOnlyModel;
 import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.RoleAssignmentIndex;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -68,7 +77,11 @@ public class SDDetailPanel extends FormComponentPanel
     private static final long serialVersionUID = 1L;
     @SpringBean
     private AdminMgr adminMgr;
+    @SpringBean
+    private ReviewMgr reviewMgr;
     private static final String MEMBERS_SELECTION = "membersSelection";
+    private static final int IMPACT_MAX_SHOWN = Config.getInstance().getInt( GlobalIds.SD_IMPACT_MAX_SHOWN, 1000 );
+    private static final int IMPACT_ROWS_PER_PAGE = 10;
     private static final Logger log = Logger.getLogger( SDDetailPanel.class.getName() );
     private Form editForm;
     private Displayable display;
@@ -96,6 +109,7 @@ public class SDDetailPanel extends FormComponentPanel
     {
         super( id );
         this.adminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.reviewMgr.setAdmin( SecUtils.getSession( this ) );
         this.isStatic = isStatic;
         this.editForm = new SDDetailForm( GlobalIds.EDIT_FIELDS, new CompoundPropertyModel<>( new SDSet() ) );
         this.display = display;
@@ -114,6 +128,8 @@ public class SDDetailPanel extends FormComponentPanel
         private UserRole roleConstraint = new UserRole();
         private TextField nameTF;
         private SecureIndicatingAjaxButton addPB;
+        private RoleAssignmentIndex.Impact impact;
+        private PageableListView<RoleAssignmentIndex.Conflict> impactUsers;
 
         public SDDetailForm( String id, final IModel<SDSet> model )
         {
@@ -157,6 +173,7 @@ public class SDDetailPanel extends FormComponentPanel
                             adminMgr.createDsdSet( sdSet );
                         }
                         SaveModelEvent.send( getPage(), this, sdSet, target, SaveModelEvent.Operations.ADD );
+                        impact = null;
                         component = editForm;
                         String msg = "SDSet: " + sdSet.getName() + " has been added";
                         display.setMessage( msg );
@@ -218,6 +235,7 @@ public class SDDetailPanel extends FormComponentPanel
                             adminMgr.updateDsdSet( sdSet );
                         String msg = "SDSet: " + sdSet.getName() + " has been updated";
                         SaveModelEvent.send( getPage(), this, sdSet, target, SaveModelEvent.Operations.UPDATE );
+                        impact = null;
                         component = editForm;
                         display.setMessage( msg );
                         membersSelection = "";
@@ -324,6 +342,79 @@ public class SDDetailPanel extends FormComponentPanel
                 }
             } );
 
+            add( new SecureIndicatingAjaxButton( "impact", GlobalIds.REVIEW_MGR, GlobalIds.FIND_USERS )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target, Form form )
+                {
+                    log.debug( ".onSubmit Impact" );
+                    SDSet sdSet = ( SDSet ) form.getModel().getObject();
+                    // the set as it would be saved, without changing the form's:
+                    SDSet candidate = new SDSet();
+                    candidate.setName( sdSet.getName() );
+                    candidate.setCardinality( sdSet.getCardinality() );
+                    if ( sdSet.getMembers() != null )
+                    {
+                        for ( String member : sdSet.getMembers() )
+                        {
+                            candidate.setMember( member );
+                        }
+                    }
+                    if ( StringUtils.isNotEmpty( membersSelection ) )
+                    {
+                        candidate.setMember( membersSelection );
+                    }
+                    try
+                    {
+                        RoleAssignmentIndex index = RoleAssignmentIndex.get( reviewMgr, SecUtils.getSession( this ) );
+                        impact = index.check( candidate, IMPACT_MAX_SHOWN );
+                        impactUsers.setCurrentPage( 0 );
+                        String msg = "SDSet: " + candidate.getName() + " would constrain " + impact.getTotal()
+                            + " of " + impact.getChecked() + " users";
+                        display.setMessage( msg );
+                        log.debug( msg );
+                    }
+                    catch ( org.apache.directory.fortress.core.SecurityException se )
+                    {
+                        String error = ".onSubmit caught SecurityException=" + se;
+                        log.error( error );
+                        display.setMessage( error );
+                    }
+                    component = editForm;
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target, Form form )
+                {
+                    log.warn( "SDDetailPanel.impact.onError" );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            } );
+
             add( new AjaxSubmitLink( GlobalIds.CANCEL )
             {
                 /** Default serialVersionUID */
@@ -388,6 +479,7 @@ public class SDDetailPanel extends FormComponentPanel
             membersCB.setOutputMarkupId( true );
             add( membersCB );
             addRoleSearchModal();
+            addImpactResult();
 
             add( new AjaxButton( "members.delete" )
             {
@@ -517,6 +609,89 @@ public class SDDetailPanel extends FormComponentPanel
         }
 
 
+        private void addImpactResult()
+        {
+            WebMarkupContainer impactResult = new WebMarkupContainer( "impactResult" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onConfigure()
+                {
+                    super.onConfigure();
+                    setVisible( impact != null );
+                }
+            };
+            add( impactResult );
+            impactResult.add( new Label( "impactSummary", new AbstractReadOnlyModel<String>()
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                public String getObject()
+                {
+                    if ( impact == null )
+                    {
+                        return "";
+                    }
+                    String summary = impact.getTotal() + " of " + impact.getChecked() + " users are authorized for "
+                        + impact.getCardinality() + " or more of the members";
+                    if ( isStatic )
+                    {
+                        summary += " and would be in violation of the set";
+                    }
+                    else
+                    {
+                        summary += " and could activate at most " + ( impact.getCardinality() - 1 )
+                            + " of them in a session";
+                    }
+                    if ( impact.getTotal() > impact.getShown().size() )
+                    {
+                        summary += ", the first " + impact.getShown().size() + " are listed";
+                    }
+                    if ( !impact.getUnknown().isEmpty() )
+                    {
+                        summary += ", not roles: " + StringUtils.join( impact.getUnknown(), ", " );
+                    }
+                    return summary;
+                }
+            } ) );
+            impactUsers = new PageableListView<RoleAssignmentIndex.Conflict>( "impactUsers",
+                new AbstractReadOnlyModel<List<RoleAssignmentIndex.Conflict>>()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public List<RoleAssignmentIndex.Conflict> getObject()
+                    {
+                        return impact == null ? Collections.<RoleAssignmentIndex.Conflict>emptyList() : impact
+                            .getShown();
+                    }
+                }, IMPACT_ROWS_PER_PAGE )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void populateItem( ListItem<RoleAssignmentIndex.Conflict> item )
+                {
+                    RoleAssignmentIndex.Conflict conflict = item.getModelObject();
+                    item.add( new Label( GlobalIds.USER_ID, conflict.getUserId() ) );
+                    item.add( new Label( "roles", StringUtils.join( conflict.getRoles(), ", " ) ) );
+                }
+            };
+            impactResult.add( impactUsers );
+            impactResult.add( new AjaxPagingNavigator( "impactNavigator", impactUsers ) );
+        }
+
+
         private void updateEntityWithComboData( SDSet sdSet )
         {
             if ( StringUtils.isNotEmpty( membersSelection ) )
@@ -559,6 +734,7 @@ public class SDDetailPanel extends FormComponentPanel
                 nameTF.setEnabled( false );
                 addPB.setEnabled( false );
                 editForm.addOrReplace( membersCB );
+                impact = null;
                 String msg = "SDSet: " + sdSet.getName() + " has been selected";
                 log.debug( msg );
                 display.setMessage( msg );
@@ -603,6 +779,7 @@ public class SDDetailPanel extends FormComponentPanel
             nameTF.setEnabled( true );
             addPB.setEnabled( true );
             editForm.addOrReplace( membersCB );
+            impact = null;
         }
     }
 }
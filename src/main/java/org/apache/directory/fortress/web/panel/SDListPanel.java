@@ -31,7 +31,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
@@ -41,22 +40,22 @@ import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.FormSyncBehavior;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.SDListModel;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.UserRole;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 
@@ -75,6 +74,7 @@ public class SDListPanel extends FormComponentPanel
     private DefaultMutableTreeNode node;
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
+    private TreeRows rows;
     private String searchVal;
     private char selectedRadioButton;
     private TextField searchValFld;
@@ -84,25 +84,34 @@ public class SDListPanel extends FormComponentPanel
 
 
     public SDListPanel( String id, final boolean isStatic )
+    {
+        this( id, isStatic, null );
+    }
+
+
+    /**
+     * @param sdListModel initial contents of the grid, e.g. prefetched by the page, see
+     * {@link #newListModel}.  Loaded here if null.
+     */
+    public SDListPanel( String id, final boolean isStatic, SDListModel sdListModel )
     {
         super( id );
-        SDSet sdSet = new SDSet();
-        sdSet.setName( "" );
         String searchLabel;
         String opName;
         if ( isStatic )
         {
-            sdSet.setType( SDSet.SDType.STATIC );
             searchLabel = "SSD Name";
             opName = "ssdRoleSets";
         }
         else
         {
-            sdSet.setType( SDSet.SDType.DYNAMIC );
             searchLabel = "DSD Name";
             opName = "dsdRoleSets";
         }
-        SDListModel sdListModel = new SDListModel( sdSet, SecUtils.getSession( this ) );
+        if ( sdListModel == null )
+        {
+            sdListModel = newListModel( isStatic, SecUtils.getSession( this ) );
+        }
         setDefaultModel( sdListModel );
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
             new ArrayList<>();
@@ -127,6 +136,7 @@ public class SDListPanel extends FormComponentPanel
 
         List<SDSet> sdSets = ( List<SDSet> ) getDefaultModel().getObject();
         treeModel = createTreeModel( sdSets );
+        rows = new TreeRows( treeModel );
         grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "sdtreegrid", treeModel, columns )
         {
             /** Default serialVersionUID */
@@ -162,6 +172,7 @@ public class SDListPanel extends FormComponentPanel
         // expand the root node
         grid.getTreeState().expandAll();
         this.listForm = new Form( "form" );
+        this.listForm.add( new FormSyncBehavior() );
         this.listForm.add( grid );
         grid.setOutputMarkupId( true );
 
@@ -176,19 +187,6 @@ public class SDListPanel extends FormComponentPanel
         radioGroup.setRenderBodyOnly( false );
         searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this, GlobalIds.SEARCH_VAL ) );
         searchValFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( searchValFld );
-            }
-        };
-        searchValFld.add( ajaxUpdater );
         radioGroup.add( searchValFld );
         this.listForm.add( radioGroup );
         selectedRadioButton = NAMES;
@@ -242,6 +240,7 @@ public class SDListPanel extends FormComponentPanel
                 {
                     info( "No matching objects found" );
                 }
+                rows.reindex();
                 target.add( grid );
             }
 
@@ -354,39 +353,27 @@ public class SDListPanel extends FormComponentPanel
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
-            switch ( modelEvent.getOperation() )
+            AjaxRequestTarget target = modelEvent.getAjaxRequestTarget();
+            if ( rows.apply( modelEvent, false ) )
             {
-                case ADD:
-                    add( modelEvent.getEntity() );
-                    break;
-                case UPDATE:
-                    modelChanged();
-                    break;
-                case DELETE:
-                    prune();
-                    break;
-                default:
-                    break;
+                // only the changed row is rendered:
+                grid.update();
             }
-            AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add( grid );
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    /**
+     * Return the model of the grid's initial contents, all static or dynamic sets visible to the
+     * administrator.
+     */
+    public static SDListModel newListModel( boolean isStatic, Session session )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
-        {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            SDSet sdSet = ( SDSet ) node.getUserObject();
-            log.debug( ".removeSelectedItems sdset node: " + sdSet.getName() );
-            List<SDSet> sdSets = ( ( List<SDSet> ) getDefaultModel().getObject() );
-            sdSets.remove( sdSet );
-        }
+        SDSet sdSet = new SDSet();
+        sdSet.setName( "" );
+        sdSet.setType( isStatic ? SDSet.SDType.STATIC : SDSet.SDType.DYNAMIC );
+        return new SDListModel( sdSet, session );
     }
 
 
@@ -405,21 +392,4 @@ public class SDListPanel extends FormComponentPanel
         }
         return model;
     }
-
-
-    public void add( FortEntity entity )
-    {
-        if ( getDefaultModelObject() != null )
-        {
-            List<SDSet> sdSets = ( ( List<SDSet> ) getDefaultModelObject() );
-            sdSets.add( ( SDSet ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, sdSets.size() );
-        }
-    }
-
-
-    public void prune()
-    {
-        removeSelectedItems( grid );
-    }
 }
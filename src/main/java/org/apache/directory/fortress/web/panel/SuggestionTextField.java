@@ -0,0 +1,88 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
+import org.apache.wicket.extensions.ajax.markup.html.autocomplete.AutoCompleteSettings;
+import org.apache.wicket.extensions.ajax.markup.html.autocomplete.AutoCompleteTextField;
+import org.apache.wicket.model.IModel;
+
+import java.util.Iterator;
+
+
+/**
+ * Text field that suggests role, user, ou, object or policy names as the administrator types, served from the
+ * {@link SuggestionIndex} of the administrator's ARBAC scope rather than a directory search.  The search modals remain
+ * available next to the field.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class SuggestionTextField extends AutoCompleteTextField<String>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_SUGGESTIONS = 15;
+    private static final int THROTTLE_DELAY_MILLIS = 250;
+    private final SuggestionIndex.Type type;
+
+
+    public SuggestionTextField( String id, SuggestionIndex.Type type )
+    {
+        this( id, null, type );
+    }
+
+
+    public SuggestionTextField( String id, IModel<String> model, SuggestionIndex.Type type )
+    {
+        super( id, model, String.class, newSettings() );
+        this.type = type;
+    }
+
+
+    @Override
+    protected void onConfigure()
+    {
+        super.onConfigure();
+        // load the names before the first characters are typed:
+        SuggestionIndex.prepare( SecUtils.getSession( this ), type );
+    }
+
+
+    @Override
+    protected Iterator<String> getChoices( String input )
+    {
+        return SuggestionIndex.suggest( SecUtils.getSession( this ), type, input, MAX_SUGGESTIONS ).iterator();
+    }
+
+
+    private static AutoCompleteSettings newSettings()
+    {
+        AutoCompleteSettings settings = new AutoCompleteSettings();
+        // debounce keystrokes so a request isn't sent for every character:
+        settings.setThrottleDelay( THROTTLE_DELAY_MILLIS );
+        settings.setMinInputLength( 1 );
+        settings.setPreselect( false );
+        settings.setAdjustInputWidth( false );
+        return settings;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import com.inmethod.grid.treegrid.TreeGrid;
+import org.apache.directory.fortress.core.model.Group;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Index of the rows of a list panel's tree grid by entity key, so a saved entity's row is found without walking the
+ * tree.  Changes go through the tree model, whose events mark the affected rows dirty in the grid; a subsequent
+ * {@link TreeGrid#update()} then sends only those rows to the browser, rather than the whole grid.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class TreeRows implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private final DefaultTreeModel treeModel;
+    private final Map<String, DefaultMutableTreeNode> nodes = new HashMap<>();
+
+
+    TreeRows( DefaultTreeModel treeModel )
+    {
+        this.treeModel = treeModel;
+        reindex();
+    }
+
+
+    /**
+     * Rebuild the index, to be called after the children of the root have been replaced, e.g. by a search.
+     */
+    void reindex()
+    {
+        nodes.clear();
+        DefaultMutableTreeNode rootNode = ( DefaultMutableTreeNode ) treeModel.getRoot();
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
+        {
+            DefaultMutableTreeNode node = ( DefaultMutableTreeNode ) rootNode.getChildAt( i );
+            nodes.put( key( node.getUserObject() ), node );
+        }
+    }
+
+
+    /**
+     * Add a row for a new entity, or replace its row if already present.
+     *
+     * @param entity that was added.
+     * @param first true to insert at the top of the grid, otherwise it is appended.
+     */
+    void insert( Object entity, boolean first )
+    {
+        if ( replace( entity ) )
+        {
+            return;
+        }
+        DefaultMutableTreeNode rootNode = ( DefaultMutableTreeNode ) treeModel.getRoot();
+        DefaultMutableTreeNode node = new DefaultMutableTreeNode( entity );
+        treeModel.insertNodeInto( node, rootNode, first ? 0 : rootNode.getChildCount() );
+        nodes.put( key( entity ), node );
+    }
+
+
+    /**
+     * Replace the row of an updated entity.
+     *
+     * @param entity that was updated.
+     * @return false if the entity isn't shown in the grid.
+     */
+    boolean replace( Object entity )
+    {
+        DefaultMutableTreeNode node = nodes.get( key( entity ) );
+        if ( node == null )
+        {
+            return false;
+        }
+        node.setUserObject( entity );
+        treeModel.nodeChanged( node );
+        return true;
+    }
+
+
+    /**
+     * Remove the row of a deleted entity.
+     *
+     * @param entity that was deleted.
+     * @return false if the entity isn't shown in the grid.
+     */
+    boolean remove( Object entity )
+    {
+        DefaultMutableTreeNode node = nodes.remove( key( entity ) );
+        if ( node == null )
+        {
+            return false;
+        }
+        treeModel.removeNodeFromParent( node );
+        return true;
+    }
+
+
+    /**
+     * Apply a save to the grid's rows.
+     *
+     * @param modelEvent as received by the list panel.
+     * @param first true if added entities go to the top of the grid.
+     * @return false if the operation doesn't apply to individual rows, e.g. a search.
+     */
+    boolean apply( SaveModelEvent modelEvent, boolean first )
+    {
+        switch ( modelEvent.getOperation() )
+        {
+            case ADD:
+                insert( modelEvent.getEntity(), first );
+                return true;
+            case UPDATE:
+                replace( modelEvent.getEntity() );
+                return true;
+            case DELETE:
+                remove( modelEvent.getEntity() );
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * Return the key identifying an entity within its grid, i.e. the attributes its directory entry is named by.
+     */
+    static String key( Object entity )
+    {
+        String key;
+        if ( entity instanceof User )
+        {
+            key = ( ( User ) entity ).getUserId();
+        }
+        else if ( entity instanceof Role )
+        {
+            key = ( ( Role ) entity ).getName();
+        }
+        else if ( entity instanceof Permission )
+        {
+            Permission perm = ( Permission ) entity;
+            key = perm.getObjName() + "|" + perm.getOpName() + "|" + perm.getObjId();
+        }
+        else if ( entity instanceof PermObj )
+        {
+            key = ( ( PermObj ) entity ).getObjName();
+        }
+        else if ( entity instanceof OrgUnit )
+        {
+            key = ( ( OrgUnit ) entity ).getName();
+        }
+        else if ( entity instanceof SDSet )
+        {
+            key = ( ( SDSet ) entity ).getName();
+        }
+        else if ( entity instanceof PwPolicy )
+        {
+            key = ( ( PwPolicy ) entity ).getName();
+        }
+        else if ( entity instanceof Group )
+        {
+            key = ( ( Group ) entity ).getName();
+        }
+        else
+        {
+            key = String.valueOf( entity );
+        }
+        // directory names are case insensitive:
+        return key == null ? "" : key.toLowerCase();
+    }
+}
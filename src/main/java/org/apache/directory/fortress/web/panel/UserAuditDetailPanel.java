@@ -53,17 +53,16 @@ public class UserAuditDetailPanel extends FormComponentPanel
         add( new Label( GlobalIds.ADDRESS_CITY ) );
         add( new Label( GlobalIds.ADDRESS_STATE ) );
         add( new Label( GlobalIds.ADDRESS_COUNTRY ) );
-        add( new JpegImage( GlobalIds.JPEGPHOTO )
+        add( new JpegImage( GlobalIds.JPEGPHOTO, 125 )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
 
 
             @Override
-            protected byte[] getPhoto()
+            protected User getUser()
             {
-                User user = ( User ) getModelObject();
-                return user.getJpegPhoto();
+                return ( User ) UserAuditDetailPanel.this.getDefaultModelObject();
             }
         } );
         setOutputMarkupId( true );
@@ -30,6 +30,7 @@ import io.prometheus.client.Summary;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.web.NavPanel;
+import org.apache.directory.fortress.web.control.SuggestionIndex;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
@@ -46,12 +47,14 @@ import org.apache.wicket.markup.html.form.PasswordTextField;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.markup.html.form.upload.FileUpload;
 import org.apache.wicket.markup.html.form.upload.FileUploadField;
+import org.apache.wicket.model.AbstractReadOnlyModel;
 import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ChangeSet;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
@@ -65,10 +68,6 @@ import org.apache.directory.fortress.core.model.UserAdminRole;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.model.Constraint;
 
-import java.io.File;
-import java.io.IOException;
-import java.net.URISyntaxException;
-import java.net.URL;
 import java.util.ArrayList;
 
 
@@ -141,7 +140,7 @@ public class UserDetailPanel extends FormComponentPanel
         private static final String IMPORT_PHOTO_LABEL = "importPhotoLabel";
         private static final String UPLOAD = "upload";
         private static final String ADMIN_ROLES = "adminRoles";
-        private static final String DEFAULT_JPG = "GenericAvatar.jpg";
+        private static final String STAGED = ", staged until committed";
 
         // form model attributes:
         private String pswdField;
@@ -166,7 +165,8 @@ public class UserDetailPanel extends FormComponentPanel
         private UserRole roleConstraint = new UserRole();
         private UserAdminRole adminRoleConstraint = new UserAdminRole();
         private Constraint userConstraint;
-        private byte[] defaultImage;
+        private final ChangeSet changeSet = new ChangeSet();
+        private boolean staging;
 
         // form view components:
         private Component component;
@@ -214,7 +214,7 @@ public class UserDetailPanel extends FormComponentPanel
             TextField descriptionTF = new TextField( GlobalIds.DESCRIPTION );
             descriptionTF.setRequired( false );
             add( descriptionTF );
-            ouTF = new TextField( OU );
+            ouTF = new SuggestionTextField( OU, SuggestionIndex.Type.USER_OU );
             // making this required prevents the modals from opening:
             //ouTF.setRequired( true );
             ouTF.setOutputMarkupId( true );
@@ -225,14 +225,14 @@ public class UserDetailPanel extends FormComponentPanel
             CheckBox lockedCB = new CheckBox( "locked" );
             lockedCB.setEnabled( false );
             add( lockedCB );
-            pwPolicyTF = new TextField( "pwPolicy" );
+            pwPolicyTF = new SuggestionTextField( "pwPolicy", SuggestionIndex.Type.POLICY );
             pwPolicyTF.setRequired( false );
             pwPolicyTF.setOutputMarkupId( true );
             add( pwPolicyTF );
 
             // Add the role assignment values & temporal constraint panel:
-            newUserRoleTF = new TextField( GlobalIds.NEW_USER_ROLE_FIELD, new PropertyModel<String>( this,
-                GlobalIds.NEW_USER_ROLE_FIELD ) );
+            newUserRoleTF = new SuggestionTextField( GlobalIds.NEW_USER_ROLE_FIELD, new PropertyModel<String>( this,
+                GlobalIds.NEW_USER_ROLE_FIELD ), SuggestionIndex.Type.ROLE );
             newUserRoleTF.setRequired( false );
             newUserRoleTF.setOutputMarkupId( true );
             add( newUserRoleTF );
@@ -246,8 +246,8 @@ public class UserDetailPanel extends FormComponentPanel
             add( roleConstraintPanel );
 
             // Add the adminRole assignment values & temporal constraint panel:
-            newUserAdminRoleTF = new TextField( GlobalIds.NEW_USER_ADMIN_ROLE_FIELD, new PropertyModel<String>( this,
-                GlobalIds.NEW_USER_ADMIN_ROLE_FIELD ) );
+            newUserAdminRoleTF = new SuggestionTextField( GlobalIds.NEW_USER_ADMIN_ROLE_FIELD,
+                new PropertyModel<String>( this, GlobalIds.NEW_USER_ADMIN_ROLE_FIELD ), SuggestionIndex.Type.ADMIN_ROLE );
             newUserAdminRoleTF.setRequired( false );
             newUserAdminRoleTF.setOutputMarkupId( true );
             add( newUserAdminRoleTF );
@@ -364,6 +364,7 @@ public class UserDetailPanel extends FormComponentPanel
                     try
                     {
                         adminMgr.addUser( user );
+                        PhotoResource.strip( user );
                         Summary.Timer requestDelayAddTimer = userDetailAnswerDelayTimeLatency.startTimer();
                         SaveModelEvent.send( getPage(), this, user, target, SaveModelEvent.Operations.ADD );
                         requestDelayAddTimer.observeDuration();
@@ -429,9 +430,21 @@ public class UserDetailPanel extends FormComponentPanel
                         user.setPassword( "".toCharArray() );
                     }
                     updateEntityWithComboData( user );
+                    if ( staging )
+                    {
+                        changeSet.update( user );
+                        // the change set has a copy, and the session its password, keep it out of the page:
+                        user.setPassword( new char[0] );
+                        component = editForm;
+                        display.setMessage( "User: " + user.getUserId() + " has been updated" + STAGED );
+                        initAccordionLabels( user );
+                        initSelectionModels();
+                        return;
+                    }
                     try
                     {
                         adminMgr.updateUser( user );
+                        PhotoResource.strip( user );
                         editForm.setOutputMarkupId( true );
                         component = editForm;
                         String msg = "User: " + user.getUserId() + " has been updated";
@@ -566,6 +579,105 @@ public class UserDetailPanel extends FormComponentPanel
                     attributes.getAjaxCallListeners().add( ajaxCallListener );
                 }
             } );
+            add( new CheckBox( "staging", new PropertyModel<Boolean>( this, "staging" ) ) );
+            add( new Label( "stagedLabel", new AbstractReadOnlyModel<String>()
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                public String getObject()
+                {
+                    return changeSet.isEmpty() ? "" : changeSet.size() + " changes of " + changeSet.getUserCount()
+                        + " users staged";
+                }
+            } ) );
+            add( new SecureIndicatingAjaxButton( "commitStaged", GlobalIds.ADMIN_MGR, GlobalIds.UPDATE_USER )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target, Form<?> form )
+                {
+                    log.debug( ".onSubmit commitStaged" );
+                    if ( changeSet.isEmpty() )
+                    {
+                        display.setMessage( "No changes staged" );
+                        return;
+                    }
+                    ChangeSet.Result result = changeSet.commit( adminMgr, delAdminMgr );
+                    // the grid's rows are marked, and sent back together with this response:
+                    for ( User user : result.getUsers() )
+                    {
+                        PhotoResource.strip( user );
+                        SaveModelEvent.send( getPage(), this, user, target, SaveModelEvent.Operations.UPDATE );
+                    }
+                    for ( UserRole userRole : result.getRoles() )
+                    {
+                        SaveModelEvent.send( getPage(), this, userRole, target, SaveModelEvent.Operations.UPDATE );
+                    }
+                    String msg = result.getCommitted() + " staged changes of " + result.getUsers().size()
+                        + " users committed";
+                    if ( !result.getFailed().isEmpty() )
+                    {
+                        ChangeSet.Change failed = result.getFailed().get( 0 );
+                        msg += ", " + result.getFailed().size() + " failed and are still staged, e.g. " + failed
+                            + ": " + failed.getError();
+                    }
+                    display.setMessage( msg );
+                    component = editForm;
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target, Form form )
+                {
+                    log.warn( "UserDetailPanel.commitStaged.onError" );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            } );
+            add( new AjaxSubmitLink( "discardStaged" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target, Form form )
+                {
+                    String msg = changeSet.size() + " staged changes discarded, search again to reload the users";
+                    changeSet.discard();
+                    clearDetailPanel();
+                    display.setMessage( msg );
+                }
+
+                @Override
+                public void onError( AjaxRequestTarget target, Form form )
+                {
+                    log.warn( "UserDetailPanel.discardStaged.onError" );
+                }
+            } );
             add( new AjaxSubmitLink( "save" )
             {
                 /** Default serialVersionUID */
@@ -636,7 +748,13 @@ public class UserDetailPanel extends FormComponentPanel
                     String msg = "User: " + user.getUserId();
                     try
                     {
-                        if ( user.isLocked() )
+                        if ( staging )
+                        {
+                            changeSet.lock( user, !user.isLocked() );
+                            user.setLocked( !user.isLocked() );
+                            msg += " account has been " + ( user.isLocked() ? "locked" : "unlocked" ) + STAGED;
+                        }
+                        else if ( user.isLocked() )
                         {
                             adminMgr.unlockUserAccount( user );
                             user.setLocked( false );
@@ -711,9 +829,18 @@ public class UserDetailPanel extends FormComponentPanel
                     String msg = "User: " + user.getUserId();
                     try
                     {
-                        adminMgr.resetPassword( user, user.getPassword() );
+                        if ( staging )
+                        {
+                            changeSet.resetPassword( user, user.getPassword() );
+                            user.setPassword( new char[0] );
+                            msg += " account has been reset" + STAGED;
+                        }
+                        else
+                        {
+                            adminMgr.resetPassword( user, user.getPassword() );
+                            msg += " account has been reset";
+                        }
                         user.setReset( true );
-                        msg += " account has been reset";
                         display.setMessage( msg );
                     }
                     catch ( org.apache.directory.fortress.core.SecurityException se )
@@ -769,7 +896,13 @@ public class UserDetailPanel extends FormComponentPanel
                     {
                         if ( assignRole( user, newUserRole ) )
                         {
-                            String msg = "User: " + user.getUserId() + " has been assigned role: " + newUserRole;
+                            if ( !staging )
+                            {
+                                SaveModelEvent.send( getPage(), this, roleConstraint, target, SaveModelEvent
+                                    .Operations.UPDATE );
+                            }
+                            String msg = "User: " + user.getUserId() + " has been assigned role: " + newUserRole
+                                + ( staging ? STAGED : "" );
                             display.setMessage( msg );
                             component = editForm;
                             initAccordionLabels( user );
@@ -828,7 +961,7 @@ public class UserDetailPanel extends FormComponentPanel
                         if ( assignAdminRole( user, newUserAdminRole ) )
                         {
                             String msg = "User: " + user.getUserId() + " has been assigned adminRole: " +
-                                newUserAdminRole;
+                                newUserAdminRole + ( staging ? STAGED : "" );
                             display.setMessage( msg );
                             component = editForm;
                             initAccordionLabels( user );
@@ -885,8 +1018,13 @@ public class UserDetailPanel extends FormComponentPanel
                     UserRole userRole = new UserRole( user.getUserId(), userRoleSelection.getName() );
                     if ( deassignRole( user, userRole ) )
                     {
+                        if ( !staging )
+                        {
+                            SaveModelEvent.send( getPage(), this, userRole, target, SaveModelEvent.Operations.UPDATE );
+                        }
                         user.delRole( userRoleSelection );
-                        String msg = "User: " + user.getUserId() + " has been deassigned role: " + userRoleSelection.getName();
+                        String msg = "User: " + user.getUserId() + " has been deassigned role: " + userRoleSelection.getName()
+                            + ( staging ? STAGED : "" );
                         display.setMessage( msg );
                         component = editForm;
                         initAccordionLabels( user );
@@ -938,7 +1076,7 @@ public class UserDetailPanel extends FormComponentPanel
                     {
                         user.delAdminRole( userAdminRole );
                         String msg = "User: " + user.getUserId() + " has been deassigned adminRole: " +
-                            userAdminRoleSelection.getName();
+                            userAdminRoleSelection.getName() + ( staging ? STAGED : "" );
                         display.setMessage( msg );
                         component = editForm;
                         initAccordionLabels( user );
@@ -1551,44 +1689,29 @@ public class UserDetailPanel extends FormComponentPanel
 
         private void addPhoto()
         {
-            this.defaultImage = readJpegFile( DEFAULT_JPG );
             // Add the photograph controls:
-            add( new JpegImage( GlobalIds.JPEGPHOTO )
+            add( new JpegImage( GlobalIds.JPEGPHOTO, 25 )
             {
                 /** Default serialVersionUID */
                 private static final long serialVersionUID = 1L;
 
 
                 @Override
-                protected byte[] getPhoto()
+                protected User getUser()
                 {
-                    byte[] photo;
-                    User user = ( User ) getModel().getObject();
-                    photo = user.getJpegPhoto();
-                    if ( photo == null || photo.length == 0 )
-                    {
-                        photo = defaultImage;
-                    }
-                    return photo;
+                    return ( User ) UserDetailForm.this.getModelObject();
                 }
             } );
-            add( new JpegImage( GlobalIds.JPEGPHOTO + "2" )
+            add( new JpegImage( GlobalIds.JPEGPHOTO + "2", 125 )
             {
                 /** Default serialVersionUID */
                 private static final long serialVersionUID = 1L;
 
 
                 @Override
-                protected byte[] getPhoto()
+                protected User getUser()
                 {
-                    byte[] photo;
-                    User user = ( User ) getModel().getObject();
-                    photo = user.getJpegPhoto();
-                    if ( photo == null || photo.length == 0 )
-                    {
-                        photo = defaultImage;
-                    }
-                    return photo;
+                    return ( User ) UserDetailForm.this.getModelObject();
                 }
             } );
             upload = new FileUploadField( UPLOAD, new Model( UPLOAD ) );
@@ -1629,7 +1752,14 @@ public class UserDetailPanel extends FormComponentPanel
                 {
                     try
                     {
-                        adminMgr.assignUser( userRole );
+                        if ( staging )
+                        {
+                            changeSet.assign( user, userRole );
+                        }
+                        else
+                        {
+                            adminMgr.assignUser( userRole );
+                        }
                         success = true;
                         user.setRole( userRole );
                     }
@@ -1661,7 +1791,14 @@ public class UserDetailPanel extends FormComponentPanel
             {
                 try
                 {
-                    adminMgr.deassignUser( userRole );
+                    if ( staging )
+                    {
+                        changeSet.deassign( user, userRole );
+                    }
+                    else
+                    {
+                        adminMgr.deassignUser( userRole );
+                    }
                     success = true;
                 }
                 catch ( org.apache.directory.fortress.core.SecurityException se )
@@ -1688,7 +1825,14 @@ public class UserDetailPanel extends FormComponentPanel
                 {
                     try
                     {
-                        delAdminMgr.assignUser( userAdminRole );
+                        if ( staging )
+                        {
+                            changeSet.assign( user, userAdminRole );
+                        }
+                        else
+                        {
+                            delAdminMgr.assignUser( userAdminRole );
+                        }
                         success = true;
                         user.setAdminRole( userAdminRole );
                     }
@@ -1721,7 +1865,14 @@ public class UserDetailPanel extends FormComponentPanel
             {
                 try
                 {
-                    delAdminMgr.deassignUser( userAdminRole );
+                    if ( staging )
+                    {
+                        changeSet.deassign( user, userAdminRole );
+                    }
+                    else
+                    {
+                        delAdminMgr.deassignUser( userAdminRole );
+                    }
                     success = true;
                 }
                 catch ( org.apache.directory.fortress.core.SecurityException se )
@@ -1755,6 +1906,8 @@ public class UserDetailPanel extends FormComponentPanel
                 final User user = ( User ) modelEvent.getEntity();
                 // strip the attribute name from value.  e.g. cn=value:
                 user.setPwPolicy( getPolicyName( user.getPwPolicy() ) );
+                // keep the photo out of the page store, it's served by the photo resource:
+                PhotoResource.strip( user );
                 this.setModelObject( user );
                 initAccordionLabels( user );
                 String msg = "User: " + user.getUserId() + " has been selected";
@@ -1973,33 +2126,6 @@ public class UserDetailPanel extends FormComponentPanel
     }
 
 
-    private byte[] readJpegFile( String fileName )
-    {
-        URL fUrl = UserDetailPanel.class.getClassLoader().getResource( fileName );
-        //File file = new File("./src/test/resources/p1.jpeg");
-        //File file = new File("./org.apache.directory.fortress.web/panel/GenericAvatar.jpg");
-        byte[] image = null;
-        try
-        {
-            if ( fUrl != null )
-            {
-                image = org.apache.commons.io.FileUtils.readFileToByteArray( new File( fUrl.toURI() ) );
-                //image = org.apache.commons.io.FileUtils.readFileToByteArray( file );
-            }
-        }
-        catch ( URISyntaxException se )
-        {
-            String error = "readJpegFile caught URISyntaxException=" + se;
-            log.error( error );
-        }
-        catch ( IOException ioe )
-        {
-            String error = "readJpegFile caught IOException=" + ioe;
-            log.error( error );
-        }
-        return image;
-    }
-
     /**
      * Strip and reutrn the value of an openldap pw policy attribute from its rdn name.
      *
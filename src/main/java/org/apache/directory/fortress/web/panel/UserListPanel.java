@@ -27,6 +27,7 @@ import com.inmethod.grid.treegrid.TreeGrid;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.FormSyncBehavior;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
@@ -59,12 +60,12 @@ import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.model.Session;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 
@@ -83,6 +84,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     private DefaultMutableTreeNode node;
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
+    private TreeRows rows;
     private String selectedRadioButton;
     private TextField f1Fld;
     private TextField f2Fld;
@@ -107,9 +109,22 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
 
 
     public UserListPanel( String id )
+    {
+        this( id, null );
+    }
+
+
+    /**
+     * @param userListModel initial contents of the grid, e.g. prefetched by the page, see
+     * {@link #newListModel}.  Loaded here if null.
+     */
+    public UserListPanel( String id, UserListModel userListModel )
     {
         super( id );
-        UserListModel userListModel = new UserListModel( new User(), SecUtils.getSession( this ) );
+        if ( userListModel == null )
+        {
+            userListModel = newListModel( SecUtils.getSession( this ) );
+        }
         setDefaultModel( userListModel );
         addGrid();
         userformsearchfields = new WebMarkupContainer( "userformsearchfields" );
@@ -173,36 +188,10 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
 
         f1Fld = new TextField( GlobalIds.FIELD_1, new PropertyModel<String>( this, "searchData.field1" ) );
         f1Fld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( f1Fld );
-            }
-        };
-        f1Fld.add( ajaxUpdater );
         searchFields.add( f1Fld );
 
         f2Fld = new TextField( GlobalIds.FIELD_2, new PropertyModel<String>( this, "searchData.field2" ) );
         f2Fld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( f2Fld );
-            }
-        };
-        f2Fld.add( ajaxUpdater );
         f2Fld.setVisible( false );
         searchFields.add( f2Fld );
         searchFields.setOutputMarkupId( true );
@@ -283,6 +272,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
                 {
                     info( "No matching objects found" );
                 }
+                rows.reindex();
                 target.add( grid );
             }
 
@@ -549,23 +539,13 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
-            switch ( modelEvent.getOperation() )
+            AjaxRequestTarget target = modelEvent.getAjaxRequestTarget();
+            // role assignments are sent as well, they don't have rows of their own:
+            if ( modelEvent.getEntity() instanceof User && rows.apply( modelEvent, false ) )
             {
-                case ADD:
-                    add( modelEvent.getEntity() );
-                    break;
-                case UPDATE:
-                    modelChanged();
-                    break;
-                case DELETE:
-                    prune();
-                    break;
-                default:
-                    LOG.error( "onEvent caught invalid operation" );
-                    break;
+                // only the changed row is rendered:
+                grid.update();
             }
-            AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add(grid);
             LOG.debug( ".onEvent AJAX - UserListPanel - SaveModelEvent: " + target.toString() );
         }
     }
@@ -647,18 +627,12 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    /**
+     * Return the model of the grid's initial contents, all users visible to the administrator.
+     */
+    public static UserListModel newListModel( Session session )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
-        {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            User user = ( User ) node.getUserObject();
-            LOG.debug( ".removeSelectedItems user node: " + user.getUserId() );
-            List<User> users = ( ( List<User> ) getDefaultModel().getObject() );
-            users.remove( user );
-        }
+        return new UserListModel( new User(), session );
     }
 
 
@@ -725,6 +699,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
         List<T> users = ( List<T> ) getDefaultModel().getObject();
 
         treeModel = createTreeModel( users );
+        rows = new TreeRows( treeModel );
         grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "usertreegrid", treeModel, columns )
         {
             /** Default serialVersionUID */
@@ -759,31 +734,13 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
         // expand the root node
         grid.getTreeState().expandAll();
         this.listForm = new Form( "userlistform" );
+        this.listForm.add( new FormSyncBehavior() );
         this.listForm.add( grid );
         add( this.listForm );
         grid.setOutputMarkupId( true );
     }
 
 
-    public void add( FortEntity entity )
-    {
-        if ( getDefaultModelObject() != null )
-        {
-            List<User> users = ( ( List<User> ) getDefaultModelObject() );
-            users.add( ( User ) entity );
-            LOG.debug( "UserListPanel.add tree depth: " + rootNode.getChildCount() );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, rootNode.getChildCount() );
-            //treeModel.insertNodeInto(new DefaultMutableTreeNode(entity), rootNode, users.size());
-        }
-    }
-
-
-    public void prune()
-    {
-        removeSelectedItems( grid );
-    }
-
-
     private void enableOuSearch()
     {
         f2Fld.setVisible( false );
@@ -112,18 +112,16 @@ public class UserSearchModalPanel extends Panel
                 item.add( new Label( GlobalIds.NAME, new PropertyModel( item.getModel(), GlobalIds.NAME ) ) );
                 item.add( new Label( GlobalIds.OU, new PropertyModel( item.getModel(), GlobalIds.OU ) ) );
                 item.add( new Label( GlobalIds.TITLE, new PropertyModel( item.getModel(), GlobalIds.TITLE ) ) );
-                item.add( new JpegImage( GlobalIds.JPEGPHOTO )
+                item.add( new JpegImage( GlobalIds.JPEGPHOTO, 50 )
                 {
                     /** Default serialVersionUID */
                     private static final long serialVersionUID = 1L;
 
 
                     @Override
-                    protected byte[] getPhoto()
+                    protected User getUser()
                     {
-                        byte[] photo;
-                        photo = modelObject.getJpegPhoto();
-                        return photo;
+                        return modelObject;
                     }
                 } );
             }
@@ -149,6 +147,13 @@ public class UserSearchModalPanel extends Panel
                     if ( userSearchVal == null )
                         userSearchVal = "";
                     users = reviewMgr.findUsers( new User( userSearchVal ) );
+                    if ( users != null )
+                    {
+                        for ( User user : ( List<User> ) users )
+                        {
+                            PhotoResource.strip( user );
+                        }
+                    }
                     // sort list by userId:
                     if( CollectionUtils.isNotEmpty( users ))
                     {
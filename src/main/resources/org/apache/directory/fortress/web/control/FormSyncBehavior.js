@@ -0,0 +1,125 @@
+/*
+   Licensed to the Apache Software Foundation (ASF) under one
+   or more contributor license agreements.  See the NOTICE file
+   distributed with this work for additional information
+   regarding copyright ownership.  The ASF licenses this file
+   to you under the Apache License, Version 2.0 (the
+   "License"); you may not use this file except in compliance
+   with the License.  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing,
+   software distributed under the License is distributed on an
+   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+   KIND, either express or implied.  See the License for the
+   specific language governing permissions and limitations
+   under the License.
+*/
+
+/*
+ * Client side of FormSyncBehavior: collects the fields changed in a form and posts them in one request once typing
+ * pauses, or before a link or button is clicked.
+ */
+;(function () {
+    'use strict';
+
+    if (typeof(window.Fortress) === 'undefined') {
+        window.Fortress = {};
+    }
+    if (typeof(Fortress.FormSync) !== 'undefined') {
+        return;
+    }
+
+    var forms = {};
+
+    function flush(state) {
+        if (state.timer) {
+            clearTimeout(state.timer);
+            state.timer = null;
+        }
+        var names = Object.keys(state.dirty);
+        if (names.length === 0) {
+            return;
+        }
+        state.dirty = {};
+        var form = document.getElementById(state.formId);
+        if (!form) {
+            return;
+        }
+        var params = [{name: state.fieldsParam, value: names.join(',')}];
+        for (var i = 0; i < form.elements.length; i++) {
+            var element = form.elements[i];
+            if (element.name && names.indexOf(element.name) !== -1) {
+                params = params.concat(Wicket.Form.serializeElement(element, false));
+            }
+        }
+        Wicket.Ajax.post({u: state.url, ep: params});
+    }
+
+    function onChange(state, event) {
+        var element = event.target;
+        if (!element || !element.name || element.form === undefined) {
+            return;
+        }
+        state.dirty[element.name] = true;
+        if (state.timer) {
+            clearTimeout(state.timer);
+        }
+        state.timer = setTimeout(function () {
+            flush(state);
+        }, state.delay);
+    }
+
+    function onActivate(event) {
+        if (event.type === 'keydown' && event.keyCode !== 13 && event.keyCode !== 32) {
+            return;
+        }
+        var target = event.target;
+        var control = target && target.closest ? target.closest('a, button, input[type=submit], input[type=button]') : null;
+        if (!control) {
+            return;
+        }
+        for (var formId in forms) {
+            if (forms.hasOwnProperty(formId)) {
+                var state = forms[formId];
+                if (control.form && control.form.id === formId && control.type === 'submit') {
+                    // the form's own submit sends every field:
+                    state.dirty = {};
+                    if (state.timer) {
+                        clearTimeout(state.timer);
+                        state.timer = null;
+                    }
+                }
+                else {
+                    flush(state);
+                }
+            }
+        }
+    }
+
+    document.addEventListener('mousedown', onActivate, true);
+    document.addEventListener('keydown', onActivate, true);
+
+    Fortress.FormSync = {
+        bind: function (formId, url, fieldsParam, delay) {
+            var form = document.getElementById(formId);
+            if (!form) {
+                return;
+            }
+            var state = forms[formId];
+            if (state && state.element === form) {
+                state.url = url;
+                return;
+            }
+            state = {formId: formId, element: form, url: url, fieldsParam: fieldsParam, delay: delay, dirty: {}, timer: null};
+            forms[formId] = state;
+            form.addEventListener('input', function (event) {
+                onChange(state, event);
+            });
+            form.addEventListener('change', function (event) {
+                onChange(state, event);
+            });
+        }
+    };
+})();
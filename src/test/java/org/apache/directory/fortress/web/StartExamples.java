@@ -34,6 +34,11 @@ import org.eclipse.jetty.webapp.WebAppContext;
 /**
  * Separate startup class for people that want to run the examples directly. Use parameter
  * -Dcom.sun.management.jmxremote to startup JMX (and e.g. connect with jconsole).
+ * <p>
+ * To run without a directory server, e.g. for load testing, add -Dspring.profiles.active=fake for the in-memory fortress
+ * managers of src/test/resources/applicationContext-fake.xml.  Their data is sized with system properties, e.g.
+ * -Dfake.users=100000 -Dfake.roles=1000 -Dfake.perms=50000 (see that file), and login is as one of the demo users,
+ * e.g. test.
  */
 public class StartExamples
 {
@@ -65,6 +70,11 @@ public class StartExamples
 		//bb.setContextPath("/rbac");
         bb.setContextPath("/fortress-web");
 		bb.setWar("src/main/webapp");
+        if ( "fake".equals( System.getProperty( "spring.profiles.active" ) ) )
+        {
+            // the fakes live only on the test classpath, add their spring context to the webapp's:
+            bb.setOverrideDescriptor( "src/test/resources/fake-web.xml" );
+        }
 
         // Setup the test security realm, its name must match what's in the web.xml's 'realm-name' tag:
         HashLoginService dummyLoginService = new HashLoginService(
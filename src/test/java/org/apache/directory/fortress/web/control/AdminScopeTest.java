@@ -0,0 +1,146 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.Role;
+import org.junit.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks the ous and roles an {@link AdminScope} holds for the user ous, permission ous and role range of admin roles.
+ */
+public class AdminScopeTest
+{
+    private List<OrgUnit> userOus;
+    private List<OrgUnit> permOus;
+    private List<Role> roles;
+
+
+    @Before
+    public void setUp()
+    {
+        userOus = Arrays.asList( ou( "usrs", OrgUnit.Type.USER ), ou( "usrsChild", OrgUnit.Type.USER, "usrs" ), ou(
+            "usrsGrandChild", OrgUnit.Type.USER, "usrsChild" ), ou( "otherUsrs", OrgUnit.Type.USER ) );
+        permOus = Arrays.asList( ou( "prms", OrgUnit.Type.PERM ), ou( "prmsChild", OrgUnit.Type.PERM, "prms" ) );
+        // base is inherited by mid, mid by top:
+        roles = Arrays.asList( role( "base" ), role( "mid", "base" ), role( "top", "mid" ), role( "other" ) );
+    }
+
+
+    @Test
+    public void testOus()
+    {
+        AdminRole adminRole = new AdminRole( "testAdmin" );
+        adminRole.setOsU( "usrsChild" );
+        adminRole.setOsP( "prms" );
+        AdminScope scope = scope( adminRole );
+        assertFalse( scope.isAll() );
+
+        assertTrue( scope.hasUserOu( "usrsChild" ) );
+        assertTrue( scope.hasUserOu( "USRSGRANDCHILD" ) );
+        assertFalse( scope.hasUserOu( "usrs" ) );
+        assertFalse( scope.hasUserOu( "otherUsrs" ) );
+        assertFalse( scope.hasUserOu( null ) );
+
+        assertTrue( scope.hasPermOu( "prms" ) );
+        assertTrue( scope.hasPermOu( "prmsChild" ) );
+        assertFalse( scope.hasPermOu( "usrsChild" ) );
+        assertFalse( scope.hasRole( "base" ) );
+    }
+
+
+    @Test
+    public void testRoleRange()
+    {
+        AdminRole adminRole = new AdminRole( "testAdmin" );
+        adminRole.setBeginRange( "base" );
+        adminRole.setEndRange( "top" );
+        adminRole.setBeginInclusive( true );
+        adminRole.setEndInclusive( false );
+        AdminScope scope = scope( adminRole );
+        assertTrue( scope.hasRole( "base" ) );
+        assertTrue( scope.hasRole( "Mid" ) );
+        assertFalse( scope.hasRole( "top" ) );
+        assertFalse( scope.hasRole( "other" ) );
+
+        adminRole.setBeginInclusive( false );
+        adminRole.setEndInclusive( true );
+        scope = scope( adminRole );
+        assertFalse( scope.hasRole( "base" ) );
+        assertTrue( scope.hasRole( "mid" ) );
+        assertTrue( scope.hasRole( "top" ) );
+
+        // without an end the range runs to the top of the hierarchy:
+        adminRole.setEndRange( null );
+        scope = scope( adminRole );
+        assertTrue( scope.hasRole( "top" ) );
+        assertFalse( scope.hasUserOu( "usrs" ) );
+    }
+
+
+    @Test
+    public void testAllAndNone()
+    {
+        assertTrue( AdminScope.ALL.isAll() );
+        assertTrue( AdminScope.ALL.hasUserOu( "anything" ) );
+        assertTrue( AdminScope.ALL.hasRole( "anything" ) );
+        assertFalse( AdminScope.NONE.isAll() );
+        assertFalse( AdminScope.NONE.hasUserOu( "usrs" ) );
+        assertFalse( AdminScope.NONE.hasPermOu( "prms" ) );
+        assertFalse( AdminScope.NONE.hasRole( "base" ) );
+        assertFalse( scope().hasUserOu( "usrs" ) );
+    }
+
+
+    private AdminScope scope( AdminRole... activated )
+    {
+        return new AdminScope( Arrays.asList( activated ), userOus, permOus, roles );
+    }
+
+
+    private static OrgUnit ou( String name, OrgUnit.Type type, String... parents )
+    {
+        OrgUnit orgUnit = new OrgUnit( name, type );
+        orgUnit.setParents( parents.length > 0 ? new HashSet<>( Arrays.asList( parents ) ) : Collections
+            .<String>emptySet() );
+        return orgUnit;
+    }
+
+
+    private static Role role( String name, String... parents )
+    {
+        Role role = new Role( name );
+        for ( String parent : parents )
+        {
+            role.setParent( parent );
+        }
+        return role;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.junit.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Runs a full {@link ComplianceScan} over the fake directory, and checks the violating users of every SSD set, and
+ * those an administrator is shown, against the users each set constrains.
+ */
+public class ComplianceScanTest
+{
+    private ReviewMgr reviewMgr;
+    private DelReviewMgr delReviewMgr;
+    private List<User> users;
+    private List<Role> roles;
+    private List<SDSet> sdSets;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reviewMgr = FakeManagers.createReviewMgr();
+        delReviewMgr = FakeManagers.createDelReviewMgr();
+        users = reviewMgr.findUsers( new User( "" ) );
+        roles = reviewMgr.findRoles( "" );
+        SDSet search = new SDSet();
+        search.setName( "" );
+        search.setType( SDSet.SDType.STATIC );
+        sdSets = reviewMgr.ssdSets( search );
+    }
+
+
+    @Test
+    public void testFullScan() throws Exception
+    {
+        ComplianceScan.Result result = ComplianceScan.scan( reviewMgr );
+        assertTrue( result.isFull() );
+        assertEquals( users.size(), result.getUserCount() );
+        assertEquals( sdSets.size(), result.getSets().size() );
+
+        Set<String> violating = new HashSet<>();
+        for ( SDSet sdSet : sdSets )
+        {
+            Set<String> expected = RoleAssignmentIndexTest.constrained( users, roles, sdSet );
+            assertEquals( sdSet.getName(), expected, violators( result, sdSet.getName() ) );
+            violating.addAll( expected );
+        }
+        assertEquals( violating.size(), result.getViolatingUserCount() );
+
+        // most violating users first:
+        List<ComplianceScan.Checked> sets = result.getSets();
+        for ( int i = 1; i < sets.size(); i++ )
+        {
+            assertTrue( sets.get( i - 1 ).getViolationCount() >= sets.get( i ).getViolationCount() );
+        }
+    }
+
+
+    @Test
+    public void testScoped() throws Exception
+    {
+        ComplianceScan.Result result = ComplianceScan.scan( reviewMgr );
+        assertSame( result, result.scoped( AdminScope.ALL ) );
+
+        ComplianceScan.Result none = result.scoped( AdminScope.NONE );
+        assertEquals( 0, none.getUserCount() );
+        assertEquals( 0, none.getViolatingUserCount() );
+        assertEquals( sdSets.size(), none.getSets().size() );
+
+        AdminRole adminRole = new AdminRole( "testUserAdmin" );
+        adminRole.setOsU( "fakeusrs0" );
+        AdminScope scope = new AdminScope( Collections.singletonList( adminRole ), delReviewMgr.search( OrgUnit.Type
+            .USER, "" ), delReviewMgr.search( OrgUnit.Type.PERM, "" ), roles );
+        ComplianceScan.Result scoped = result.scoped( scope );
+
+        Map<String, String> ous = new HashMap<>();
+        int inScope = 0;
+        for ( User user : users )
+        {
+            ous.put( user.getUserId(), user.getOu() );
+            if ( "fakeusrs0".equalsIgnoreCase( user.getOu() ) )
+            {
+                inScope++;
+            }
+        }
+        assertEquals( inScope, scoped.getUserCount() );
+
+        Set<String> violating = new HashSet<>();
+        for ( SDSet sdSet : sdSets )
+        {
+            Set<String> expected = new TreeSet<>();
+            for ( String userId : violators( result, sdSet.getName() ) )
+            {
+                if ( "fakeusrs0".equalsIgnoreCase( ous.get( userId ) ) )
+                {
+                    expected.add( userId );
+                }
+            }
+            assertEquals( sdSet.getName(), expected, violators( scoped, sdSet.getName() ) );
+            violating.addAll( expected );
+        }
+        assertEquals( violating.size(), scoped.getViolatingUserCount() );
+    }
+
+
+    private static Set<String> violators( ComplianceScan.Result result, String name )
+    {
+        Set<String> ids = new TreeSet<>();
+        for ( RoleAssignmentIndex.Conflict conflict : result.getViolations( name, Integer.MAX_VALUE ) )
+        {
+            ids.add( conflict.getUserId() );
+        }
+        return ids;
+    }
+}
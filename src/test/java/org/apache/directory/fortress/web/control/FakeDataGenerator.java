@@ -0,0 +1,383 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.Group;
+import org.apache.directory.fortress.core.model.Mod;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Fills a {@link FakeDirectory} with the demo users and roles, so the app can be logged into as usual, and with as many
+ * generated users, roles, permissions and audit records as configured.
+ * <p>
+ * The sizes are read from fortress.properties, or from system properties of the same name, which take precedence so
+ * e.g. {@code StartExamples} can be run with {@code -Dfake.users=100000}.  Generation is seeded, so every run produces
+ * the same data.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class FakeDataGenerator
+{
+    // the data settings, read from fortress.properties or system properties:
+    static final String FAKE_USERS = "fake.users";
+    static final String FAKE_ROLES = "fake.roles";
+    static final String FAKE_PERMS = "fake.perms";
+    static final String FAKE_AUDITS = "fake.audits";
+    static final String FAKE_ROLES_PER_USER = "fake.roles.per.user";
+    static final String FAKE_SD_SETS = "fake.sd.sets";
+    static final String FAKE_SEED = "fake.seed";
+    static final String FAKE_SIZE_LIMIT = "fake.size.limit";
+    static final String FAKE_LATENCY_MILLIS = "fake.latency.millis";
+    static final String FAKE_LATENCY_JITTER_MILLIS = "fake.latency.jitter.millis";
+    private static final Logger LOG = Logger.getLogger( FakeDataGenerator.class.getName() );
+    private static final String SUFFIX = "dc=example,dc=com";
+    private static final String SUPER_ADMIN = "fortress-core-super-admin";
+    private static final String SUPER_USER = "fortress-web-super-user";
+    private static final String AUDITOR = "ROLE_AUDITOR";
+    private static final String[] PAGE_ROLES =
+        {
+            "ROLE_USERS", "ROLE_ROLES", "ROLE_PERMS", "ROLE_SSDS", "ROLE_DSDS", "ROLE_POLICIES", "ROLE_PERMOBJS",
+            "ROLE_USEROUS", "ROLE_PERMOUS", "ROLE_ADMINROLES", "ROLE_ADMINOBJS", "ROLE_ADMINPERMS", "ROLE_GROUPS",
+            "ROLE_IMPORT"
+        };
+    private static final String[] AUDIT_ROLES = { "ROLE_AUDIT_AUTHZS", "ROLE_AUDIT_BINDS", "ROLE_AUDIT_MODS" };
+    private static final String[] OPERATIONS = { "read", "add", "update", "delete", "search" };
+    private static final int ORG_UNITS = 10;
+    private static final int POLICIES = 3;
+    private static final int GROUPS = 10;
+    private static final int GROUP_MEMBERS = 10;
+    private static final long AUDIT_DAYS = 30;
+
+
+    private FakeDataGenerator()
+    {
+    }
+
+
+    /**
+     * Generate the data.
+     *
+     * @param directory to fill.
+     */
+    static void populate( FakeDirectory directory )
+    {
+        long start = System.currentTimeMillis();
+        int userCount = getInt( FAKE_USERS, 1000 );
+        int roleCount = Math.max( 1, getInt( FAKE_ROLES, 100 ) );
+        int permCount = getInt( FAKE_PERMS, 1000 );
+        int auditCount = getInt( FAKE_AUDITS, 10000 );
+        int rolesPerUser = Math.min( roleCount, getInt( FAKE_ROLES_PER_USER, 3 ) );
+        int sdSetCount = getInt( FAKE_SD_SETS, 20 );
+        Random random = new Random( getInt( FAKE_SEED, 1 ) );
+
+        addDemo( directory );
+
+        for ( int i = 0; i < ORG_UNITS; i++ )
+        {
+            directory.putOrgUnit( new OrgUnit( "fakeusrs" + i, OrgUnit.Type.USER ) );
+            directory.putOrgUnit( new OrgUnit( "fakeprms" + i, OrgUnit.Type.PERM ) );
+        }
+        for ( int i = 0; i < POLICIES; i++ )
+        {
+            directory.putPolicy( new PwPolicy( "fakePolicy" + i ) );
+        }
+
+        // every tenth role is senior to the nine that follow it:
+        String[] roleNames = new String[roleCount];
+        for ( int i = 0; i < roleCount; i++ )
+        {
+            roleNames[i] = String.format( "fakeRole%05d", i );
+            Role role = new Role( roleNames[i] );
+            role.setDescription( "Generated role " + i );
+            if ( i % 10 != 0 )
+            {
+                role.setParent( roleNames[i - i % 10] );
+            }
+            directory.addRole( role );
+        }
+
+        String[][] permNames = new String[permCount][];
+        for ( int i = 0; i < permCount; i++ )
+        {
+            String objName = String.format( "fakeObj%05d", i / OPERATIONS.length );
+            if ( i % OPERATIONS.length == 0 )
+            {
+                PermObj permObj = new PermObj( objName );
+                permObj.setOu( "fakeprms" + random.nextInt( ORG_UNITS ) );
+                permObj.setDescription( "Generated object " + i / OPERATIONS.length );
+                directory.addPermObj( permObj );
+            }
+            Permission permission = new Permission( objName, OPERATIONS[i % OPERATIONS.length] );
+            permission.setRole( roleNames[random.nextInt( roleCount )] );
+            if ( random.nextInt( 4 ) == 0 )
+            {
+                permission.setRole( roleNames[random.nextInt( roleCount )] );
+            }
+            store( directory, permission );
+            permNames[i] = new String[] { permission.getObjName(), permission.getOpName() };
+        }
+
+        String[] userIds = new String[userCount];
+        for ( int i = 0; i < userCount; i++ )
+        {
+            userIds[i] = String.format( "fakeUser%07d", i );
+            User user = new User( userIds[i] );
+            user.setOu( "fakeusrs" + random.nextInt( ORG_UNITS ) );
+            user.setCn( "Fake User" + i );
+            user.setSn( "User" + i );
+            user.setDescription( "Generated user " + i );
+            user.setInternalId( new UUID( random.nextLong(), random.nextLong() ).toString() );
+            user.setPwPolicy( "fakePolicy" + random.nextInt( POLICIES ) );
+            user.setLocked( random.nextInt( 100 ) == 0 );
+            Set<String> assigned = new HashSet<>();
+            while ( assigned.size() < rolesPerUser )
+            {
+                assigned.add( roleNames[random.nextInt( roleCount )] );
+            }
+            for ( String roleName : assigned )
+            {
+                user.setRole( userRole( userIds[i], roleName ) );
+            }
+            directory.addUser( user );
+        }
+
+        for ( int i = 0; i < sdSetCount; i++ )
+        {
+            directory.addSdSet( sdSet( "fakeSsd" + i, roleNames, random ), true );
+            directory.addSdSet( sdSet( "fakeDsd" + i, roleNames, random ), false );
+        }
+
+        for ( int i = 0; i < GROUPS; i++ )
+        {
+            Group group = new Group( String.format( "fakeGroup%02d", i ) );
+            group.setDescription( "Generated group " + i );
+            for ( int j = 0; j < GROUP_MEMBERS && userCount > 0; j++ )
+            {
+                group.setMember( userIds[random.nextInt( userCount )] );
+            }
+            directory.putGroup( group );
+        }
+
+        if ( userCount > 0 )
+        {
+            addAudits( directory, auditCount, userIds, permNames, random );
+        }
+        LOG.info( "populate generated " + userCount + " users, " + roleCount + " roles, " + permCount
+            + " permissions and " + auditCount + " audit records in " + ( System.currentTimeMillis() - start )
+            + " ms" );
+    }
+
+
+    /**
+     * The users and roles of FortressWebDemoUsers.xml, with the super admin role granted every manager api.
+     */
+    private static void addDemo( FakeDirectory directory )
+    {
+        directory.putOrgUnit( new OrgUnit( "demousrs1", OrgUnit.Type.USER ) );
+        directory.putOrgUnit( new OrgUnit( "demoperms", OrgUnit.Type.PERM ) );
+
+        for ( String name : new String[] { SUPER_ADMIN, "fortress-web-user-admin", "fortress-web-audit-admin" } )
+        {
+            directory.addRole( new AdminRole( name ) );
+        }
+        for ( Class<?> manager : FakeManagers.MANAGERS )
+        {
+            String objName = "org.apache.directory.fortress.core.impl." + manager.getSimpleName() + "Impl";
+            PermObj permObj = new PermObj( objName );
+            permObj.setAdmin( true );
+            permObj.setOu( "demoperms" );
+            directory.addPermObj( permObj );
+            Set<String> opNames = new HashSet<>();
+            for ( Method method : manager.getMethods() )
+            {
+                if ( opNames.add( method.getName() ) )
+                {
+                    Permission permission = new Permission( objName, method.getName() );
+                    permission.setAdmin( true );
+                    permission.setRole( SUPER_ADMIN );
+                    store( directory, permission );
+                }
+            }
+        }
+
+        for ( String name : PAGE_ROLES )
+        {
+            directory.addRole( new Role( name ) );
+        }
+        Role superUser = new Role( SUPER_USER );
+        Role auditor = new Role( AUDITOR );
+        for ( String name : PAGE_ROLES )
+        {
+            superUser.setParent( name );
+        }
+        for ( String name : AUDIT_ROLES )
+        {
+            directory.addRole( new Role( name ) );
+            auditor.setParent( name );
+            superUser.setParent( name );
+        }
+        directory.addRole( superUser );
+        directory.addRole( auditor );
+
+        addDemoUser( directory, "test", SUPER_USER, SUPER_ADMIN );
+        addDemoUser( directory, "test1", "ROLE_USERS", "fortress-web-user-admin" );
+        addDemoUser( directory, "test2", AUDITOR, "fortress-web-audit-admin" );
+        addDemoUser( directory, "test3", null, SUPER_ADMIN );
+    }
+
+
+    private static void addDemoUser( FakeDirectory directory, String userId, String roleName, String adminRoleName )
+    {
+        User user = new User( userId );
+        user.setOu( "demousrs1" );
+        user.setCn( userId );
+        user.setSn( "user" );
+        user.setDescription( "Fortress Web Demo User" );
+        if ( roleName != null )
+        {
+            user.setRole( userRole( userId, roleName ) );
+        }
+        UserAdminRole userAdminRole = new UserAdminRole();
+        userAdminRole.setUserId( userId );
+        userAdminRole.setName( adminRoleName );
+        user.setAdminRole( userAdminRole );
+        directory.addUser( user );
+    }
+
+
+    private static void addAudits( FakeDirectory directory, int count, String[] userIds, String[][] permNames,
+        Random random )
+    {
+        // spread evenly over the last month, oldest first as in the access log:
+        long end = System.currentTimeMillis();
+        long step = Math.max( 1, TimeUnit.DAYS.toMillis( AUDIT_DAYS ) / Math.max( 1, count ) );
+        long time = end - step * count;
+        for ( int i = 0; i < count; i++, time += step )
+        {
+            String reqStart = FakeDirectory.generalizedTime( new Date( time ) );
+            String userDn = "uid=" + userIds[random.nextInt( userIds.length )] + ",ou=People," + SUFFIX;
+            switch ( i % 3 )
+            {
+                case 0:
+                    if ( permNames.length == 0 )
+                    {
+                        break;
+                    }
+                    String[] permName = permNames[random.nextInt( permNames.length )];
+                    AuthZ authZ = new AuthZ();
+                    authZ.setReqStart( reqStart );
+                    authZ.setReqAuthzID( userDn );
+                    authZ.setReqDN( org.apache.directory.fortress.core.GlobalIds.POP_NAME + "=" + permName[1] + ","
+                        + org.apache.directory.fortress.core.GlobalIds.POBJ_NAME + "=" + permName[0]
+                        + ",ou=Permissions,ou=RBAC," + SUFFIX );
+                    authZ.setReqResult( random.nextInt( 10 ) == 0 ? "32" : GlobalIds.BIND_SUCCESS_CODE );
+                    directory.addAudit( authZ, null, null );
+                    break;
+                case 1:
+                    Bind bind = new Bind();
+                    bind.setReqStart( reqStart );
+                    bind.setReqDN( userDn );
+                    bind.setReqResult( random.nextInt( 10 ) == 0 ? "49" : GlobalIds.BIND_SUCCESS_CODE );
+                    directory.addAudit( null, bind, null );
+                    break;
+                default:
+                    Mod mod = new Mod();
+                    mod.setReqStart( reqStart );
+                    mod.setReqAuthzID( userDn );
+                    mod.setReqType( "modify" );
+                    mod.setReqDN( "uid=" + userIds[random.nextInt( userIds.length )] + ",ou=People," + SUFFIX );
+                    directory.addAudit( null, null, mod );
+                    break;
+            }
+        }
+    }
+
+
+    private static void store( FakeDirectory directory, Permission permission )
+    {
+        try
+        {
+            directory.addPermission( permission );
+        }
+        catch ( org.apache.directory.fortress.core.SecurityException se )
+        {
+            // the object is always added first:
+            throw new IllegalStateException( se );
+        }
+    }
+
+
+    private static SDSet sdSet( String name, String[] roleNames, Random random )
+    {
+        SDSet sdSet = new SDSet();
+        sdSet.setName( name );
+        sdSet.setDescription( "Generated SoD set" );
+        sdSet.setCardinality( 2 );
+        for ( int i = 0; i < Math.min( 3, roleNames.length ); i++ )
+        {
+            sdSet.setMember( roleNames[random.nextInt( roleNames.length )] );
+        }
+        return sdSet;
+    }
+
+
+    private static UserRole userRole( String userId, String roleName )
+    {
+        UserRole userRole = new UserRole( roleName );
+        userRole.setUserId( userId );
+        return userRole;
+    }
+
+
+    static int getInt( String key, int defaultValue )
+    {
+        String value = System.getProperty( key );
+        if ( value != null )
+        {
+            return Integer.parseInt( value.trim() );
+        }
+        return Config.getInstance().getInt( key, defaultValue );
+    }
+}
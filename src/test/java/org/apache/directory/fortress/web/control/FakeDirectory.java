@@ -0,0 +1,1600 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.Group;
+import org.apache.directory.fortress.core.model.Mod;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.wicket.core.util.lang.WicketObjects;
+
+import java.io.Serializable;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * In-memory stand in for the directory, backing the fake fortress managers of {@link FakeManagers}.
+ * <p>
+ * Entities are held in sorted maps keyed by lower case name, so the prefix searches the managers do are range scans,
+ * as they are in the directory.  Stored entities are never changed once stored, updates store a modified copy, so
+ * results can be handed out and copied without holding the lock.  Searches return at most {@code fake.size.limit}
+ * entries, like the directory's size limit.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class FakeDirectory
+{
+    private static final Object LOCK = new Object();
+    private static FakeDirectory instance;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int sizeLimit = Config.getInstance().getInt( FakeDataGenerator.FAKE_SIZE_LIMIT, 1000 );
+    private final TreeMap<String, User> users = new TreeMap<>();
+    private final Map<String, String> internalIds = new HashMap<>();
+    private final TreeMap<String, Role> roles = new TreeMap<>();
+    private final TreeMap<String, Role> adminRoles = new TreeMap<>();
+    private final Map<String, Set<String>> roleMembers = new HashMap<>();
+    private final Map<String, Set<String>> adminRoleMembers = new HashMap<>();
+    private final TreeMap<String, PermObj> permObjs = new TreeMap<>();
+    private final TreeMap<String, PermObj> adminPermObjs = new TreeMap<>();
+    private final TreeMap<String, Permission> perms = new TreeMap<>();
+    private final TreeMap<String, Permission> adminPerms = new TreeMap<>();
+    private final TreeMap<String, SDSet> ssdSets = new TreeMap<>();
+    private final TreeMap<String, SDSet> dsdSets = new TreeMap<>();
+    private final TreeMap<String, OrgUnit> userOus = new TreeMap<>();
+    private final TreeMap<String, OrgUnit> permOus = new TreeMap<>();
+    private final TreeMap<String, PwPolicy> policies = new TreeMap<>();
+    private final TreeMap<String, Group> groups = new TreeMap<>();
+    private final List<AuthZ> authZs = new ArrayList<>();
+    private final List<Bind> binds = new ArrayList<>();
+    private final List<Mod> mods = new ArrayList<>();
+
+
+    private FakeDirectory()
+    {
+    }
+
+
+    /**
+     * Return the directory, generating its data on first use.
+     *
+     * @return the directory shared by all the fake managers.
+     */
+    static FakeDirectory getInstance()
+    {
+        synchronized ( LOCK )
+        {
+            if ( instance == null )
+            {
+                FakeDirectory directory = new FakeDirectory();
+                FakeDataGenerator.populate( directory );
+                instance = directory;
+            }
+            return instance;
+        }
+    }
+
+
+    /**
+     * Deep copy an entity or list of entities, so callers can't change what's stored.
+     *
+     * @param object to copy, may be null.
+     * @return the copy.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T copy( T object )
+    {
+        if ( object instanceof Serializable )
+        {
+            return ( T ) WicketObjects.cloneObject( object );
+        }
+        return object;
+    }
+
+
+    /**
+     * Format a time as the slapd access log records it.
+     *
+     * @param time to format.
+     * @return the generalized time.
+     */
+    static String generalizedTime( Date time )
+    {
+        SimpleDateFormat formatter = new SimpleDateFormat( "yyyyMMddHHmmss'Z'" );
+        formatter.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+        return formatter.format( time );
+    }
+
+
+    // Users:
+
+    User readUser( String userId ) throws SecurityException
+    {
+        lock.readLock().lock();
+        try
+        {
+            return user( userId );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<User> findUsers( User user )
+    {
+        lock.readLock().lock();
+        try
+        {
+            if ( StringUtils.isNotEmpty( user.getInternalId() ) )
+            {
+                List<User> results = new ArrayList<>();
+                String userId = internalIds.get( user.getInternalId() );
+                if ( userId != null )
+                {
+                    results.add( users.get( userId ) );
+                }
+                return results;
+            }
+            return limit( prefix( users, user.getUserId() ).values(), sizeLimit );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<User> findUsers( OrgUnit orgUnit )
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<User> results = new ArrayList<>();
+            for ( User user : users.values() )
+            {
+                if ( results.size() == sizeLimit )
+                {
+                    break;
+                }
+                if ( orgUnit.getName() != null && orgUnit.getName().equalsIgnoreCase( user.getOu() ) )
+                {
+                    results.add( user );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<String> findUserIds( String searchVal, int limit )
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<String> results = new ArrayList<>();
+            for ( User user : limit( prefix( users, searchVal ).values(), limit ) )
+            {
+                results.add( user.getUserId() );
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    User addUser( User user )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if ( StringUtils.isEmpty( user.getInternalId() ) )
+            {
+                user.setInternalId( UUID.randomUUID().toString() );
+            }
+            users.put( key( user.getUserId() ), user );
+            internalIds.put( user.getInternalId(), key( user.getUserId() ) );
+            if ( user.getRoles() != null )
+            {
+                for ( UserRole userRole : user.getRoles() )
+                {
+                    members( roleMembers, userRole.getName() ).add( key( user.getUserId() ) );
+                }
+            }
+            if ( user.getAdminRoles() != null )
+            {
+                for ( UserAdminRole userAdminRole : user.getAdminRoles() )
+                {
+                    members( adminRoleMembers, userAdminRole.getName() ).add( key( user.getUserId() ) );
+                }
+            }
+            return user;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    User updateUser( User user ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            // as with the directory, role assignments and the internal id are left alone by an update:
+            User existing = user( user.getUserId() );
+            if ( user.getRoles() != null )
+            {
+                user.getRoles().clear();
+            }
+            if ( existing.getRoles() != null )
+            {
+                for ( UserRole userRole : existing.getRoles() )
+                {
+                    user.setRole( userRole );
+                }
+            }
+            if ( user.getAdminRoles() != null )
+            {
+                user.getAdminRoles().clear();
+            }
+            if ( existing.getAdminRoles() != null )
+            {
+                for ( UserAdminRole userAdminRole : existing.getAdminRoles() )
+                {
+                    user.setAdminRole( userAdminRole );
+                }
+            }
+            user.setInternalId( existing.getInternalId() );
+            users.put( key( user.getUserId() ), user );
+            return user;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void deleteUser( String userId ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            User user = user( userId );
+            users.remove( key( userId ) );
+            internalIds.remove( user.getInternalId() );
+            for ( Set<String> members : roleMembers.values() )
+            {
+                members.remove( key( userId ) );
+            }
+            for ( Set<String> members : adminRoleMembers.values() )
+            {
+                members.remove( key( userId ) );
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void setLocked( String userId, boolean isLocked ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            User user = copy( user( userId ) );
+            user.setLocked( isLocked );
+            users.put( key( userId ), user );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void assignUser( UserRole userRole ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            User user = copy( user( userRole.getUserId() ) );
+            if ( userRole instanceof UserAdminRole )
+            {
+                adminRole( userRole.getName() );
+                user.setAdminRole( ( UserAdminRole ) userRole );
+                members( adminRoleMembers, userRole.getName() ).add( key( user.getUserId() ) );
+            }
+            else
+            {
+                role( userRole.getName() );
+                user.setRole( userRole );
+                members( roleMembers, userRole.getName() ).add( key( user.getUserId() ) );
+            }
+            users.put( key( user.getUserId() ), user );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void deassignUser( UserRole userRole ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            User user = copy( user( userRole.getUserId() ) );
+            boolean isAdmin = userRole instanceof UserAdminRole;
+            removeRole( user, userRole.getName(), isAdmin );
+            members( isAdmin ? adminRoleMembers : roleMembers, userRole.getName() ).remove( key( user.getUserId() ) );
+            users.put( key( user.getUserId() ), user );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    List<User> assignedUsers( String roleName, boolean isAdmin )
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<User> results = new ArrayList<>();
+            for ( String userId : members( isAdmin ? adminRoleMembers : roleMembers, roleName ) )
+            {
+                results.add( users.get( userId ) );
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    // Roles:
+
+    Role readRole( String name, boolean isAdmin ) throws SecurityException
+    {
+        lock.readLock().lock();
+        try
+        {
+            return isAdmin ? adminRole( name ) : role( name );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<Role> findRoles( String searchVal, boolean isAdmin )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return limit( prefix( isAdmin ? adminRoles : roles, searchVal ).values(), sizeLimit );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<String> findRoleNames( String searchVal, int limit )
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<String> results = new ArrayList<>();
+            for ( Role role : limit( prefix( roles, searchVal ).values(), limit ) )
+            {
+                results.add( role.getName() );
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    Role addRole( Role role )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            ( role instanceof AdminRole ? adminRoles : roles ).put( key( role.getName() ), role );
+            return role;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    Role updateRole( Role role ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readRole( role.getName(), role instanceof AdminRole );
+            return addRole( role );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void deleteRole( String name, boolean isAdmin ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readRole( name, isAdmin );
+            ( isAdmin ? adminRoles : roles ).remove( key( name ) );
+            Set<String> members = ( isAdmin ? adminRoleMembers : roleMembers ).remove( key( name ) );
+            if ( members != null )
+            {
+                for ( String userId : members )
+                {
+                    User user = copy( users.get( userId ) );
+                    removeRole( user, name, isAdmin );
+                    users.put( userId, user );
+                }
+            }
+            TreeMap<String, Permission> grants = isAdmin ? adminPerms : perms;
+            for ( Map.Entry<String, Permission> entry : grants.entrySet() )
+            {
+                if ( contains( entry.getValue().getRoles(), name ) )
+                {
+                    Permission permission = copy( entry.getValue() );
+                    remove( permission.getRoles(), name );
+                    entry.setValue( permission );
+                }
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // Permissions:
+
+    Permission readPermission( Permission permission ) throws SecurityException
+    {
+        lock.readLock().lock();
+        try
+        {
+            Permission result = ( permission.isAdmin() ? adminPerms : perms ).get( key( permission ) );
+            if ( result == null )
+            {
+                throw new SecurityException( GlobalErrIds.PERM_OP_NOT_FOUND, "Permission not found, object: "
+                    + permission.getObjName() + " operation: " + permission.getOpName() );
+            }
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<Permission> findPermissions( Permission permission )
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<Permission> results = new ArrayList<>();
+            String opName = key( permission.getOpName() );
+            for ( Permission candidate : prefix( permission.isAdmin() ? adminPerms : perms, permission.getObjName() )
+                .values() )
+            {
+                if ( results.size() == sizeLimit )
+                {
+                    break;
+                }
+                if ( key( candidate.getOpName() ).startsWith( opName ) )
+                {
+                    results.add( candidate );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    Permission addPermission( Permission permission ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readPermObj( permission.getObjName(), permission.isAdmin() );
+            ( permission.isAdmin() ? adminPerms : perms ).put( key( permission ), permission );
+            return permission;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    Permission updatePermission( Permission permission ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Permission existing = readPermission( permission );
+            // grants are made and revoked separately:
+            if ( permission.getRoles() != null )
+            {
+                permission.getRoles().clear();
+            }
+            if ( existing.getRoles() != null )
+            {
+                for ( String roleName : existing.getRoles() )
+                {
+                    permission.setRole( roleName );
+                }
+            }
+            ( permission.isAdmin() ? adminPerms : perms ).put( key( permission ), permission );
+            return permission;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void deletePermission( Permission permission ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readPermission( permission );
+            ( permission.isAdmin() ? adminPerms : perms ).remove( key( permission ) );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void grantPermission( Permission permission, Role role, boolean isGrant ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readRole( role.getName(), permission.isAdmin() );
+            Permission stored = copy( readPermission( permission ) );
+            if ( isGrant )
+            {
+                stored.setRole( role.getName() );
+            }
+            else
+            {
+                remove( stored.getRoles(), role.getName() );
+            }
+            ( permission.isAdmin() ? adminPerms : perms ).put( key( permission ), stored );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    Set<String> authorizedPermissionUsers( Permission permission ) throws SecurityException
+    {
+        lock.readLock().lock();
+        try
+        {
+            Set<String> granted = new HashSet<>();
+            Set<String> grantRoles = readPermission( permission ).getRoles();
+            for ( Role role : roles.values() )
+            {
+                for ( String roleName : ascendants( role.getName(), roles ) )
+                {
+                    if ( contains( grantRoles, roleName ) )
+                    {
+                        granted.add( role.getName() );
+                    }
+                }
+            }
+            Set<String> results = new TreeSet<>();
+            for ( String roleName : granted )
+            {
+                for ( String userId : members( roleMembers, roleName ) )
+                {
+                    results.add( users.get( userId ).getUserId() );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    PermObj readPermObj( String objName, boolean isAdmin ) throws SecurityException
+    {
+        lock.readLock().lock();
+        try
+        {
+            PermObj permObj = ( isAdmin ? adminPermObjs : permObjs ).get( key( objName ) );
+            if ( permObj == null )
+            {
+                throw new SecurityException( GlobalErrIds.PERM_OBJ_NOT_FOUND, "Permission object not found: "
+                    + objName );
+            }
+            return permObj;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<PermObj> findPermObjs( PermObj permObj )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return limit( prefix( permObj.isAdmin() ? adminPermObjs : permObjs, permObj.getObjName() ).values(),
+                sizeLimit );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<PermObj> findPermObjs( OrgUnit orgUnit )
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<PermObj> results = new ArrayList<>();
+            for ( TreeMap<String, PermObj> objs : Arrays.asList( permObjs, adminPermObjs ) )
+            {
+                for ( PermObj permObj : objs.values() )
+                {
+                    if ( results.size() < sizeLimit && orgUnit.getName() != null && orgUnit.getName()
+                        .equalsIgnoreCase( permObj.getOu() ) )
+                    {
+                        results.add( permObj );
+                    }
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    PermObj addPermObj( PermObj permObj )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            ( permObj.isAdmin() ? adminPermObjs : permObjs ).put( key( permObj.getObjName() ), permObj );
+            return permObj;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    PermObj updatePermObj( PermObj permObj ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readPermObj( permObj.getObjName(), permObj.isAdmin() );
+            return addPermObj( permObj );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void deletePermObj( PermObj permObj ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readPermObj( permObj.getObjName(), permObj.isAdmin() );
+            ( permObj.isAdmin() ? adminPermObjs : permObjs ).remove( key( permObj.getObjName() ) );
+            // the object's operations go with it:
+            prefix( permObj.isAdmin() ? adminPerms : perms, permObj.getObjName() + '\u0000' ).clear();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // Sessions:
+
+    /**
+     * Create a session with all of the user's roles active.
+     */
+    Session createSession( String userId ) throws SecurityException
+    {
+        Session session = new Session();
+        session.setUser( copy( readUser( userId ) ) );
+        return session;
+    }
+
+
+    boolean checkAccess( Session session, Permission permission, boolean isAdmin )
+    {
+        lock.readLock().lock();
+        try
+        {
+            Permission stored = ( isAdmin ? adminPerms : perms ).get( key( permission ) );
+            if ( stored == null || stored.getRoles() == null )
+            {
+                return false;
+            }
+            for ( String roleName : authorizedRoles( session, isAdmin ) )
+            {
+                if ( contains( stored.getRoles(), roleName ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<Permission> sessionPermissions( Session session, boolean isAdmin )
+    {
+        lock.readLock().lock();
+        try
+        {
+            Set<String> authorized = new HashSet<>();
+            for ( String roleName : authorizedRoles( session, isAdmin ) )
+            {
+                authorized.add( key( roleName ) );
+            }
+            return grantedTo( authorized, isAdmin );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<Permission> rolePermissions( Role role, boolean isAdmin )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return grantedTo( Collections.singleton( key( role.getName() ) ), isAdmin );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    // perms granted to any of the role keys, the read lock must be held:
+    private List<Permission> grantedTo( Set<String> roleKeys, boolean isAdmin )
+    {
+        List<Permission> results = new ArrayList<>();
+        for ( Permission permission : ( isAdmin ? adminPerms : perms ).values() )
+        {
+            if ( permission.getRoles() == null )
+            {
+                continue;
+            }
+            for ( String roleName : permission.getRoles() )
+            {
+                if ( roleKeys.contains( key( roleName ) ) )
+                {
+                    results.add( permission );
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+
+    // Separation of duty sets:
+
+    SDSet readSdSet( String name, boolean isSsd ) throws SecurityException
+    {
+        lock.readLock().lock();
+        try
+        {
+            SDSet sdSet = ( isSsd ? ssdSets : dsdSets ).get( key( name ) );
+            if ( sdSet == null )
+            {
+                throw new SecurityException( isSsd ? GlobalErrIds.SSD_NOT_FOUND : GlobalErrIds.DSD_NOT_FOUND,
+                    "SoD set not found: " + name );
+            }
+            return sdSet;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<SDSet> findSdSets( String searchVal, boolean isSsd )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return limit( prefix( isSsd ? ssdSets : dsdSets, searchVal ).values(), sizeLimit );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<SDSet> roleSdSets( String roleName, boolean isSsd )
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<SDSet> results = new ArrayList<>();
+            for ( SDSet sdSet : ( isSsd ? ssdSets : dsdSets ).values() )
+            {
+                if ( contains( sdSet.getMembers(), roleName ) )
+                {
+                    results.add( sdSet );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    SDSet updateSdSet( SDSet sdSet, boolean isSsd ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readSdSet( sdSet.getName(), isSsd );
+            return addSdSet( sdSet, isSsd );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    SDSet addSdSet( SDSet sdSet, boolean isSsd )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            sdSet.setType( isSsd ? SDSet.SDType.STATIC : SDSet.SDType.DYNAMIC );
+            ( isSsd ? ssdSets : dsdSets ).put( key( sdSet.getName() ), sdSet );
+            return sdSet;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void deleteSdSet( String name, boolean isSsd ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readSdSet( name, isSsd );
+            ( isSsd ? ssdSets : dsdSets ).remove( key( name ) );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // Organizational units:
+
+    OrgUnit readOrgUnit( OrgUnit orgUnit ) throws SecurityException
+    {
+        lock.readLock().lock();
+        try
+        {
+            OrgUnit result = orgUnits( orgUnit.getType() ).get( key( orgUnit.getName() ) );
+            if ( result == null )
+            {
+                throw new SecurityException( orgUnit.getType() == OrgUnit.Type.PERM ? GlobalErrIds.ORG_NOT_FOUND_PERM
+                    : GlobalErrIds.ORG_NOT_FOUND_USER, "Org unit not found: " + orgUnit.getName() );
+            }
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<OrgUnit> searchOrgUnits( OrgUnit.Type type, String searchVal )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return limit( prefix( orgUnits( type ), searchVal ).values(), sizeLimit );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    OrgUnit putOrgUnit( OrgUnit orgUnit )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            orgUnits( orgUnit.getType() ).put( key( orgUnit.getName() ), orgUnit );
+            return orgUnit;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void deleteOrgUnit( OrgUnit orgUnit ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readOrgUnit( orgUnit );
+            orgUnits( orgUnit.getType() ).remove( key( orgUnit.getName() ) );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // Password policies:
+
+    PwPolicy readPolicy( String name ) throws SecurityException
+    {
+        lock.readLock().lock();
+        try
+        {
+            PwPolicy policy = policies.get( key( name ) );
+            if ( policy == null )
+            {
+                throw new SecurityException( GlobalErrIds.PSWD_NOT_FOUND, "Password policy not found: " + name );
+            }
+            return policy;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<PwPolicy> searchPolicies( String searchVal )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return limit( prefix( policies, searchVal ).values(), sizeLimit );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    PwPolicy putPolicy( PwPolicy policy )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            policies.put( key( policy.getName() ), policy );
+            return policy;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void deletePolicy( String name ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readPolicy( name );
+            policies.remove( key( name ) );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void setUserPolicy( String userId, String policyName ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if ( policyName != null )
+            {
+                readPolicy( policyName );
+            }
+            User user = copy( user( userId ) );
+            user.setPwPolicy( policyName );
+            users.put( key( userId ), user );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // Groups:
+
+    Group readGroup( String name ) throws SecurityException
+    {
+        lock.readLock().lock();
+        try
+        {
+            Group group = groups.get( key( name ) );
+            if ( group == null )
+            {
+                throw new SecurityException( GlobalErrIds.GROUP_NOT_FOUND, "Group not found: " + name );
+            }
+            return group;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<Group> findGroups( String searchVal )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return limit( prefix( groups, searchVal ).values(), sizeLimit );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<Group> findGroups( User member )
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<Group> results = new ArrayList<>();
+            for ( Group group : groups.values() )
+            {
+                if ( contains( group.getMembers(), member.getUserId() ) )
+                {
+                    results.add( group );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    Group putGroup( Group group )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            groups.put( key( group.getName() ), group );
+            return group;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    void deleteGroup( String name ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            readGroup( name );
+            groups.remove( key( name ) );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    Group assignGroup( String name, String member, boolean isAssign ) throws SecurityException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Group group = copy( readGroup( name ) );
+            if ( isAssign )
+            {
+                group.setMember( member );
+            }
+            else
+            {
+                remove( group.getMembers(), member );
+            }
+            groups.put( key( name ), group );
+            return group;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // Audit records:
+
+    List<AuthZ> searchAuthZs( UserAudit userAudit )
+    {
+        lock.readLock().lock();
+        try
+        {
+            String[] range = range( userAudit );
+            String authzId = StringUtils.isNotEmpty( userAudit.getUserId() ) ? "uid=" + key( userAudit.getUserId() )
+                + "," : null;
+            String objName = StringUtils.isNotEmpty( userAudit.getObjName() ) ? key(
+                org.apache.directory.fortress.core.GlobalIds.POBJ_NAME + "=" + userAudit.getObjName() + "," ) : null;
+            String opName = StringUtils.isNotEmpty( userAudit.getOpName() ) ? key(
+                org.apache.directory.fortress.core.GlobalIds.POP_NAME + "=" + userAudit.getOpName() + "," ) : null;
+            List<AuthZ> results = new ArrayList<>();
+            for ( AuthZ authZ : authZs )
+            {
+                if ( results.size() == sizeLimit )
+                {
+                    break;
+                }
+                String dn = key( authZ.getReqDN() );
+                if ( inRange( authZ.getReqStart(), range )
+                    && ( authzId == null || key( authZ.getReqAuthzID() ).startsWith( authzId ) )
+                    && ( StringUtils.isEmpty( userAudit.getDn() ) || dn.equals( key( userAudit.getDn() ) ) )
+                    && ( objName == null || dn.contains( objName ) )
+                    && ( opName == null || dn.contains( opName ) )
+                    && ( !userAudit.isFailedOnly() || !GlobalIds.BIND_SUCCESS_CODE.equals( authZ.getReqResult() ) ) )
+                {
+                    results.add( authZ );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<Bind> searchBinds( UserAudit userAudit )
+    {
+        lock.readLock().lock();
+        try
+        {
+            String[] range = range( userAudit );
+            String dn = StringUtils.isNotEmpty( userAudit.getUserId() ) ? "uid=" + key( userAudit.getUserId() )
+                + "," : null;
+            List<Bind> results = new ArrayList<>();
+            for ( Bind bind : binds )
+            {
+                if ( results.size() == sizeLimit )
+                {
+                    break;
+                }
+                if ( inRange( bind.getReqStart(), range )
+                    && ( dn == null || key( bind.getReqDN() ).startsWith( dn ) )
+                    && ( !userAudit.isFailedOnly() || !GlobalIds.BIND_SUCCESS_CODE.equals( bind.getReqResult() ) ) )
+                {
+                    results.add( bind );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    List<Mod> searchMods( UserAudit userAudit )
+    {
+        lock.readLock().lock();
+        try
+        {
+            String[] range = range( userAudit );
+            String authzId = null;
+            if ( StringUtils.isNotEmpty( userAudit.getInternalUserId() ) )
+            {
+                String userId = internalIds.get( userAudit.getInternalUserId() );
+                authzId = "uid=" + ( userId != null ? userId : key( userAudit.getInternalUserId() ) ) + ",";
+            }
+            List<Mod> results = new ArrayList<>();
+            for ( Mod mod : mods )
+            {
+                if ( results.size() == sizeLimit )
+                {
+                    break;
+                }
+                if ( inRange( mod.getReqStart(), range )
+                    && ( authzId == null || key( mod.getReqAuthzID() ).startsWith( authzId ) )
+                    && ( StringUtils.isEmpty( userAudit.getObjName() ) || key( mod.getReqDN() ).contains( key(
+                        userAudit.getObjName() ) ) ) )
+                {
+                    results.add( mod );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    void addAudit( AuthZ authZ, Bind bind, Mod mod )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if ( authZ != null )
+            {
+                authZs.add( authZ );
+            }
+            if ( bind != null )
+            {
+                binds.add( bind );
+            }
+            if ( mod != null )
+            {
+                mods.add( mod );
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // Helpers, called with the lock held:
+
+    private User user( String userId ) throws SecurityException
+    {
+        User user = users.get( key( userId ) );
+        if ( user == null )
+        {
+            throw new SecurityException( GlobalErrIds.USER_NOT_FOUND, "User not found: " + userId );
+        }
+        return user;
+    }
+
+
+    private Role role( String name ) throws SecurityException
+    {
+        Role role = roles.get( key( name ) );
+        if ( role == null )
+        {
+            throw new SecurityException( GlobalErrIds.ROLE_NOT_FOUND, "Role not found: " + name );
+        }
+        return role;
+    }
+
+
+    private Role adminRole( String name ) throws SecurityException
+    {
+        Role role = adminRoles.get( key( name ) );
+        if ( role == null )
+        {
+            throw new SecurityException( GlobalErrIds.ROLE_NOT_FOUND, "Admin role not found: " + name );
+        }
+        return role;
+    }
+
+
+    private TreeMap<String, OrgUnit> orgUnits( OrgUnit.Type type )
+    {
+        return type == OrgUnit.Type.PERM ? permOus : userOus;
+    }
+
+
+    /**
+     * The names of the session's active roles and those they inherit from.
+     */
+    private Set<String> authorizedRoles( Session session, boolean isAdmin )
+    {
+        Set<String> results = new HashSet<>();
+        List<? extends UserRole> active = isAdmin ? session.getAdminRoles() : session.getRoles();
+        if ( active != null )
+        {
+            for ( UserRole userRole : active )
+            {
+                results.addAll( ascendants( userRole.getName(), isAdmin ? adminRoles : roles ) );
+            }
+        }
+        return results;
+    }
+
+
+    /**
+     * The role and, transitively, the parents it inherits permissions from.
+     */
+    private static Set<String> ascendants( String name, Map<String, Role> from )
+    {
+        Set<String> results = new HashSet<>();
+        List<String> pending = new ArrayList<>();
+        pending.add( name );
+        while ( !pending.isEmpty() )
+        {
+            String next = pending.remove( pending.size() - 1 );
+            if ( results.add( next ) )
+            {
+                Role role = from.get( key( next ) );
+                if ( role != null && role.getParents() != null )
+                {
+                    pending.addAll( role.getParents() );
+                }
+            }
+        }
+        return results;
+    }
+
+
+    private static void removeRole( User user, String name, boolean isAdmin )
+    {
+        List<? extends UserRole> assigned = isAdmin ? user.getAdminRoles() : user.getRoles();
+        if ( assigned != null )
+        {
+            for ( Iterator<? extends UserRole> i = assigned.iterator(); i.hasNext(); )
+            {
+                if ( i.next().getName().equalsIgnoreCase( name ) )
+                {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+
+    private static Set<String> members( Map<String, Set<String>> index, String roleName )
+    {
+        Set<String> members = index.get( key( roleName ) );
+        if ( members == null )
+        {
+            members = new TreeSet<>();
+            index.put( key( roleName ), members );
+        }
+        return members;
+    }
+
+
+    private static <V> NavigableMap<String, V> prefix( TreeMap<String, V> map, String searchVal )
+    {
+        String from = key( searchVal );
+        return map.subMap( from, true, from + Character.MAX_VALUE, true );
+    }
+
+
+    private static <V> List<V> limit( Iterable<? extends V> values, int limit )
+    {
+        List<V> results = new ArrayList<>();
+        for ( V value : values )
+        {
+            if ( results.size() >= limit )
+            {
+                break;
+            }
+            results.add( value );
+        }
+        return results;
+    }
+
+
+    private static boolean contains( Iterable<String> values, String value )
+    {
+        if ( values != null )
+        {
+            for ( String candidate : values )
+            {
+                if ( candidate.equalsIgnoreCase( value ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    private static void remove( Iterable<String> values, String value )
+    {
+        if ( values != null )
+        {
+            for ( Iterator<String> i = values.iterator(); i.hasNext(); )
+            {
+                if ( i.next().equalsIgnoreCase( value ) )
+                {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+
+    private static String[] range( UserAudit userAudit )
+    {
+        return new String[]
+            {
+                userAudit.getBeginDate() != null ? generalizedTime( userAudit.getBeginDate() ) : null,
+                userAudit.getEndDate() != null ? generalizedTime( userAudit.getEndDate() ) : null
+            };
+    }
+
+
+    private static boolean inRange( String reqStart, String[] range )
+    {
+        return ( range[0] == null || reqStart.compareTo( range[0] ) >= 0 )
+            && ( range[1] == null || reqStart.compareTo( range[1] ) <= 0 );
+    }
+
+
+    private static String key( Permission permission )
+    {
+        return key( permission.getObjName() ) + '\u0000' + key( permission.getOpName() ) + '\u0000'
+            + key( permission.getObjId() );
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase();
+    }
+}
@@ -0,0 +1,623 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.AuditMgr;
+import org.apache.directory.fortress.core.DelAccessMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GroupMgr;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.Group;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.realm.J2eePolicyMgr;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * In-memory fortress managers, for load and performance testing without a directory server.  Selected by running with
+ * the 'fake' spring profile active, e.g. {@code -Dspring.profiles.active=fake}, where the test-only
+ * applicationContext-fake.xml replaces the manager beans of applicationContext.xml with the ones created here.
+ * <p>
+ * The managers share one {@link FakeDirectory}, generated on first use by {@link FakeDataGenerator}, and support the
+ * apis this app calls.  Other apis return an empty or default result.  Every call is delayed by
+ * {@code fake.latency.millis}, plus up to {@code fake.latency.jitter.millis} more, to stand in for the directory's
+ * response time.  Role inheritance is honored for access checks, separation of duty constraints aren't enforced.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class FakeManagers
+{
+    private static final Logger LOG = Logger.getLogger( FakeManagers.class.getName() );
+    private static final int LATENCY_MILLIS = FakeDataGenerator.getInt( FakeDataGenerator.FAKE_LATENCY_MILLIS, 0 );
+    private static final int JITTER_MILLIS = FakeDataGenerator.getInt( FakeDataGenerator.FAKE_LATENCY_JITTER_MILLIS, 0 );
+
+    /** The fortress manager apis faked here. */
+    static final Class<?>[] MANAGERS =
+        {
+            ReviewMgr.class, AdminMgr.class, AccessMgr.class, DelReviewMgr.class, DelAdminMgr.class,
+            DelAccessMgr.class, AuditMgr.class, PwPolicyMgr.class, GroupMgr.class
+        };
+
+
+    private FakeManagers()
+    {
+    }
+
+
+    public static ReviewMgr createReviewMgr()
+    {
+        return create( ReviewMgr.class );
+    }
+
+
+    public static AdminMgr createAdminMgr()
+    {
+        return create( AdminMgr.class );
+    }
+
+
+    public static AccessMgr createAccessMgr()
+    {
+        return create( AccessMgr.class );
+    }
+
+
+    public static DelReviewMgr createDelReviewMgr()
+    {
+        return create( DelReviewMgr.class );
+    }
+
+
+    public static DelAdminMgr createDelAdminMgr()
+    {
+        return create( DelAdminMgr.class );
+    }
+
+
+    public static DelAccessMgr createDelAccessMgr()
+    {
+        return create( DelAccessMgr.class );
+    }
+
+
+    public static AuditMgr createAuditMgr()
+    {
+        return create( AuditMgr.class );
+    }
+
+
+    public static PwPolicyMgr createPwPolicyMgr()
+    {
+        return create( PwPolicyMgr.class );
+    }
+
+
+    public static GroupMgr createGroupMgr()
+    {
+        return create( GroupMgr.class );
+    }
+
+
+    /**
+     * The realm can't have authenticated anyone against the fake directory, so this never deserializes a principal and
+     * sessions are created by the fake access manager instead.
+     *
+     * @return policy manager returning no session for every principal.
+     */
+    public static J2eePolicyMgr createJ2eePolicyMgr()
+    {
+        return create( J2eePolicyMgr.class );
+    }
+
+
+    private static <T> T create( Class<T> manager )
+    {
+        return manager.cast( Proxy.newProxyInstance( FakeManagers.class.getClassLoader(), new Class<?>[] { manager },
+            new Handler( manager ) ) );
+    }
+
+
+    private static final class Handler implements InvocationHandler
+    {
+        private final Class<?> manager;
+        private final boolean isDelegated;
+
+
+        private Handler( Class<?> manager )
+        {
+            this.manager = manager;
+            this.isDelegated = manager == DelReviewMgr.class || manager == DelAdminMgr.class
+                || manager == DelAccessMgr.class;
+        }
+
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+        {
+            if ( method.getDeclaringClass() == Object.class )
+            {
+                switch ( method.getName() )
+                {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode( proxy );
+                    default:
+                        return "Fake" + manager.getSimpleName();
+                }
+            }
+            if ( method.getName().equals( "setAdmin" ) || method.getName().equals( "setContextId" ) )
+            {
+                return null;
+            }
+            pause();
+            Object[] in = args == null ? new Object[0] : args.clone();
+            for ( int i = 0; i < in.length; i++ )
+            {
+                // sessions are changed in place by the role activation apis, everything else is copied in:
+                if ( !( in[i] instanceof Session ) )
+                {
+                    in[i] = FakeDirectory.copy( in[i] );
+                }
+            }
+            if ( manager == J2eePolicyMgr.class )
+            {
+                return fallback( method, in );
+            }
+            return FakeDirectory.copy( dispatch( FakeDirectory.getInstance(), method, in ) );
+        }
+
+
+        private Object dispatch( FakeDirectory directory, Method method, Object[] args ) throws SecurityException
+        {
+            Object arg = args.length > 0 ? args[0] : null;
+            switch ( method.getName() )
+            {
+                // Users:
+                case "readUser":
+                    return directory.readUser( ( ( User ) arg ).getUserId() );
+                case "findUsers":
+                    if ( arg instanceof OrgUnit )
+                    {
+                        return directory.findUsers( ( OrgUnit ) arg );
+                    }
+                    if ( args.length > 1 )
+                    {
+                        return directory.findUserIds( ( ( User ) arg ).getUserId(), ( Integer ) args[1] );
+                    }
+                    return directory.findUsers( ( User ) arg );
+                case "addUser":
+                    return directory.addUser( ( User ) arg );
+                case "updateUser":
+                    return directory.updateUser( ( User ) arg );
+                case "deleteUser":
+                case "disableUser":
+                    directory.deleteUser( ( ( User ) arg ).getUserId() );
+                    return arg;
+                case "lockUserAccount":
+                case "unlockUserAccount":
+                    directory.setLocked( ( ( User ) arg ).getUserId(), method.getName().startsWith( "lock" ) );
+                    return null;
+                case "assignUser":
+                    directory.assignUser( ( UserRole ) arg );
+                    return null;
+                case "deassignUser":
+                    directory.deassignUser( ( UserRole ) arg );
+                    return null;
+                case "assignedUsers":
+                    List<User> assigned = directory.assignedUsers( ( ( Role ) arg ).getName(), isDelegated
+                        || arg instanceof AdminRole );
+                    if ( args.length > 1 )
+                    {
+                        List<String> userIds = new ArrayList<>();
+                        for ( User user : assigned.subList( 0, Math.min( assigned.size(), ( Integer ) args[1] ) ) )
+                        {
+                            userIds.add( user.getUserId() );
+                        }
+                        return userIds;
+                    }
+                    return assigned;
+                case "assignedRoles":
+                    if ( arg instanceof String )
+                    {
+                        List<String> roleNames = new ArrayList<>();
+                        for ( UserRole userRole : nonNull( directory.readUser( ( String ) arg ).getRoles() ) )
+                        {
+                            roleNames.add( userRole.getName() );
+                        }
+                        return roleNames;
+                    }
+                    User user = directory.readUser( ( ( User ) arg ).getUserId() );
+                    if ( isDelegated )
+                    {
+                        return nonNull( user.getAdminRoles() );
+                    }
+                    return nonNull( user.getRoles() );
+
+                // Roles:
+                case "readRole":
+                    return directory.readRole( ( ( Role ) arg ).getName(), isDelegated || arg instanceof AdminRole );
+                case "findRoles":
+                    if ( args.length > 1 )
+                    {
+                        return directory.findRoleNames( ( String ) arg, ( Integer ) args[1] );
+                    }
+                    return directory.findRoles( ( String ) arg, isDelegated );
+                case "addRole":
+                    return directory.addRole( ( Role ) arg );
+                case "updateRole":
+                    return directory.updateRole( ( Role ) arg );
+                case "deleteRole":
+                    directory.deleteRole( ( ( Role ) arg ).getName(), arg instanceof AdminRole );
+                    return null;
+
+                // Permissions:
+                case "readPermission":
+                    return directory.readPermission( ( Permission ) arg );
+                case "findPermissions":
+                    return directory.findPermissions( ( Permission ) arg );
+                case "addPermission":
+                    return directory.addPermission( ( Permission ) arg );
+                case "updatePermission":
+                    return directory.updatePermission( ( Permission ) arg );
+                case "deletePermission":
+                    directory.deletePermission( ( Permission ) arg );
+                    return null;
+                case "grantPermission":
+                case "revokePermission":
+                    if ( !( args[1] instanceof Role ) )
+                    {
+                        // grants to individual users aren't supported:
+                        return fallback( method, args );
+                    }
+                    Permission permission = ( Permission ) arg;
+                    if ( args[1] instanceof AdminRole )
+                    {
+                        permission.setAdmin( true );
+                    }
+                    directory.grantPermission( permission, ( Role ) args[1], method.getName().startsWith( "grant" ) );
+                    return null;
+                case "authorizedPermissionUsers":
+                    return directory.authorizedPermissionUsers( ( Permission ) arg );
+                case "permissionRoles":
+                    return asReturn( method, nonNull( directory.readPermission( ( Permission ) arg ).getRoles() ) );
+                case "readPermObj":
+                    return directory.readPermObj( ( ( PermObj ) arg ).getObjName(), ( ( PermObj ) arg ).isAdmin() );
+                case "findPermObjs":
+                    if ( arg instanceof OrgUnit )
+                    {
+                        return directory.findPermObjs( ( OrgUnit ) arg );
+                    }
+                    return directory.findPermObjs( ( PermObj ) arg );
+                case "addPermObj":
+                    return directory.addPermObj( ( PermObj ) arg );
+                case "updatePermObj":
+                    return directory.updatePermObj( ( PermObj ) arg );
+                case "deletePermObj":
+                    directory.deletePermObj( ( PermObj ) arg );
+                    return null;
+
+                // Sessions:
+                case "createSession":
+                    return directory.createSession( ( ( User ) arg ).getUserId() );
+                case "authenticate":
+                    return directory.createSession( ( String ) arg );
+                case "checkAccess":
+                    Permission perm = ( Permission ) args[1];
+                    return directory.checkAccess( ( Session ) arg, perm, isDelegated || perm.isAdmin() );
+                case "sessionPermissions":
+                    return directory.sessionPermissions( ( Session ) arg, isDelegated );
+                case "rolePermissions":
+                    return directory.rolePermissions( ( Role ) arg, isDelegated );
+                case "sessionRoles":
+                    return nonNull( ( ( Session ) arg ).getRoles() );
+                case "addActiveRole":
+                    addActiveRole( directory, ( Session ) arg, ( UserRole ) args[1] );
+                    return null;
+                case "dropActiveRole":
+                    dropActiveRole( ( Session ) arg, ( UserRole ) args[1] );
+                    return null;
+
+                // Separation of duty sets:
+                case "ssdSets":
+                case "dsdSets":
+                    return directory.findSdSets( ( ( SDSet ) arg ).getName(), method.getName().startsWith( "ssd" ) );
+                case "ssdRoleSets":
+                case "dsdRoleSets":
+                    return directory.roleSdSets( ( ( Role ) arg ).getName(), method.getName().startsWith( "ssd" ) );
+                case "ssdRoleSet":
+                case "dsdRoleSet":
+                    return directory.readSdSet( ( ( SDSet ) arg ).getName(), method.getName().startsWith( "ssd" ) );
+                case "createSsdSet":
+                case "createDsdSet":
+                    return directory.addSdSet( ( SDSet ) arg, method.getName().contains( "Ssd" ) );
+                case "updateSsdSet":
+                case "updateDsdSet":
+                    return directory.updateSdSet( ( SDSet ) arg, method.getName().contains( "Ssd" ) );
+                case "deleteSsdSet":
+                case "deleteDsdSet":
+                    directory.deleteSdSet( ( ( SDSet ) arg ).getName(), method.getName().contains( "Ssd" ) );
+                    return arg;
+                case "addSsdRoleMember":
+                case "addDsdRoleMember":
+                case "deleteSsdRoleMember":
+                case "deleteDsdRoleMember":
+                    boolean isSsd = method.getName().contains( "Ssd" );
+                    SDSet sdSet = FakeDirectory.copy( directory.readSdSet( ( ( SDSet ) arg ).getName(), isSsd ) );
+                    if ( method.getName().startsWith( "add" ) )
+                    {
+                        sdSet.setMember( ( ( Role ) args[1] ).getName() );
+                    }
+                    else
+                    {
+                        sdSet.getMembers().remove( ( ( Role ) args[1] ).getName() );
+                    }
+                    return directory.updateSdSet( sdSet, isSsd );
+
+                // Organizational units, password policies and groups:
+                case "add":
+                case "update":
+                    return put( directory, arg, method.getName().equals( "update" ) );
+                case "delete":
+                    if ( arg instanceof OrgUnit )
+                    {
+                        directory.deleteOrgUnit( ( OrgUnit ) arg );
+                    }
+                    else if ( arg instanceof PwPolicy )
+                    {
+                        directory.deletePolicy( ( ( PwPolicy ) arg ).getName() );
+                    }
+                    else if ( arg instanceof Group )
+                    {
+                        directory.deleteGroup( ( ( Group ) arg ).getName() );
+                    }
+                    return arg;
+                case "read":
+                    if ( arg instanceof OrgUnit )
+                    {
+                        return directory.readOrgUnit( ( OrgUnit ) arg );
+                    }
+                    if ( arg instanceof Group )
+                    {
+                        return directory.readGroup( ( ( Group ) arg ).getName() );
+                    }
+                    return directory.readPolicy( ( String ) arg );
+                case "search":
+                    if ( arg instanceof OrgUnit.Type )
+                    {
+                        return directory.searchOrgUnits( ( OrgUnit.Type ) arg, ( String ) args[1] );
+                    }
+                    return directory.searchPolicies( ( String ) arg );
+                case "updateUserPolicy":
+                    directory.setUserPolicy( ( String ) arg, ( String ) args[1] );
+                    return null;
+                case "deletePasswordPolicy":
+                    directory.setUserPolicy( ( String ) arg, null );
+                    return null;
+                case "find":
+                    if ( arg instanceof User )
+                    {
+                        return directory.findGroups( ( User ) arg );
+                    }
+                    return directory.findGroups( ( ( Group ) arg ).getName() );
+                case "assign":
+                case "deassign":
+                    return directory.assignGroup( ( ( Group ) arg ).getName(), ( String ) args[1], method.getName()
+                        .equals( "assign" ) );
+
+                // Audit records:
+                case "getUserAuthZs":
+                case "searchAuthZs":
+                    return directory.searchAuthZs( ( UserAudit ) arg );
+                case "searchBinds":
+                    return directory.searchBinds( ( UserAudit ) arg );
+                case "searchAdminMods":
+                    return directory.searchMods( ( UserAudit ) arg );
+
+                default:
+                    return fallback( method, args );
+            }
+        }
+
+
+        private Object put( FakeDirectory directory, Object entity, boolean isUpdate ) throws SecurityException
+        {
+            if ( entity instanceof OrgUnit )
+            {
+                if ( isUpdate )
+                {
+                    directory.readOrgUnit( ( OrgUnit ) entity );
+                }
+                return directory.putOrgUnit( ( OrgUnit ) entity );
+            }
+            if ( entity instanceof PwPolicy )
+            {
+                if ( isUpdate )
+                {
+                    directory.readPolicy( ( ( PwPolicy ) entity ).getName() );
+                }
+                return directory.putPolicy( ( PwPolicy ) entity );
+            }
+            if ( isUpdate )
+            {
+                directory.readGroup( ( ( Group ) entity ).getName() );
+            }
+            return directory.putGroup( ( Group ) entity );
+        }
+
+
+        private void addActiveRole( FakeDirectory directory, Session session, UserRole userRole )
+            throws SecurityException
+        {
+            if ( isActive( session, userRole.getName() ) )
+            {
+                throw new SecurityException( GlobalErrIds.URLE_ALREADY_ACTIVE, "Role already active in session: "
+                    + userRole.getName() );
+            }
+            for ( UserRole assigned : nonNull( directory.readUser( session.getUserId() ).getRoles() ) )
+            {
+                if ( assigned.getName().equalsIgnoreCase( userRole.getName() ) )
+                {
+                    session.getUser().setRole( assigned );
+                    return;
+                }
+            }
+            throw new SecurityException( GlobalErrIds.URLE_ACTIVATE_FAILED, "Role not assigned to user: "
+                + userRole.getName() );
+        }
+
+
+        private void dropActiveRole( Session session, UserRole userRole ) throws SecurityException
+        {
+            if ( !isActive( session, userRole.getName() ) )
+            {
+                throw new SecurityException( GlobalErrIds.URLE_NOT_ACTIVE, "Role not active in session: "
+                    + userRole.getName() );
+            }
+            for ( UserRole active : new ArrayList<>( session.getRoles() ) )
+            {
+                if ( active.getName().equalsIgnoreCase( userRole.getName() ) )
+                {
+                    session.getRoles().remove( active );
+                }
+            }
+        }
+
+
+        private boolean isActive( Session session, String roleName )
+        {
+            for ( UserRole active : nonNull( session.getRoles() ) )
+            {
+                if ( active.getName().equalsIgnoreCase( roleName ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        /**
+         * The result of an api that isn't faked: nothing, an empty collection, true or zero, or the entity passed in.
+         */
+        private Object fallback( Method method, Object[] args )
+        {
+            LOG.debug( ".fallback no fake for " + manager.getSimpleName() + "." + method.getName() );
+            Class<?> type = method.getReturnType();
+            if ( type == Void.TYPE )
+            {
+                return null;
+            }
+            if ( type == Boolean.TYPE )
+            {
+                return Boolean.TRUE;
+            }
+            if ( type.isPrimitive() )
+            {
+                return Array.get( Array.newInstance( type, 1 ), 0 );
+            }
+            if ( type.isAssignableFrom( ArrayList.class ) )
+            {
+                return new ArrayList<>();
+            }
+            if ( type.isAssignableFrom( HashSet.class ) )
+            {
+                return new HashSet<>();
+            }
+            if ( type.isAssignableFrom( HashMap.class ) )
+            {
+                return new HashMap<>();
+            }
+            if ( args.length > 0 && type.isInstance( args[0] ) )
+            {
+                return args[0];
+            }
+            return null;
+        }
+    }
+
+
+    private static void pause()
+    {
+        int millis = LATENCY_MILLIS + ( JITTER_MILLIS > 0 ? ThreadLocalRandom.current().nextInt( JITTER_MILLIS + 1 )
+            : 0 );
+        if ( millis > 0 )
+        {
+            try
+            {
+                Thread.sleep( millis );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    private static <T> Collection<T> asReturn( Method method, Collection<T> values )
+    {
+        return List.class.isAssignableFrom( method.getReturnType() ) ? new ArrayList<>( values ) : new HashSet<>(
+            values );
+    }
+
+
+    private static <T> List<T> nonNull( List<T> values )
+    {
+        return values != null ? values : new ArrayList<T>();
+    }
+
+
+    private static <T> Set<T> nonNull( Set<T> values )
+    {
+        return values != null ? values : new HashSet<T>();
+    }
+}
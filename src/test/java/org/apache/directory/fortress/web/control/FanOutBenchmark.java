@@ -0,0 +1,196 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Compares the virtual and platform thread {@link FanOutExecutor}s on requests that fan out into blocking calls.  The
+ * calls simulate an ldap search: each takes a connection from a pool the size of max.admin.conn, and holds it for the
+ * given latency.  The request latencies, throughput and peak number of connections in use are reported for each.
+ * <p>
+ * Run from the ide, or with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.apache.directory.fortress.web.control.FanOutBenchmark
+ * -Dexec.args="requests fanOut latencyMillis connections threads callers"
+ * <p>
+ * The virtual thread executor needs java 21 or later, it is skipped on older jvms.
+ */
+public class FanOutBenchmark
+{
+    private final int requests;
+    private final int fanOut;
+    private final long latencyMillis;
+    private final int connections;
+    private final int callers;
+
+
+    private FanOutBenchmark( int requests, int fanOut, long latencyMillis, int connections, int callers )
+    {
+        this.requests = requests;
+        this.fanOut = fanOut;
+        this.latencyMillis = latencyMillis;
+        this.connections = connections;
+        this.callers = callers;
+    }
+
+
+    public static void main( String[] args ) throws Exception
+    {
+        int requests = arg( args, 0, 200 );
+        int fanOut = arg( args, 1, 20 );
+        int latencyMillis = arg( args, 2, 20 );
+        int connections = arg( args, 3, 10 );
+        int threads = arg( args, 4, 8 );
+        int callers = arg( args, 5, 16 );
+        System.out.println( "requests=" + requests + " fanOut=" + fanOut + " latencyMillis=" + latencyMillis
+            + " connections=" + connections + " threads=" + threads + " callers=" + callers );
+
+        FanOutBenchmark benchmark = new FanOutBenchmark( requests, fanOut, latencyMillis, connections, callers );
+        // enough room for every caller's fan out, so neither executor rejects calls:
+        int queue = callers * fanOut;
+
+        FanOutExecutor platform = FanOutExecutor.newPlatformExecutor( "benchmark-platform", threads, queue );
+        benchmark.run( platform, true );
+        benchmark.run( platform, false );
+        platform.shutdownNow();
+
+        FanOutExecutor virtual = FanOutExecutor.newVirtualExecutor( "benchmark-virtual",
+            new Semaphore( connections, true ), connections, queue );
+        if ( virtual == null )
+        {
+            System.out.println( "virtual: not supported by this jvm, java 21 or later is needed" );
+            return;
+        }
+        benchmark.run( virtual, true );
+        benchmark.run( virtual, false );
+        virtual.shutdownNow();
+    }
+
+
+    /**
+     * Send the requests through an executor from the callers, as a web container's threads would.
+     */
+    private void run( final FanOutExecutor executor, boolean warmUp ) throws InterruptedException
+    {
+        final Semaphore pool = new Semaphore( connections );
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final AtomicInteger next = new AtomicInteger();
+        final long[] latencies = new long[requests];
+        final Callable<Void> search = new Callable<Void>()
+        {
+            @Override
+            public Void call() throws InterruptedException
+            {
+                pool.acquire();
+                try
+                {
+                    int current = inUse.incrementAndGet();
+                    int max;
+                    while ( current > ( max = peak.get() ) && !peak.compareAndSet( max, current ) )
+                    {
+                        // retry
+                    }
+                    Thread.sleep( latencyMillis );
+                    return null;
+                }
+                finally
+                {
+                    inUse.decrementAndGet();
+                    pool.release();
+                }
+            }
+        };
+
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for ( int i = 0; i < callers; i++ )
+        {
+            Thread caller = new Thread( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    int request;
+                    while ( ( request = next.getAndIncrement() ) < requests )
+                    {
+                        long begin = System.nanoTime();
+                        List<Future<Void>> calls = new ArrayList<>( fanOut );
+                        for ( int j = 0; j < fanOut; j++ )
+                        {
+                            calls.add( executor.submit( search ) );
+                        }
+                        try
+                        {
+                            for ( Future<Void> call : calls )
+                            {
+                                call.get();
+                            }
+                        }
+                        catch ( InterruptedException | ExecutionException e )
+                        {
+                            throw new IllegalStateException( e );
+                        }
+                        latencies[request] = System.nanoTime() - begin;
+                    }
+                }
+            }, "benchmark-caller-" + i );
+            threads.add( caller );
+            caller.start();
+        }
+        for ( Thread caller : threads )
+        {
+            caller.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        if ( warmUp )
+        {
+            return;
+        }
+
+        Arrays.sort( latencies );
+        System.out.println( String.format(
+            "%-8s elapsed=%6dms calls/s=%8.1f p50=%6.1fms p95=%6.1fms p99=%6.1fms peak connections=%d/%d",
+            executor.getMode(), elapsed / 1000000, requests * fanOut / ( elapsed / 1e9 ), percentile( latencies, 50 ),
+            percentile( latencies, 95 ), percentile( latencies, 99 ), peak.get(), connections ) );
+    }
+
+
+    private static double percentile( long[] sorted, int percent )
+    {
+        int index = ( int ) Math.ceil( percent / 100.0 * sorted.length ) - 1;
+        return sorted[Math.max( 0, index )] / 1e6;
+    }
+
+
+    private static int arg( String[] args, int index, int defaultValue )
+    {
+        return args.length > index ? Integer.parseInt( args[index] ) : defaultValue;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.junit.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks the users a {@link RoleAssignmentIndex} finds constrained by a set against those found by walking each user's
+ * roles and their parents, for a small hierarchy and for every SSD set of the fake directory.
+ */
+public class RoleAssignmentIndexTest
+{
+    private ReviewMgr reviewMgr;
+
+
+    @Before
+    public void setUp()
+    {
+        reviewMgr = FakeManagers.createReviewMgr();
+    }
+
+
+    @Test
+    public void testHierarchy()
+    {
+        Role junior = new Role( "junior" );
+        Role senior = new Role( "senior" );
+        senior.setParent( "junior" );
+        Role other = new Role( "other" );
+        List<User> users = Arrays.asList( user( "u1", "senior", "other" ), user( "u2", "junior", "other" ), user(
+            "u3", "junior" ) );
+        RoleAssignmentIndex index = new RoleAssignmentIndex( users, Arrays.asList( junior, senior, other ) );
+        assertEquals( 3, index.getUserCount() );
+        assertEquals( 3, index.getRoleCount() );
+
+        // senior authorizes junior as well:
+        assertEquals( ids( "u1" ), ids( index.check( sdSet( 2, "junior", "senior" ), 10 ) ) );
+        assertEquals( ids( "u1", "u2" ), ids( index.check( sdSet( 2, "junior", "other" ), 10 ) ) );
+        assertEquals( ids( "u1" ), ids( index.check( sdSet( 3, "junior", "senior", "other" ), 10 ) ) );
+        assertEquals( ids(), ids( index.check( sdSet( 2, "senior", "missing" ), 10 ) ) );
+
+        RoleAssignmentIndex.Impact impact = index.check( sdSet( 2, "junior", "other", "missing" ), 1 );
+        assertEquals( 2, impact.getTotal() );
+        assertEquals( 1, impact.getShown().size() );
+        assertEquals( Arrays.asList( "missing" ), impact.getUnknown() );
+    }
+
+
+    @Test
+    public void testFakeDirectory() throws Exception
+    {
+        List<User> users = reviewMgr.findUsers( new User( "" ) );
+        List<Role> roles = reviewMgr.findRoles( "" );
+        RoleAssignmentIndex index = new RoleAssignmentIndex( users, roles );
+        assertEquals( users.size(), index.getUserCount() );
+
+        SDSet search = new SDSet();
+        search.setName( "" );
+        search.setType( SDSet.SDType.STATIC );
+        List<SDSet> sdSets = reviewMgr.ssdSets( search );
+        assertFalse( sdSets.isEmpty() );
+        for ( SDSet sdSet : sdSets )
+        {
+            RoleAssignmentIndex.Impact impact = index.check( sdSet, Integer.MAX_VALUE );
+            assertEquals( sdSet.getName(), constrained( users, roles, sdSet ), ids( impact ) );
+            assertEquals( impact.getShown().size(), impact.getTotal() );
+        }
+    }
+
+
+    /**
+     * @return the ids of the users authorized for at least the set's cardinality of its members.
+     */
+    static Set<String> constrained( List<User> users, List<Role> roles, SDSet sdSet )
+    {
+        Map<String, Collection<String>> parents = new HashMap<>();
+        for ( Role role : roles )
+        {
+            if ( role.getParents() != null )
+            {
+                parents.put( key( role.getName() ), role.getParents() );
+            }
+        }
+        Set<String> members = new HashSet<>();
+        for ( String member : sdSet.getMembers() )
+        {
+            members.add( key( member ) );
+        }
+        Set<String> found = new TreeSet<>();
+        for ( User user : users )
+        {
+            Set<String> authorized = new HashSet<>();
+            if ( user.getRoles() != null )
+            {
+                for ( UserRole userRole : user.getRoles() )
+                {
+                    authorize( userRole.getName(), parents, authorized );
+                }
+            }
+            authorized.retainAll( members );
+            if ( authorized.size() >= RoleAssignmentIndex.cardinality( sdSet ) )
+            {
+                found.add( user.getUserId() );
+            }
+        }
+        return found;
+    }
+
+
+    private static void authorize( String name, Map<String, Collection<String>> parents, Set<String> authorized )
+    {
+        if ( authorized.add( key( name ) ) && parents.containsKey( key( name ) ) )
+        {
+            for ( String parent : parents.get( key( name ) ) )
+            {
+                authorize( parent, parents, authorized );
+            }
+        }
+    }
+
+
+    private static User user( String userId, String... roleNames )
+    {
+        User user = new User( userId );
+        for ( String roleName : roleNames )
+        {
+            UserRole userRole = new UserRole( roleName );
+            userRole.setUserId( userId );
+            user.setRole( userRole );
+        }
+        return user;
+    }
+
+
+    private static SDSet sdSet( int cardinality, String... members )
+    {
+        SDSet sdSet = new SDSet();
+        sdSet.setName( "testSet" );
+        sdSet.setCardinality( cardinality );
+        for ( String member : members )
+        {
+            sdSet.setMember( member );
+        }
+        return sdSet;
+    }
+
+
+    private static Set<String> ids( String... userIds )
+    {
+        return new TreeSet<>( Arrays.asList( userIds ) );
+    }
+
+
+    private static Set<String> ids( RoleAssignmentIndex.Impact impact )
+    {
+        Set<String> ids = new TreeSet<>();
+        for ( RoleAssignmentIndex.Conflict conflict : impact.getShown() )
+        {
+            ids.add( conflict.getUserId() );
+        }
+        return ids;
+    }
+
+
+    private static String key( String name )
+    {
+        return name.toLowerCase( Locale.ENGLISH );
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.integration;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.fortress.web.AuditAuthzPage;
+import org.apache.directory.fortress.web.PermPage;
+import org.apache.directory.fortress.web.UserPage;
+import org.apache.directory.fortress.web.common.GlobalIds;
+
+
+/**
+ * Load test for the web ui.  Each virtual user logs in, then repeatedly replays the admin flows covered by
+ * {@link FortressWebSeleniumITCase}: a user search, a role assignment to one of the users found, a permission search
+ * and an audit search.  The requests are those a browser sends, page loads followed by wicket ajax calls, so the
+ * server does all the work it does for a real user, including page serialization.  The latency percentiles of each
+ * step are reported, along with the change in the server's /metrics over the run.  The metrics before and after are
+ * also saved, to compare with the prometheus dashboards.
+ * <p>
+ * Start the server with StartExamples, with -Dspring.profiles.active=fake to run without a directory, then run from
+ * the ide, or with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.apache.directory.fortress.web.integration.FortressWebLoadHarness
+ * -Dexec.args="baseUrl users iterations thinkMillis rampUpMillis"
+ * <p>
+ * The search terms and login are system properties, defaulting to the fake profile's data: loadtest.userId,
+ * loadtest.password, loadtest.userSearch, loadtest.role (a format given a random number below loadtest.roles),
+ * loadtest.permSearch, loadtest.auditUser and loadtest.out, the directory the metrics are saved to.
+ */
+public class FortressWebLoadHarness
+{
+    private static final String LOGIN = "login";
+    private static final String USER_PAGE = "userPage";
+    private static final String USER_SEARCH = "userSearch";
+    private static final String USER_SELECT = "userSelect";
+    private static final String ROLE_ASSIGN = "roleAssign";
+    private static final String PERM_PAGE = "permPage";
+    private static final String PERM_SEARCH = "permSearch";
+    private static final String AUDIT_PAGE = "auditPage";
+    private static final String AUDIT_SEARCH = "auditSearch";
+    private static final String[] STEPS = { LOGIN, USER_PAGE, USER_SEARCH, USER_SELECT, ROLE_ASSIGN, PERM_PAGE,
+        PERM_SEARCH, AUDIT_PAGE, AUDIT_SEARCH };
+    private static final long SETTLE_MILLIS = 5 * 60 * 1000;
+    private static final int MAX_ERRORS_SHOWN = 10;
+
+    private final String baseUrl;
+    private final int iterations;
+    private final long thinkMillis;
+    private final String userId = System.getProperty( "loadtest.userId", "test" );
+    private final String password = System.getProperty( "loadtest.password", "password" );
+    private final String userSearch = System.getProperty( "loadtest.userSearch", "fakeUser00000" );
+    private final String role = System.getProperty( "loadtest.role", "fakeRole%05d" );
+    private final int roles = Integer.getInteger( "loadtest.roles", 100 );
+    private final String permSearch = System.getProperty( "loadtest.permSearch", "fakeObj000" );
+    private final String auditUser = System.getProperty( "loadtest.auditUser", "fakeUser0000001" );
+    private final ConcurrentMap<String, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> errors = new ConcurrentHashMap<>();
+    private final List<String> errorMessages = Collections.synchronizedList( new ArrayList<String>() );
+
+
+    private FortressWebLoadHarness( String baseUrl, int iterations, long thinkMillis )
+    {
+        this.baseUrl = baseUrl;
+        this.iterations = iterations;
+        this.thinkMillis = thinkMillis;
+        for ( String step : STEPS )
+        {
+            latencies.put( step, Collections.synchronizedList( new ArrayList<Long>() ) );
+            errors.put( step, new AtomicInteger() );
+        }
+    }
+
+
+    public static void main( String[] args ) throws Exception
+    {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8081/fortress-web";
+        int users = arg( args, 1, 10 );
+        int iterations = arg( args, 2, 20 );
+        int thinkMillis = arg( args, 3, 500 );
+        int rampUpMillis = arg( args, 4, 5000 );
+        File out = new File( System.getProperty( "loadtest.out", "target/loadtest" ) );
+        System.out.println( "baseUrl=" + baseUrl + " users=" + users + " iterations=" + iterations + " thinkMillis="
+            + thinkMillis + " rampUpMillis=" + rampUpMillis );
+        // one pooled connection per virtual user, as each browser would keep one open:
+        System.setProperty( "http.maxConnections", String.valueOf( Math.max( 5, users ) ) );
+
+        final FortressWebLoadHarness harness = new FortressWebLoadHarness( baseUrl, iterations, thinkMillis );
+        String before = harness.metrics( out, "metrics-before.txt" );
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for ( int i = 0; i < users; i++ )
+        {
+            final long delay = users > 1 ? ( long ) rampUpMillis * i / ( users - 1 ) : 0;
+            final int user = i;
+            Thread thread = new Thread( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    harness.run( user, delay );
+                }
+            }, "loadtest-user-" + i );
+            threads.add( thread );
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        String after = harness.metrics( out, "metrics-after.txt" );
+        harness.report( elapsed );
+        if ( before != null && after != null )
+        {
+            report( parse( before ), parse( after ) );
+        }
+    }
+
+
+    /**
+     * One virtual user: log in, then replay the flows until done.  A failed step abandons the rest of its iteration,
+     * as the page state it depends on can't be trusted.
+     */
+    private void run( int user, long delay )
+    {
+        Random random = new Random( user );
+        WicketClient client = new WicketClient( baseUrl );
+        sleep( delay );
+        long begin = System.nanoTime();
+        try
+        {
+            client.login( UserPage.class.getName(), userId, password );
+            record( LOGIN, begin );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            failed( LOGIN, user, e );
+            return;
+        }
+        for ( int i = 0; i < iterations; i++ )
+        {
+            String step = USER_PAGE;
+            try
+            {
+                begin = System.nanoTime();
+                client.open( UserPage.class.getName() );
+                record( step, begin );
+                think( random );
+
+                step = USER_SEARCH;
+                begin = System.nanoTime();
+                client.ajax( GlobalIds.SEARCH, fields( GlobalIds.FIELD_1, userSearch ) );
+                record( step, begin );
+                think( random );
+
+                step = USER_SELECT;
+                List<Map<String, String>> rows = client.callbacks( "usertreegrid", "click" );
+                if ( rows.isEmpty() )
+                {
+                    throw new IOException( "no users found for " + userSearch );
+                }
+                // the first row is the tree's root, the users follow:
+                Map<String, String> row = rows.get( rows.size() > 1 ? 1 + random.nextInt( rows.size() - 1 ) : 0 );
+                begin = System.nanoTime();
+                client.fire( row, null );
+                record( step, begin );
+                think( random );
+
+                step = ROLE_ASSIGN;
+                begin = System.nanoTime();
+                client.ajax( GlobalIds.ASSIGN, fields( GlobalIds.NEW_USER_ROLE_FIELD,
+                    String.format( role, random.nextInt( roles ) ) ) );
+                record( step, begin );
+                think( random );
+
+                step = PERM_PAGE;
+                begin = System.nanoTime();
+                client.open( PermPage.class.getName() );
+                record( step, begin );
+                think( random );
+
+                step = PERM_SEARCH;
+                begin = System.nanoTime();
+                client.ajax( GlobalIds.SEARCH, fields( "permObject", permSearch ) );
+                record( step, begin );
+                think( random );
+
+                step = AUDIT_PAGE;
+                begin = System.nanoTime();
+                client.open( AuditAuthzPage.class.getName() );
+                client.settle( SETTLE_MILLIS );
+                record( step, begin );
+                think( random );
+
+                // the search reloads the page, whose results are then polled for until the query is done:
+                step = AUDIT_SEARCH;
+                begin = System.nanoTime();
+                client.ajax( GlobalIds.SEARCH, fields( GlobalIds.USER_ID, auditUser ) );
+                client.settle( SETTLE_MILLIS );
+                record( step, begin );
+                think( random );
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                failed( step, user, e );
+            }
+        }
+    }
+
+
+    private static Map<String, String> fields( String name, String value )
+    {
+        Map<String, String> fields = new HashMap<>();
+        fields.put( name, value );
+        return fields;
+    }
+
+
+    private void record( String step, long begin )
+    {
+        latencies.get( step ).add( System.nanoTime() - begin );
+    }
+
+
+    private void failed( String step, int user, Exception e )
+    {
+        errors.get( step ).incrementAndGet();
+        if ( errorMessages.size() < MAX_ERRORS_SHOWN )
+        {
+            errorMessages.add( "user " + user + " " + step + ": " + e );
+        }
+    }
+
+
+    private void think( Random random )
+    {
+        // vary the think time, so the virtual users don't move in lock step:
+        sleep( thinkMillis > 0 ? thinkMillis / 2 + random.nextInt( ( int ) thinkMillis ) : 0 );
+    }
+
+
+    private static void sleep( long millis )
+    {
+        if ( millis <= 0 )
+        {
+            return;
+        }
+        try
+        {
+            Thread.sleep( millis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private void report( long elapsed )
+    {
+        double seconds = elapsed / 1e9;
+        System.out.println( String.format( "elapsed=%.1fs", seconds ) );
+        System.out.println( String.format( "%-12s %7s %6s %8s %8s %8s %8s %8s %8s", "step", "count", "errors",
+            "req/s", "mean", "p50", "p95", "p99", "max" ) );
+        for ( String step : STEPS )
+        {
+            long[] sorted;
+            List<Long> samples = latencies.get( step );
+            synchronized ( samples )
+            {
+                sorted = new long[samples.size()];
+                for ( int i = 0; i < sorted.length; i++ )
+                {
+                    sorted[i] = samples.get( i );
+                }
+            }
+            Arrays.sort( sorted );
+            long total = 0;
+            for ( long latency : sorted )
+            {
+                total += latency;
+            }
+            System.out.println( String.format( "%-12s %7d %6d %8.1f %6.1fms %6.1fms %6.1fms %6.1fms %6.1fms", step,
+                sorted.length, errors.get( step ).get(), sorted.length / seconds,
+                sorted.length > 0 ? total / 1e6 / sorted.length : 0, percentile( sorted, 50 ),
+                percentile( sorted, 95 ), percentile( sorted, 99 ), percentile( sorted, 100 ) ) );
+        }
+        for ( String message : errorMessages )
+        {
+            System.out.println( "error: " + message );
+        }
+    }
+
+
+    /**
+     * Save a snapshot of the server's metrics.
+     *
+     * @return the metrics, or null if they couldn't be read.
+     */
+    private String metrics( File dir, String name )
+    {
+        try
+        {
+            String metrics = new WicketClient( baseUrl ).get( "/metrics" );
+            if ( !dir.isDirectory() && !dir.mkdirs() )
+            {
+                throw new IOException( "couldn't create " + dir );
+            }
+            File file = new File( dir, name );
+            try ( OutputStream out = new FileOutputStream( file ) )
+            {
+                out.write( metrics.getBytes( StandardCharsets.UTF_8 ) );
+            }
+            System.out.println( "saved " + file );
+            return metrics;
+        }
+        catch ( IOException e )
+        {
+            System.out.println( "metrics not saved: " + e );
+            return null;
+        }
+    }
+
+
+    /**
+     * Print the application's metrics that changed over the run, leaving out those of the jvm and process.
+     */
+    private static void report( Map<String, Double> before, Map<String, Double> after )
+    {
+        System.out.println( "server metrics, before -> after:" );
+        for ( Map.Entry<String, Double> sample : after.entrySet() )
+        {
+            String name = sample.getKey();
+            Double previous = before.get( name );
+            if ( name.startsWith( "jvm_" ) || name.startsWith( "process_" ) || sample.getValue().equals( previous ) )
+            {
+                continue;
+            }
+            System.out.println( String.format( "  %-90s %14.3f -> %14.3f", name, previous != null ? previous : 0,
+                sample.getValue() ) );
+        }
+    }
+
+
+    /**
+     * Parse the prometheus text format into sample values, keyed by the name and labels.
+     */
+    private static Map<String, Double> parse( String metrics )
+    {
+        Map<String, Double> samples = new LinkedHashMap<>();
+        for ( String line : metrics.split( "\n" ) )
+        {
+            line = line.trim();
+            int value = line.lastIndexOf( ' ' );
+            if ( line.isEmpty() || line.startsWith( "#" ) || value < 0 )
+            {
+                continue;
+            }
+            try
+            {
+                samples.put( line.substring( 0, value ), Double.parseDouble( line.substring( value + 1 ) ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                // not a sample
+            }
+        }
+        return samples;
+    }
+
+
+    private static double percentile( long[] sorted, int percent )
+    {
+        if ( sorted.length == 0 )
+        {
+            return 0;
+        }
+        int index = ( int ) Math.ceil( percent / 100.0 * sorted.length ) - 1;
+        return sorted[Math.max( 0, index )] / 1e6;
+    }
+
+
+    private static int arg( String[] args, int index, int defaultValue )
+    {
+        return args.length > index ? Integer.parseInt( args[index] ) : defaultValue;
+    }
+}
@@ -0,0 +1,638 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.integration;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.CookieManager;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * A minimal, browser-less client for the fortress web pages, one per virtual user of the
+ * {@link FortressWebLoadHarness}.  It keeps its own cookies, follows redirects and the form login, and tracks the
+ * state a browser would for a stateful wicket page: the page url, the wicket ajax base url, the ajax callbacks
+ * rendered on the page, and the page markup as updated by each ajax response, so form fields are posted the way the
+ * browser would post them.
+ * <p>
+ * Only the parts of wicket's ajax protocol the fortress web flows need are supported: event and submit callbacks,
+ * component replacement, redirects and self-updating timers.
+ */
+class WicketClient
+{
+    private static final int MAX_REDIRECTS = 10;
+    private static final int TIMEOUT_MILLIS = 60000;
+    private static final Pattern AJAX_CALL = Pattern.compile( "Wicket\\.Ajax\\.ajax\\((\\{.*?\\})\\);" );
+    private static final Pattern TIMER = Pattern.compile(
+        "Wicket\\.Timer\\.set\\('([^']+)',\\s*function\\s*\\(\\)\\s*\\{\\s*Wicket\\.Ajax\\.ajax\\((\\{.*?\\})\\);"
+            + "\\s*\\},\\s*(\\d+)\\)" );
+    private static final Pattern ATTR = Pattern.compile( "\"(\\w+)\":(\"((?:[^\"\\\\]|\\\\.)*)\"|[^,}\\]]+)" );
+    private static final Pattern BASE_URL = Pattern.compile( "Wicket\\.Ajax\\.baseUrl=\"([^\"]*)\"" );
+    private static final Pattern COMPONENT = Pattern.compile(
+        "<component id=\"([^\"]+)\"[^>]*><!\\[CDATA\\[(.*?)\\]\\]></component>", Pattern.DOTALL );
+    private static final Pattern REDIRECT = Pattern.compile( "<redirect><!\\[CDATA\\[(.*?)\\]\\]></redirect>",
+        Pattern.DOTALL );
+    private static final Pattern INPUT = Pattern.compile( "<input\\b([^>]*)>", Pattern.CASE_INSENSITIVE );
+    private static final Pattern SELECT = Pattern.compile( "<select\\b([^>]*)>(.*?)</select>",
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL );
+    private static final Pattern OPTION = Pattern.compile( "<option\\b([^>]*)>", Pattern.CASE_INSENSITIVE );
+    private static final Pattern TEXTAREA = Pattern.compile( "<textarea\\b([^>]*)>(.*?)</textarea>",
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL );
+    private static final Pattern FORM_ACTION = Pattern.compile( "<form[^>]*action=\"([^\"]*)\"",
+        Pattern.CASE_INSENSITIVE );
+    private static final String LOGIN_FORM = "j_security_check";
+
+    private final String baseUrl;
+    private final CookieManager cookies = new CookieManager();
+    private URI pageUri;
+    private String ajaxBaseUrl;
+    private String document = "";
+    private final Map<String, Map<String, String>> callbacks = new LinkedHashMap<>();
+    private final Map<String, Map<String, String>> timers = new LinkedHashMap<>();
+
+
+    /**
+     * @param baseUrl of the web app, e.g. http://localhost:8081/fortress-web
+     */
+    WicketClient( String baseUrl )
+    {
+        this.baseUrl = baseUrl.endsWith( "/" ) ? baseUrl.substring( 0, baseUrl.length() - 1 ) : baseUrl;
+    }
+
+
+    /**
+     * Open a page, by its class name, logging in first if the container asks for it.
+     */
+    void login( String page, String userId, String password ) throws IOException
+    {
+        open( page );
+        if ( document.contains( LOGIN_FORM ) )
+        {
+            Matcher action = FORM_ACTION.matcher( document );
+            String target = action.find() ? action.group( 1 ) : LOGIN_FORM;
+            Map<String, String> form = new LinkedHashMap<>();
+            form.put( "j_username", userId );
+            form.put( "j_password", password );
+            Response response = send( resolve( pageUri, target ), "POST", encode( form ), false );
+            load( response );
+        }
+        if ( document.contains( LOGIN_FORM ) || !document.contains( "Wicket.Ajax" ) )
+        {
+            throw new IOException( "login failed for " + userId + " at " + pageUri );
+        }
+    }
+
+
+    /**
+     * Open a bookmarkable page, which creates a new page instance on the server, as following a menu link does.
+     *
+     * @param page fully qualified class name of the page.
+     */
+    void open( String page ) throws IOException
+    {
+        load( send( URI.create( baseUrl + "/wicket/bookmarkable/" + page ), "GET", null, false ) );
+        if ( pageUri.getPath().endsWith( "/login/error.html" ) )
+        {
+            throw new IOException( "access denied to " + page );
+        }
+    }
+
+
+    /**
+     * Fire the ajax callback of a component, as the browser does when the user clicks it or submits its form.
+     *
+     * @param name the submitting button's name, or a fragment of the callback url, matched against the end of each.
+     * @param fields form values to post instead of those on the page, keyed by the end of the input's name.
+     * @return the raw ajax response.
+     */
+    String ajax( String name, Map<String, String> fields ) throws IOException
+    {
+        Map<String, String> callback = callback( name );
+        if ( callback == null )
+        {
+            throw new IOException( "no ajax callback for " + name + " on " + pageUri );
+        }
+        return fire( callback, fields );
+    }
+
+
+    /**
+     * Return the callbacks whose url contains the given component path fragment, in page order.
+     */
+    List<Map<String, String>> callbacks( String fragment, String event )
+    {
+        List<Map<String, String>> matches = new ArrayList<>();
+        for ( Map<String, String> callback : callbacks.values() )
+        {
+            if ( callback.get( "u" ).contains( fragment ) && ( event == null || event.equals( callback.get( "e" ) ) ) )
+            {
+                matches.add( callback );
+            }
+        }
+        return matches;
+    }
+
+
+    /**
+     * Fire a callback returned by {@link #callbacks}.
+     */
+    String fire( Map<String, String> callback, Map<String, String> fields ) throws IOException
+    {
+        String body = null;
+        if ( "POST".equalsIgnoreCase( callback.get( "m" ) ) || callback.containsKey( "f" ) )
+        {
+            Map<String, String> form = new LinkedHashMap<>();
+            if ( callback.containsKey( "f" ) )
+            {
+                form.putAll( fields( callback.get( "f" ) ) );
+            }
+            if ( fields != null )
+            {
+                for ( Map.Entry<String, String> field : fields.entrySet() )
+                {
+                    form.put( fieldName( form, field.getKey() ), field.getValue() );
+                }
+            }
+            if ( callback.containsKey( "sc" ) )
+            {
+                form.put( callback.get( "sc" ), "1" );
+            }
+            body = encode( form );
+        }
+        Response response = send( resolve( pageUri, callback.get( "u" ) ), body != null ? "POST" : "GET", body,
+            true );
+        return update( response );
+    }
+
+
+    /**
+     * Poll the page's self-updating timers, as the browser would, until all have stopped.
+     *
+     * @param maxMillis to wait for.
+     * @throws IOException if the timers are still running after the wait.
+     */
+    void settle( long maxMillis ) throws IOException
+    {
+        long deadline = System.currentTimeMillis() + maxMillis;
+        while ( !timers.isEmpty() )
+        {
+            if ( System.currentTimeMillis() > deadline )
+            {
+                throw new IOException( "page " + pageUri + " still polling after " + maxMillis + "ms" );
+            }
+            Map.Entry<String, Map<String, String>> timer = timers.entrySet().iterator().next();
+            timers.remove( timer.getKey() );
+            try
+            {
+                Thread.sleep( Long.parseLong( timer.getValue().get( "delay" ) ) );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( "interrupted" );
+            }
+            fire( timer.getValue(), null );
+        }
+    }
+
+
+    /**
+     * Return the page markup, as updated by the ajax responses since it was loaded.
+     */
+    String getDocument()
+    {
+        return document;
+    }
+
+
+    /**
+     * Fetch a resource of the web app outside of any page, e.g. the metrics.
+     */
+    String get( String path ) throws IOException
+    {
+        return send( URI.create( baseUrl + path ), "GET", null, false ).body;
+    }
+
+
+    private Map<String, String> callback( String name )
+    {
+        Map<String, String> found = null;
+        for ( Map<String, String> callback : callbacks.values() )
+        {
+            String submit = callback.get( "sc" );
+            if ( submit != null && ( submit.equals( name ) || submit.endsWith( ":" + name ) ) )
+            {
+                return callback;
+            }
+            if ( found == null && callback.get( "u" ).endsWith( name ) )
+            {
+                found = callback;
+            }
+        }
+        return found;
+    }
+
+
+    private void load( Response response )
+    {
+        pageUri = response.uri;
+        document = response.body;
+        callbacks.clear();
+        timers.clear();
+        Matcher base = BASE_URL.matcher( document );
+        ajaxBaseUrl = base.find() ? unescape( base.group( 1 ) ) : null;
+        scan( document );
+    }
+
+
+    private String update( Response response ) throws IOException
+    {
+        String body = response.body;
+        Matcher redirect = REDIRECT.matcher( body );
+        if ( redirect.find() )
+        {
+            load( send( resolve( pageUri, redirect.group( 1 ) ), "GET", null, false ) );
+            return body;
+        }
+        if ( !body.contains( "<ajax-response>" ) )
+        {
+            if ( body.contains( "<html" ) )
+            {
+                // followed a redirect to another page:
+                load( response );
+                return body;
+            }
+            throw new IOException( "unexpected ajax response from " + response.uri + ": " + abbreviate( body ) );
+        }
+        Matcher component = COMPONENT.matcher( body );
+        while ( component.find() )
+        {
+            document = replace( document, component.group( 1 ),
+                component.group( 2 ).replace( "]]]]><![CDATA[>", "]]>" ) );
+        }
+        scan( body );
+        return body;
+    }
+
+
+    /**
+     * Pick up the callbacks and timers rendered in some markup, replacing those previously found for the same
+     * component and event.
+     */
+    private void scan( String markup )
+    {
+        Matcher timer = TIMER.matcher( markup );
+        while ( timer.find() )
+        {
+            Map<String, String> attrs = attrs( timer.group( 2 ) );
+            attrs.put( "delay", timer.group( 3 ) );
+            timers.put( timer.group( 1 ), attrs );
+        }
+        Matcher call = AJAX_CALL.matcher( markup );
+        while ( call.find() )
+        {
+            Map<String, String> attrs = attrs( call.group( 1 ) );
+            if ( attrs.containsKey( "u" ) )
+            {
+                callbacks.put( attrs.get( "c" ) + "|" + attrs.get( "e" ) + "|" + attrs.get( "sc" ), attrs );
+            }
+        }
+    }
+
+
+    private static Map<String, String> attrs( String json )
+    {
+        Map<String, String> attrs = new HashMap<>();
+        Matcher attr = ATTR.matcher( json );
+        while ( attr.find() )
+        {
+            String value = attr.group( 3 ) != null ? unescape( attr.group( 3 ) ) : attr.group( 2 ).trim();
+            if ( !attrs.containsKey( attr.group( 1 ) ) )
+            {
+                attrs.put( attr.group( 1 ), value );
+            }
+        }
+        return attrs;
+    }
+
+
+    /**
+     * Return the values the browser would post for a form: its inputs, checked boxes, selected options and text areas.
+     */
+    private Map<String, String> fields( String formId )
+    {
+        String form = element( document, formId );
+        Map<String, String> fields = new LinkedHashMap<>();
+        if ( form == null )
+        {
+            return fields;
+        }
+        Matcher input = INPUT.matcher( form );
+        while ( input.find() )
+        {
+            String tag = input.group( 1 );
+            String name = attribute( tag, "name" );
+            String type = attribute( tag, "type" );
+            type = type == null ? "text" : type.toLowerCase();
+            if ( name == null || tag.matches( "(?is).*\\sdisabled\\b.*" ) || type.equals( "submit" )
+                || type.equals( "button" ) || type.equals( "image" ) || type.equals( "file" ) || type.equals( "reset" )
+                || ( ( type.equals( "checkbox" ) || type.equals( "radio" ) ) && !tag.matches( "(?is).*\\schecked\\b.*" ) ) )
+            {
+                continue;
+            }
+            String value = attribute( tag, "value" );
+            fields.put( name, value != null ? value : type.equals( "checkbox" ) ? "on" : "" );
+        }
+        Matcher select = SELECT.matcher( form );
+        while ( select.find() )
+        {
+            String name = attribute( select.group( 1 ), "name" );
+            String value = null;
+            Matcher option = OPTION.matcher( select.group( 2 ) );
+            while ( option.find() )
+            {
+                if ( value == null || option.group( 1 ).matches( "(?is).*\\sselected\\b.*" ) )
+                {
+                    value = attribute( option.group( 1 ), "value" );
+                }
+            }
+            if ( name != null && value != null )
+            {
+                fields.put( name, value );
+            }
+        }
+        Matcher textarea = TEXTAREA.matcher( form );
+        while ( textarea.find() )
+        {
+            String name = attribute( textarea.group( 1 ), "name" );
+            if ( name != null )
+            {
+                fields.put( name, unescapeHtml( textarea.group( 2 ) ) );
+            }
+        }
+        return fields;
+    }
+
+
+    /**
+     * Wicket names nested inputs by their component path, so an override given as "field1" applies to
+     * "searchfields:field1".
+     */
+    private static String fieldName( Map<String, String> form, String key )
+    {
+        for ( String name : form.keySet() )
+        {
+            if ( name.equals( key ) || name.endsWith( ":" + key ) )
+            {
+                return name;
+            }
+        }
+        return key;
+    }
+
+
+    /**
+     * Return the outer markup of the element with the given id, or null if it isn't on the page.
+     */
+    private static String element( String markup, String id )
+    {
+        int[] bounds = bounds( markup, id );
+        return bounds == null ? null : markup.substring( bounds[0], bounds[1] );
+    }
+
+
+    private static String replace( String markup, String id, String replacement )
+    {
+        int[] bounds = bounds( markup, id );
+        return bounds == null ? markup : markup.substring( 0, bounds[0] ) + replacement + markup.substring( bounds[1] );
+    }
+
+
+    private static int[] bounds( String markup, String id )
+    {
+        int at = markup.indexOf( "id=\"" + id + "\"" );
+        if ( at < 0 )
+        {
+            return null;
+        }
+        int start = markup.lastIndexOf( '<', at );
+        Matcher name = Pattern.compile( "<(\\w+)" ).matcher( markup ).region( start, markup.length() );
+        if ( !name.lookingAt() )
+        {
+            return null;
+        }
+        String tag = name.group( 1 ).toLowerCase();
+        int open = markup.indexOf( '>', at );
+        if ( open < 0 || markup.charAt( open - 1 ) == '/' || tag.equals( "input" ) || tag.equals( "img" ) )
+        {
+            return new int[] { start, open + 1 };
+        }
+        Matcher tags = Pattern.compile( "<(/?)" + tag + "\\b[^>]*?(/?)>", Pattern.CASE_INSENSITIVE ).matcher( markup );
+        tags.region( open + 1, markup.length() );
+        int depth = 1;
+        while ( tags.find() )
+        {
+            if ( !tags.group( 1 ).isEmpty() )
+            {
+                depth--;
+            }
+            else if ( tags.group( 2 ).isEmpty() )
+            {
+                depth++;
+            }
+            if ( depth == 0 )
+            {
+                return new int[] { start, tags.end() };
+            }
+        }
+        return new int[] { start, markup.length() };
+    }
+
+
+    private static String attribute( String tag, String name )
+    {
+        Matcher value = Pattern.compile( "(?i)\\s" + name + "\\s*=\\s*(\"([^\"]*)\"|'([^']*)')" ).matcher( tag );
+        if ( !value.find() )
+        {
+            return null;
+        }
+        return unescapeHtml( value.group( 2 ) != null ? value.group( 2 ) : value.group( 3 ) );
+    }
+
+
+    private Response send( URI uri, String method, String body, boolean ajax ) throws IOException
+    {
+        for ( int redirects = 0; redirects < MAX_REDIRECTS; redirects++ )
+        {
+            HttpURLConnection connection = ( HttpURLConnection ) uri.toURL().openConnection();
+            connection.setInstanceFollowRedirects( false );
+            connection.setConnectTimeout( TIMEOUT_MILLIS );
+            connection.setReadTimeout( TIMEOUT_MILLIS );
+            connection.setRequestMethod( method );
+            for ( Map.Entry<String, List<String>> header : cookies( uri ).entrySet() )
+            {
+                for ( String value : header.getValue() )
+                {
+                    connection.addRequestProperty( header.getKey(), value );
+                }
+            }
+            if ( ajax )
+            {
+                connection.setRequestProperty( "Wicket-Ajax", "true" );
+                connection.setRequestProperty( "Wicket-Ajax-BaseURL", ajaxBaseUrl != null ? ajaxBaseUrl : "." );
+                connection.setRequestProperty( "X-Requested-With", "XMLHttpRequest" );
+            }
+            if ( body != null )
+            {
+                connection.setDoOutput( true );
+                connection.setRequestProperty( "Content-Type", "application/x-www-form-urlencoded; charset=UTF-8" );
+                byte[] bytes = body.getBytes( StandardCharsets.UTF_8 );
+                connection.setFixedLengthStreamingMode( bytes.length );
+                try ( OutputStream out = connection.getOutputStream() )
+                {
+                    out.write( bytes );
+                }
+            }
+            int status = connection.getResponseCode();
+            cookies.put( uri, connection.getHeaderFields() );
+            String text = read( status >= 400 ? connection.getErrorStream() : connection.getInputStream() );
+            String location = connection.getHeaderField( "Location" );
+            if ( status >= 300 && status < 400 && location != null )
+            {
+                uri = resolve( uri, location );
+                method = "GET";
+                body = null;
+                ajax = false;
+                continue;
+            }
+            // wicket may answer an ajax request that leaves the page with a header rather than a 3xx:
+            String ajaxLocation = connection.getHeaderField( "Ajax-Location" );
+            if ( ajaxLocation != null )
+            {
+                uri = resolve( uri, ajaxLocation );
+                method = "GET";
+                body = null;
+                ajax = false;
+                continue;
+            }
+            if ( status >= 400 )
+            {
+                throw new IOException( "http " + status + " from " + method + " " + uri + ": " + abbreviate( text ) );
+            }
+            return new Response( uri, text );
+        }
+        throw new IOException( "too many redirects from " + uri );
+    }
+
+
+    private Map<String, List<String>> cookies( URI uri ) throws IOException
+    {
+        return cookies.get( uri, Collections.<String, List<String>>emptyMap() );
+    }
+
+
+    private static URI resolve( URI base, String target )
+    {
+        return base.resolve( target.replace( " ", "%20" ) );
+    }
+
+
+    private static String read( InputStream in ) throws IOException
+    {
+        if ( in == null )
+        {
+            return "";
+        }
+        try ( InputStream stream = in )
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ( ( count = stream.read( buffer ) ) > 0 )
+            {
+                out.write( buffer, 0, count );
+            }
+            return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+        }
+    }
+
+
+    private static String encode( Map<String, String> form ) throws IOException
+    {
+        StringBuilder body = new StringBuilder();
+        for ( Map.Entry<String, String> field : form.entrySet() )
+        {
+            if ( body.length() > 0 )
+            {
+                body.append( '&' );
+            }
+            body.append( URLEncoder.encode( field.getKey(), "UTF-8" ) ).append( '=' )
+                .append( URLEncoder.encode( field.getValue(), "UTF-8" ) );
+        }
+        return body.toString();
+    }
+
+
+    private static String unescape( String json )
+    {
+        return json.replace( "\\/", "/" ).replace( "\\\"", "\"" ).replace( "\\\\", "\\" );
+    }
+
+
+    private static String unescapeHtml( String html )
+    {
+        return html.replace( "&quot;", "\"" ).replace( "&#039;", "'" ).replace( "&lt;", "<" ).replace( "&gt;", ">" )
+            .replace( "&amp;", "&" );
+    }
+
+
+    private static String abbreviate( String text )
+    {
+        return text.length() > 200 ? text.substring( 0, 200 ) + "..." : text;
+    }
+
+
+    private static class Response
+    {
+        private final URI uri;
+        private final String body;
+
+
+        private Response( URI uri, String body )
+        {
+            this.uri = uri;
+            this.body = body;
+        }
+    }
+}